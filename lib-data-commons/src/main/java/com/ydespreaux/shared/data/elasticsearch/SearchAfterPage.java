@@ -0,0 +1,27 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import java.util.List;
+
+/**
+ * Page of a search_after pagination, see {@link SearchAfterPageable}.
+ *
+ * @param <T>
+ */
+public interface SearchAfterPage<T> {
+
+    /**
+     * @return the cursor of the next page, null if this page is the last one.
+     */
+    String getNextCursor();
+
+    Long getTotalElements();
+
+    List<T> getContent();
+
+    /**
+     * @return true if a next page may exist.
+     */
+    default boolean hasNext() {
+        return getNextCursor() != null;
+    }
+}
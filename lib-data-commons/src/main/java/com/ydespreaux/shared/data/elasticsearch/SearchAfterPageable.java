@@ -0,0 +1,80 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Page request of a search_after pagination : the next page starts after the last hit of the previous page, whose
+ * sort values are carried by an opaque cursor. No search context is kept by the cluster between two pages.
+ */
+public class SearchAfterPageable extends PageRequest {
+
+    private static final long serialVersionUID = 3630617064185474121L;
+
+    /**
+     * Cursor returned by {@link SearchAfterPage#getNextCursor()}, null for the first page.
+     */
+    @Getter
+    private final String cursor;
+
+    private SearchAfterPageable(int size, Sort sort, String cursor) {
+        super(0, size, sort);
+        this.cursor = cursor;
+    }
+
+    /**
+     *
+     * @param size
+     * @return
+     */
+    public static SearchAfterPageable of(int size) {
+        return of(size, Sort.unsorted(), null);
+    }
+
+    /**
+     *
+     * @param size
+     * @param sort
+     * @return
+     */
+    public static SearchAfterPageable of(int size, Sort sort) {
+        return of(size, sort, null);
+    }
+
+    /**
+     *
+     * @param size
+     * @param sort   must be the sort of the page which returned the cursor.
+     * @param cursor
+     * @return
+     */
+    public static SearchAfterPageable of(int size, Sort sort, String cursor) {
+        return new SearchAfterPageable(size, sort == null ? Sort.unsorted() : sort, cursor);
+    }
+
+    /**
+     * @param cursor the cursor of the next page.
+     * @return the request of the page following the given cursor, with the same size and sort.
+     */
+    public SearchAfterPageable next(String cursor) {
+        return of(getPageSize(), getSort(), cursor);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SearchAfterPageable) || !super.equals(obj)) {
+            return false;
+        }
+        String other = ((SearchAfterPageable) obj).cursor;
+        return this.cursor == null ? other == null : this.cursor.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + (this.cursor == null ? 0 : this.cursor.hashCode());
+    }
+}
@@ -1 +1 @@
-package com.ydespreaux.shared.data.autoconfigure.elasticsearch;import com.google.gson.Gson;import com.google.gson.GsonBuilder;import com.ydespreaux.shared.data.elasticsearch.adapter.TimeTypeAdapterRegistry;import io.searchbox.client.JestClient;import io.searchbox.client.JestClientFactory;import io.searchbox.client.config.HttpClientConfig;import lombok.extern.slf4j.Slf4j;import org.apache.http.HttpHost;import org.springframework.beans.factory.ObjectProvider;import org.springframework.beans.factory.annotation.Autowired;import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;import org.springframework.boot.autoconfigure.elasticsearch.jest.HttpClientConfigBuilderCustomizer;import org.springframework.boot.autoconfigure.elasticsearch.jest.JestProperties;import org.springframework.boot.autoconfigure.jackson.JacksonProperties;import org.springframework.boot.context.properties.EnableConfigurationProperties;import org.springframework.context.annotation.Bean;import org.springframework.context.annotation.Configuration;import org.springframework.util.Assert;import org.springframework.util.CollectionUtils;import org.springframework.util.StringUtils;import java.util.ArrayList;import java.util.List;/** * Configuration that enabled the lib-core-elasctic-jest module. * This annotation is descrbe in spring.factories file under src/mai/resources lib-core-elasctic-jest module. * Using this module, launch these configurations. */@Slf4j@Configuration@ConditionalOnClass(JestClient.class)@EnableConfigurationProperties({JestProperties.class, JacksonProperties.class})public class JestElasticsearchAutoConfiguration {    private final JestProperties jestProperties;    private final JacksonProperties jacksonProperties;    @Autowired(required = false)    private JestClientFactory jestClientFactory;    @Autowired(required = false)    private ObjectProvider<List<HttpClientConfigBuilderCustomizer>> builderCustomizers;    @Autowired    public JestElasticsearchAutoConfiguration(final JestProperties jestProperties, final JacksonProperties jacksonProperties) {        this.jestProperties = jestProperties;        this.jacksonProperties = jacksonProperties;    }    @Bean    @ConditionalOnMissingBean(JestClient.class)    public JestClient client() {        Assert.notEmpty(jestProperties.getUris(), "No elasticsearch uris defined");        List<String> uris = jestProperties.getUris();        HttpClientConfig.Builder builder = new HttpClientConfig.Builder(uris)                .connTimeout((int) jestProperties.getConnectionTimeout().toMillis())                .readTimeout((int) jestProperties.getReadTimeout().toMillis())                .multiThreaded(jestProperties.isMultiThreaded())                .gson(gsonMapper());        if (StringUtils.hasText(this.jestProperties.getUsername())) {            builder.defaultCredentials(this.jestProperties.getUsername(), this.jestProperties.getPassword());        }        String proxyHost = this.jestProperties.getProxy().getHost();        if (StringUtils.hasText(proxyHost)) {            Integer proxyPort = this.jestProperties.getProxy().getPort();            Assert.notNull(proxyPort, "Proxy port must not be null");            builder.proxy(new HttpHost(proxyHost, proxyPort));        }        List<HttpClientConfigBuilderCustomizer> configBuilderCustomizers = builderCustomizers != null ? builderCustomizers.getIfAvailable() : new ArrayList<>();        if (!CollectionUtils.isEmpty(configBuilderCustomizers)) {            if (log.isInfoEnabled()) {                log.info("Custom HttpClientConfigBuilderCustomizers detected. Applying these to the HttpClientConfig builder.");            }            configBuilderCustomizers.stream().forEach(customizer -> customizer.customize(builder));            if (log.isInfoEnabled()) {                log.info("Custom HttpClientConfigBuilderCustomizers applied.");            }        }        JestClientFactory factory = jestClientFactory != null ? jestClientFactory : new JestClientFactory();        factory.setHttpClientConfig(builder.build());        if (log.isInfoEnabled()) {            uris.forEach(uri -> log.info("New Elasticsearch host {} added", uri));        }        return factory.getObject();    }    /**     * @return     */    private Gson gsonMapper() {        GsonBuilder builder = new GsonBuilder();        TimeTypeAdapterRegistry.registerAll(builder);        if (jacksonProperties.getDateFormat() != null) {            builder.setDateFormat(jacksonProperties.getDateFormat());        } else {            builder.setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");        }        return builder.create();    }}
\ No newline at end of file
+package com.ydespreaux.shared.data.autoconfigure.elasticsearch;import com.google.gson.Gson;import com.google.gson.GsonBuilder;import com.ydespreaux.shared.data.autoconfigure.elasticsearch.settings.JestHttpClientProperties;import com.ydespreaux.shared.data.elasticsearch.adapter.TimeTypeAdapterRegistry;import com.ydespreaux.shared.data.elasticsearch.client.ElasticsearchJestClient;import com.ydespreaux.shared.data.elasticsearch.client.ElasticsearchJestClientFactory;import com.ydespreaux.shared.data.elasticsearch.client.NodeSelector;import io.searchbox.client.JestClient;import io.searchbox.client.JestClientFactory;import io.searchbox.client.config.HttpClientConfig;import lombok.extern.slf4j.Slf4j;import org.apache.http.HttpHost;import org.springframework.beans.factory.ObjectProvider;import org.springframework.beans.factory.annotation.Autowired;import org.springframework.boot.autoconfigure.AutoConfigureAfter;import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;import org.springframework.boot.autoconfigure.elasticsearch.jest.HttpClientConfigBuilderCustomizer;import org.springframework.boot.autoconfigure.elasticsearch.jest.JestProperties;import org.springframework.boot.autoconfigure.jackson.JacksonProperties;import org.springframework.boot.context.properties.EnableConfigurationProperties;import org.springframework.context.annotation.Bean;import org.springframework.context.annotation.Configuration;import org.springframework.util.Assert;import org.springframework.util.CollectionUtils;import org.springframework.util.StringUtils;import java.util.ArrayList;import java.util.List;import java.util.concurrent.TimeUnit;/** * Configuration that enabled the lib-core-elasctic-jest module. * This annotation is descrbe in spring.factories file under src/mai/resources lib-core-elasctic-jest module. * Using this module, launch these configurations. */@Slf4j@Configuration@ConditionalOnClass(JestClient.class)@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")@EnableConfigurationProperties({JestProperties.class, JacksonProperties.class, JestHttpClientProperties.class})public class JestElasticsearchAutoConfiguration {    private final JestProperties jestProperties;    private final JacksonProperties jacksonProperties;    private final JestHttpClientProperties httpClientProperties;    @Autowired(required = false)    private JestClientFactory jestClientFactory;    @Autowired(required = false)    private ObjectProvider<List<HttpClientConfigBuilderCustomizer>> builderCustomizers;    @Autowired    public JestElasticsearchAutoConfiguration(final JestProperties jestProperties,                                              final JacksonProperties jacksonProperties,                                              final JestHttpClientProperties httpClientProperties) {        this.jestProperties = jestProperties;        this.jacksonProperties = jacksonProperties;        this.httpClientProperties = httpClientProperties;    }    @Bean    @ConditionalOnMissingBean(JestClient.class)    public JestClient client() {        Assert.notEmpty(jestProperties.getUris(), "No elasticsearch uris defined");        List<String> uris = jestProperties.getUris();        HttpClientConfig.Builder builder = new HttpClientConfig.Builder(uris)                .connTimeout((int) jestProperties.getConnectionTimeout().toMillis())                .readTimeout((int) jestProperties.getReadTimeout().toMillis())                .multiThreaded(jestProperties.isMultiThreaded())                .gson(gsonMapper())                .requestCompressionEnabled(this.httpClientProperties.getCompression().isRequests());        configureConnectionPool(builder);        configureDiscovery(builder);        if (StringUtils.hasText(this.jestProperties.getUsername())) {            builder.defaultCredentials(this.jestProperties.getUsername(), this.jestProperties.getPassword());        }        String proxyHost = this.jestProperties.getProxy().getHost();        if (StringUtils.hasText(proxyHost)) {            Integer proxyPort = this.jestProperties.getProxy().getPort();            Assert.notNull(proxyPort, "Proxy port must not be null");            builder.proxy(new HttpHost(proxyHost, proxyPort));        }        List<HttpClientConfigBuilderCustomizer> configBuilderCustomizers = builderCustomizers != null ? builderCustomizers.getIfAvailable() : new ArrayList<>();        if (!CollectionUtils.isEmpty(configBuilderCustomizers)) {            if (log.isInfoEnabled()) {                log.info("Custom HttpClientConfigBuilderCustomizers detected. Applying these to the HttpClientConfig builder.");            }            configBuilderCustomizers.stream().forEach(customizer -> customizer.customize(builder));            if (log.isInfoEnabled()) {                log.info("Custom HttpClientConfigBuilderCustomizers applied.");            }        }        JestClientFactory factory = jestClientFactory != null ? jestClientFactory : new ElasticsearchJestClientFactory();        if (factory instanceof ElasticsearchJestClientFactory) {            ((ElasticsearchJestClientFactory) factory).setConnectionTimeToLive(this.httpClientProperties.getConnectionTimeToLive());            ((ElasticsearchJestClientFactory) factory).setKeepAlive(this.httpClientProperties.getKeepAlive());            ((ElasticsearchJestClientFactory) factory).setConnectionRequestTimeout(this.httpClientProperties.getConnectionRequestTimeout());            ((ElasticsearchJestClientFactory) factory).setIoThreadCount(this.httpClientProperties.getNonBlocking().getIoThreadCount());            ((ElasticsearchJestClientFactory) factory).setMaxInFlightRequestsPerNode(                    this.httpClientProperties.getNonBlocking().getMaxInFlightRequestsPerNode());        }        factory.setHttpClientConfig(builder.build());        if (log.isInfoEnabled()) {            uris.forEach(uri -> log.info("New Elasticsearch host {} added", uri));        }        JestClient client = factory.getObject();        if (client instanceof ElasticsearchJestClient) {            configureCompression((ElasticsearchJestClient) client);            ((ElasticsearchJestClient) client).setNonBlockingTransport(this.httpClientProperties.getNonBlocking().isEnabled());            configureNodeSelection((ElasticsearchJestClient) client);        }        return client;    }    /**     * @param builder the http client configuration builder.     */    private void configureConnectionPool(HttpClientConfig.Builder builder) {        if (this.httpClientProperties.getMaxTotalConnection() != null) {            builder.maxTotalConnection(this.httpClientProperties.getMaxTotalConnection());        }        if (this.httpClientProperties.getDefaultMaxTotalConnectionPerRoute() != null) {            builder.defaultMaxTotalConnectionPerRoute(this.httpClientProperties.getDefaultMaxTotalConnectionPerRoute());        }        if (this.httpClientProperties.getMaxConnectionIdleTime() != null) {            builder.maxConnectionIdleTime(this.httpClientProperties.getMaxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS);        }    }    /**     * @param client the jest client.     */    private void configureCompression(ElasticsearchJestClient client) {        JestHttpClientProperties.Compression compression = this.httpClientProperties.getCompression();        client.setBulkCompressionEnabled(compression.isBulk());        client.setCompressionThreshold((int) Math.min(Integer.MAX_VALUE, compression.getMinRequestSize().toBytes()));        client.setResponseCompressionEnabled(compression.isResponses());    }    /**     * @param client the jest client.     */    private void configureNodeSelection(ElasticsearchJestClient client) {        JestHttpClientProperties.NodeSelection nodeSelection = this.httpClientProperties.getNodeSelection();        if (!nodeSelection.isEnabled()) {            return;        }        NodeSelector nodeSelector = new NodeSelector(nodeSelection.getFailureThreshold(), nodeSelection.getOpenDuration());        nodeSelector.setSearchNodes(nodeSelection.getSearchNodes());        nodeSelector.setIngestNodes(nodeSelection.getIngestNodes());        client.setNodeSelector(nodeSelector);    }    /**     * @param builder the http client configuration builder.     */    private void configureDiscovery(HttpClientConfig.Builder builder) {        JestHttpClientProperties.Discovery discovery = this.httpClientProperties.getDiscovery();        builder.discoveryEnabled(discovery.isEnabled())                .discoveryFrequency(discovery.getFrequency().toMillis(), TimeUnit.MILLISECONDS);        if (StringUtils.hasText(discovery.getFilter())) {            builder.discoveryFilter(discovery.getFilter());        }    }    /**     * @return     */    private Gson gsonMapper() {        GsonBuilder builder = new GsonBuilder();        TimeTypeAdapterRegistry.registerAll(builder);        if (jacksonProperties.getDateFormat() != null) {            builder.setDateFormat(jacksonProperties.getDateFormat());        } else {            builder.setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");        }        return builder.create();    }}
\ No newline at end of file
@@ -1 +1 @@
-package com.ydespreaux.shared.data.autoconfigure.elasticsearch;import com.ydespreaux.shared.data.autoconfigure.elasticsearch.settings.TemplateAction;import com.ydespreaux.shared.data.autoconfigure.elasticsearch.settings.TemplateProperties;import com.ydespreaux.shared.data.elasticsearch.ElasticsearchOperations;import com.ydespreaux.shared.data.elasticsearch.JestElasticsearchTemplate;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchConverter;import com.ydespreaux.shared.data.elasticsearch.mapping.MappingElasticsearchConverter;import io.searchbox.client.JestClient;import lombok.*;import lombok.extern.slf4j.Slf4j;import org.apache.commons.io.FilenameUtils;import org.springframework.boot.autoconfigure.AutoConfigureAfter;import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;import org.springframework.boot.context.properties.EnableConfigurationProperties;import org.springframework.context.ApplicationContext;import org.springframework.context.ApplicationContextAware;import org.springframework.context.annotation.Bean;import org.springframework.context.annotation.Configuration;import org.springframework.core.io.Resource;import org.springframework.util.StringUtils;import java.util.ArrayList;import java.util.List;/** * Configuration providing beans for ElasticSearch operation. * Autoconfigure the use of lib-core-elasctic-jest module. */@Slf4j@Configuration@AutoConfigureAfter(JestElasticsearchAutoConfiguration.class)@EnableConfigurationProperties({TemplateProperties.class})public class JestElasticsearchDataAutoConfiguration implements ApplicationContextAware {    private final TemplateProperties settings;    private ApplicationContext context;    /**     * JestElasticsearchDataAutoConfiguration contructor with the given     * @param settings     */    public JestElasticsearchDataAutoConfiguration(final TemplateProperties settings) {        this.settings = settings;    }    @Bean    @ConditionalOnMissingBean    public ElasticsearchOperations elasticsearchTemplate(final JestClient client) {        JestElasticsearchTemplate operations = new JestElasticsearchTemplate(client, elasticsearchConverter());        buildTemplates().forEach(template -> {            if (template.getAction() != TemplateAction.NONE) {                operations.createTemplate(template.getName(), template.getLocations(), template.getAction() == TemplateAction.CREATE_ONLY);            }        });        return operations;    }    @Bean    @ConditionalOnMissingBean    public ElasticsearchConverter elasticsearchConverter() {        return new MappingElasticsearchConverter(this.context.getEnvironment());    }    @Override    public void setApplicationContext(ApplicationContext applicationContext) {        this.context = applicationContext;    }    /**     * @return     */    protected List<TemplateSettings> buildTemplates() {        final List<TemplateSettings> templates = new ArrayList<>();        if (this.settings.getAction() == TemplateAction.NONE) {            return templates;        }        final String[] profiles = context.getEnvironment().getActiveProfiles();        this.settings.getScripts().forEach(location -> {            List<Resource> locations = new ArrayList<>(profiles.length + 1);            Resource resource = context.getResource(location);            if (resource.exists()) {                locations.add(resource);            } else if (log.isWarnEnabled()) {                log.warn("Resource {} not found", location);            }            String extension = FilenameUtils.getExtension(location);            boolean hasExtension = StringUtils.hasLength(extension);            String prefix = location.substring(0, location.length() - (hasExtension ? extension.length() + 1 : 0));            for (String profile : profiles) {                String profilPath = prefix + "-" + profile + (hasExtension ? "." + extension : "");                Resource profilResource = context.getResource(profilPath);                if (profilResource.exists()) {                    locations.add(profilResource);                }            }            StringBuilder templateName = new StringBuilder(FilenameUtils.getBaseName(resource.getFilename()));            if (profiles.length > 0) {                templateName.append("-").append(profiles[0]);            }            templates.add(TemplateSettings.builder()                    .action(this.settings.getAction())                    .name(templateName.toString())                    .locations(locations)                    .build());        });        return templates;    }    @Getter    @Setter    @NoArgsConstructor    @AllArgsConstructor    @Builder    public static class TemplateSettings {        /**         * Définit le nom du template         */        private String name;        /**         * Définit l'action à effectuer sur le template courant.         */        private TemplateAction action;        /**         * Définit la liste des ressources des scripts du template         */        private List<Resource> locations;    }}
\ No newline at end of file
+package com.ydespreaux.shared.data.autoconfigure.elasticsearch;import com.ydespreaux.shared.data.autoconfigure.elasticsearch.settings.QueryCacheProperties;import com.ydespreaux.shared.data.autoconfigure.elasticsearch.settings.TemplateAction;import com.ydespreaux.shared.data.autoconfigure.elasticsearch.settings.TemplateProperties;import com.ydespreaux.shared.data.elasticsearch.ElasticsearchOperations;import com.ydespreaux.shared.data.elasticsearch.JestElasticsearchTemplate;import com.ydespreaux.shared.data.elasticsearch.ReactiveElasticsearchOperations;import com.ydespreaux.shared.data.elasticsearch.ReactiveJestElasticsearchTemplate;import com.ydespreaux.shared.data.elasticsearch.cache.QueryCache;import com.ydespreaux.shared.data.elasticsearch.client.ElasticsearchJestClient;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchConverter;import com.ydespreaux.shared.data.elasticsearch.mapping.MappingElasticsearchConverter;import com.ydespreaux.shared.data.elasticsearch.metrics.ConnectionPoolMetrics;import com.ydespreaux.shared.data.elasticsearch.metrics.ElasticsearchMetrics;import com.ydespreaux.shared.data.elasticsearch.metrics.MicrometerElasticsearchMetrics;import com.ydespreaux.shared.data.elasticsearch.msearch.MultiSearchBatch;import io.micrometer.core.instrument.MeterRegistry;import io.micrometer.core.instrument.binder.MeterBinder;import io.searchbox.client.JestClient;import lombok.*;import lombok.extern.slf4j.Slf4j;import org.apache.commons.io.FilenameUtils;import org.springframework.beans.factory.ObjectProvider;import org.springframework.boot.autoconfigure.AutoConfigureAfter;import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;import org.springframework.boot.context.properties.EnableConfigurationProperties;import org.springframework.context.ApplicationContext;import org.springframework.context.ApplicationContextAware;import org.springframework.context.annotation.Bean;import org.springframework.context.annotation.Conditional;import org.springframework.context.annotation.Configuration;import org.springframework.core.io.Resource;import org.springframework.util.StringUtils;import org.springframework.web.context.annotation.RequestScope;import java.util.ArrayList;import java.util.List;/** * Configuration providing beans for ElasticSearch operation. * Autoconfigure the use of lib-core-elasctic-jest module. */@Slf4j@Configuration@AutoConfigureAfter(value = JestElasticsearchAutoConfiguration.class,        name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")@EnableConfigurationProperties({TemplateProperties.class, QueryCacheProperties.class})public class JestElasticsearchDataAutoConfiguration implements ApplicationContextAware {    private final TemplateProperties settings;    private ApplicationContext context;    /**     * JestElasticsearchDataAutoConfiguration contructor with the given     * @param settings     */    public JestElasticsearchDataAutoConfiguration(final TemplateProperties settings) {        this.settings = settings;    }    @Bean    @ConditionalOnMissingBean    public ElasticsearchOperations elasticsearchTemplate(final JestClient client,                                                        final ObjectProvider<QueryCache> queryCache,                                                        final ObjectProvider<ElasticsearchMetrics> metrics) {        JestElasticsearchTemplate operations = new JestElasticsearchTemplate(client, elasticsearchConverter());        queryCache.ifAvailable(operations::setQueryCache);        metrics.ifAvailable(operations::setMetrics);        buildTemplates().forEach(template -> {            if (template.getAction() != TemplateAction.NONE) {                operations.createTemplate(template.getName(), template.getLocations(), template.getAction() == TemplateAction.CREATE_ONLY);            }        });        return operations;    }    @Bean    @ConditionalOnMissingBean    public ElasticsearchConverter elasticsearchConverter() {        return new MappingElasticsearchConverter(this.context.getEnvironment());    }    @Bean    @ConditionalOnMissingBean    @ConditionalOnProperty(prefix = "spring.elasticsearch.cache", name = "enabled", havingValue = "true")    public QueryCache queryCache(final QueryCacheProperties properties) {        return new QueryCache(properties.getMaximumWeight(), properties.getTimeToLive(), properties.getRefreshInterval());    }    @Override    public void setApplicationContext(ApplicationContext applicationContext) {        this.context = applicationContext;    }    /**     * Reactive operations, available when reactor is in the classpath.     */    @Configuration    @ConditionalOnClass(name = "reactor.core.publisher.Mono")    public static class ReactiveElasticsearchConfiguration {        @Bean        @ConditionalOnMissingBean        public ReactiveElasticsearchOperations reactiveElasticsearchTemplate(final JestClient client, final ElasticsearchOperations operations,                                                                             final ObjectProvider<QueryCache> queryCache) {            ReactiveJestElasticsearchTemplate reactiveOperations = new ReactiveJestElasticsearchTemplate(client, operations);            queryCache.ifAvailable(reactiveOperations::setQueryCache);            return reactiveOperations;        }    }    /**     * Micrometer metrics of the requests and statistics of the connection pools, available when a meter registry     * is defined.     */    @Configuration    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")    public static class ElasticsearchMetricsConfiguration {        @Bean        @ConditionalOnBean(MeterRegistry.class)        @ConditionalOnMissingBean        public ElasticsearchMetrics elasticsearchMetrics(final MeterRegistry registry, final ObjectProvider<QueryCache> queryCache) {            MicrometerElasticsearchMetrics metrics = new MicrometerElasticsearchMetrics(registry);            queryCache.ifAvailable(metrics::bindQueryCache);            return metrics;        }        /**         * Declared after the jest client, for its condition.         */        @Bean        @ConditionalOnBean(MeterRegistry.class)        @Conditional(OnElasticsearchJestClientCondition.class)        public MeterBinder elasticsearchConnectionPoolMetrics(final JestClient client) {            return new ConnectionPoolMetrics((ElasticsearchJestClient) client);        }    }    /**     * Multi search batch of the current http request, available in a servlet web application.     */    @Configuration    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)    public static class MultiSearchBatchConfiguration {        @Bean        @RequestScope        @ConditionalOnMissingBean        public MultiSearchBatch multiSearchBatch(final ElasticsearchOperations operations) {            return new MultiSearchBatch(operations);        }    }    /**     * @return     */    protected List<TemplateSettings> buildTemplates() {        final List<TemplateSettings> templates = new ArrayList<>();        if (this.settings.getAction() == TemplateAction.NONE) {            return templates;        }        final String[] profiles = context.getEnvironment().getActiveProfiles();        this.settings.getScripts().forEach(location -> {            List<Resource> locations = new ArrayList<>(profiles.length + 1);            Resource resource = context.getResource(location);            if (resource.exists()) {                locations.add(resource);            } else if (log.isWarnEnabled()) {                log.warn("Resource {} not found", location);            }            String extension = FilenameUtils.getExtension(location);            boolean hasExtension = StringUtils.hasLength(extension);            String prefix = location.substring(0, location.length() - (hasExtension ? extension.length() + 1 : 0));            for (String profile : profiles) {                String profilPath = prefix + "-" + profile + (hasExtension ? "." + extension : "");                Resource profilResource = context.getResource(profilPath);                if (profilResource.exists()) {                    locations.add(profilResource);                }            }            StringBuilder templateName = new StringBuilder(FilenameUtils.getBaseName(resource.getFilename()));            if (profiles.length > 0) {                templateName.append("-").append(profiles[0]);            }            templates.add(TemplateSettings.builder()                    .action(this.settings.getAction())                    .name(templateName.toString())                    .locations(locations)                    .build());        });        return templates;    }    @Getter    @Setter    @NoArgsConstructor    @AllArgsConstructor    @Builder    public static class TemplateSettings {        /**         * Définit le nom du template         */        private String name;        /**         * Définit l'action à effectuer sur le template courant.         */        private TemplateAction action;        /**         * Définit la liste des ressources des scripts du template         */        private List<Resource> locations;    }}
\ No newline at end of file
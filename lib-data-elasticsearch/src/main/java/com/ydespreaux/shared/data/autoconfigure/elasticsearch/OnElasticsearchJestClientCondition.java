@@ -0,0 +1,46 @@
+package com.ydespreaux.shared.data.autoconfigure.elasticsearch;
+
+import com.ydespreaux.shared.data.elasticsearch.client.ElasticsearchJestClient;
+import com.ydespreaux.shared.data.elasticsearch.client.ElasticsearchJestClientFactory;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestClientFactory;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.MethodMetadata;
+
+/**
+ * Matches when the jest client is an {@link ElasticsearchJestClient} : a client bean declared with this type, or the
+ * client of {@link JestElasticsearchAutoConfiguration} created by an {@link ElasticsearchJestClientFactory}.
+ * The jest client must be defined before the evaluation of the condition.
+ */
+class OnElasticsearchJestClientCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        String[] clients = beanFactory.getBeanNamesForType(JestClient.class, true, false);
+        if (clients.length != 1) {
+            return ConditionOutcome.noMatch("No single jest client");
+        }
+        if (beanFactory.isTypeMatch(clients[0], ElasticsearchJestClient.class)) {
+            return ConditionOutcome.match("Elasticsearch jest client bean");
+        }
+        BeanDefinition definition = beanFactory.getBeanDefinition(clients[0]);
+        MethodMetadata factoryMethod = definition instanceof AnnotatedBeanDefinition
+                ? ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata() : null;
+        if (factoryMethod == null || !JestElasticsearchAutoConfiguration.class.getName().equals(factoryMethod.getDeclaringClassName())) {
+            return ConditionOutcome.noMatch("Jest client not created by the auto-configuration");
+        }
+        for (String factory : beanFactory.getBeanNamesForType(JestClientFactory.class, true, false)) {
+            if (!beanFactory.isTypeMatch(factory, ElasticsearchJestClientFactory.class)) {
+                return ConditionOutcome.noMatch("Jest client factory other than the elasticsearch jest client factory");
+            }
+        }
+        return ConditionOutcome.match("Jest client created by the elasticsearch jest client factory");
+    }
+}
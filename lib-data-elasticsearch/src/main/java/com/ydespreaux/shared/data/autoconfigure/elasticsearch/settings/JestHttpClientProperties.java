@@ -0,0 +1,155 @@
+package com.ydespreaux.shared.data.autoconfigure.elasticsearch.settings;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spring boot configuration property class for the http client of jest : connection pool, compression,
+ * non blocking transport, discovery and selection of the nodes.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "spring.elasticsearch.jest.http-client")
+public class JestHttpClientProperties {
+
+    /**
+     * Nombre maximum de connexions du pool, toutes routes confondues.
+     */
+    private Integer maxTotalConnection;
+    /**
+     * Nombre maximum de connexions du pool par noeud elasticsearch.
+     */
+    private Integer defaultMaxTotalConnectionPerRoute;
+    /**
+     * Durée de vie maximale d'une connexion du pool, quelle que soit son activité.
+     */
+    private Duration connectionTimeToLive;
+    /**
+     * Durée maximale de maintien d'une connexion inactive, si la réponse ne la précise pas ou la dépasse.
+     */
+    private Duration keepAlive;
+    /**
+     * Durée d'inactivité au-delà de laquelle une connexion est fermée : les connexions inactives sont recherchées
+     * à cet intervalle.
+     */
+    private Duration maxConnectionIdleTime;
+    /**
+     * Durée maximale d'attente d'une connexion du pool, sans limite par défaut.
+     */
+    private Duration connectionRequestTimeout;
+    /**
+     * Compression des requêtes et des réponses.
+     */
+    private Compression compression = new Compression();
+    /**
+     * Transport non bloquant.
+     */
+    private NonBlocking nonBlocking = new NonBlocking();
+    /**
+     * Découverte des noeuds du cluster.
+     */
+    private Discovery discovery = new Discovery();
+    /**
+     * Sélection du noeud de chaque requête.
+     */
+    private NodeSelection nodeSelection = new NodeSelection();
+
+    @Getter
+    @Setter
+    public static class Discovery {
+
+        /**
+         * Active la découverte des noeuds du cluster.
+         */
+        private boolean enabled = false;
+        /**
+         * Intervalle entre deux découvertes des noeuds.
+         */
+        private Duration frequency = Duration.ofSeconds(10);
+        /**
+         * Filtre des noeuds découverts, par exemple "_all" ou "data:true".
+         */
+        private String filter;
+    }
+
+    @Getter
+    @Setter
+    public static class Compression {
+
+        /**
+         * Active la compression gzip du corps des requêtes.
+         */
+        private boolean requests = false;
+        /**
+         * Active la compression gzip du corps des bulks, même si la compression des requêtes est désactivée.
+         */
+        private boolean bulk = false;
+        /**
+         * Taille minimale du corps d'une requête pour qu'il soit compressé, bulks en flux compris : le début de leur
+         * corps est écrit en mémoire jusqu'à cette taille.
+         */
+        private DataSize minRequestSize = DataSize.ofKilobytes(1);
+        /**
+         * Demande des réponses compressées en gzip pour les requêtes asynchrones, les requêtes synchrones les
+         * demandant déjà.
+         */
+        private boolean responses = false;
+    }
+
+    @Getter
+    @Setter
+    public static class NonBlocking {
+
+        /**
+         * Exécute aussi les requêtes synchrones avec le client asynchrone (NIO), utilisé par le template réactif : le
+         * thread appelant attend la réponse, au plus le délai de lecture plus les délais de connexion et d'attente
+         * d'une connexion du pool.
+         */
+        private boolean enabled = false;
+        /**
+         * Nombre de threads d'entrées/sorties du client asynchrone, le nombre de processeurs par défaut.
+         */
+        private Integer ioThreadCount;
+        /**
+         * Nombre maximum de requêtes en cours par noeud elasticsearch avec le client asynchrone : les requêtes
+         * suivantes attendent une connexion, sans bloquer de thread pour les requêtes asynchrones.
+         */
+        private Integer maxInFlightRequestsPerNode;
+    }
+
+    @Getter
+    @Setter
+    public static class NodeSelection {
+
+        /**
+         * Choisit le noeud de chaque requête selon la latence et le taux d'erreurs des requêtes précédentes, au lieu
+         * d'un round robin.
+         */
+        private boolean enabled = false;
+        /**
+         * Uris des noeuds à privilégier pour les recherches, par exemple les noeuds de coordination : les noms
+         * d'hôte sont résolus au démarrage, les noeuds découverts étant des adresses ip.
+         */
+        private List<String> searchNodes = new ArrayList<>();
+        /**
+         * Uris des noeuds à privilégier pour les bulks, par exemple les noeuds ingest : les noms d'hôte sont
+         * résolus au démarrage.
+         */
+        private List<String> ingestNodes = new ArrayList<>();
+        /**
+         * Nombre d'échecs consécutifs au-delà duquel un noeud n'est plus utilisé.
+         */
+        private int failureThreshold = 5;
+        /**
+         * Durée pendant laquelle un noeud en échec n'est plus utilisé, avant une requête d'essai.
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+}
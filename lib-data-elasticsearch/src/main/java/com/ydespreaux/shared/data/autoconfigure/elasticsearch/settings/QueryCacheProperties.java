@@ -0,0 +1,37 @@
+package com.ydespreaux.shared.data.autoconfigure.elasticsearch.settings;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Spring boot configuration property class for the query cache of the template.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "spring.elasticsearch.cache")
+public class QueryCacheProperties {
+
+    /**
+     * Active le cache local des recherches, des comptages et des lectures par id.
+     */
+    private boolean enabled = false;
+    /**
+     * Taille maximale en octets des réponses json mises en cache.
+     */
+    private long maximumWeight = 64L * 1024 * 1024;
+    /**
+     * Durée de vie des résultats par classe de document, nom complet ou nom simple de la classe : prioritaire sur
+     * l'attribut cacheTimeToLiveInSeconds de l'annotation Document.
+     */
+    private Map<String, Duration> timeToLive = new HashMap<>();
+    /**
+     * Intervalle de rafraîchissement des index : les résultats lus pendant cet intervalle après une écriture ne sont
+     * pas mis en cache, l'écriture n'étant pas encore visible par les recherches.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,72 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Define the delays to wait between the retries of the bulk items rejected by elasticsearch.
+ * Each call to {@link #iterator()} starts a new sequence of delays.
+ */
+public final class BackoffPolicy implements Iterable<Duration> {
+
+    private static final Duration DEFAULT_INITIAL_DELAY = Duration.ofMillis(50);
+    private static final int DEFAULT_MAX_RETRIES = 8;
+
+    private final Duration initialDelay;
+    private final int maxRetries;
+
+    private BackoffPolicy(Duration initialDelay, int maxRetries) {
+        this.initialDelay = initialDelay;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @return a policy which never retries.
+     */
+    public static BackoffPolicy noBackoff() {
+        return new BackoffPolicy(Duration.ZERO, 0);
+    }
+
+    /**
+     * @return an exponential policy starting at 50ms with at most 8 retries (about 12.8s of total wait).
+     */
+    public static BackoffPolicy exponentialBackoff() {
+        return exponentialBackoff(DEFAULT_INITIAL_DELAY, DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * Exponential policy : the delay doubles after each retry.
+     *
+     * @param initialDelay the delay before the first retry.
+     * @param maxRetries   the maximum number of retries.
+     * @return the backoff policy.
+     */
+    public static BackoffPolicy exponentialBackoff(Duration initialDelay, int maxRetries) {
+        Assert.notNull(initialDelay, "initialDelay must not be null!");
+        Assert.isTrue(maxRetries >= 0, "maxRetries must be positive or 0");
+        return new BackoffPolicy(initialDelay, maxRetries);
+    }
+
+    @Override
+    public Iterator<Duration> iterator() {
+        return new Iterator<Duration>() {
+            private int retry = 0;
+
+            @Override
+            public boolean hasNext() {
+                return retry < maxRetries;
+            }
+
+            @Override
+            public Duration next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Only up to " + maxRetries + " retries allowed");
+                }
+                return initialDelay.multipliedBy(1L << retry++);
+            }
+        };
+    }
+}
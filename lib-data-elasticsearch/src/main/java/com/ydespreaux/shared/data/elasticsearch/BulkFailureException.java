@@ -0,0 +1,23 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import lombok.Getter;
+import org.elasticsearch.ElasticsearchException;
+
+/**
+ * Exception thrown when some actions of a bulk request failed.
+ * The actions which succeeded are written, {@link #getResponse()} gives the status of each action.
+ */
+@Getter
+public class BulkFailureException extends ElasticsearchException {
+
+    private final transient BulkResponse response;
+
+    /**
+     * @param response the bulk response containing the failures.
+     */
+    public BulkFailureException(BulkResponse response) {
+        super("Bulk indexing has failures. Use BulkFailureException.getResponse() for detailed messages ["
+                + response.getFailedDocuments() + "]");
+        this.response = response;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import io.searchbox.action.BulkableAction;
+import io.searchbox.core.BulkResult;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Result of one action of a bulk request.
+ */
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@ToString
+public class BulkItemResponse {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String REJECTED_EXECUTION_EXCEPTION = "es_rejected_execution_exception";
+
+    /**
+     * Position of the action in the bulk request.
+     */
+    private final int position;
+    /**
+     * Bulk operation : index, create, update or delete.
+     */
+    private final String operation;
+    private final String index;
+    private final String type;
+    private final String id;
+    private final Integer version;
+    /**
+     * Http status of the action.
+     */
+    private final int status;
+    /**
+     * Error of the action, null if the action succeeded.
+     */
+    private final String error;
+    private final String errorType;
+    private final String errorReason;
+
+    /**
+     * @param position the position of the action in the bulk request.
+     * @param item     the jest bulk item.
+     * @return a new {@link BulkItemResponse}
+     */
+    public static BulkItemResponse of(int position, BulkResult.BulkResultItem item) {
+        return BulkItemResponse.builder()
+                .position(position)
+                .operation(item.operation)
+                .index(item.index)
+                .type(item.type)
+                .id(item.id)
+                .version(item.version)
+                .status(item.status)
+                .error(item.error)
+                .errorType(item.errorType)
+                .errorReason(item.errorReason)
+                .build();
+    }
+
+    /**
+     * @param position the position of the action in the bulk request.
+     * @param action   the action.
+     * @param status   the http status of the bulk request.
+     * @param error    the error of the bulk request.
+     * @return the response of an action not executed because the whole bulk request failed.
+     */
+    public static BulkItemResponse failed(int position, BulkableAction<?> action, int status, String error) {
+        return BulkItemResponse.builder()
+                .position(position)
+                .operation(action.getBulkMethodName())
+                .index(action.getIndex())
+                .type(action.getType())
+                .id(action.getId())
+                .status(status)
+                .error(error != null ? error : "Bulk request failed with status " + status)
+                .build();
+    }
+
+    /**
+     * @return true if the action failed.
+     */
+    public boolean isFailed() {
+        return this.error != null || this.status >= 300;
+    }
+
+    /**
+     * @return true if the action has been rejected because of the cluster back-pressure and can be retried.
+     */
+    public boolean isRejected() {
+        return this.status == TOO_MANY_REQUESTS || REJECTED_EXECUTION_EXCEPTION.equals(this.errorType);
+    }
+}
@@ -0,0 +1,43 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Options of the parallel bulk indexing, see {@link ElasticsearchOperations#bulkIndexParallel(java.util.Iterator, Class, BulkOptions)}.
+ * <p>
+ * The parallelism should not exceed the maximum number of connections per route of the http client,
+ * otherwise the bulks wait for a free connection.
+ */
+@Getter
+@Builder
+@ToString
+public class BulkOptions {
+
+    /**
+     * Number of documents sent in each bulk request.
+     */
+    @Builder.Default
+    private final int batchSize = 1000;
+
+    /**
+     * Number of bulk requests executed concurrently.
+     */
+    @Builder.Default
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of batches waiting for a free worker. When the queue is full, the input is no longer consumed
+     * until a bulk request completes.
+     */
+    @Builder.Default
+    private final int queueCapacity = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @return the default options.
+     */
+    public static BulkOptions defaultOptions() {
+        return BulkOptions.builder().build();
+    }
+}
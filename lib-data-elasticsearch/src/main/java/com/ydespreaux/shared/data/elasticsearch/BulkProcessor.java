@@ -0,0 +1,442 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import com.google.gson.Gson;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingBulk;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingIndex;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers {@link BulkableAction} (index, delete...) and sends them to elasticsearch as {@link Bulk} requests.
+ * <p>
+ * The buffered actions are flushed as soon as one of the following thresholds is reached :
+ * <ul>
+ * <li>the number of buffered actions ({@link Builder#bulkActions(int)}),</li>
+ * <li>the estimated size in bytes of the buffered payloads ({@link Builder#bulkSize(long)}),</li>
+ * <li>the time elapsed since the last flush ({@link Builder#flushInterval(Duration)}).</li>
+ * </ul>
+ * Bulk requests are sent with {@link ElasticsearchAdminOperations#executeAsync} and at most
+ * {@link Builder#concurrentRequests(int)} bulks are in flight at the same time : when the limit is reached, the
+ * thread adding an action waits for a running bulk to complete. With 0 concurrent requests, bulks are executed
+ * synchronously by the calling thread.
+ * <p>
+ * Results and failures are given back through the {@link Listener}.
+ */
+@Slf4j
+public class BulkProcessor implements Closeable {
+
+    /**
+     * Estimated size of the action metadata line added by the bulk api for each action.
+     */
+    private static final int ACTION_METADATA_SIZE = 50;
+
+    /**
+     * Listener notified before and after each bulk execution.
+     */
+    public interface Listener {
+
+        /**
+         * Callback before the bulk is executed.
+         *
+         * @param executionId the unique id of the bulk execution.
+         * @param actions     the actions sent in the bulk.
+         */
+        void beforeBulk(long executionId, List<BulkableAction> actions);
+
+        /**
+         * Callback after a bulk executed. Some actions may have failed, see {@link BulkResult#getFailedItems()}.
+         *
+         * @param executionId the unique id of the bulk execution.
+         * @param actions     the actions sent in the bulk.
+         * @param response    the bulk response.
+         */
+        void afterBulk(long executionId, List<BulkableAction> actions, BulkResult response);
+
+        /**
+         * Callback after a bulk failed to execute.
+         *
+         * @param executionId the unique id of the bulk execution.
+         * @param actions     the actions sent in the bulk.
+         * @param failure     the cause of the failure.
+         */
+        void afterBulk(long executionId, List<BulkableAction> actions, Throwable failure);
+    }
+
+    private final ElasticsearchAdminOperations operations;
+    private final Listener listener;
+    private final Gson gson;
+    private final int bulkActions;
+    private final long bulkSize;
+    private final int concurrentRequests;
+    private final Semaphore semaphore;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong executionIdGenerator = new AtomicLong();
+
+    private List<BulkableAction> actions;
+    private long estimatedSize;
+    private volatile boolean closed = false;
+
+    /**
+     * @param builder the builder containing the processor settings.
+     */
+    private BulkProcessor(Builder builder) {
+        this.operations = builder.operations;
+        this.listener = builder.listener;
+        this.gson = builder.gson == null ? new Gson() : builder.gson;
+        this.bulkActions = builder.bulkActions;
+        this.bulkSize = builder.bulkSize;
+        this.concurrentRequests = builder.concurrentRequests;
+        this.semaphore = new Semaphore(Math.max(1, builder.concurrentRequests));
+        this.actions = newBuffer();
+        if (builder.flushInterval != null) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "elasticsearch-bulk-processor-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = builder.flushInterval.toMillis();
+            this.scheduler.scheduleWithFixedDelay(this::flushIfNeeded, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Create a new {@link Builder} for the given operations and listener.
+     *
+     * @param operations the operations used to execute the bulk requests.
+     * @param listener   the listener notified for each bulk.
+     * @return a new builder.
+     */
+    public static Builder builder(ElasticsearchAdminOperations operations, Listener listener) {
+        return new Builder(operations, listener);
+    }
+
+    /**
+     * Add the given action to the buffer. The buffer is flushed if a threshold is reached.
+     *
+     * @param action the action to add.
+     * @return the current processor.
+     */
+    public synchronized BulkProcessor add(BulkableAction action) {
+        Assert.notNull(action, "action must not be null!");
+        ensureOpen();
+        this.actions.add(action);
+        this.estimatedSize += estimateSize(action);
+        if (isOverTheLimit()) {
+            execute();
+        }
+        return this;
+    }
+
+    /**
+     * Add all the given actions to the buffer.
+     *
+     * @param actions the actions to add.
+     * @return the current processor.
+     */
+    public synchronized BulkProcessor add(List<? extends BulkableAction> actions) {
+        Assert.notNull(actions, "actions must not be null!");
+        actions.forEach(this::add);
+        return this;
+    }
+
+    /**
+     * Flush the buffered actions.
+     */
+    public synchronized void flush() {
+        ensureOpen();
+        if (!this.actions.isEmpty()) {
+            execute();
+        }
+    }
+
+    /**
+     * Flush the buffered actions, then wait for the in flight bulks to complete.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit    the time unit of the timeout.
+     * @return true if all bulks completed before the timeout, false otherwise.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        if (this.closed) {
+            return true;
+        }
+        this.closed = true;
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+        if (!this.actions.isEmpty()) {
+            execute();
+        }
+        if (this.concurrentRequests > 0 && this.semaphore.tryAcquire(this.concurrentRequests, timeout, unit)) {
+            this.semaphore.release(this.concurrentRequests);
+            return true;
+        }
+        return this.concurrentRequests == 0;
+    }
+
+    /**
+     * Flush the buffered actions and close the processor without waiting for the in flight bulks.
+     */
+    @Override
+    public void close() {
+        try {
+            awaitClose(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of buffered actions.
+     */
+    public synchronized int getNumberOfActions() {
+        return this.actions.size();
+    }
+
+    private synchronized void flushIfNeeded() {
+        if (this.closed || this.actions.isEmpty()) {
+            return;
+        }
+        execute();
+    }
+
+    private boolean isOverTheLimit() {
+        return (this.bulkActions > 0 && this.actions.size() >= this.bulkActions)
+                || (this.bulkSize > 0 && this.estimatedSize >= this.bulkSize);
+    }
+
+    /**
+     * Estimate the size of the given action. The source of a {@link StreamingIndex} is only counted, not kept as a
+     * string : it is serialized again when the bulk is written.
+     */
+    private long estimateSize(BulkableAction action) {
+        if (action instanceof StreamingIndex) {
+            Object source = ((StreamingIndex) action).getSource();
+            if (source instanceof CharSequence) {
+                return ACTION_METADATA_SIZE + ((CharSequence) source).length();
+            }
+            CountingWriter writer = new CountingWriter();
+            this.gson.toJson(source, source.getClass(), writer);
+            return ACTION_METADATA_SIZE + writer.count;
+        }
+        String data = action.getData(this.gson);
+        return ACTION_METADATA_SIZE + (data == null ? 0 : data.length());
+    }
+
+    private void ensureOpen() {
+        if (this.closed) {
+            throw new IllegalStateException("bulk processor already closed");
+        }
+    }
+
+    private List<BulkableAction> newBuffer() {
+        return new ArrayList<>(this.bulkActions > 0 ? this.bulkActions : 16);
+    }
+
+    /**
+     * Send the buffered actions. Must be called while holding the processor lock.
+     */
+    private void execute() {
+        final List<BulkableAction> bulkActions = Collections.unmodifiableList(this.actions);
+        this.actions = newBuffer();
+        this.estimatedSize = 0;
+        final long executionId = this.executionIdGenerator.incrementAndGet();
+        final Bulk bulk = new StreamingBulk.Builder().addAction(bulkActions).build();
+        if (this.concurrentRequests == 0) {
+            executeSync(executionId, bulk, bulkActions);
+        } else {
+            executeAsync(executionId, bulk, bulkActions);
+        }
+    }
+
+    private void executeSync(long executionId, Bulk bulk, List<BulkableAction> bulkActions) {
+        this.listener.beforeBulk(executionId, bulkActions);
+        BulkResult result;
+        try {
+            result = this.operations.execute(bulk);
+        } catch (Exception e) {
+            this.listener.afterBulk(executionId, bulkActions, e);
+            return;
+        }
+        this.listener.afterBulk(executionId, bulkActions, result);
+    }
+
+    private void executeAsync(long executionId, Bulk bulk, List<BulkableAction> bulkActions) {
+        boolean acquired = false;
+        try {
+            this.listener.beforeBulk(executionId, bulkActions);
+            this.semaphore.acquire();
+            acquired = true;
+            this.operations.executeAsync(bulk, new JestResultHandler<BulkResult>() {
+                @Override
+                public void completed(BulkResult result) {
+                    try {
+                        listener.afterBulk(executionId, bulkActions, result);
+                    } finally {
+                        semaphore.release();
+                    }
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    try {
+                        listener.afterBulk(executionId, bulkActions, e);
+                    } finally {
+                        semaphore.release();
+                    }
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (log.isWarnEnabled()) {
+                log.warn("Bulk request {} has been interrupted", executionId);
+            }
+            this.listener.afterBulk(executionId, bulkActions, e);
+        } catch (Exception e) {
+            if (acquired) {
+                this.semaphore.release();
+            }
+            this.listener.afterBulk(executionId, bulkActions, e);
+        }
+    }
+
+    /**
+     * Builder of {@link BulkProcessor}.
+     */
+    public static class Builder {
+
+        private final ElasticsearchAdminOperations operations;
+        private final Listener listener;
+        private Gson gson;
+        private int bulkActions = 1000;
+        private long bulkSize = 5L * 1024 * 1024;
+        private Duration flushInterval;
+        private int concurrentRequests = 1;
+
+        private Builder(ElasticsearchAdminOperations operations, Listener listener) {
+            Assert.notNull(operations, "operations must not be null!");
+            Assert.notNull(listener, "listener must not be null!");
+            this.operations = operations;
+            this.listener = listener;
+        }
+
+        /**
+         * Number of actions triggering a flush. Defaults to 1000, -1 to disable.
+         *
+         * @param bulkActions the number of actions.
+         * @return the current builder.
+         */
+        public Builder bulkActions(int bulkActions) {
+            this.bulkActions = bulkActions;
+            return this;
+        }
+
+        /**
+         * Estimated size in bytes of the buffered payloads triggering a flush. Defaults to 5mb, -1 to disable.
+         *
+         * @param bulkSize the size in bytes.
+         * @return the current builder.
+         */
+        public Builder bulkSize(long bulkSize) {
+            this.bulkSize = bulkSize;
+            return this;
+        }
+
+        /**
+         * Interval at which the buffered actions are flushed whatever their number or size. Disabled by default.
+         *
+         * @param flushInterval the flush interval.
+         * @return the current builder.
+         */
+        public Builder flushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        /**
+         * Maximum number of bulks in flight. Defaults to 1, 0 to execute the bulks synchronously.
+         *
+         * @param concurrentRequests the maximum number of concurrent bulks.
+         * @return the current builder.
+         */
+        public Builder concurrentRequests(int concurrentRequests) {
+            Assert.isTrue(concurrentRequests >= 0, "concurrentRequests must be positive or 0");
+            this.concurrentRequests = concurrentRequests;
+            return this;
+        }
+
+        /**
+         * Gson used to estimate the size of the actions payload.
+         *
+         * @param gson the gson instance.
+         * @return the current builder.
+         */
+        public Builder gson(Gson gson) {
+            this.gson = gson;
+            return this;
+        }
+
+        /**
+         * @return a new {@link BulkProcessor}.
+         */
+        public BulkProcessor build() {
+            return new BulkProcessor(this);
+        }
+    }
+
+    /**
+     * {@link Writer} counting the characters written, without keeping them.
+     */
+    private static class CountingWriter extends Writer {
+
+        private long count;
+
+        @Override
+        public void write(int c) {
+            this.count++;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            this.count += length;
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            this.count += length;
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            this.count += csq == null ? 4 : csq.length();
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
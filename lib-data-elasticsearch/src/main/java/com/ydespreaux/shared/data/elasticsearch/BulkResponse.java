@@ -0,0 +1,48 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Result of a bulk request, one {@link BulkItemResponse} per action in the order of the request.
+ */
+@Getter
+public class BulkResponse {
+
+    private final List<BulkItemResponse> items;
+
+    /**
+     * @param items the items of the response, in the order of the request.
+     */
+    public BulkResponse(List<BulkItemResponse> items) {
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @return true if at least one action failed.
+     */
+    public boolean hasFailures() {
+        return this.items.stream().anyMatch(BulkItemResponse::isFailed);
+    }
+
+    /**
+     * @return the failed items.
+     */
+    public List<BulkItemResponse> getFailedItems() {
+        return this.items.stream().filter(BulkItemResponse::isFailed).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the errors of the failed items, by document id.
+     */
+    public Map<String, String> getFailedDocuments() {
+        Map<String, String> failedDocuments = new LinkedHashMap<>();
+        getFailedItems().forEach(item -> failedDocuments.put(item.getId(), item.getError()));
+        return failedDocuments;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Options of the delete by query operation, see {@link ElasticsearchOperations#deleteByQuery(org.elasticsearch.index.query.QueryBuilder, Class, DeleteByQueryOptions)}.
+ */
+@Getter
+@Builder
+@ToString
+public class DeleteByQueryOptions {
+
+    /**
+     * Value of {@link #getSlices()} letting elasticsearch choose the number of slices.
+     */
+    public static final int AUTO_SLICES = 0;
+
+    /**
+     * Number of slices the delete is split into, {@link #AUTO_SLICES} for one slice per shard.
+     */
+    @Builder.Default
+    private final int slices = 1;
+
+    /**
+     * Count the version conflicts instead of aborting the delete (conflicts=proceed).
+     */
+    @Builder.Default
+    private final boolean proceedOnConflicts = true;
+
+    /**
+     * Size of the scroll batches, null for the elasticsearch default.
+     */
+    private final Integer scrollSize;
+
+    /**
+     * Refresh the index after the delete.
+     */
+    @Builder.Default
+    private final boolean refresh = false;
+
+    /**
+     * Run the delete as an elasticsearch task and poll its status at this interval, null (the default) to wait for
+     * the completion in the http request. A task keeps its result in the .tasks index.
+     */
+    private final Duration pollInterval;
+
+    /**
+     * @return the default options.
+     */
+    public static DeleteByQueryOptions defaultOptions() {
+        return DeleteByQueryOptions.builder().build();
+    }
+}
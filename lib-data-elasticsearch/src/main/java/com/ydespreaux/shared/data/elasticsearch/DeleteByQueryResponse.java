@@ -0,0 +1,65 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a delete by query operation.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class DeleteByQueryResponse {
+
+    private final long took;
+    private final boolean timedOut;
+    private final long total;
+    private final long deleted;
+    private final long batches;
+    private final long versionConflicts;
+    /**
+     * Failures of the delete, as returned by elasticsearch.
+     */
+    private final List<String> failures;
+
+    /**
+     * @return true if some documents failed to be deleted.
+     */
+    public boolean hasFailures() {
+        return this.timedOut || !this.failures.isEmpty();
+    }
+
+    /**
+     * Read the response of a delete by query request, or the response of its task.
+     *
+     * @param json the json response.
+     * @return the delete by query response.
+     */
+    public static DeleteByQueryResponse of(JsonObject json) {
+        List<String> failures = new ArrayList<>();
+        if (json.has("failures")) {
+            for (JsonElement failure : json.getAsJsonArray("failures")) {
+                failures.add(failure.toString());
+            }
+        }
+        return new DeleteByQueryResponse(
+                getLong(json, "took"),
+                json.has("timed_out") && json.get("timed_out").getAsBoolean(),
+                getLong(json, "total"),
+                getLong(json, "deleted"),
+                getLong(json, "batches"),
+                getLong(json, "version_conflicts"),
+                Collections.unmodifiableList(failures));
+    }
+
+    private static long getLong(JsonObject json, String name) {
+        return json.has(name) ? json.get(name).getAsLong() : 0;
+    }
+}
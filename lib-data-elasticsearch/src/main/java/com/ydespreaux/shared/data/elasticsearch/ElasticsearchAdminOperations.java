@@ -1 +1 @@
-package com.ydespreaux.shared.data.elasticsearch;import io.searchbox.action.Action;import io.searchbox.client.JestResult;import io.searchbox.client.JestResultHandler;import org.springframework.core.io.Resource;import java.util.List;/** * Base class definfing operation for Elastic Search. */public interface ElasticsearchAdminOperations {    //***************************************    // Request operations    //***************************************    /**     * execute the given {@link Action}     *     * @param var1 the given {@link Action}     * @param <T>  method Generic to be jest compliant.     * @return JestResult the Jest Result.     */    <T extends JestResult> T execute(Action<T> var1);    /**     * Exicute  the given {@link Action}, with a given {@link JestResultHandler}     *     * @param var1 the given {@link Action}.     * @param var2 The given {@link JestResultHandler}.     * @param <T>  extending the {@link JestResult} base class.     */    <T extends JestResult> void executeAsync(Action<T> var1, JestResultHandler<? super T> var2);    //***************************************    // Administration operations    //***************************************    /**     * the template is existing.     *     * @param templateName the given template name.     * @return true if the given templateName exist, else false.     */    boolean templateExists(String templateName);    /**     * Create a new template in elastic search, with the gievn templateName, location, and createOnly parameters.     *     * @param templateName the given templateName     * @param location     the given location.     * @param createOnly   true if only ceate the template esle false.     */    void createTemplate(String templateName, String location, Boolean createOnly);    /**     * Create a new template in elastic search, with the givens templateName, locations,    nd createOnly parameters.     *     * @param templateName the given templateName     * @param locations    the given location.     * @param createOnly   true if only ceate the template esle false.     */    void createTemplate(String templateName, List<Resource> locations, Boolean createOnly);    /**     * Delete the template with the given templateName parameter.     *     * @param templateName the given templateName.     */    void deleteTemplate(String templateName);    /**     * Delete index     *     * @param indexName index name     */    void deleteIndexByName(String indexName);    /**     * Delete all indices for a aliasOrIndex     *     * @param aliasName he given aliasName.     */    void deleteIndexByAlias(String aliasName);    /**     * method checking the existance of the given indexName.     * @param indexName the given indexName.     * @return true if indexName exist in elastic search.     */    boolean indexExists(String indexName);    /**     *     * @param indexName     * @return     */    boolean createIndex(String indexName);    /**     *     * @param indexPath     * @return     */    boolean createIndexWithSettingsAndMapping(String indexName, String indexPath);}
\ No newline at end of file
+package com.ydespreaux.shared.data.elasticsearch;import io.searchbox.action.Action;import io.searchbox.client.JestResult;import io.searchbox.client.JestResultHandler;import org.springframework.core.io.Resource;import java.util.List;import java.util.concurrent.CompletableFuture;/** * Base class definfing operation for Elastic Search. */public interface ElasticsearchAdminOperations {    //***************************************    // Request operations    //***************************************    /**     * execute the given {@link Action}     *     * @param var1 the given {@link Action}     * @param <T>  method Generic to be jest compliant.     * @return JestResult the Jest Result.     */    <T extends JestResult> T execute(Action<T> var1);    /**     * Exicute  the given {@link Action}, with a given {@link JestResultHandler}     *     * @param var1 the given {@link Action}.     * @param var2 The given {@link JestResultHandler}.     * @param <T>  extending the {@link JestResult} base class.     */    <T extends JestResult> void executeAsync(Action<T> var1, JestResultHandler<? super T> var2);    /**     * Execute the given {@link Action} asynchronously : no thread waits for the response, the future is completed     * by the I/O thread of the client.     *     * @param action the given {@link Action}.     * @param <T>    extending the {@link JestResult} base class.     * @return the future result, completed with an {@link org.elasticsearch.ElasticsearchException} if the request     * failed.     */    <T extends JestResult> CompletableFuture<T> executeAsync(Action<T> action);    //***************************************    // Administration operations    //***************************************    /**     * the template is existing.     *     * @param templateName the given template name.     * @return true if the given templateName exist, else false.     */    boolean templateExists(String templateName);    /**     * Create a new template in elastic search, with the gievn templateName, location, and createOnly parameters.     *     * @param templateName the given templateName     * @param location     the given location.     * @param createOnly   true if only ceate the template esle false.     */    void createTemplate(String templateName, String location, Boolean createOnly);    /**     * Create a new template in elastic search, with the givens templateName, locations,    nd createOnly parameters.     *     * @param templateName the given templateName     * @param locations    the given location.     * @param createOnly   true if only ceate the template esle false.     */    void createTemplate(String templateName, List<Resource> locations, Boolean createOnly);    /**     * Delete the template with the given templateName parameter.     *     * @param templateName the given templateName.     */    void deleteTemplate(String templateName);    /**     * Delete index     *     * @param indexName index name     */    void deleteIndexByName(String indexName);    /**     * Delete all indices for a aliasOrIndex     *     * @param aliasName he given aliasName.     */    void deleteIndexByAlias(String aliasName);    /**     * method checking the existance of the given indexName.     * @param indexName the given indexName.     * @return true if indexName exist in elastic search.     */    boolean indexExists(String indexName);    /**     *     * @param indexName     * @return     */    boolean createIndex(String indexName);    /**     *     * @param indexPath     * @return     */    boolean createIndexWithSettingsAndMapping(String indexName, String indexPath);}
\ No newline at end of file
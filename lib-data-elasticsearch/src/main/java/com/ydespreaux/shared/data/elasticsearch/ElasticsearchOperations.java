@@ -1 +1 @@
-package com.ydespreaux.shared.data.elasticsearch;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;import io.searchbox.core.Search;import org.elasticsearch.common.Nullable;import org.elasticsearch.index.query.QueryBuilder;import java.util.List;/** * define the {@link ElasticsearchOperations} methods. */public interface ElasticsearchOperations extends ElasticsearchAdminOperations {    /**     * Give the {@link ElasticsearchPersistentEntity} for the given {@link Class}.     *     * @param clazz the given {@link Class}.     * @return ElasticsearchPersistentEntity the persitant entity for the given {@link Class} parameter.     */    <T> ElasticsearchPersistentEntity<T> getPersistentEntityFor(Class<T> clazz);    //***************************************    // Index / search operations    //***************************************    /**     * Index the given T entity, for the geiven clazz.     *     * @param entity the given entity.     * @param clazz  the gievn {@link Class}.     * @return T the indexed entity.     */    <T> T index(T entity, Class<T> clazz);    /**     * Bulk index operation for the given {@link List} of entities, and gievn {@link Class}.     *     * @param entities the given entities {@link List}.     * @param clazz    the given {@link Class}.     * @param <T>      the {@link List} of indexed entities.     * @return     */    <T> List<T> bulkIndex(List<T> entities, Class<T> clazz);    /**     * @param entities     * @return     */    List<?> bulkIndex(List<?> entities);    /**     * Find an elasticsearch document for the given clazz, and documentId.     *     * @param clazz      the given clazz.     * @param documentId the given documentId.     * @param <T>        the document     * @return the entity for the given documentId or null.     */    <T> T findById(Class<T> clazz, String documentId);    /**     * Delete all the documents for the given clazz     *     * @param clazz the given clazz.     * @param <T>   method generic.     */    <T> void deleteAll(Class<T> clazz);    /**     * Delete all the {@link List} of entities, for the given clazz.     *     * @param entities the {@link List} of entities.     * @param clazz    the given clazz.     * @param <T>      method generic.     */    <T> void deleteAll(List<T> entities, Class<T> clazz);    /**     * delete the document ofr the given entity, and clazz     *     * @param entity the given entity.     * @param clazz  the given clazz.     * @param <T>    method generic.     */    <T> void delete(T entity, Class<T> clazz);    /**     * delete the document with the given documentId and clazz.     *     * @param documentId the given documentId.     * @param clazz      the given clazz.     * @param <T>        method generic.     */    <T> void deleteById(String documentId, Class<T> clazz);    /**     * refresh the elasticsearch index for the given clazz     *     * @param clazz     the given clazz.     * @param <T>method generic.     */    <T> void refresh(Class<T> clazz);    /**     * Prepare the given quey for the given clazz     *     * @param query the given {@link QueryBuilder}.     * @param clazz the given clazz.     * @param <T>   method generic.     * @return a Serach.Builder instance     */    <T> Search.Builder prepareSearch(QueryBuilder query, Class<T> clazz);    /**     * Search with the given {@link Search} search, and given {@link Class} clazz.     *     * @param search the given {@link Search} instance.     * @param clazz  the given clazz.     * @param <T>    generic method.     * @return a {@link List} of the method generic type.     */    <T> List<T> search(Search search, Class<T> clazz);    /**     * Start the {@link ScrolledPage}, with the given scrollTimeInMinutes, size, builder and clazz.     *     * @param scrollTimeInMinutes the scroll time in minutes.     * @param size                the given size.     * @param builder             the given Search.Builder builder.     * @param clazz               the given {@link Class} clazz.     * @param <T>                 method generic.     * @return a {@link ScrolledPage} of T instances.     */    <T> ScrolledPage<T> startScroll(long scrollTimeInMinutes, int size, Search.Builder builder, Class<T> clazz);    /**     * Continue the {@link ScrolledPage} for the given scrollId, scrollTimeInMinutes, and clazz.     *     * @param scrollId            the given scrollId.     * @param scrollTimeInMinutes the scrol time in minutess.     * @param clazz               the given clazz.     * @param <T>                 method generic.     * @return a {@link ScrolledPage} of T instancess.     */    <T> ScrolledPage<T> continueScroll(@Nullable String scrollId, long scrollTimeInMinutes, Class<T> clazz);    /**     * Clear the {@link ScrolledPage} for the given scrollId.     *     * @param scrollId the given scrollId.     */    void clearScroll(String scrollId);}
\ No newline at end of file
+package com.ydespreaux.shared.data.elasticsearch;import com.ydespreaux.shared.data.elasticsearch.aggregation.CompositeBucket;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;import com.ydespreaux.shared.data.elasticsearch.msearch.MultiSearchResponse;import com.ydespreaux.shared.data.elasticsearch.msearch.SearchRequest;import io.searchbox.action.BulkableAction;import io.searchbox.core.Index;import io.searchbox.core.Search;import io.searchbox.core.Update;import io.searchbox.indices.CreateIndex;import io.searchbox.core.search.aggregation.MetricAggregation;import org.elasticsearch.common.Nullable;import org.elasticsearch.index.query.QueryBuilder;import org.elasticsearch.script.Script;import org.elasticsearch.search.aggregations.AggregationBuilder;import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;import java.util.Collection;import java.util.Iterator;import java.util.List;import java.util.Optional;import java.util.function.Consumer;import java.util.stream.Stream;/** * define the {@link ElasticsearchOperations} methods. */public interface ElasticsearchOperations extends ElasticsearchAdminOperations {    /**     * Give the {@link ElasticsearchPersistentEntity} for the given {@link Class}.     *     * @param clazz the given {@link Class}.     * @return ElasticsearchPersistentEntity the persitant entity for the given {@link Class} parameter.     */    <T> ElasticsearchPersistentEntity<T> getPersistentEntityFor(Class<T> clazz);    //***************************************    // Index / search operations    //***************************************    /**     * Index the given T entity, for the geiven clazz.     *     * @param entity the given entity.     * @param clazz  the gievn {@link Class}.     * @return T the indexed entity.     */    <T> T index(T entity, Class<T> clazz);    /**     * Prepare the index request of the given entity, for the given clazz, without executing it.     * The entity is serialized once, so the request can be buffered by a {@link BulkProcessor}.     *     * @param entity the given entity.     * @param clazz  the given {@link Class}.     * @param <T>    method generic.     * @return the {@link Index} request.     */    <T> Index prepareIndex(T entity, Class<T> clazz);    /**     * Create the index of the given entity class if it doesn't exist. The index is checked and created at most once     * per name, the time-based indices are also created by the index operations the first time they are used.     *     * @param indexName the index name.     * @param clazz     the given {@link Class}.     * @param <T>       the type of the entity.     */    <T> void createIndexIfNotExists(String indexName, Class<T> clazz);    /**     * Prepare the creation of the given index of the entity class, without executing it : a time-based index is     * created with the settings of the templates, the other indices with the settings and mapping of their index path.     *     * @param indexName the index name.     * @param clazz     the given {@link Class}.     * @param <T>       the type of the entity.     * @return the create index request, null if the entity defines no index to create.     */    <T> CreateIndex prepareCreateIndex(String indexName, Class<T> clazz);    /**     * @param indexName the index name.     * @return true if the index is known to exist : checked or created by this template.     */    boolean isKnownIndex(String indexName);    /**     * Record that the given index exists : the next writes don't check it again.     *     * @param indexName the index name.     */    void addKnownIndex(String indexName);    /**     * @return the backoff policy used to retry the bulk items rejected by elasticsearch.     */    BackoffPolicy getBulkBackoffPolicy();    /**     * Bulk index operation for the given {@link List} of entities, and gievn {@link Class}.     * The id and version of the indexed documents are set on the entities, even if some documents failed.     *     * @param entities the given entities {@link List}.     * @param clazz    the given {@link Class}.     * @param <T>      the {@link List} of indexed entities.     * @return     * @throws BulkFailureException if some documents failed to be indexed.     */    <T> List<T> bulkIndex(List<T> entities, Class<T> clazz);    /**     * @param entities     * @return     * @throws BulkFailureException if some documents failed to be indexed.     */    List<?> bulkIndex(List<?> entities);    /**     * Parallel bulk index operation for the given {@link Stream} of entities.     *     * @param entities the entities to index.     * @param clazz    the given {@link Class}.     * @param options  the batch size, parallelism and queue capacity.     * @param <T>      the type of the entities.     * @return the number of indexed documents.     * @throws BulkFailureException if some documents failed to be indexed, once all the batches are sent.     * @see #bulkIndexParallel(Iterator, Class, BulkOptions)     */    <T> long bulkIndexParallel(Stream<T> entities, Class<T> clazz, BulkOptions options);    /**     * Parallel bulk index operation for the given {@link Iterator} of entities.     * The entities are read by the calling thread and partitioned in batches of {@link BulkOptions#getBatchSize()}     * documents, which are sent concurrently by {@link BulkOptions#getParallelism()} threads. At most     * {@link BulkOptions#getQueueCapacity()} batches wait for a thread : when the queue is full, the calling thread     * waits for a bulk to complete before reading the next entities.     * The id and version of the indexed documents are set on the entities.     *     * @param entities the entities to index.     * @param clazz    the given {@link Class}.     * @param options  the batch size, parallelism and queue capacity.     * @param <T>      the type of the entities.     * @return the number of indexed documents.     * @throws BulkFailureException if some documents failed to be indexed, once all the batches are sent. The positions     *                              of the failed items are relative to the whole input.     */    <T> long bulkIndexParallel(Iterator<T> entities, Class<T> clazz, BulkOptions options);    /**     * Execute the given actions in a bulk request. The actions rejected by elasticsearch because of the cluster     * back-pressure (http 429) are retried with an exponential backoff. Other failures are not retried and are     * reported in the response.     *     * @param actions the actions to execute.     * @return the {@link BulkResponse}, one item per action in the order of the given actions.     */    BulkResponse bulk(List<? extends BulkableAction> actions);    //***************************************    // Update operations    //***************************************    /**     * Prepare the update request of the given query, for the given clazz, without executing it.     * The document of a time-based entity is searched in the indices of the alias. A missing document is upserted in     * the current index, created if needed ; without upsert, the update of a missing document fails as not found.     *     * @param query the update query.     * @param clazz the given {@link Class}.     * @param <T>   the type of the entity.     * @return the {@link Update} request.     */    <T> Update prepareUpdate(UpdateQuery query, Class<T> clazz);    /**     * Execute the given update query.     *     * @param query the update query.     * @param clazz the given {@link Class}.     * @param <T>   the type of the entity.     * @return the version of the updated document.     * @throws VersionConflictException if the document version is not {@link UpdateQuery#getVersion()}.     */    <T> long update(UpdateQuery query, Class<T> clazz);    /**     * Merge the given partial document with the stored document.     *     * @param documentId      the document id.     * @param partialDocument the fields to update.     * @param clazz           the given {@link Class}.     * @param <T>             the type of the entity.     * @return the version of the updated document.     */    <T> long update(String documentId, Object partialDocument, Class<T> clazz);    /**     * Merge the given partial document with the stored document, or index it if the document doesn't exist.     *     * @param documentId      the document id.     * @param partialDocument the fields to update.     * @param clazz           the given {@link Class}.     * @param <T>             the type of the entity.     * @return the version of the updated document.     */    <T> long upsert(String documentId, Object partialDocument, Class<T> clazz);    /**     * Apply the given script to the stored document.     *     * @param documentId      the document id.     * @param script          the update script.     * @param retryOnConflict the number of retries on version conflict.     * @param clazz           the given {@link Class}.     * @param <T>             the type of the entity.     * @return the version of the updated document.     */    <T> long update(String documentId, Script script, int retryOnConflict, Class<T> clazz);    /**     * Merge the given partial document with the stored document if its version is the version of the given entity.     * The id and version are read from the entity fields annotated with {@link io.searchbox.annotations.JestId} and     * {@link io.searchbox.annotations.JestVersion}, the new version is set on the entity.     *     * @param entity          the entity to update.     * @param partialDocument the fields to update.     * @param clazz           the given {@link Class}.     * @param <T>             the type of the entity.     * @return the entity.     * @throws VersionConflictException if the document has been modified since the entity was read.     */    <T> T updateWithVersion(T entity, Object partialDocument, Class<T> clazz);    /**     * Execute the given update queries in bulk requests, see {@link #bulk(List)}.     *     * @param queries the update queries.     * @param clazz   the given {@link Class}.     * @param <T>     the type of the entity.     * @return the {@link BulkResponse}, one item per query.     * @throws BulkFailureException if some documents failed to be updated.     */    <T> BulkResponse bulkUpdate(List<UpdateQuery> queries, Class<T> clazz);    /**     * Find an elasticsearch document for the given clazz, and documentId.     *     * @param clazz      the given clazz.     * @param documentId the given documentId.     * @param <T>        the document     * @return the entity for the given documentId or null.     */    <T> T findById(Class<T> clazz, String documentId);    /**     * Find the elasticsearch documents for the given clazz and documentIds, with one request.     *     * @param documentIds the given documentIds.     * @param clazz       the given clazz.     * @param <T>         the document     * @return the found entities, in the order of the given documentIds.     * @see #findAllById(Collection, Class, SourceFilter)     */    <T> List<T> findAllById(Collection<String> documentIds, Class<T> clazz);    /**     * Find the elasticsearch documents for the given clazz and documentIds, with one request : a multi get for an     * index, a search with an ids query on the alias for a time-based entity.     * The id and version of the documents are set on the entities.     *     * @param documentIds  the given documentIds.     * @param clazz        the given clazz.     * @param sourceFilter the fields of the _source to return, null for the whole _source.     * @param <T>          the document     * @return the found entities, in the order of the given documentIds.     */    <T> List<T> findAllById(Collection<String> documentIds, Class<T> clazz, @Nullable SourceFilter sourceFilter);    /**     * Delete all the documents for the given clazz     *     * @param clazz the given clazz.     * @param <T>   method generic.     */    <T> void deleteAll(Class<T> clazz);    /**     * Delete all the {@link List} of entities, for the given clazz, with a bulk of delete requests.     *     * @param entities the {@link List} of entities.     * @param clazz    the given clazz.     * @param <T>      method generic.     */    <T> void deleteAll(List<T> entities, Class<T> clazz);    /**     * delete the document ofr the given entity, and clazz     *     * @param entity the given entity.     * @param clazz  the given clazz.     * @param <T>    method generic.     */    <T> void delete(T entity, Class<T> clazz);    /**     * delete the document with the given documentId and clazz, with a direct delete request.     * The concrete index of a time-based document is read from a search on the alias.     *     * @param documentId the given documentId.     * @param clazz      the given clazz.     * @param <T>        method generic.     */    <T> void deleteById(String documentId, Class<T> clazz);    /**     * Delete the documents matching the given query, for large purges. By default the request waits for the     * completion of the deletion ; the deletion may also run as an elasticsearch task polled until its completion,     * see {@link DeleteByQueryOptions#getPollInterval()}.     *     * @param query   the query of the documents to delete.     * @param clazz   the given clazz.     * @param options the slices, conflicts and polling options.     * @param <T>     method generic.     * @return the result of the delete by query.     */    <T> DeleteByQueryResponse deleteByQuery(QueryBuilder query, Class<T> clazz, DeleteByQueryOptions options);    /**     * refresh the elasticsearch index for the given clazz     *     * @param clazz     the given clazz.     * @param <T>method generic.     */    <T> void refresh(Class<T> clazz);    /**     * Prepare the given quey for the given clazz     *     * @param query the given {@link QueryBuilder}.     * @param clazz the given clazz.     * @param <T>   method generic.     * @return a Serach.Builder instance     */    <T> Search.Builder prepareSearch(QueryBuilder query, Class<T> clazz);    /**     * Prepare the given query for the given clazz, returning only the fields of the given filter.     *     * @param query        the given {@link QueryBuilder}.     * @param sourceFilter the fields of the _source to return and the doc value or stored fields to read, null for     *                     the whole _source.     * @param clazz        the given clazz.     * @param <T>          method generic.     * @return a Search.Builder instance     */    <T> Search.Builder prepareSearch(QueryBuilder query, @Nullable SourceFilter sourceFilter, Class<T> clazz);    /**     * @param projection the projection, a class or an interface.     * @return the filter including only the properties read by the projection, empty if the projection may read     * any property.     */    Optional<SourceFilter> getProjectionSourceFilter(Class<?> projection);    /**     * Search with the given {@link Search} search, and map the hits onto the given projection : a class is read     * from the source, an interface is backed by the fields of the source. The doc value and stored fields of the     * hits are added to the source.     *     * @param search     the given {@link Search} instance.     * @param projection the projection, a class or an interface.     * @param <R>        the type of the projection.     * @return the projections of the hits.     */    <R> List<R> searchForProjection(Search search, Class<R> projection);    /**     * Search with the given {@link Search} search for the entities of the given class, and map the hits onto the     * given projection. The request is recorded by the metrics of the entity class.     *     * @param search     the given {@link Search} instance.     * @param projection the projection, a class or an interface.     * @param clazz      the entity class.     * @param <T>        the type of the entities.     * @param <R>        the type of the projection.     * @return the projections of the hits.     * @see #searchForProjection(Search, Class)     */    <T, R> List<R> searchForProjection(Search search, Class<R> projection, Class<T> clazz);    /**     * Execute the given searches with one multi search request. A failed search doesn't fail the others : its     * failure is given by its result.     *     * @param requests the searches, with the class of their entities.     * @return the results, by request.     */    MultiSearchResponse multiSearch(List<SearchRequest<?>> requests);    /**     * Execute the given aggregations on the documents matching the query, without returning any hit. The     * response is cached by the shard request cache.     *     * @param query        the query.     * @param clazz        the given {@link Class}.     * @param aggregations the aggregations.     * @param <T>          method generic.     * @return the aggregations, by name.     */    <T> MetricAggregation aggregate(QueryBuilder query, Class<T> clazz, AggregationBuilder... aggregations);    /**     * Read all the buckets of the given composite aggregation as a lazy {@link Stream} : the pages of buckets are     * requested when the stream is consumed, each one after the key of the last bucket of the previous page.     * The given aggregation is not modified : each page is requested with a new aggregation with the same name,     * sources, size and sub aggregations. The pipeline sub aggregations are not supported.     *     * @param query       the query.     * @param aggregation the composite aggregation, with the size of the pages.     * @param clazz       the given {@link Class}.     * @param <T>         method generic.     * @return the buckets.     */    <T> Stream<CompositeBucket> compositeAggregation(QueryBuilder query, CompositeAggregationBuilder aggregation, Class<T> clazz);    /**     * Search with the given {@link Search} search, and given {@link Class} clazz.     *     * @param search the given {@link Search} instance.     * @param clazz  the given clazz.     * @param <T>    generic method.     * @return a {@link List} of the method generic type.     */    <T> List<T> search(Search search, Class<T> clazz);    /**     * Count the documents matching the given query with the _count api, on the alias of a time-based entity.     *     * @param query the query, null to count all the documents.     * @param clazz the given clazz.     * @param <T>   method generic.     * @return the number of documents.     */    <T> long count(@Nullable QueryBuilder query, Class<T> clazz);    /**     * Check if a document matches the given query : the search stops on each shard at the first document found     * and returns no hit.     *     * @param query the query.     * @param clazz the given clazz.     * @param <T>   method generic.     * @return true if a document matches the query.     */    <T> boolean exists(QueryBuilder query, Class<T> clazz);    /**     * Start the {@link ScrolledPage}, with the given scrollTimeInMinutes, size, builder and clazz.     *     * @param scrollTimeInMinutes the scroll time in minutes.     * @param size                the given size.     * @param builder             the given Search.Builder builder.     * @param clazz               the given {@link Class} clazz.     * @param <T>                 method generic.     * @return a {@link ScrolledPage} of T instances.     */    <T> ScrolledPage<T> startScroll(long scrollTimeInMinutes, int size, Search.Builder builder, Class<T> clazz);    /**     * Continue the {@link ScrolledPage} for the given scrollId, scrollTimeInMinutes, and clazz.     *     * @param scrollId            the given scrollId.     * @param scrollTimeInMinutes the scrol time in minutess.     * @param clazz               the given clazz.     * @param <T>                 method generic.     * @return a {@link ScrolledPage} of T instancess.     */    <T> ScrolledPage<T> continueScroll(@Nullable String scrollId, long scrollTimeInMinutes, Class<T> clazz);    /**     * Read all the results of the given search with the scroll api, as a lazy {@link Stream}. The pages are read     * when the stream is consumed, only the current page is kept in memory. The scroll is cleared after the last     * page or when the stream is closed : use it in a try-with-resources block.     *     * @param builder             the search builder.     * @param pageSize            the size of the pages.     * @param scrollTimeInMinutes the keep alive of the scroll.     * @param clazz               the given {@link Class}.     * @param <T>                 the type of the entities.     * @return the entities found.     */    <T> Stream<T> stream(Search.Builder builder, int pageSize, long scrollTimeInMinutes, Class<T> clazz);    /**     * Read all the entities matching the given query with a sliced scroll, see     * {@link #parallelScroll(QueryBuilder, Class, int, int, long, Consumer)}, with pages of 1000 entities and a scroll     * keep alive of 1 minute.     *     * @param query    the query.     * @param clazz    the given {@link Class}.     * @param slices   the number of slices.     * @param consumer the consumer of the pages, called concurrently by the slices.     * @param <T>      the type of the entities.     * @return the number of entities read.     */    <T> long parallelScroll(QueryBuilder query, Class<T> clazz, int slices, Consumer<List<T>> consumer);    /**     * Read all the entities matching the given query with a sliced scroll : the search is split in the given number     * of slices, each slice is scrolled by its own thread and its pages are given to the consumer as soon as they     * are read. The consumer must be thread safe. Every scroll is cleared at the end, the first failure stops the     * other slices and is thrown once they are stopped.     * Choose a number of slices lower than or equal to the number of shards of the index.     *     * @param query               the query.     * @param clazz               the given {@link Class}.     * @param slices              the number of slices.     * @param pageSize            the size of the pages of each slice.     * @param scrollTimeInMinutes the keep alive of the scrolls.     * @param consumer            the consumer of the pages, called concurrently by the slices.     * @param <T>                 the type of the entities.     * @return the number of entities read.     */    <T> long parallelScroll(QueryBuilder query, Class<T> clazz, int slices, int pageSize, long scrollTimeInMinutes, Consumer<List<T>> consumer);    /**     * Read a page of the entities matching the given query with the search_after parameter : the page starts after     * the hit whose sort values are carried by the cursor of the pageable, no search context is kept between two     * pages. The sort of the pageable is completed by the unique field {@link com.ydespreaux.shared.data.elasticsearch.annotations.Document#tieBreaker()},     * or by the document id if not defined : sorting on _id loads its fielddata in the heap of the nodes.     *     * @param query    the query.     * @param pageable the size, the sort and the cursor of the page.     * @param clazz    the given {@link Class}.     * @param <T>      the type of the entities.     * @return the page, with the cursor of the next page.     */    <T> SearchAfterPage<T> searchAfter(QueryBuilder query, SearchAfterPageable pageable, Class<T> clazz);    /**     * Clear the {@link ScrolledPage} for the given scrollId.     *     * @param scrollId the given scrollId.     */    void clearScroll(String scrollId);}
\ No newline at end of file
@@ -1 +1 @@
-package com.ydespreaux.shared.data.elasticsearch;import com.ydespreaux.shared.data.elasticsearch.annotations.Document;import com.ydespreaux.shared.data.elasticsearch.indices.IndexBuilder;import com.ydespreaux.shared.data.elasticsearch.indices.aliases.GetAlias;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchConverter;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;import com.ydespreaux.shared.data.elasticsearch.scroll.ScrolledPageResult;import com.ydespreaux.shared.data.elasticsearch.scroll.SearchScrollResult;import io.searchbox.action.Action;import io.searchbox.client.JestClient;import io.searchbox.client.JestResult;import io.searchbox.client.JestResultHandler;import io.searchbox.core.*;import io.searchbox.indices.CreateIndex;import io.searchbox.indices.DeleteIndex;import io.searchbox.indices.IndicesExists;import io.searchbox.indices.Refresh;import io.searchbox.indices.template.DeleteTemplate;import io.searchbox.indices.template.GetTemplate;import io.searchbox.indices.template.PutTemplate;import io.searchbox.params.Parameters;import lombok.extern.slf4j.Slf4j;import org.apache.commons.io.FilenameUtils;import org.elasticsearch.ElasticsearchException;import org.elasticsearch.common.Nullable;import org.elasticsearch.index.query.QueryBuilder;import org.elasticsearch.index.query.QueryBuilders;import org.elasticsearch.search.builder.SearchSourceBuilder;import org.springframework.context.ApplicationContext;import org.springframework.context.ApplicationContextAware;import org.springframework.core.io.Resource;import org.springframework.util.Assert;import org.springframework.util.StringUtils;import java.io.IOException;import java.util.*;/** * Class define the Jest Elastic Search operations. */@Slf4jpublic class JestElasticsearchTemplate implements ElasticsearchOperations, ApplicationContextAware {    /**     * jest client property.     */    private final JestClient client;    /**     * {@link ElasticsearchConverter} property.     */    private final ElasticsearchConverter elasticsearchConverter;    /**     * The used {@link ApplicationContext}     */    private ApplicationContext applicationContext;    /**     * Construct an instance with the given client and elasticsearchConverter parameters.     *     * @param client                 the given client.     * @param elasticsearchConverter the given elasticsearchConverter.     */    public JestElasticsearchTemplate(final JestClient client,                                     final ElasticsearchConverter elasticsearchConverter) {        this.client = client;        this.elasticsearchConverter = elasticsearchConverter;    }    /**     * @see ElasticsearchOperations#execute(Action) method     */    @Override    public <T extends JestResult> T execute(io.searchbox.action.Action<T> action) {        try {            return client.execute(action);        } catch (IOException e) {            throw new ElasticsearchException(e);        }    }    /**     * @see ElasticsearchOperations#executeAsync(Action, JestResultHandler)  method     */    @Override    public <T extends JestResult> void executeAsync(io.searchbox.action.Action<T> action, JestResultHandler<? super T> handler) {        client.executeAsync(action, handler);    }    /**     * @see ElasticsearchOperations#getPersistentEntityFor(Class)  method     */    @Override    public <T> ElasticsearchPersistentEntity<T> getPersistentEntityFor(Class<T> clazz) {        Assert.isTrue(clazz.isAnnotationPresent(Document.class), "Unable to identify template. " + clazz.getSimpleName()                + " is not a TimeBasedDocument. Make sure the document class is annotated with @TimeBasedDocument");        return elasticsearchConverter.getRequiredPersistentEntity(clazz);    }    /**     * @see ElasticsearchOperations#createTemplate(String, String, Boolean)  method     */    @Override    public void createTemplate(String templateName, String location, Boolean createOnly) {        Resource resource = applicationContext.getResource(location);        if (!resource.exists()) {            throw new ElasticsearchException("File {} not found", location);        }        createTemplate(templateName, Collections.singletonList(resource), createOnly);    }    /**     * @see ElasticsearchOperations#createTemplate(String, String, Boolean)  method     */    @Override    public void createTemplate(String templateName, List<Resource> locations, Boolean createOnly) {        if (createOnly && templateExists(templateName)) {            return;        }        try {            String jsonTemplate = new IndexBuilder().buildTemplate(locations).string();            JestResult result = execute(new PutTemplate.Builder(templateName, jsonTemplate).build());            if (!result.isSucceeded()) {                throw new ElasticsearchException(result.getErrorMessage());            }            if (log.isInfoEnabled()) {                log.info("New template {} added : {}", templateName, jsonTemplate);            }        } catch (IOException e) {            throw new ElasticsearchException(e);        }    }    /**     * @see ElasticsearchOperations#templateExists(String)  method     */    @Override    public boolean templateExists(String templateName) {        return execute(new GetTemplate.Builder(templateName).build()).isSucceeded();    }    /**     * @see ElasticsearchOperations#deleteTemplate(String)  method     */    @Override    public void deleteTemplate(String templateName) {        if (templateExists(templateName)) {            JestResult response = execute(new DeleteTemplate.Builder(templateName).build());            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            } else if (log.isInfoEnabled()) {                log.info("Deleted template {}", templateName);            }        }    }    /**     * @see ElasticsearchOperations#deleteIndexByName(String)   method     */    @Override    public void deleteIndexByName(String indexName) {        Objects.requireNonNull(indexName);        if (indexExists(indexName)) {            JestResult response = execute(new DeleteIndex.Builder(indexName).build());            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            } else if (log.isInfoEnabled()) {                log.info("Deleted index {}", indexName);            }        }    }    /**     * @see ElasticsearchOperations#deleteIndexByAlias(String)    method     */    @Override    public void deleteIndexByAlias(String aliasName) {        Objects.requireNonNull(aliasName);        JestResult response = execute(new GetAlias.Builder(aliasName).build());        if (response.isSucceeded()) {            response.getJsonObject().entrySet().forEach(entry -> deleteIndexByName(entry.getKey()));        } else if (log.isWarnEnabled()) {            log.warn("Alias {} not found", aliasName);        }    }    /**     * Check if Index Exist     *     * @param indexName     * @return true if index exist     */    @Override    public boolean indexExists(String indexName) {        Objects.requireNonNull(indexName);        JestResult response = execute(new IndicesExists.Builder(indexName).build());        return response.isSucceeded();    }    @Override    public boolean createIndex(String indexName) {        Objects.requireNonNull(indexName);        JestResult response = execute(new CreateIndex.Builder(indexName).build());        return response.isSucceeded();    }    /**     * @param indexName     * @param indexPath     * @return     */    @Override    public boolean createIndexWithSettingsAndMapping(String indexName, String indexPath) {        final String[] profiles = this.applicationContext.getEnvironment().getActiveProfiles();        List<Resource> locations = new ArrayList<>(profiles.length + 1);        Resource resource = this.applicationContext.getResource(indexPath);        if (resource.exists()) {            locations.add(resource);        } else if (log.isWarnEnabled()) {            log.warn("Resource {} not found", indexPath);        }        String extension = FilenameUtils.getExtension(indexPath);        boolean hasExtension = StringUtils.hasLength(extension);        String prefix = indexPath.substring(0, indexPath.length() - (hasExtension ? extension.length() + 1 : 0));        for (String profile : profiles) {            String profilPath = prefix + "-" + profile + (hasExtension ? "." + extension : "");            Resource profilResource = this.applicationContext.getResource(profilPath);            if (profilResource.exists()) {                locations.add(profilResource);            }        }        try {            String jsonIndex = new IndexBuilder().buildTemplate(locations).string();            JestResult result = execute(new CreateIndex.Builder(indexName).payload(jsonIndex).build());            if (log.isInfoEnabled() && result.isSucceeded()) {                log.info("New index {} added : {}", indexName, jsonIndex);            }            return result.isSucceeded();        }catch(IOException e) {            throw new ElasticsearchException(e);        }    }    /**     * @see ElasticsearchOperations#index(Object, Class)     method     */    @Override    public <T> T index(T entity, Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Index request = createIndexRequest(entity, clazz);        DocumentResult response = execute(request);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        persistentEntity.setPersistentEntityId(entity, response.getId());        persistentEntity.setPersistentEntityVersion(entity, response.getVersion().intValue());        return entity;    }    /**     * @see ElasticsearchOperations#bulkIndex(List, Class) method     */    @Override    public <T> List<T> bulkIndex(List<T> entities, Class<T> clazz) {        if (entities.isEmpty())            return entities;        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Bulk.Builder builder = new Bulk.Builder();        entities.forEach(entity -> builder.addAction(createIndexRequest(entity, clazz)));        BulkResult response = execute(builder.build());        if (!response.isSucceeded()) {            Map<String, String> failedDocuments = new HashMap<>();            for (BulkResult.BulkResultItem item : response.getFailedItems()) {                failedDocuments.put(item.id, item.error);            }            throw new ElasticsearchException(                    "Bulk indexing has failures. Use ElasticsearchException.getFailedDocuments() for detailed messages ["                            + failedDocuments + "]",                    failedDocuments);        }        List<BulkResult.BulkResultItem> items = response.getItems();        for (int i = 0; i < entities.size(); i++) {            persistentEntity.setPersistentEntityId(entities.get(i), items.get(i).id);            persistentEntity.setPersistentEntityVersion(entities.get(i), items.get(i).version);        }        return entities;    }    @Override    public List<?> bulkIndex(List<?> entities) {        if (entities.isEmpty())            return entities;        Bulk.Builder builder = new Bulk.Builder();        entities.forEach(entity -> {            builder.addAction(createIndexRequest(entity, entity.getClass()));        });        BulkResult response = execute(builder.build());        checkBulkResultError(response);        List<BulkResult.BulkResultItem> items = response.getItems();        for (int i = 0; i < entities.size(); i++) {            Object entity = entities.get(i);            ElasticsearchPersistentEntity persistentEntity = getPersistentEntityFor(entity.getClass());            persistentEntity.setPersistentEntityId(entity, items.get(i).id);            persistentEntity.setPersistentEntityVersion(entity, items.get(i).version);        }        return entities;    }    /**     *     * @param response     */    private void checkBulkResultError(BulkResult response) {        if (!response.isSucceeded()) {            Map<String, String> failedDocuments = new HashMap<>();            for (BulkResult.BulkResultItem item : response.getFailedItems()) {                failedDocuments.put(item.id, item.error);            }            throw new ElasticsearchException(                    "Bulk indexing has failures. Use ElasticsearchException.getFailedDocuments() for detailed messages ["                            + failedDocuments + "]",                    failedDocuments);        }    }    /**     * @param source     * @return     */    private <T> Index createIndexRequest(T source, Class<?> clazz) {        Objects.requireNonNull(source);        ElasticsearchPersistentEntity<T> persistentEntity = (ElasticsearchPersistentEntity<T>) getPersistentEntityFor(clazz);        return new Index.Builder(source).index(persistentEntity.getIndex(source)).type(persistentEntity.getType()).build();    }    /**     * @see ElasticsearchOperations#findById(Class, String)  method     */    @Override    public <T> T findById(Class<T> clazz, String documentId) {        Objects.requireNonNull(documentId, "documentId parameter canno't be null !");        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        if (persistentEntity.isIndexTimeBased()) {            SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()                    .query(QueryBuilders.termQuery("_id", documentId))                    .version(true)                    .size(1);            Search.Builder builder = new Search.Builder(searchSourceBuilder.toString()).addIndex(persistentEntity.getAliasOrIndexName()).addType(persistentEntity.getType());            SearchResult response = execute(builder.build());            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            }            if (response.getTotal() > 0) {                SearchResult.Hit<T, Void> hit = response.getFirstHit(clazz);                return hit.source;            }        }else {            Get.Builder builder = new Get.Builder(persistentEntity.getAliasOrIndexName(), documentId).type(persistentEntity.getType());            DocumentResult response = execute(builder.build());            if (response.getJsonObject().has("found")){                boolean found = response.getJsonObject().get("found").getAsBoolean();                return found ? response.getSourceAsObject(clazz) : null;            }            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            }        }        return null;    }    /**     * @see ElasticsearchOperations#prepareSearch(QueryBuilder, Class)  method     */    @Override    public <T> Search.Builder prepareSearch(QueryBuilder query, Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        return new Search.Builder(new SearchSourceBuilder()                .query(query)                .version(true)                .toString())                .addIndex(persistentEntity.getAliasOrIndexName())                .addType(persistentEntity.getType());    }    /**     * @see ElasticsearchOperations#search(Search, Class)  method     */    @Override    public <T> List<T> search(Search search, Class<T> clazz) {        final List<T> entities = new ArrayList<>();        SearchResult response = this.execute(search);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        response.getHits(clazz).forEach(hit -> entities.add(hit.source));        return entities;    }    /**     * @see ElasticsearchOperations#startScroll(long, int, Search.Builder, Class)  method     */    @Override    public <T> ScrolledPage<T> startScroll(long scrollTimeInMinutes, int size, Search.Builder builder, Class<T> clazz) {        //        builder                .setParameter(Parameters.SCROLL, scrollTimeInMinutes + "m")                .setParameter(Parameters.SIZE, size);        //        SearchResult response = this.execute(builder.build());        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        return ScrolledPageResult.of(new SearchScrollResult(response), clazz);    }    /**     * @see ElasticsearchOperations#continueScroll(String, long, Class)   method     */    @Override    public <T> ScrolledPage<T> continueScroll(@Nullable String scrollId, long scrollTimeInMinutes, Class<T> clazz) {        SearchScroll scroll = new SearchScroll.Builder(scrollId, scrollTimeInMinutes + "m").build();        JestResult response = this.execute(scroll);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        return ScrolledPageResult.of(new SearchScrollResult(response), clazz);    }    /**     * @see ElasticsearchOperations#clearScroll(String)  method     */    @Override    public void clearScroll(String scrollId) {        JestResult response = this.execute(new ClearScroll.Builder().addScrollId(scrollId).build());        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }    }    /**     * @see ElasticsearchOperations#deleteAll(Class)  method     */    @Override    public <T> void deleteAll(Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        if (persistentEntity.isIndexTimeBased()) {            JestResult response = execute(new GetAlias.Builder(persistentEntity.getAliasOrIndexName()).build());            if (response.isSucceeded()) {                response.getJsonObject().entrySet().forEach(entry -> deleteIndexByName(entry.getKey()));            } else if (log.isWarnEnabled()) {                log.warn("Alias {} not found", persistentEntity.getAliasOrIndexName());            }        }else{            deleteByQuery(QueryBuilders.matchAllQuery(), clazz);        }    }    /**     * @see ElasticsearchOperations#deleteAll(List, Class)  method     */    @Override    public <T> void deleteAll(List<T> entities, Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Set<String> ids = new HashSet<>();        entities.forEach(entity -> persistentEntity.getPersistentEntityId(entity).ifPresent(ids::add));        if (!ids.isEmpty()) {            deleteByQuery(QueryBuilders.termsQuery("_id", ids), clazz);        }    }    /**     * @see ElasticsearchOperations#delete(Object, Class)   method     */    @Override    public <T> void delete(T entity, Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        persistentEntity.getPersistentEntityId(entity).ifPresent(documentId -> this.deleteById(documentId, clazz));    }    /**     * @see ElasticsearchOperations#deleteById(String, Class)   method     */    @Override    public <T> void deleteById(String documentId, Class<T> clazz) {        Assert.notNull(documentId, "documentId must not be null!");        deleteByQuery(QueryBuilders.termQuery("_id", documentId), clazz);    }    /**     * @param query     */    private <T> void deleteByQuery(QueryBuilder query, Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder().query(query);        DeleteByQuery.Builder builder = new DeleteByQuery.Builder(searchSourceBuilder.toString())                .addIndex(persistentEntity.getAliasOrIndexName())                .addType(persistentEntity.getType());        JestResult response = execute(builder.build());        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }    }    /**     * @see ElasticsearchOperations#refresh(Class)  method     */    @Override    public <T> void refresh(Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Refresh.Builder builder = new Refresh.Builder().addIndex(persistentEntity.getAliasOrIndexName());        JestResult response = execute(builder.build());        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }    }    /**     * @see ApplicationContextAware#setApplicationContext(ApplicationContext)  method     */    @Override    public void setApplicationContext(ApplicationContext applicationContext) {        this.applicationContext = applicationContext;    }}
\ No newline at end of file
+package com.ydespreaux.shared.data.elasticsearch;import com.ydespreaux.shared.data.elasticsearch.aggregation.CompositeAggregationIterator;import com.ydespreaux.shared.data.elasticsearch.aggregation.CompositeBucket;import com.ydespreaux.shared.data.elasticsearch.cache.QueryCache;import com.ydespreaux.shared.data.elasticsearch.core.StreamingBulk;import com.ydespreaux.shared.data.elasticsearch.core.StreamingIndex;import com.ydespreaux.shared.data.elasticsearch.indices.IndexBuilder;import com.ydespreaux.shared.data.elasticsearch.indices.aliases.GetAlias;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchConverter;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;import com.ydespreaux.shared.data.elasticsearch.metrics.ElasticsearchMetrics;import com.ydespreaux.shared.data.elasticsearch.msearch.MultiSearchItem;import com.ydespreaux.shared.data.elasticsearch.msearch.MultiSearchResponse;import com.ydespreaux.shared.data.elasticsearch.msearch.SearchRequest;import com.ydespreaux.shared.data.elasticsearch.projection.ProjectionMapper;import com.ydespreaux.shared.data.elasticsearch.scroll.ScrolledIterator;import com.ydespreaux.shared.data.elasticsearch.scroll.ScrolledPageResult;import com.ydespreaux.shared.data.elasticsearch.scroll.SearchScrollResult;import com.ydespreaux.shared.data.elasticsearch.searchafter.SearchAfterCursor;import com.ydespreaux.shared.data.elasticsearch.searchafter.SearchAfterPageResult;import com.google.gson.Gson;import com.google.gson.JsonArray;import com.google.gson.JsonElement;import com.google.gson.JsonObject;import com.google.gson.JsonParser;import io.searchbox.action.Action;import io.searchbox.action.BulkableAction;import io.searchbox.client.JestClient;import io.searchbox.client.JestResult;import io.searchbox.client.JestResultHandler;import io.searchbox.client.config.ElasticsearchVersion;import io.searchbox.client.http.JestHttpClient;import io.searchbox.cluster.TasksInformation;import io.searchbox.core.*;import io.searchbox.core.search.aggregation.MetricAggregation;import io.searchbox.indices.CreateIndex;import io.searchbox.indices.DeleteIndex;import io.searchbox.indices.IndicesExists;import io.searchbox.indices.Refresh;import io.searchbox.indices.template.DeleteTemplate;import io.searchbox.indices.template.GetTemplate;import io.searchbox.indices.template.PutTemplate;import io.searchbox.params.Parameters;import lombok.extern.slf4j.Slf4j;import org.apache.commons.io.FilenameUtils;import org.elasticsearch.ElasticsearchException;import org.elasticsearch.common.Nullable;import org.elasticsearch.common.Strings;import org.elasticsearch.index.query.QueryBuilder;import org.elasticsearch.index.query.QueryBuilders;import org.elasticsearch.script.Script;import org.elasticsearch.search.aggregations.AggregationBuilder;import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;import org.elasticsearch.search.builder.SearchSourceBuilder;import org.elasticsearch.search.slice.SliceBuilder;import org.elasticsearch.search.sort.FieldSortBuilder;import org.elasticsearch.search.sort.SortOrder;import org.springframework.context.ApplicationContext;import org.springframework.context.ApplicationContextAware;import org.springframework.core.io.Resource;import org.springframework.data.domain.Sort;import org.springframework.util.Assert;import org.springframework.util.StringUtils;import java.io.IOException;import java.time.Duration;import java.util.*;import java.util.concurrent.CompletableFuture;import java.util.concurrent.ConcurrentHashMap;import java.util.concurrent.ExecutionException;import java.util.concurrent.ExecutorService;import java.util.concurrent.Executors;import java.util.concurrent.Future;import java.util.concurrent.Semaphore;import java.util.concurrent.TimeUnit;import java.util.concurrent.atomic.AtomicInteger;import java.util.concurrent.atomic.AtomicLong;import java.util.concurrent.atomic.AtomicReference;import java.util.function.Consumer;import java.util.stream.Collectors;import java.util.stream.Stream;import java.util.stream.StreamSupport;/** * Class define the Jest Elastic Search operations. */@Slf4jpublic class JestElasticsearchTemplate implements ElasticsearchOperations, ApplicationContextAware {    private static final int NOT_FOUND = 404;    private static final int CONFLICT = 409;    private static final int TOO_MANY_REQUESTS = 429;    private static final int DEFAULT_SCROLL_PAGE_SIZE = 1000;    private static final long DEFAULT_SCROLL_TIME_IN_MINUTES = 1;    private static final int IDS_BATCH_SIZE = 1000;    private static final String ID_FIELD_NAME = "_id";    private static final String REQUEST_CACHE = "request_cache";    /**     * jest client property.     */    private final JestClient client;    /**     * {@link ElasticsearchConverter} property.     */    private final ElasticsearchConverter elasticsearchConverter;    /**     * {@link Gson} used by the jest client to serialize the documents.     */    private final Gson gson;    /**     * Mapper of the hits onto the projections.     */    private final ProjectionMapper projectionMapper;    /**     * Backoff policy used to retry the bulk items rejected by elasticsearch.     */    private BackoffPolicy bulkBackoffPolicy = BackoffPolicy.exponentialBackoff();    /**     * Indices known to exist, created at most once per name.     */    private final Map<String, Boolean> knownIndices = new ConcurrentHashMap<>();    /**     * Local cache of the read results, null if disabled.     */    @Nullable    private QueryCache queryCache;    /**     * Metrics of the requests.     */    private ElasticsearchMetrics metrics = ElasticsearchMetrics.NONE;    /**     * The used {@link ApplicationContext}     */    private ApplicationContext applicationContext;    /**     * Construct an instance with the given client and elasticsearchConverter parameters.     *     * @param client                 the given client.     * @param elasticsearchConverter the given elasticsearchConverter.     */    public JestElasticsearchTemplate(final JestClient client,                                     final ElasticsearchConverter elasticsearchConverter) {        this.client = client;        this.elasticsearchConverter = elasticsearchConverter;        this.gson = client instanceof JestHttpClient ? ((JestHttpClient) client).getGson() : new Gson();        this.projectionMapper = new ProjectionMapper(this.gson);    }    /**     * @see ElasticsearchOperations#execute(Action) method     */    @Override    public <T extends JestResult> T execute(io.searchbox.action.Action<T> action) {        return execute(action, null);    }    /**     * Execute the given action, record its metrics and invalidate the query cache if the action is a write.     *     * @param action the action.     * @param clazz  the entity class of the action, null for the raw actions.     * @return the result of the action.     */    private <T extends JestResult> T execute(Action<T> action, @Nullable Class<?> clazz) {        return executeForEntities(action, Collections.singleton(clazz));    }    /**     * Execute the given action, record one sample of its metrics by entity class and invalidate the query cache     * of each entity class if the action is a write.     *     * @param action  the action.     * @param classes the entity classes of the action, a null class for the raw actions.     * @return the result of the action.     */    private <T extends JestResult> T executeForEntities(Action<T> action, Collection<? extends Class<?>> classes) {        final long start = System.nanoTime();        T result = null;        try {            result = client.execute(action);            return result;        } catch (IOException e) {            throw new ElasticsearchException(e);        } finally {            final long duration = System.nanoTime() - start;            for (Class<?> clazz : classes) {                recordRequest(action, clazz, result, duration);                written(action, clazz);            }        }    }    /**     * @see ElasticsearchOperations#executeAsync(Action, JestResultHandler)  method     */    @Override    public <T extends JestResult> void executeAsync(io.searchbox.action.Action<T> action, JestResultHandler<? super T> handler) {        final long start = System.nanoTime();        client.executeAsync(action, new JestResultHandler<T>() {            @Override            public void completed(T result) {                recordRequest(action, null, result, System.nanoTime() - start);                written(action, null);                handler.completed(result);            }            @Override            public void failed(Exception ex) {                recordRequest(action, null, null, System.nanoTime() - start);                written(action, null);                handler.failed(ex);            }        });    }    /**     * @see ElasticsearchOperations#executeAsync(Action)  method     */    @Override    public <T extends JestResult> CompletableFuture<T> executeAsync(io.searchbox.action.Action<T> action) {        final CompletableFuture<T> future = new CompletableFuture<>();        executeAsync(action, new JestResultHandler<T>() {            @Override            public void completed(T result) {                future.complete(result);            }            @Override            public void failed(Exception ex) {                future.completeExceptionally(new ElasticsearchException(ex));            }        });        return future;    }    /**     * Record the metrics of an executed request.     *     * @param action   the action.     * @param clazz    the entity class of the action, null for the raw actions.     * @param result   the result, null if the request failed.     * @param duration the duration of the request in nanoseconds.     */    private void recordRequest(Action<?> action, @Nullable Class<?> clazz, @Nullable JestResult result, long duration) {        if (this.metrics != ElasticsearchMetrics.NONE) {            String index = clazz == null ? null : getPersistentEntityFor(clazz).getAliasOrIndexName();            this.metrics.requestCompleted(action, clazz, index, result, duration);        }    }    /**     * @see ElasticsearchOperations#getPersistentEntityFor(Class)  method     */    @Override    public <T> ElasticsearchPersistentEntity<T> getPersistentEntityFor(Class<T> clazz) {        return elasticsearchConverter.getRequiredPersistentEntity(clazz);    }    /**     * @see ElasticsearchOperations#createTemplate(String, String, Boolean)  method     */    @Override    public void createTemplate(String templateName, String location, Boolean createOnly) {        Resource resource = applicationContext.getResource(location);        if (!resource.exists()) {            throw new ElasticsearchException("File {} not found", location);        }        createTemplate(templateName, Collections.singletonList(resource), createOnly);    }    /**     * @see ElasticsearchOperations#createTemplate(String, String, Boolean)  method     */    @Override    public void createTemplate(String templateName, List<Resource> locations, Boolean createOnly) {        if (createOnly && templateExists(templateName)) {            return;        }        try {            String jsonTemplate = new IndexBuilder().buildTemplate(locations).string();            JestResult result = execute(new PutTemplate.Builder(templateName, jsonTemplate).build());            if (!result.isSucceeded()) {                throw new ElasticsearchException(result.getErrorMessage());            }            if (log.isInfoEnabled()) {                log.info("New template {} added : {}", templateName, jsonTemplate);            }        } catch (IOException e) {            throw new ElasticsearchException(e);        }    }    /**     * @see ElasticsearchOperations#templateExists(String)  method     */    @Override    public boolean templateExists(String templateName) {        return execute(new GetTemplate.Builder(templateName).build()).isSucceeded();    }    /**     * @see ElasticsearchOperations#deleteTemplate(String)  method     */    @Override    public void deleteTemplate(String templateName) {        if (templateExists(templateName)) {            JestResult response = execute(new DeleteTemplate.Builder(templateName).build());            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            } else if (log.isInfoEnabled()) {                log.info("Deleted template {}", templateName);            }        }    }    /**     * @see ElasticsearchOperations#deleteIndexByName(String)   method     */    @Override    public void deleteIndexByName(String indexName) {        Objects.requireNonNull(indexName);        this.knownIndices.remove(indexName);        if (indexExists(indexName)) {            JestResult response = execute(new DeleteIndex.Builder(indexName).build());            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            } else if (log.isInfoEnabled()) {                log.info("Deleted index {}", indexName);            }        }    }    /**     * @see ElasticsearchOperations#deleteIndexByAlias(String)    method     */    @Override    public void deleteIndexByAlias(String aliasName) {        Objects.requireNonNull(aliasName);        JestResult response = execute(new GetAlias.Builder(aliasName).build());        if (response.isSucceeded()) {            response.getJsonObject().entrySet().forEach(entry -> deleteIndexByName(entry.getKey()));        } else if (log.isWarnEnabled()) {            log.warn("Alias {} not found", aliasName);        }    }    /**     * Check if Index Exist     *     * @param indexName     * @return true if index exist     */    @Override    public boolean indexExists(String indexName) {        Objects.requireNonNull(indexName);        JestResult response = execute(new IndicesExists.Builder(indexName).build());        return response.isSucceeded();    }    @Override    public boolean createIndex(String indexName) {        return executeCreateIndex(indexName).isSucceeded();    }    private JestResult executeCreateIndex(String indexName) {        Objects.requireNonNull(indexName);        return execute(new CreateIndex.Builder(indexName).build());    }    /**     * @param indexName     * @param indexPath     * @return     */    @Override    public boolean createIndexWithSettingsAndMapping(String indexName, String indexPath) {        return executeCreateIndexWithSettingsAndMapping(indexName, indexPath).isSucceeded();    }    private JestResult executeCreateIndexWithSettingsAndMapping(String indexName, String indexPath) {        CreateIndex action = prepareCreateIndexWithSettingsAndMapping(indexName, indexPath);        JestResult result = execute(action);        if (log.isInfoEnabled() && result.isSucceeded()) {            log.info("New index {} added : {}", indexName, action.getData(gson));        }        return result;    }    /**     * @param indexName the index name.     * @param indexPath the location of the settings and mapping of the index, completed by the active profiles.     * @return the create index request.     */    private CreateIndex prepareCreateIndexWithSettingsAndMapping(String indexName, String indexPath) {        final String[] profiles = this.applicationContext.getEnvironment().getActiveProfiles();        List<Resource> locations = new ArrayList<>(profiles.length + 1);        Resource resource = this.applicationContext.getResource(indexPath);        if (resource.exists()) {            locations.add(resource);        } else if (log.isWarnEnabled()) {            log.warn("Resource {} not found", indexPath);        }        String extension = FilenameUtils.getExtension(indexPath);        boolean hasExtension = StringUtils.hasLength(extension);        String prefix = indexPath.substring(0, indexPath.length() - (hasExtension ? extension.length() + 1 : 0));        for (String profile : profiles) {            String profilPath = prefix + "-" + profile + (hasExtension ? "." + extension : "");            Resource profilResource = this.applicationContext.getResource(profilPath);            if (profilResource.exists()) {                locations.add(profilResource);            }        }        try {            return new CreateIndex.Builder(indexName).payload(new IndexBuilder().buildTemplate(locations).string()).build();        }catch(IOException e) {            throw new ElasticsearchException(e);        }    }    /**     * @see ElasticsearchOperations#createIndexIfNotExists(String, Class) method     */    @Override    public <T> void createIndexIfNotExists(String indexName, Class<T> clazz) {        createIndexIfNotExists(indexName, getPersistentEntityFor(clazz));    }    /**     * @see ElasticsearchOperations#prepareCreateIndex(String, Class) method     */    @Override    public <T> CreateIndex prepareCreateIndex(String indexName, Class<T> clazz) {        Objects.requireNonNull(indexName);        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        if (persistentEntity.isIndexTimeBased()) {            return new CreateIndex.Builder(indexName).build();        } else if (StringUtils.hasText(persistentEntity.getIndexPath())) {            return prepareCreateIndexWithSettingsAndMapping(indexName, persistentEntity.getIndexPath());        }        return null;    }    /**     * @see ElasticsearchOperations#isKnownIndex(String) method     */    @Override    public boolean isKnownIndex(String indexName) {        return this.knownIndices.containsKey(indexName);    }    /**     * @see ElasticsearchOperations#addKnownIndex(String) method     */    @Override    public void addKnownIndex(String indexName) {        this.knownIndices.putIfAbsent(indexName, Boolean.TRUE);    }    /**     * Create the index once per name : the existing or created indices are kept in the known indices. A failed     * creation is not kept, so it is tried again by the next write. The requests are not executed in the map     * computation, not to block the other indices : concurrent callers may check the same index, the index created     * by another one is accepted.     *     * @param indexName        the index name.     * @param persistentEntity the persistent entity of the documents of the index.     */    private <T> void createIndexIfNotExists(String indexName, ElasticsearchPersistentEntity<T> persistentEntity) {        Objects.requireNonNull(indexName);        if (this.knownIndices.containsKey(indexName) || indexExists(indexName)) {            this.knownIndices.putIfAbsent(indexName, Boolean.TRUE);            return;        }        JestResult response = null;        if (persistentEntity.isIndexTimeBased()) {            response = executeCreateIndex(indexName);        } else if (StringUtils.hasText(persistentEntity.getIndexPath())) {            response = executeCreateIndexWithSettingsAndMapping(indexName, persistentEntity.getIndexPath());        }        if (response != null && !response.isSucceeded() && !isIndexAlreadyExists(response)) {            throw new ElasticsearchException("Create index " + indexName + " failed : " + response.getErrorMessage());        }        this.knownIndices.putIfAbsent(indexName, Boolean.TRUE);    }    /**     * @return true if the index creation failed because the index exists, created by another client.     */    static boolean isIndexAlreadyExists(JestResult response) {        JsonObject json = response.getJsonObject();        JsonElement error = json == null ? null : json.get("error");        if (error == null || !error.isJsonObject() || !error.getAsJsonObject().has("type")) {            return false;        }        String type = error.getAsJsonObject().get("type").getAsString();        return "resource_already_exists_exception".equals(type) || "index_already_exists_exception".equals(type);    }    /**     * @see ElasticsearchOperations#index(Object, Class)     method     */    @Override    public <T> T index(T entity, Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Index request = createIndexRequest(entity, clazz, new Date());        DocumentResult response = execute(request, clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        persistentEntity.setPersistentEntityId(entity, response.getId());        persistentEntity.setPersistentEntityVersion(entity, response.getVersion());        return entity;    }    /**     * @see ElasticsearchOperations#prepareIndex(Object, Class) method     */    @Override    public <T> Index prepareIndex(T entity, Class<T> clazz) {        Objects.requireNonNull(entity);        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        return new Index.Builder(gson.toJson(entity))                .id(persistentEntity.getPersistentEntityId(entity).orElse(null))                .index(resolveIndex(entity, persistentEntity, new Date()))                .type(persistentEntity.getType())                .build();    }    /**     * @see ElasticsearchOperations#bulkIndex(List, Class) method     */    @Override    public <T> List<T> bulkIndex(List<T> entities, Class<T> clazz) {        if (entities.isEmpty())            return entities;        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        List<Index> actions = new ArrayList<>(entities.size());        final Date timeEvent = new Date();        entities.forEach(entity -> actions.add(createIndexRequest(entity, clazz, timeEvent)));        BulkResponse response = bulk(actions, clazz);        for (BulkItemResponse item : response.getItems()) {            if (!item.isFailed()) {                T entity = entities.get(item.getPosition());                persistentEntity.setPersistentEntityId(entity, item.getId());                persistentEntity.setPersistentEntityVersion(entity, item.getVersion());            }        }        checkBulkResponseError(response);        return entities;    }    @Override    public List<?> bulkIndex(List<?> entities) {        if (entities.isEmpty())            return entities;        List<Index> actions = new ArrayList<>(entities.size());        final Date timeEvent = new Date();        entities.forEach(entity -> actions.add(createIndexRequest(entity, entity.getClass(), timeEvent)));        BulkResponse response = bulk(actions);        for (BulkItemResponse item : response.getItems()) {            if (!item.isFailed()) {                Object entity = entities.get(item.getPosition());                ElasticsearchPersistentEntity persistentEntity = getPersistentEntityFor(entity.getClass());                persistentEntity.setPersistentEntityId(entity, item.getId());                persistentEntity.setPersistentEntityVersion(entity, item.getVersion());            }        }        checkBulkResponseError(response);        return entities;    }    /**     * @see ElasticsearchOperations#bulkIndexParallel(Stream, Class, BulkOptions) method     */    @Override    public <T> long bulkIndexParallel(Stream<T> entities, Class<T> clazz, BulkOptions options) {        try (Stream<T> stream = entities) {            return bulkIndexParallel(stream.iterator(), clazz, options);        }    }    /**     * @see ElasticsearchOperations#bulkIndexParallel(Iterator, Class, BulkOptions) method     */    @Override    public <T> long bulkIndexParallel(Iterator<T> entities, Class<T> clazz, BulkOptions options) {        Assert.notNull(entities, "entities must not be null!");        Assert.notNull(options, "options must not be null!");        Assert.isTrue(options.getBatchSize() > 0, "batchSize must be greater than 0");        Assert.isTrue(options.getParallelism() > 0, "parallelism must be greater than 0");        Assert.isTrue(options.getQueueCapacity() >= 0, "queueCapacity must be positive or 0");        final ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        final AtomicInteger threadCount = new AtomicInteger();        final ExecutorService executor = Executors.newFixedThreadPool(options.getParallelism(), runnable -> {            Thread thread = new Thread(runnable, "elasticsearch-bulk-index-" + threadCount.incrementAndGet());            thread.setDaemon(true);            return thread;        });        // bulks in flight + batches waiting for a thread        final Semaphore permits = new Semaphore(options.getParallelism() + options.getQueueCapacity());        final AtomicLong indexed = new AtomicLong();        final List<BulkItemResponse> failures = Collections.synchronizedList(new ArrayList<>());        final AtomicReference<RuntimeException> error = new AtomicReference<>();        int offset = 0;        try {            while (entities.hasNext() && error.get() == null) {                final List<T> batch = new ArrayList<>(options.getBatchSize());                while (batch.size() < options.getBatchSize() && entities.hasNext()) {                    batch.add(entities.next());                }                final int batchOffset = offset;                offset += batch.size();                permits.acquire();                executor.execute(() -> {                    try {                        List<Index> actions = new ArrayList<>(batch.size());                        final Date timeEvent = new Date();                        batch.forEach(entity -> actions.add(createIndexRequest(entity, clazz, timeEvent)));                        for (BulkItemResponse item : bulk(actions, clazz).getItems()) {                            if (item.isFailed()) {                                failures.add(item.toBuilder().position(batchOffset + item.getPosition()).build());                            } else {                                T entity = batch.get(item.getPosition());                                persistentEntity.setPersistentEntityId(entity, item.getId());                                persistentEntity.setPersistentEntityVersion(entity, item.getVersion());                                indexed.incrementAndGet();                            }                        }                    } catch (RuntimeException e) {                        error.compareAndSet(null, e);                    } finally {                        permits.release();                    }                });            }            executor.shutdown();            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);        } catch (InterruptedException e) {            Thread.currentThread().interrupt();            throw new ElasticsearchException(e);        } finally {            executor.shutdownNow();        }        if (error.get() != null) {            throw error.get();        }        if (!failures.isEmpty()) {            failures.sort(Comparator.comparingInt(BulkItemResponse::getPosition));            throw new BulkFailureException(new BulkResponse(failures));        }        return indexed.get();    }    /**     * @see ElasticsearchOperations#bulk(List) method     */    @Override    public BulkResponse bulk(List<? extends BulkableAction> actions) {        return bulk(actions, null);    }    /**     * @param actions the bulkable actions.     * @param clazz   the entity class of the actions, null if unknown.     * @return the responses of the items, in the order of the actions. When a retry fails as a whole, the items     * written by the previous attempts are kept and the pending items fail with the status of the request.     * @throws ElasticsearchException if the first request failed as a whole, without being rejected.     */    private BulkResponse bulk(List<? extends BulkableAction> actions, @Nullable Class<?> clazz) {        final BulkItemResponse[] responses = new BulkItemResponse[actions.size()];        List<Integer> pendings = new ArrayList<>(actions.size());        for (int i = 0; i < actions.size(); i++) {            pendings.add(i);        }        // actions of the same index are sent together, the responses stay in the order of the request        pendings.sort(Comparator.comparing(position -> actions.get(position).getIndex(), Comparator.nullsFirst(Comparator.naturalOrder())));        final Iterator<Duration> backoff = this.bulkBackoffPolicy.iterator();        boolean firstAttempt = true;        while (!pendings.isEmpty()) {            Bulk.Builder builder = new StreamingBulk.Builder();            pendings.forEach(position -> builder.addAction(actions.get(position)));            BulkResult result = execute(builder.build(), clazz);            List<BulkResult.BulkResultItem> items = result.getItems();            List<Integer> rejected = new ArrayList<>();            if (items.size() != pendings.size()) {                boolean tooManyRequests = result.getResponseCode() == TOO_MANY_REQUESTS;                if (firstAttempt && !tooManyRequests) {                    throw new ElasticsearchException(result.getErrorMessage());                }                // the items written by the previous attempts are kept : the pending items fail with the request                for (Integer position : pendings) {                    responses[position] = BulkItemResponse.failed(position, actions.get(position), result.getResponseCode(), result.getErrorMessage());                }                if (tooManyRequests) {                    rejected = pendings;                }            } else {                for (int i = 0; i < items.size(); i++) {                    BulkItemResponse item = BulkItemResponse.of(pendings.get(i), items.get(i));                    responses[item.getPosition()] = item;                    if (item.isRejected()) {                        rejected.add(item.getPosition());                    }                }            }            if (rejected.isEmpty() || !backoff.hasNext()) {                break;            }            Duration delay = backoff.next();            if (log.isWarnEnabled()) {                log.warn("{} bulk items rejected by elasticsearch, retry in {} ms", rejected.size(), delay.toMillis());            }            try {                Thread.sleep(delay.toMillis());            } catch (InterruptedException e) {                Thread.currentThread().interrupt();                throw new ElasticsearchException(e);            }            pendings = rejected;            firstAttempt = false;        }        return new BulkResponse(Arrays.asList(responses));    }    /**     * @see ElasticsearchOperations#prepareUpdate(UpdateQuery, Class) method     */    @Override    public <T> Update prepareUpdate(UpdateQuery query, Class<T> clazz) {        Assert.notNull(query, "query must not be null!");        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Map<String, Set<String>> indices = persistentEntity.isIndexTimeBased()                ? findDocumentIndices(Collections.singleton(query.getDocumentId()), persistentEntity, clazz)                : Collections.emptyMap();        return createUpdateRequest(query, persistentEntity, indices);    }    /**     * @see ElasticsearchOperations#update(UpdateQuery, Class) method     */    @Override    public <T> long update(UpdateQuery query, Class<T> clazz) {        DocumentResult response = execute(prepareUpdate(query, clazz), clazz);        if (!response.isSucceeded()) {            if (response.getResponseCode() == CONFLICT && query.getVersion() != null) {                throw new VersionConflictException(query.getDocumentId(), query.getVersion(), response.getErrorMessage());            }            throw new ElasticsearchException(response.getErrorMessage());        }        return response.getVersion();    }    /**     * @see ElasticsearchOperations#update(String, Object, Class) method     */    @Override    public <T> long update(String documentId, Object partialDocument, Class<T> clazz) {        return update(UpdateQuery.builder().documentId(documentId).partialDocument(partialDocument).build(), clazz);    }    /**     * @see ElasticsearchOperations#upsert(String, Object, Class) method     */    @Override    public <T> long upsert(String documentId, Object partialDocument, Class<T> clazz) {        return update(UpdateQuery.builder().documentId(documentId).partialDocument(partialDocument).docAsUpsert(true).build(), clazz);    }    /**     * @see ElasticsearchOperations#update(String, Script, int, Class) method     */    @Override    public <T> long update(String documentId, Script script, int retryOnConflict, Class<T> clazz) {        return update(UpdateQuery.builder().documentId(documentId).script(script).retryOnConflict(retryOnConflict).build(), clazz);    }    /**     * @see ElasticsearchOperations#updateWithVersion(Object, Object, Class) method     */    @Override    public <T> T updateWithVersion(T entity, Object partialDocument, Class<T> clazz) {        Objects.requireNonNull(entity);        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        String documentId = persistentEntity.getPersistentEntityId(entity)                .orElseThrow(() -> new ElasticsearchException("No id defined for the entity {}", entity));        long version = update(UpdateQuery.builder()                .documentId(documentId)                .partialDocument(partialDocument)                .version(persistentEntity.getPersistentEntityVersion(entity).orElse(null))                .build(), clazz);        persistentEntity.setPersistentEntityVersion(entity, version);        return entity;    }    /**     * @see ElasticsearchOperations#bulkUpdate(List, Class) method     */    @Override    public <T> BulkResponse bulkUpdate(List<UpdateQuery> queries, Class<T> clazz) {        if (queries.isEmpty()) {            return new BulkResponse(Collections.emptyList());        }        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Map<String, Set<String>> indices = persistentEntity.isIndexTimeBased()                ? findDocumentIndices(queries.stream().map(UpdateQuery::getDocumentId).collect(Collectors.toSet()), persistentEntity, clazz)                : Collections.emptyMap();        List<Update> actions = new ArrayList<>(queries.size());        queries.forEach(query -> actions.add(createUpdateRequest(query, persistentEntity, indices)));        BulkResponse response = bulk(actions, clazz);        checkBulkResponseError(response);        return response;    }    /**     * @param query            the update query.     * @param persistentEntity the persistent entity of the document.     * @param indices          the indices of the existing time-based documents, by id.     * @return the update request, with only the partial document or the script as payload.     */    private <T> Update createUpdateRequest(UpdateQuery query, ElasticsearchPersistentEntity<T> persistentEntity, Map<String, Set<String>> indices) {        Assert.hasText(query.getDocumentId(), "documentId must not be empty!");        Assert.isTrue(query.getPartialDocument() == null ^ query.getScript() == null, "Either partialDocument or script must be given");        Assert.isTrue(query.getVersion() == null || query.getRetryOnConflict() == null, "version and retryOnConflict can't be used together");        Assert.isTrue(!query.isDocAsUpsert() || query.getPartialDocument() != null, "docAsUpsert requires a partialDocument");        JsonObject payload = new JsonObject();        if (query.getPartialDocument() != null) {            payload.add("doc", gson.toJsonTree(query.getPartialDocument()));        } else {            payload.add("script", new JsonParser().parse(Strings.toString(query.getScript())));        }        if (query.isDocAsUpsert()) {            payload.addProperty("doc_as_upsert", true);        }        if (query.getUpsert() != null) {            payload.add("upsert", gson.toJsonTree(query.getUpsert()));        }        Set<String> documentIndices = indices.get(query.getDocumentId());        String indexName = documentIndices == null ? null : documentIndices.iterator().next();        if (indexName == null) {            // only an upsert creates the missing document : the update of a missing document must fail as not found,            // without creating the current index            indexName = query.isDocAsUpsert() || query.getUpsert() != null                    ? resolveIndex(null, persistentEntity, new Date())                    : persistentEntity.getIndex(null, new Date());        }        Update.Builder builder = new Update.Builder(payload)                .index(indexName)                .type(persistentEntity.getType())                .id(query.getDocumentId());        if (query.getRetryOnConflict() != null) {            builder.setParameter(Parameters.RETRY_ON_CONFLICT, query.getRetryOnConflict());        }        if (query.getVersion() != null) {            builder.setParameter(Parameters.VERSION, query.getVersion());        }        return builder.build();    }    /**     * @see ElasticsearchOperations#getBulkBackoffPolicy() method     */    @Override    public BackoffPolicy getBulkBackoffPolicy() {        return this.bulkBackoffPolicy;    }    /**     * Define the backoff policy used to retry the bulk items rejected by elasticsearch.     *     * @param bulkBackoffPolicy the backoff policy.     */    public void setBulkBackoffPolicy(BackoffPolicy bulkBackoffPolicy) {        Assert.notNull(bulkBackoffPolicy, "bulkBackoffPolicy must not be null!");        this.bulkBackoffPolicy = bulkBackoffPolicy;    }    /**     * Define the local cache of the searches, the counts and the reads by id.     *     * @param queryCache the query cache, null to disable the cache.     */    public void setQueryCache(@Nullable QueryCache queryCache) {        this.queryCache = queryCache;    }    /**     * Define the metrics of the requests.     *     * @param metrics the metrics, {@link ElasticsearchMetrics#NONE} to disable them.     */    public void setMetrics(ElasticsearchMetrics metrics) {        Assert.notNull(metrics, "metrics must not be null!");        this.metrics = metrics;    }    /**     * Execute the given read action, or return its result from the query cache. The successful results and the     * documents not found are cached, for the time to live of the entity class.     *     * @param action the read action.     * @param clazz  the entity class read by the action.     * @return the result of the action.     */    private <R extends JestResult> R executeCached(Action<R> action, Class<?> clazz) {        final QueryCache cache = this.queryCache;        if (cache == null || !cache.isCacheable(clazz)) {            return execute(action, clazz);        }        final String key = action.getRestMethodName() + ' ' + action.getURI(ElasticsearchVersion.UNKNOWN) + ' ' + action.getData(gson);        final long generation = cache.generation(clazz);        R response = cache.get(clazz, key);        if (response == null) {            response = execute(action, clazz);            if (response.isSucceeded() || response.getResponseCode() == NOT_FOUND) {                String json = response.getJsonString();                cache.put(clazz, key, response, json == null ? 0 : json.length(), generation);            }        }        return response;    }    /**     * Write hook of all the executed actions, see {@link QueryCache#written(Action, Class)} : a raw write action     * given to {@link #execute(Action)}, {@link #executeAsync(Action, JestResultHandler)} or {@link #bulk(List)}     * invalidates all the cached results.     *     * @param action the executed action.     * @param clazz  the entity class of the action, null for the raw actions.     */    private void written(Action<?> action, @Nullable Class<?> clazz) {        final QueryCache cache = this.queryCache;        if (cache != null) {            cache.written(action, clazz);        }    }    /**     *     * @param response     */    private void checkBulkResponseError(BulkResponse response) {        if (response.hasFailures()) {            throw new BulkFailureException(response);        }    }    /**     * @param source     * @param timeEvent the time used to generate the name of a time-based index.     * @return     */    private <T> Index createIndexRequest(T source, Class<?> clazz, Date timeEvent) {        Objects.requireNonNull(source);        ElasticsearchPersistentEntity<T> persistentEntity = (ElasticsearchPersistentEntity<T>) getPersistentEntityFor(clazz);        return new StreamingIndex.Builder(source).index(resolveIndex(source, persistentEntity, timeEvent)).type(persistentEntity.getType()).build();    }    /**     * Resolve the index of the given document. A time-based index is created the first time it is resolved.     *     * @param source           the document.     * @param persistentEntity the persistent entity of the document.     * @param timeEvent        the time used when the document has no {@link com.ydespreaux.shared.data.elasticsearch.annotations.IndexTimeField}.     * @return the index name.     */    private <T> String resolveIndex(T source, ElasticsearchPersistentEntity<T> persistentEntity, Date timeEvent) {        String indexName = persistentEntity.getIndex(source, timeEvent);        if (persistentEntity.isIndexTimeBased() && persistentEntity.createIndex()) {            createIndexIfNotExists(indexName, persistentEntity);        }        return indexName;    }    /**     * @see ElasticsearchOperations#findById(Class, String)  method     */    @Override    public <T> T findById(Class<T> clazz, String documentId) {        Objects.requireNonNull(documentId, "documentId parameter canno't be null !");        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        if (persistentEntity.isIndexTimeBased()) {            SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()                    .query(QueryBuilders.termQuery("_id", documentId))                    .version(true)                    .size(1);            Search.Builder builder = new Search.Builder(searchSourceBuilder.toString()).addIndex(persistentEntity.getAliasOrIndexName()).addType(persistentEntity.getType());            SearchResult response = executeCached(builder.build(), clazz);            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            }            if (response.getTotal() > 0) {                SearchResult.Hit<T, Void> hit = response.getFirstHit(clazz);                return hit.source;            }        }else {            Get.Builder builder = new Get.Builder(persistentEntity.getAliasOrIndexName(), documentId).type(persistentEntity.getType());            DocumentResult response = executeCached(builder.build(), clazz);            if (response.getJsonObject().has("found")){                boolean found = response.getJsonObject().get("found").getAsBoolean();                return found ? response.getSourceAsObject(clazz) : null;            }            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            }        }        return null;    }    /**     * @see ElasticsearchOperations#prepareSearch(QueryBuilder, Class)  method     */    @Override    public <T> Search.Builder prepareSearch(QueryBuilder query, Class<T> clazz) {        return prepareSearch(query, null, clazz);    }    /**     * @see ElasticsearchOperations#prepareSearch(QueryBuilder, SourceFilter, Class)  method     */    @Override    public <T> Search.Builder prepareSearch(QueryBuilder query, @Nullable SourceFilter sourceFilter, Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()                .query(query)                .version(true);        if (sourceFilter != null) {            searchSourceBuilder.fetchSource(sourceFilter.getIncludes(), sourceFilter.getExcludes());            if (sourceFilter.hasDocValueFields()) {                Arrays.stream(sourceFilter.getDocValueFields()).forEach(searchSourceBuilder::docValueField);            }            if (sourceFilter.hasStoredFields()) {                searchSourceBuilder.storedFields(Arrays.asList(sourceFilter.getStoredFields()));            }        }        return new Search.Builder(searchSourceBuilder.toString())                .addIndex(persistentEntity.getAliasOrIndexName())                .addType(persistentEntity.getType());    }    /**     * @see ElasticsearchOperations#search(Search, Class)  method     */    @Override    public <T> List<T> search(Search search, Class<T> clazz) {        final List<T> entities = new ArrayList<>();        SearchResult response = this.executeCached(search, clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        response.getHits(clazz).forEach(hit -> entities.add(hit.source));        return entities;    }    /**     * @see ElasticsearchOperations#count(QueryBuilder, Class)  method     */    @Override    public <T> long count(@Nullable QueryBuilder query, Class<T> clazz) {        final ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Count.Builder builder = new Count.Builder()                .addIndex(persistentEntity.getAliasOrIndexName())                .addType(persistentEntity.getType());        if (query != null) {            builder.query(new SearchSourceBuilder().query(query).toString());        }        CountResult response = this.executeCached(builder.build(), clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        return response.getCount().longValue();    }    /**     * @see ElasticsearchOperations#exists(QueryBuilder, Class)  method     */    @Override    public <T> boolean exists(QueryBuilder query, Class<T> clazz) {        final ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        SearchResult response = this.execute(new Search.Builder(new SearchSourceBuilder()                .query(query)                .size(0)                .terminateAfter(1)                .toString())                .addIndex(persistentEntity.getAliasOrIndexName())                .addType(persistentEntity.getType())                .build(), clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        Long total = response.getTotal();        return total != null && total > 0;    }    /**     * @see ElasticsearchOperations#getProjectionSourceFilter(Class)  method     */    @Override    public Optional<SourceFilter> getProjectionSourceFilter(Class<?> projection) {        return this.projectionMapper.getSourceFilter(projection);    }    /**     * @see ElasticsearchOperations#searchForProjection(Search, Class)  method     */    @Override    public <R> List<R> searchForProjection(Search search, Class<R> projection) {        return searchForProjection(search, projection, null);    }    /**     * @see ElasticsearchOperations#searchForProjection(Search, Class, Class)  method     */    @Override    public <T, R> List<R> searchForProjection(Search search, Class<R> projection, @Nullable Class<T> clazz) {        SearchResult response = this.execute(search, clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        JsonArray hits = response.getJsonObject().getAsJsonObject("hits").getAsJsonArray("hits");        final List<R> projections = new ArrayList<>(hits.size());        hits.forEach(hit -> projections.add(this.projectionMapper.map(hit.getAsJsonObject(), projection)));        return projections;    }    /**     * @see ElasticsearchOperations#multiSearch(List)  method     */    @Override    public MultiSearchResponse multiSearch(List<SearchRequest<?>> requests) {        Assert.notEmpty(requests, "requests must not be empty!");        MultiSearchResult response = this.executeForEntities(new MultiSearch.Builder(requests.stream()                .map(SearchRequest::getSearch)                .collect(Collectors.toList()))                .build(), requests.stream()                .map(SearchRequest::getEntityClass)                .collect(Collectors.toCollection(LinkedHashSet::new)));        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        List<MultiSearchResult.MultiSearchResponse> responses = response.getResponses();        if (responses.size() != requests.size()) {            throw new ElasticsearchException(String.format("%d responses received for %d searches", responses.size(), requests.size()));        }        List<MultiSearchItem<?>> items = new ArrayList<>(requests.size());        for (int i = 0; i < requests.size(); i++) {            items.add(toMultiSearchItem(requests.get(i), responses.get(i)));        }        return new MultiSearchResponse(requests, items);    }    /**     * @see ElasticsearchOperations#aggregate(QueryBuilder, Class, AggregationBuilder...)  method     */    @Override    public <T> MetricAggregation aggregate(QueryBuilder query, Class<T> clazz, AggregationBuilder... aggregations) {        Assert.notEmpty(aggregations, "aggregations must not be empty!");        return executeAggregations(query, Arrays.asList(aggregations), clazz).getAggregations();    }    /**     * @see ElasticsearchOperations#compositeAggregation(QueryBuilder, CompositeAggregationBuilder, Class)  method     */    @Override    public <T> Stream<CompositeBucket> compositeAggregation(QueryBuilder query, CompositeAggregationBuilder aggregation, Class<T> clazz) {        Assert.notNull(aggregation, "aggregation must not be null!");        // the size can't be read from the builder        final int size = new JsonParser().parse(Strings.toString(aggregation)).getAsJsonObject()                .getAsJsonObject(aggregation.getName()).getAsJsonObject(CompositeAggregationBuilder.NAME)                .get(CompositeAggregationBuilder.SIZE_FIELD_NAME.getPreferredName()).getAsInt();        CompositeAggregationIterator iterator = new CompositeAggregationIterator(aggregation.getName(), afterKey ->                executeAggregations(query, Collections.singletonList(compositePage(aggregation, size, afterKey)), clazz));        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);    }    /**     * @param aggregation the composite aggregation of the caller, not modified.     * @param size        the size of the aggregation.     * @param afterKey    the key of the last bucket of the previous page, null for the first page.     * @return a new composite aggregation with the same name, sources, size and sub aggregations, starting after the key.     */    private static CompositeAggregationBuilder compositePage(CompositeAggregationBuilder aggregation, int size, @Nullable Map<String, Object> afterKey) {        CompositeAggregationBuilder page = new CompositeAggregationBuilder(aggregation.getName(), aggregation.sources()).size(size);        aggregation.getSubAggregations().forEach(page::subAggregation);        if (aggregation.getMetaData() != null) {            page.setMetaData(aggregation.getMetaData());        }        return afterKey == null ? page : page.aggregateAfter(afterKey);    }    /**     * Search without hits, cached by the shard request cache.     */    private <T> SearchResult executeAggregations(QueryBuilder query, List<AggregationBuilder> aggregations, Class<T> clazz) {        final ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()                .query(query)                .size(0);        aggregations.forEach(searchSourceBuilder::aggregation);        SearchResult response = this.execute(new Search.Builder(searchSourceBuilder.toString())                .addIndex(persistentEntity.getAliasOrIndexName())                .addType(persistentEntity.getType())                .setParameter(REQUEST_CACHE, true)                .build(), clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        return response;    }    private <T> MultiSearchItem<T> toMultiSearchItem(SearchRequest<T> request, MultiSearchResult.MultiSearchResponse response) {        if (response.isError) {            return MultiSearchItem.failed(response.errorMessage);        }        Class<T> clazz = request.getEntityClass();        List<T> content = new SearchScrollResult(response.searchResult).getHits(clazz, getPersistentEntityFor(clazz)).stream()                .map(SearchScrollResult.Hit::getSource)                .collect(Collectors.toList());        return MultiSearchItem.of(content, response.searchResult.getTotal());    }    /**     * @see ElasticsearchOperations#startScroll(long, int, Search.Builder, Class)  method     */    @Override    public <T> ScrolledPage<T> startScroll(long scrollTimeInMinutes, int size, Search.Builder builder, Class<T> clazz) {        //        builder                .setParameter(Parameters.SCROLL, scrollTimeInMinutes + "m")                .setParameter(Parameters.SIZE, size);        //        SearchResult response = this.execute(builder.build(), clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        this.metrics.scrollOpened();        return ScrolledPageResult.of(new SearchScrollResult(response), getPersistentEntityFor(clazz), clazz);    }    /**     * @see ElasticsearchOperations#continueScroll(String, long, Class)   method     */    @Override    public <T> ScrolledPage<T> continueScroll(@Nullable String scrollId, long scrollTimeInMinutes, Class<T> clazz) {        SearchScroll scroll = new SearchScroll.Builder(scrollId, scrollTimeInMinutes + "m").build();        JestResult response = this.execute(scroll, clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        return ScrolledPageResult.of(new SearchScrollResult(response), getPersistentEntityFor(clazz), clazz);    }    /**     * @see ElasticsearchOperations#stream(Search.Builder, int, long, Class) method     */    @Override    public <T> Stream<T> stream(Search.Builder builder, int pageSize, long scrollTimeInMinutes, Class<T> clazz) {        Assert.notNull(builder, "builder must not be null!");        Assert.isTrue(pageSize > 0, "pageSize must be greater than 0");        ScrolledIterator<T> iterator = new ScrolledIterator<>(this, builder, pageSize, scrollTimeInMinutes, clazz);        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)                .onClose(iterator::close);    }    /**     * @see ElasticsearchOperations#parallelScroll(QueryBuilder, Class, int, Consumer) method     */    @Override    public <T> long parallelScroll(QueryBuilder query, Class<T> clazz, int slices, Consumer<List<T>> consumer) {        return parallelScroll(query, clazz, slices, DEFAULT_SCROLL_PAGE_SIZE, DEFAULT_SCROLL_TIME_IN_MINUTES, consumer);    }    /**     * @see ElasticsearchOperations#parallelScroll(QueryBuilder, Class, int, int, long, Consumer) method     */    @Override    public <T> long parallelScroll(QueryBuilder query, Class<T> clazz, int slices, int pageSize, long scrollTimeInMinutes, Consumer<List<T>> consumer) {        Assert.notNull(consumer, "consumer must not be null!");        Assert.isTrue(slices > 0, "slices must be greater than 0");        Assert.isTrue(pageSize > 0, "pageSize must be greater than 0");        final ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        final AtomicInteger threadCount = new AtomicInteger();        final ExecutorService executor = Executors.newFixedThreadPool(slices, runnable -> {            Thread thread = new Thread(runnable, "elasticsearch-scroll-slice-" + threadCount.incrementAndGet());            thread.setDaemon(true);            return thread;        });        final AtomicReference<RuntimeException> error = new AtomicReference<>();        final List<Future<Long>> futures = new ArrayList<>(slices);        long count = 0;        try {            for (int slice = 0; slice < slices; slice++) {                SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()                        .query(query)                        .version(true)                        // no scoring, the documents are read in index order                        .sort(FieldSortBuilder.DOC_FIELD_NAME);                if (slices > 1) {                    searchSourceBuilder.slice(new SliceBuilder(slice, slices));                }                final Search.Builder builder = new Search.Builder(searchSourceBuilder.toString())                        .addIndex(persistentEntity.getAliasOrIndexName())                        .addType(persistentEntity.getType());                futures.add(executor.submit(() -> {                    try {                        return scrollSlice(builder, pageSize, scrollTimeInMinutes, clazz, consumer, error);                    } catch (RuntimeException e) {                        error.compareAndSet(null, e);                        throw e;                    }                }));            }            for (Future<Long> future : futures) {                try {                    count += future.get();                } catch (ExecutionException e) {                    // the first failure is thrown once all the slices are stopped                }            }        } catch (InterruptedException e) {            Thread.currentThread().interrupt();            error.compareAndSet(null, new ElasticsearchException(e));        } finally {            executor.shutdownNow();        }        if (error.get() != null) {            throw error.get();        }        return count;    }    /**     * Scroll one slice, until the last page or the failure of another slice.     *     * @return the number of entities read.     */    private <T> long scrollSlice(Search.Builder builder, int pageSize, long scrollTimeInMinutes, Class<T> clazz,                                 Consumer<List<T>> consumer, AtomicReference<RuntimeException> error) {        long count = 0;        String scrollId = null;        try {            ScrolledPage<T> page = startScroll(scrollTimeInMinutes, pageSize, builder, clazz);            scrollId = page.getScrollId();            while (!page.getContent().isEmpty() && error.get() == null) {                consumer.accept(page.getContent());                count += page.getContent().size();                page = continueScroll(scrollId, scrollTimeInMinutes, clazz);                scrollId = page.getScrollId();            }        } finally {            if (scrollId != null) {                try {                    clearScroll(scrollId);                } catch (RuntimeException e) {                    if (log.isWarnEnabled()) {                        log.warn("Clear scroll {} failed", scrollId, e);                    }                }            }        }        return count;    }    /**     * @see ElasticsearchOperations#searchAfter(QueryBuilder, SearchAfterPageable, Class) method     */    @Override    public <T> SearchAfterPage<T> searchAfter(QueryBuilder query, SearchAfterPageable pageable, Class<T> clazz) {        Assert.notNull(pageable, "pageable must not be null!");        final ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()                .query(query)                .version(true)                .size(pageable.getPageSize());        final String tieBreaker = persistentEntity.getTieBreaker();        boolean uniqueSort = false;        for (Sort.Order order : pageable.getSort()) {            searchSourceBuilder.sort(order.getProperty(), order.isAscending() ? SortOrder.ASC : SortOrder.DESC);            uniqueSort |= tieBreaker.equals(order.getProperty()) || ID_FIELD_NAME.equals(order.getProperty());        }        if (!uniqueSort) {            // tie breaker : two hits must not have the same sort values            searchSourceBuilder.sort(tieBreaker, SortOrder.ASC);        }        if (pageable.getCursor() != null) {            searchSourceBuilder.searchAfter(SearchAfterCursor.decode(pageable.getCursor()));        }        SearchResult response = this.execute(new Search.Builder(searchSourceBuilder.toString())                .addIndex(persistentEntity.getAliasOrIndexName())                .addType(persistentEntity.getType())                .build(), clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        return SearchAfterPageResult.of(response, pageable.getPageSize(), persistentEntity, clazz);    }    /**     * @see ElasticsearchOperations#clearScroll(String)  method     */    @Override    public void clearScroll(String scrollId) {        JestResult response = this.execute(new ClearScroll.Builder().addScrollId(scrollId).build());        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        this.metrics.scrollCleared();    }    /**     * @see ElasticsearchOperations#findAllById(Collection, Class) method     */    @Override    public <T> List<T> findAllById(Collection<String> documentIds, Class<T> clazz) {        return findAllById(documentIds, clazz, null);    }    /**     * @see ElasticsearchOperations#findAllById(Collection, Class, SourceFilter) method     */    @Override    public <T> List<T> findAllById(Collection<String> documentIds, Class<T> clazz, @Nullable SourceFilter sourceFilter) {        Assert.notNull(documentIds, "documentIds must not be null!");        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Set<String> ids = new LinkedHashSet<>(documentIds);        if (ids.isEmpty()) {            return new ArrayList<>();        }        JsonArray documents;        if (persistentEntity.isIndexTimeBased()) {            documents = new JsonArray();            scrollByIds(ids, persistentEntity, clazz, searchSourceBuilder -> {                searchSourceBuilder.version(true);                if (sourceFilter != null) {                    searchSourceBuilder.fetchSource(sourceFilter.getIncludes(), sourceFilter.getExcludes());                }            }, documents::add);        } else {            MultiGet.Builder.ById builder = new MultiGet.Builder.ById(persistentEntity.getAliasOrIndexName(), persistentEntity.getType())                    .addId(ids);            if (sourceFilter != null && sourceFilter.hasIncludes()) {                builder.setParameter("_source_include", String.join(",", sourceFilter.getIncludes()));            }            if (sourceFilter != null && sourceFilter.hasExcludes()) {                builder.setParameter("_source_exclude", String.join(",", sourceFilter.getExcludes()));            }            JestResult response = execute(builder.build(), clazz);            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            }            documents = response.getJsonObject().getAsJsonArray("docs");        }        Map<String, T> entities = new HashMap<>(documents.size());        for (JsonElement element : documents) {            JsonObject document = element.getAsJsonObject();            if (!document.has("_source") || (document.has("found") && !document.get("found").getAsBoolean())) {                continue;            }            String id = document.get("_id").getAsString();            T entity = this.gson.fromJson(document.get("_source"), clazz);            persistentEntity.setPersistentEntityId(entity, id);            if (document.has("_version")) {                persistentEntity.setPersistentEntityVersion(entity, document.get("_version").getAsLong());            }            entities.putIfAbsent(id, entity);        }        List<T> result = new ArrayList<>(entities.size());        ids.forEach(id -> {            T entity = entities.get(id);            if (entity != null) {                result.add(entity);            }        });        return result;    }    /**     * @see ElasticsearchOperations#deleteAll(Class)  method     */    @Override    public <T> void deleteAll(Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        if (persistentEntity.isIndexTimeBased()) {            JestResult response = execute(new GetAlias.Builder(persistentEntity.getAliasOrIndexName()).build());            if (response.isSucceeded()) {                response.getJsonObject().entrySet().forEach(entry -> deleteIndexByName(entry.getKey()));            } else if (log.isWarnEnabled()) {                log.warn("Alias {} not found", persistentEntity.getAliasOrIndexName());            }        }else{            DeleteByQueryResponse response = deleteByQuery(QueryBuilders.matchAllQuery(), clazz, DeleteByQueryOptions.defaultOptions());            if (response.hasFailures()) {                throw new ElasticsearchException("Delete all documents of {} has failures : {}", persistentEntity.getAliasOrIndexName(), response.getFailures());            }        }    }    /**     * @see ElasticsearchOperations#deleteAll(List, Class)  method     */    @Override    public <T> void deleteAll(List<T> entities, Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Set<String> ids = new LinkedHashSet<>();        entities.forEach(entity -> persistentEntity.getPersistentEntityId(entity).ifPresent(ids::add));        if (!ids.isEmpty()) {            deleteByIds(ids, persistentEntity, clazz);        }    }    /**     * @see ElasticsearchOperations#delete(Object, Class)   method     */    @Override    public <T> void delete(T entity, Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        persistentEntity.getPersistentEntityId(entity).ifPresent(documentId -> this.deleteById(documentId, clazz));    }    /**     * @see ElasticsearchOperations#deleteById(String, Class)   method     */    @Override    public <T> void deleteById(String documentId, Class<T> clazz) {        Assert.notNull(documentId, "documentId must not be null!");        deleteByIds(Collections.singleton(documentId), getPersistentEntityFor(clazz), clazz);    }    /**     * Delete the documents with the given ids. The documents not found are ignored.     *     * @param ids              the document ids.     * @param persistentEntity the persistent entity of the documents.     * @param clazz            the entity class.     */    private <T> void deleteByIds(Collection<String> ids, ElasticsearchPersistentEntity<T> persistentEntity, Class<T> clazz) {        List<Delete> actions = new ArrayList<>(ids.size());        if (persistentEntity.isIndexTimeBased()) {            findDocumentIndices(ids, persistentEntity, clazz).forEach((id, indexNames) -> indexNames.forEach(indexName -> actions.add(                    new Delete.Builder(id)                            .index(indexName)                            .type(persistentEntity.getType())                            .build())));        } else {            ids.forEach(id -> actions.add(new Delete.Builder(id)                    .index(persistentEntity.getAliasOrIndexName())                    .type(persistentEntity.getType())                    .build()));        }        if (actions.isEmpty()) {            return;        }        if (actions.size() == 1) {            DocumentResult response = execute(actions.get(0), clazz);            if (!response.isSucceeded() && response.getResponseCode() != NOT_FOUND) {                throw new ElasticsearchException(response.getErrorMessage());            }            return;        }        BulkResponse response = bulk(actions, clazz);        if (response.getItems().stream().anyMatch(item -> item.isFailed() && item.getStatus() != NOT_FOUND)) {            throw new BulkFailureException(response);        }    }    /**     * Find the concrete indices of the given time-based documents. The documents may be in any index of the alias,     * and a document id may be in several indices : the indices are read from the hits of an ids query.     *     * @param ids              the document ids.     * @param persistentEntity the persistent entity of the documents.     * @param clazz            the entity class.     * @return the indices of each document found, by id.     */    private <T> Map<String, Set<String>> findDocumentIndices(Collection<String> ids, ElasticsearchPersistentEntity<T> persistentEntity, Class<T> clazz) {        Map<String, Set<String>> indices = new LinkedHashMap<>();        scrollByIds(ids, persistentEntity, clazz, searchSourceBuilder -> searchSourceBuilder.fetchSource(false),                hit -> indices.computeIfAbsent(hit.getAsJsonObject().get("_id").getAsString(), id -> new LinkedHashSet<>())                        .add(hit.getAsJsonObject().get("_index").getAsString()));        return indices;    }    /**     * Read all the hits of an ids query on the alias of the given entity. The ids are queried by batches, and each     * batch is scrolled : a document id may be in several indices of the alias and the number of hits is not limited     * by the max result window.     *     * @param ids              the document ids.     * @param persistentEntity the persistent entity of the documents.     * @param clazz            the entity class.     * @param sourceOptions    the options of the search source (source filter, version...).     * @param consumer         the consumer of the hits.     */    private <T> void scrollByIds(Collection<String> ids, ElasticsearchPersistentEntity<T> persistentEntity, Class<T> clazz,                                 Consumer<SearchSourceBuilder> sourceOptions, Consumer<JsonElement> consumer) {        final String scrollTime = DEFAULT_SCROLL_TIME_IN_MINUTES + "m";        final List<String> idList = new ArrayList<>(ids);        for (int from = 0; from < idList.size(); from += IDS_BATCH_SIZE) {            List<String> batch = idList.subList(from, Math.min(from + IDS_BATCH_SIZE, idList.size()));            SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()                    .query(QueryBuilders.idsQuery().addIds(batch.toArray(new String[0])))                    .size(IDS_BATCH_SIZE)                    .sort("_doc");            sourceOptions.accept(searchSourceBuilder);            JestResult response = execute(new Search.Builder(searchSourceBuilder.toString())                    .addIndex(persistentEntity.getAliasOrIndexName())                    .addType(persistentEntity.getType())                    .setParameter(Parameters.SCROLL, scrollTime)                    .build(), clazz);            String scrollId = null;            long read = 0;            try {                while (true) {                    if (!response.isSucceeded()) {                        throw new ElasticsearchException(response.getErrorMessage());                    }                    JsonObject json = response.getJsonObject();                    if (json.has("_scroll_id")) {                        scrollId = json.get("_scroll_id").getAsString();                    }                    JsonObject hits = json.getAsJsonObject("hits");                    JsonArray page = hits.getAsJsonArray("hits");                    page.forEach(consumer);                    read += page.size();                    if (scrollId == null || page.size() == 0 || read >= hits.get("total").getAsLong()) {                        break;                    }                    response = execute(new SearchScroll.Builder(scrollId, scrollTime).build(), clazz);                }            } finally {                if (scrollId != null) {                    JestResult cleared = execute(new ClearScroll.Builder().addScrollId(scrollId).build(), clazz);                    if (!cleared.isSucceeded() && log.isWarnEnabled()) {                        log.warn("Clear scroll {} failed : {}", scrollId, cleared.getErrorMessage());                    }                }            }        }    }    /**     * @see ElasticsearchOperations#deleteByQuery(QueryBuilder, Class, DeleteByQueryOptions) method     */    @Override    public <T> DeleteByQueryResponse deleteByQuery(QueryBuilder query, Class<T> clazz, DeleteByQueryOptions options) {        Assert.notNull(query, "query must not be null!");        Assert.notNull(options, "options must not be null!");        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder().query(query);        final boolean async = options.getPollInterval() != null;        DeleteByQuery.Builder builder = new DeleteByQuery.Builder(searchSourceBuilder.toString())                .addIndex(persistentEntity.getAliasOrIndexName())                .addType(persistentEntity.getType())                .setParameter("conflicts", options.isProceedOnConflicts() ? "proceed" : "abort")                .setParameter("slices", options.getSlices() == DeleteByQueryOptions.AUTO_SLICES ? "auto" : options.getSlices())                .setParameter(Parameters.REFRESH, options.isRefresh())                .setParameter("wait_for_completion", !async);        if (options.getScrollSize() != null) {            builder.setParameter("scroll_size", options.getScrollSize());        }        DeleteByQuery action = builder.build();        JestResult response = execute(action, clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }        JsonObject result = response.getJsonObject();        if (async) {            result = waitForTask(result.get("task").getAsString(), options.getPollInterval());            // the documents are deleted by the task, after the response of the request            written(action, clazz);        }        return DeleteByQueryResponse.of(result);    }    /**     * Poll the status of the given task until its completion.     *     * @param taskId       the task id.     * @param pollInterval the interval between two polls.     * @return the response of the task.     */    private JsonObject waitForTask(String taskId, Duration pollInterval) {        while (true) {            JestResult response = execute(new TasksInformation.Builder().task(taskId).build());            if (!response.isSucceeded()) {                throw new ElasticsearchException(response.getErrorMessage());            }            JsonObject json = response.getJsonObject();            if (json.has("completed") && json.get("completed").getAsBoolean()) {                if (json.has("error")) {                    throw new ElasticsearchException("Task {} failed : {}", taskId, json.get("error"));                }                return json.getAsJsonObject("response");            }            try {                Thread.sleep(pollInterval.toMillis());            } catch (InterruptedException e) {                Thread.currentThread().interrupt();                throw new ElasticsearchException(e);            }        }    }    /**     * @see ElasticsearchOperations#refresh(Class)  method     */    @Override    public <T> void refresh(Class<T> clazz) {        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);        Refresh.Builder builder = new Refresh.Builder().addIndex(persistentEntity.getAliasOrIndexName());        JestResult response = execute(builder.build(), clazz);        if (!response.isSucceeded()) {            throw new ElasticsearchException(response.getErrorMessage());        }    }    /**     * @see ApplicationContextAware#setApplicationContext(ApplicationContext)  method     */    @Override    public void setApplicationContext(ApplicationContext applicationContext) {        this.applicationContext = applicationContext;    }}
\ No newline at end of file
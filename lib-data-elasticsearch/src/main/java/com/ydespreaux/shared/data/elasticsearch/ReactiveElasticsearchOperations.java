@@ -0,0 +1,135 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;
+import io.searchbox.action.Action;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Search;
+import org.elasticsearch.index.query.QueryBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non blocking version of the {@link ElasticsearchOperations}, built on the asynchronous jest client.
+ * <p>
+ * The requests are sent when the returned publishers are subscribed, cancelling the subscription aborts the http
+ * request in flight.
+ */
+public interface ReactiveElasticsearchOperations {
+
+    /**
+     * Execute the given action. The result is emitted even if elasticsearch returned an error.
+     *
+     * @param action the action to execute.
+     * @param <T>    the type of the result.
+     * @return the result of the action.
+     */
+    <T extends JestResult> Mono<T> execute(Action<T> action);
+
+    /**
+     * Give the {@link ElasticsearchPersistentEntity} for the given {@link Class}.
+     *
+     * @param clazz the given {@link Class}.
+     * @param <T>   the type of the entity.
+     * @return the persistent entity.
+     */
+    <T> ElasticsearchPersistentEntity<T> getPersistentEntityFor(Class<T> clazz);
+
+    /**
+     * Create the index of the given entity class if it doesn't exist, see
+     * {@link ElasticsearchOperations#createIndexIfNotExists(String, Class)}. The index is checked and created with
+     * asynchronous requests, the first time only.
+     *
+     * @param indexName the index name.
+     * @param clazz     the given {@link Class}.
+     * @param <T>       the type of the entity.
+     * @return completes when the index exists.
+     */
+    <T> Mono<Void> createIndexIfNotExists(String indexName, Class<T> clazz);
+
+    /**
+     * Index the given entity, the id and version of the document are set on the entity.
+     *
+     * @param entity the entity to index.
+     * @param clazz  the given {@link Class}.
+     * @param <T>    the type of the entity.
+     * @return the indexed entity.
+     */
+    <T> Mono<T> index(T entity, Class<T> clazz);
+
+    /**
+     * Index the given entities in one bulk request, the id and version of the documents are set on the entities.
+     * The items rejected by elasticsearch are retried with the backoff policy of the blocking template.
+     *
+     * @param entities the entities to index.
+     * @param clazz    the given {@link Class}.
+     * @param <T>      the type of the entities.
+     * @return the indexed entities, or a {@link BulkFailureException} if some documents failed to be indexed.
+     */
+    <T> Flux<T> bulkIndex(List<T> entities, Class<T> clazz);
+
+    /**
+     * Find the document with the given id.
+     *
+     * @param clazz      the given {@link Class}.
+     * @param documentId the document id.
+     * @param <T>        the type of the entity.
+     * @return the entity, or an empty {@link Mono} if the document doesn't exist.
+     */
+    <T> Mono<T> findById(Class<T> clazz, String documentId);
+
+    /**
+     * Prepare a search request for the given query, see {@link ElasticsearchOperations#prepareSearch(QueryBuilder, Class)}.
+     *
+     * @param query the query.
+     * @param clazz the given {@link Class}.
+     * @param <T>   the type of the entity.
+     * @return the search builder.
+     */
+    <T> Search.Builder prepareSearch(QueryBuilder query, Class<T> clazz);
+
+    /**
+     * Execute the given search.
+     *
+     * @param search the search request.
+     * @param clazz  the given {@link Class}.
+     * @param <T>    the type of the entity.
+     * @return the entities found.
+     */
+    <T> Flux<T> search(Search search, Class<T> clazz);
+
+    /**
+     * Read all the results of the given search with a scroll. The next page is requested while the subscriber
+     * consumes the current one, never further ahead, and the scroll is cleared when the flux completes, fails or is
+     * cancelled.
+     *
+     * @param builder             the search builder.
+     * @param size                the size of the pages.
+     * @param scrollTimeInMinutes the keep alive of the scroll.
+     * @param clazz               the given {@link Class}.
+     * @param <T>                 the type of the entity.
+     * @return the entities found.
+     */
+    <T> Flux<T> scroll(Search.Builder builder, int size, long scrollTimeInMinutes, Class<T> clazz);
+
+    /**
+     * Delete the document with the given id. A missing document is ignored. A time-based document is deleted from
+     * all the indices of the alias which contain it.
+     *
+     * @param documentId the document id.
+     * @param clazz      the given {@link Class}.
+     * @param <T>        the type of the entity.
+     * @return completes when the document is deleted.
+     */
+    <T> Mono<Void> deleteById(String documentId, Class<T> clazz);
+
+    /**
+     * Refresh the indices of the given {@link Class}.
+     *
+     * @param clazz the given {@link Class}.
+     * @param <T>   the type of the entity.
+     * @return completes when the indices are refreshed.
+     */
+    <T> Mono<Void> refresh(Class<T> clazz);
+}
@@ -0,0 +1,508 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.ydespreaux.shared.data.elasticsearch.cache.QueryCache;
+import com.ydespreaux.shared.data.elasticsearch.client.ElasticsearchJestClient;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingBulk;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingIndex;
+import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;
+import com.ydespreaux.shared.data.elasticsearch.scroll.ScrolledPageResult;
+import com.ydespreaux.shared.data.elasticsearch.scroll.SearchScrollResult;
+import io.searchbox.action.Action;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.core.*;
+import io.searchbox.indices.CreateIndex;
+import io.searchbox.indices.IndicesExists;
+import io.searchbox.indices.Refresh;
+import io.searchbox.params.Parameters;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link ReactiveElasticsearchOperations} executing the requests with {@link JestClient#executeAsync}.
+ * <p>
+ * The documents are routed to their index as with the given {@link ElasticsearchOperations}, without request : the
+ * time-based indices are checked and created with asynchronous requests, and the indices known by the blocking
+ * template are not checked again. No method blocks the subscribing thread.
+ */
+@Slf4j
+public class ReactiveJestElasticsearchTemplate implements ReactiveElasticsearchOperations {
+
+    private static final int NOT_FOUND = 404;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int IDS_PAGE_SIZE = 100;
+    private static final String SCROLL_TIME = "1m";
+
+    private final JestClient client;
+    private final ElasticsearchOperations operations;
+    private QueryCache queryCache;
+
+    /**
+     * @param client     the jest client.
+     * @param operations the blocking operations used to build the requests.
+     */
+    public ReactiveJestElasticsearchTemplate(final JestClient client, final ElasticsearchOperations operations) {
+        Assert.notNull(client, "client must not be null!");
+        Assert.notNull(operations, "operations must not be null!");
+        this.client = client;
+        this.operations = operations;
+    }
+
+    /**
+     * Define the query cache of the blocking template, invalidated by the writes of this template.
+     *
+     * @param queryCache the query cache, null if the cache is disabled.
+     */
+    public void setQueryCache(@Nullable QueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#execute(Action) method
+     */
+    @Override
+    public <T extends JestResult> Mono<T> execute(Action<T> action) {
+        return execute(action, null);
+    }
+
+    /**
+     * Execute the given action and invalidate the query cache if the action is a write.
+     *
+     * @param action the action.
+     * @param clazz  the entity class of the action, null for the raw actions.
+     * @return the result of the action.
+     */
+    private <T extends JestResult> Mono<T> execute(Action<T> action, @Nullable Class<?> clazz) {
+        return Mono.create(sink -> {
+            JestResultHandler<T> handler = new JestResultHandler<T>() {
+                @Override
+                public void completed(T result) {
+                    written(action, clazz);
+                    sink.success(result);
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    written(action, clazz);
+                    sink.error(new ElasticsearchException(e));
+                }
+            };
+            if (this.client instanceof ElasticsearchJestClient) {
+                Future<HttpResponse> future = ((ElasticsearchJestClient) this.client).executeAsyncCancellable(action, handler);
+                sink.onCancel(() -> future.cancel(true));
+            } else {
+                this.client.executeAsync(action, handler);
+            }
+        });
+    }
+
+    /**
+     * Write hook of the executed actions, see {@link QueryCache#written(Action, Class)}.
+     */
+    private void written(Action<?> action, @Nullable Class<?> clazz) {
+        final QueryCache cache = this.queryCache;
+        if (cache != null) {
+            cache.written(action, clazz);
+        }
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#getPersistentEntityFor(Class) method
+     */
+    @Override
+    public <T> ElasticsearchPersistentEntity<T> getPersistentEntityFor(Class<T> clazz) {
+        return this.operations.getPersistentEntityFor(clazz);
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#createIndexIfNotExists(String, Class) method
+     */
+    @Override
+    public <T> Mono<Void> createIndexIfNotExists(String indexName, Class<T> clazz) {
+        Objects.requireNonNull(indexName);
+        return Mono.defer(() -> {
+            if (this.operations.isKnownIndex(indexName)) {
+                return Mono.<Void>empty();
+            }
+            return execute(new IndicesExists.Builder(indexName).build(), clazz)
+                    .flatMap(exists -> exists.isSucceeded() ? Mono.<Void>empty() : createIndex(indexName, clazz))
+                    .then(Mono.fromRunnable(() -> this.operations.addKnownIndex(indexName)));
+        });
+    }
+
+    /**
+     * Create the given index, the index created by another client is accepted.
+     */
+    private <T> Mono<Void> createIndex(String indexName, Class<T> clazz) {
+        CreateIndex action = this.operations.prepareCreateIndex(indexName, clazz);
+        if (action == null) {
+            return Mono.empty();
+        }
+        return execute(action, clazz).flatMap(response -> {
+            if (!response.isSucceeded() && !JestElasticsearchTemplate.isIndexAlreadyExists(response)) {
+                return Mono.error(new ElasticsearchException("Create index " + indexName + " failed : " + response.getErrorMessage()));
+            }
+            if (log.isInfoEnabled() && response.isSucceeded()) {
+                log.info("New index {} added", indexName);
+            }
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#index(Object, Class) method
+     */
+    @Override
+    public <T> Mono<T> index(T entity, Class<T> clazz) {
+        Objects.requireNonNull(entity);
+        final ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);
+        return Mono.defer(() -> {
+            Index action = prepareIndex(entity, persistentEntity, new Date());
+            return createTimeBasedIndex(action.getIndex(), persistentEntity, clazz)
+                    .then(executeSucceeded(action, clazz));
+        }).map(response -> {
+            persistentEntity.setPersistentEntityId(entity, response.getId());
+            persistentEntity.setPersistentEntityVersion(entity, response.getVersion());
+            return entity;
+        });
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#bulkIndex(List, Class) method
+     */
+    @Override
+    public <T> Flux<T> bulkIndex(List<T> entities, Class<T> clazz) {
+        if (entities.isEmpty()) {
+            return Flux.empty();
+        }
+        final ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);
+        return Mono.defer(() -> {
+            final Date timeEvent = new Date();
+            List<Index> actions = new ArrayList<>(entities.size());
+            entities.forEach(entity -> actions.add(prepareIndex(entity, persistentEntity, timeEvent)));
+            return Flux.fromIterable(actions)
+                    .map(Index::getIndex)
+                    .distinct()
+                    .concatMap(indexName -> createTimeBasedIndex(indexName, persistentEntity, clazz))
+                    .then(bulk(actions, clazz));
+        }).flatMapIterable(response -> {
+            for (BulkItemResponse item : response.getItems()) {
+                if (!item.isFailed()) {
+                    T entity = entities.get(item.getPosition());
+                    persistentEntity.setPersistentEntityId(entity, item.getId());
+                    persistentEntity.setPersistentEntityVersion(entity, item.getVersion());
+                }
+            }
+            if (response.hasFailures()) {
+                throw new BulkFailureException(response);
+            }
+            return entities;
+        });
+    }
+
+    /**
+     * Build the index request of the given entity, without request : the index name is resolved by the persistent
+     * entity and the time-based index is created by {@link #createTimeBasedIndex(String, ElasticsearchPersistentEntity, Class)}.
+     */
+    private <T> Index prepareIndex(T entity, ElasticsearchPersistentEntity<T> persistentEntity, Date timeEvent) {
+        return new StreamingIndex.Builder(entity)
+                .id(persistentEntity.getPersistentEntityId(entity).orElse(null))
+                .index(persistentEntity.getIndex(entity, timeEvent))
+                .type(persistentEntity.getType())
+                .build();
+    }
+
+    /**
+     * Create the given time-based index if it doesn't exist.
+     */
+    private <T> Mono<Void> createTimeBasedIndex(String indexName, ElasticsearchPersistentEntity<T> persistentEntity, Class<T> clazz) {
+        return persistentEntity.isIndexTimeBased() && persistentEntity.createIndex()
+                ? createIndexIfNotExists(indexName, clazz)
+                : Mono.empty();
+    }
+
+    /**
+     * Execute the given actions in bulk requests : the items rejected by elasticsearch are retried with the backoff
+     * policy of the blocking template, as {@link ElasticsearchOperations#bulk(List)} does.
+     *
+     * @param actions the bulkable actions.
+     * @param clazz   the entity class of the actions.
+     * @return the responses of the items, in the order of the actions.
+     */
+    private Mono<BulkResponse> bulk(List<? extends BulkableAction> actions, Class<?> clazz) {
+        return Mono.defer(() -> {
+            final BulkItemResponse[] responses = new BulkItemResponse[actions.size()];
+            final Iterator<Duration> backoff = this.operations.getBulkBackoffPolicy().iterator();
+            List<Integer> positions = new ArrayList<>(actions.size());
+            for (int i = 0; i < actions.size(); i++) {
+                positions.add(i);
+            }
+            // actions of the same index are sent together, the responses stay in the order of the request
+            positions.sort(Comparator.comparing(position -> actions.get(position).getIndex(), Comparator.nullsFirst(Comparator.naturalOrder())));
+            return bulkAttempt(actions, positions, responses, true, clazz)
+                    .expand(rejected -> {
+                        if (rejected.isEmpty() || !backoff.hasNext()) {
+                            return Mono.empty();
+                        }
+                        Duration delay = backoff.next();
+                        if (log.isWarnEnabled()) {
+                            log.warn("{} bulk items rejected by elasticsearch, retry in {} ms", rejected.size(), delay.toMillis());
+                        }
+                        return Mono.delay(delay).then(bulkAttempt(actions, rejected, responses, false, clazz));
+                    })
+                    .then(Mono.fromCallable(() -> new BulkResponse(Arrays.asList(responses))));
+        });
+    }
+
+    /**
+     * Send the pending actions in one bulk request and merge the responses of their items.
+     *
+     * @return the positions of the items rejected by elasticsearch.
+     */
+    private Mono<List<Integer>> bulkAttempt(List<? extends BulkableAction> actions, List<Integer> pendings,
+                                            BulkItemResponse[] responses, boolean firstAttempt, Class<?> clazz) {
+        return Mono.defer(() -> {
+            Bulk.Builder builder = new StreamingBulk.Builder();
+            pendings.forEach(position -> builder.addAction(actions.get(position)));
+            return execute(builder.build(), clazz);
+        }).map(result -> {
+            List<BulkResult.BulkResultItem> items = result.getItems();
+            if (items.size() != pendings.size()) {
+                boolean tooManyRequests = result.getResponseCode() == TOO_MANY_REQUESTS;
+                if (firstAttempt && !tooManyRequests) {
+                    throw new ElasticsearchException(result.getErrorMessage());
+                }
+                // the items written by the previous attempts are kept : the pending items fail with the request
+                for (Integer position : pendings) {
+                    responses[position] = BulkItemResponse.failed(position, actions.get(position), result.getResponseCode(), result.getErrorMessage());
+                }
+                return tooManyRequests ? pendings : Collections.<Integer>emptyList();
+            }
+            List<Integer> rejected = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                BulkItemResponse item = BulkItemResponse.of(pendings.get(i), items.get(i));
+                responses[item.getPosition()] = item;
+                if (item.isRejected()) {
+                    rejected.add(item.getPosition());
+                }
+            }
+            return rejected;
+        });
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#findById(Class, String) method
+     */
+    @Override
+    public <T> Mono<T> findById(Class<T> clazz, String documentId) {
+        Objects.requireNonNull(documentId, "documentId parameter canno't be null !");
+        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);
+        if (persistentEntity.isIndexTimeBased()) {
+            SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()
+                    .query(QueryBuilders.termQuery("_id", documentId))
+                    .version(true)
+                    .size(1);
+            return search(new Search.Builder(searchSourceBuilder.toString())
+                    .addIndex(persistentEntity.getAliasOrIndexName())
+                    .addType(persistentEntity.getType())
+                    .build(), clazz)
+                    .next();
+        }
+        Get get = new Get.Builder(persistentEntity.getAliasOrIndexName(), documentId).type(persistentEntity.getType()).build();
+        return execute(get, clazz).flatMap(response -> {
+            JsonObject json = response.getJsonObject();
+            if (json != null && json.has("found")) {
+                return json.get("found").getAsBoolean() ? Mono.just(response.getSourceAsObject(clazz)) : Mono.empty();
+            }
+            if (!response.isSucceeded()) {
+                return Mono.error(new ElasticsearchException(response.getErrorMessage()));
+            }
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#prepareSearch(QueryBuilder, Class) method
+     */
+    @Override
+    public <T> Search.Builder prepareSearch(QueryBuilder query, Class<T> clazz) {
+        return this.operations.prepareSearch(query, clazz);
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#search(Search, Class) method
+     */
+    @Override
+    public <T> Flux<T> search(Search search, Class<T> clazz) {
+        return executeSucceeded(search, clazz).flatMapIterable(response -> {
+            List<T> entities = new ArrayList<>();
+            response.getHits(clazz).forEach(hit -> entities.add(hit.source));
+            return entities;
+        });
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#scroll(Search.Builder, int, long, Class) method
+     */
+    @Override
+    public <T> Flux<T> scroll(Search.Builder builder, int size, long scrollTimeInMinutes, Class<T> clazz) {
+        Assert.isTrue(size > 0, "size must be greater than 0");
+        final ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);
+        return Flux.defer(() -> {
+            final AtomicReference<String> scrollId = new AtomicReference<>();
+            Search search = builder
+                    .setParameter(Parameters.SCROLL, scrollTimeInMinutes + "m")
+                    .setParameter(Parameters.SIZE, size)
+                    .build();
+            return executeSucceeded(search, clazz)
+                    .map(response -> ScrolledPageResult.of(new SearchScrollResult(response), persistentEntity, clazz))
+                    .expand(page -> page.getContent().isEmpty()
+                            ? Mono.empty()
+                            : executeSucceeded(new SearchScroll.Builder(page.getScrollId(), scrollTimeInMinutes + "m").build(), clazz)
+                            .map(response -> ScrolledPageResult.of(new SearchScrollResult(response), persistentEntity, clazz)))
+                    .doOnNext(page -> scrollId.set(page.getScrollId()))
+                    // the next page is requested when the current one is taken, at most one page ahead
+                    .concatMapIterable(ScrolledPage::getContent, 1)
+                    .doFinally(signal -> clearScroll(scrollId.get()));
+        });
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#deleteById(String, Class) method
+     */
+    @Override
+    public <T> Mono<Void> deleteById(String documentId, Class<T> clazz) {
+        Assert.notNull(documentId, "documentId must not be null!");
+        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);
+        Flux<String> indices;
+        if (persistentEntity.isIndexTimeBased()) {
+            // the document may be in several indices of the alias : the concrete indices are read from the hits
+            SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()
+                    .query(QueryBuilders.idsQuery().addIds(documentId))
+                    .fetchSource(false)
+                    .size(IDS_PAGE_SIZE)
+                    .sort("_doc");
+            indices = scrollHits(new Search.Builder(searchSourceBuilder.toString())
+                    .addIndex(persistentEntity.getAliasOrIndexName())
+                    .addType(persistentEntity.getType())
+                    .setParameter(Parameters.SCROLL, SCROLL_TIME)
+                    .build(), clazz)
+                    .map(hit -> hit.get("_index").getAsString())
+                    .distinct();
+        } else {
+            indices = Flux.just(persistentEntity.getAliasOrIndexName());
+        }
+        return indices
+                .map(indexName -> new Delete.Builder(documentId)
+                        .index(indexName)
+                        .type(persistentEntity.getType())
+                        .build())
+                .collectList()
+                .flatMap(actions -> {
+                    if (actions.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    if (actions.size() == 1) {
+                        return execute(actions.get(0), clazz).flatMap(response -> !response.isSucceeded() && response.getResponseCode() != NOT_FOUND
+                                ? Mono.error(new ElasticsearchException(response.getErrorMessage()))
+                                : Mono.empty());
+                    }
+                    return bulk(actions, clazz).flatMap(response -> response.getItems().stream().anyMatch(item -> item.isFailed() && item.getStatus() != NOT_FOUND)
+                            ? Mono.error(new BulkFailureException(response))
+                            : Mono.empty());
+                });
+    }
+
+    /**
+     * Read all the hits of the given scroll search, the scroll is cleared at the end.
+     *
+     * @param search the search, with the scroll parameter.
+     * @param clazz  the entity class of the search.
+     * @return the hits.
+     */
+    private Flux<JsonObject> scrollHits(Search search, Class<?> clazz) {
+        return Flux.defer(() -> {
+            final AtomicReference<String> scrollId = new AtomicReference<>();
+            final AtomicLong read = new AtomicLong();
+            return executeSucceeded(search, clazz)
+                    .cast(JestResult.class)
+                    .expand(response -> {
+                        JsonObject json = response.getJsonObject();
+                        if (json.has("_scroll_id")) {
+                            scrollId.set(json.get("_scroll_id").getAsString());
+                        }
+                        JsonObject hits = json.getAsJsonObject("hits");
+                        long size = hits.getAsJsonArray("hits").size();
+                        if (scrollId.get() == null || size == 0 || read.addAndGet(size) >= hits.get("total").getAsLong()) {
+                            return Mono.empty();
+                        }
+                        return executeSucceeded(new SearchScroll.Builder(scrollId.get(), SCROLL_TIME).build(), clazz);
+                    })
+                    .<JsonElement>concatMapIterable(response -> response.getJsonObject().getAsJsonObject("hits").getAsJsonArray("hits"))
+                    .map(JsonElement::getAsJsonObject)
+                    .doFinally(signal -> clearScroll(scrollId.get()));
+        });
+    }
+
+    /**
+     * @see ReactiveElasticsearchOperations#refresh(Class) method
+     */
+    @Override
+    public <T> Mono<Void> refresh(Class<T> clazz) {
+        ElasticsearchPersistentEntity<T> persistentEntity = getPersistentEntityFor(clazz);
+        return executeSucceeded(new Refresh.Builder().addIndex(persistentEntity.getAliasOrIndexName()).build(), clazz).then();
+    }
+
+    /**
+     * Execute the given action and emit an {@link ElasticsearchException} if elasticsearch returned an error.
+     */
+    private <T extends JestResult> Mono<T> executeSucceeded(Action<T> action, @Nullable Class<?> clazz) {
+        return execute(action, clazz).flatMap(response -> response.isSucceeded()
+                ? Mono.just(response)
+                : Mono.error(new ElasticsearchException(response.getErrorMessage())));
+    }
+
+    /**
+     * Clear the given scroll without waiting for the response.
+     */
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        execute(new ClearScroll.Builder().addScrollId(scrollId).build())
+                .subscribe(response -> {
+                    if (!response.isSucceeded() && log.isWarnEnabled()) {
+                        log.warn("Clear scroll {} failed : {}", scrollId, response.getErrorMessage());
+                    }
+                }, e -> {
+                    if (log.isWarnEnabled()) {
+                        log.warn("Clear scroll {} failed", scrollId, e);
+                    }
+                });
+    }
+}
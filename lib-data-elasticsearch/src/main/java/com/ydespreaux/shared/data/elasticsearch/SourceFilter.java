@@ -0,0 +1,114 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Fields of the {@code _source} to include or exclude from the returned documents, and fields to read from the doc
+ * values or the stored fields of the documents.
+ */
+@Getter
+@ToString
+public class SourceFilter {
+
+    private static final String[] EMPTY = new String[0];
+
+    /**
+     * Fields to include, empty to include all the fields. Wildcards are supported.
+     */
+    private final String[] includes;
+    /**
+     * Fields to exclude. Wildcards are supported.
+     */
+    private final String[] excludes;
+    /**
+     * Fields read from the doc values, returned in the fields of the hits. Ignored by the multi get.
+     */
+    private final String[] docValueFields;
+    /**
+     * Stored fields, returned in the fields of the hits. Ignored by the multi get.
+     */
+    private final String[] storedFields;
+
+    /**
+     * @param includes the fields to include.
+     * @param excludes the fields to exclude.
+     */
+    public SourceFilter(String[] includes, String[] excludes) {
+        this(includes, excludes, null, null);
+    }
+
+    /**
+     * @param includes       the fields to include.
+     * @param excludes       the fields to exclude.
+     * @param docValueFields the fields to read from the doc values.
+     * @param storedFields   the stored fields to read.
+     */
+    public SourceFilter(String[] includes, String[] excludes, String[] docValueFields, String[] storedFields) {
+        this.includes = includes == null ? EMPTY : includes;
+        this.excludes = excludes == null ? EMPTY : excludes;
+        this.docValueFields = docValueFields == null ? EMPTY : docValueFields;
+        this.storedFields = storedFields == null ? EMPTY : storedFields;
+    }
+
+    /**
+     * @param includes the fields to include.
+     * @return a filter including only the given fields.
+     */
+    public static SourceFilter includes(String... includes) {
+        return new SourceFilter(includes, null);
+    }
+
+    /**
+     * @param excludes the fields to exclude.
+     * @return a filter excluding the given fields.
+     */
+    public static SourceFilter excludes(String... excludes) {
+        return new SourceFilter(null, excludes);
+    }
+
+    /**
+     * @param docValueFields the fields to read from the doc values.
+     * @return a copy of this filter, reading the given doc value fields.
+     */
+    public SourceFilter withDocValueFields(String... docValueFields) {
+        return new SourceFilter(this.includes, this.excludes, docValueFields, this.storedFields);
+    }
+
+    /**
+     * @param storedFields the stored fields to read.
+     * @return a copy of this filter, reading the given stored fields.
+     */
+    public SourceFilter withStoredFields(String... storedFields) {
+        return new SourceFilter(this.includes, this.excludes, this.docValueFields, storedFields);
+    }
+
+    /**
+     * @return true if some fields are included.
+     */
+    public boolean hasIncludes() {
+        return !ObjectUtils.isEmpty(this.includes);
+    }
+
+    /**
+     * @return true if some fields are excluded.
+     */
+    public boolean hasExcludes() {
+        return !ObjectUtils.isEmpty(this.excludes);
+    }
+
+    /**
+     * @return true if some fields are read from the doc values.
+     */
+    public boolean hasDocValueFields() {
+        return !ObjectUtils.isEmpty(this.docValueFields);
+    }
+
+    /**
+     * @return true if some stored fields are read.
+     */
+    public boolean hasStoredFields() {
+        return !ObjectUtils.isEmpty(this.storedFields);
+    }
+}
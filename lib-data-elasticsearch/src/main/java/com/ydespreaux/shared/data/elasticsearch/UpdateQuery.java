@@ -0,0 +1,55 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.elasticsearch.script.Script;
+
+/**
+ * Partial or scripted update of one document, see {@link ElasticsearchOperations#update(UpdateQuery, Class)}.
+ * <p>
+ * Only the partial document or the script is sent to elasticsearch, which merges it with the stored source.
+ * {@link #getVersion()} and {@link #getRetryOnConflict()} can't be used together : with a version, a concurrent
+ * modification fails the update instead of being retried.
+ */
+@Getter
+@Builder
+@ToString
+public class UpdateQuery {
+
+    /**
+     * Id of the document to update.
+     */
+    private final String documentId;
+
+    /**
+     * Partial document merged with the stored source, null when a script is given.
+     */
+    private final Object partialDocument;
+
+    /**
+     * Script applied to the stored source, null when a partial document is given.
+     */
+    private final Script script;
+
+    /**
+     * Document indexed when the document doesn't exist, null to fail the update.
+     */
+    private final Object upsert;
+
+    /**
+     * Index the partial document when the document doesn't exist (doc_as_upsert).
+     */
+    @Builder.Default
+    private final boolean docAsUpsert = false;
+
+    /**
+     * Number of times the update is retried by elasticsearch on version conflict, null for no retry.
+     */
+    private final Integer retryOnConflict;
+
+    /**
+     * Expected version of the document, null to update the document whatever its version.
+     */
+    private final Long version;
+}
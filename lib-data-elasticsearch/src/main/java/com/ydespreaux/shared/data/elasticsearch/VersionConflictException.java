@@ -0,0 +1,31 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import lombok.Getter;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.rest.RestStatus;
+
+/**
+ * Exception thrown when a document has been modified since the version given to an update.
+ */
+@Getter
+public class VersionConflictException extends ElasticsearchException {
+
+    private final String documentId;
+    private final Long expectedVersion;
+
+    /**
+     * @param documentId      the id of the document.
+     * @param expectedVersion the version expected by the update.
+     * @param message         the error returned by elasticsearch.
+     */
+    public VersionConflictException(String documentId, Long expectedVersion, String message) {
+        super("Version conflict on document {} with version {} : {}", documentId, expectedVersion, message);
+        this.documentId = documentId;
+        this.expectedVersion = expectedVersion;
+    }
+
+    @Override
+    public RestStatus status() {
+        return RestStatus.CONFLICT;
+    }
+}
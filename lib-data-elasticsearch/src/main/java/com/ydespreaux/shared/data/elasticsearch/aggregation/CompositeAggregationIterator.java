@@ -0,0 +1,87 @@
+package com.ydespreaux.shared.data.elasticsearch.aggregation;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.ydespreaux.shared.data.elasticsearch.core.JsonValues;
+import io.searchbox.core.SearchResult;
+import org.elasticsearch.ElasticsearchException;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Iterator over the buckets of a composite aggregation, page by page : each page is requested after the key of the
+ * last bucket of the previous page. Only the current page is kept in memory, the iteration stops at the first
+ * empty page.
+ */
+public class CompositeAggregationIterator implements Iterator<CompositeBucket> {
+
+    private static final String AGGREGATIONS_KEY = "aggregations";
+    private static final String BUCKETS_KEY = "buckets";
+    private static final String AFTER_KEY = "after_key";
+    private static final String KEY = "key";
+    private static final String DOC_COUNT_KEY = "doc_count";
+
+    private final String aggregationName;
+    private final Function<Map<String, Object>, SearchResult> pageLoader;
+    private Iterator<JsonElement> buckets = Collections.emptyIterator();
+    private Map<String, Object> afterKey;
+    private boolean last;
+
+    /**
+     * @param aggregationName the name of the composite aggregation.
+     * @param pageLoader      the search of a page, after the given key : null for the first page.
+     */
+    public CompositeAggregationIterator(String aggregationName, Function<Map<String, Object>, SearchResult> pageLoader) {
+        this.aggregationName = aggregationName;
+        this.pageLoader = pageLoader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!this.buckets.hasNext() && !this.last) {
+            loadNextPage();
+        }
+        return this.buckets.hasNext();
+    }
+
+    @Override
+    public CompositeBucket next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JsonObject bucket = this.buckets.next().getAsJsonObject();
+        return new CompositeBucket(toKey(bucket.getAsJsonObject(KEY)), bucket.get(DOC_COUNT_KEY).getAsLong(), bucket);
+    }
+
+    private void loadNextPage() {
+        SearchResult response = this.pageLoader.apply(this.afterKey);
+        JsonObject aggregations = response.getJsonObject().getAsJsonObject(AGGREGATIONS_KEY);
+        JsonObject aggregation = aggregations == null ? null : aggregations.getAsJsonObject(this.aggregationName);
+        if (aggregation == null) {
+            throw new ElasticsearchException("Composite aggregation " + this.aggregationName + " not found in the response");
+        }
+        JsonArray page = aggregation.getAsJsonArray(BUCKETS_KEY);
+        if (page == null || page.size() == 0) {
+            this.last = true;
+            return;
+        }
+        // after_key is only returned since elasticsearch 6.3
+        JsonObject nextKey = aggregation.has(AFTER_KEY)
+                ? aggregation.getAsJsonObject(AFTER_KEY)
+                : page.get(page.size() - 1).getAsJsonObject().getAsJsonObject(KEY);
+        this.afterKey = toKey(nextKey);
+        this.buckets = page.iterator();
+    }
+
+    private static Map<String, Object> toKey(JsonObject key) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        key.entrySet().forEach(entry -> values.put(entry.getKey(), JsonValues.toValue(entry.getValue())));
+        return values;
+    }
+}
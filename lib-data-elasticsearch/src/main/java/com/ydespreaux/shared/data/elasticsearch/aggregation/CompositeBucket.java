@@ -0,0 +1,48 @@
+package com.ydespreaux.shared.data.elasticsearch.aggregation;
+
+import com.google.gson.JsonObject;
+import io.searchbox.core.search.aggregation.MetricAggregation;
+import io.searchbox.core.search.aggregation.RootAggregation;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * Bucket of a composite aggregation.
+ */
+@Getter
+@ToString(exclude = "json")
+public class CompositeBucket {
+
+    /**
+     * Values of the sources of the composite aggregation, by source name.
+     */
+    private final Map<String, Object> key;
+    /**
+     * Number of documents of the bucket.
+     */
+    private final long docCount;
+    /**
+     * Json of the bucket.
+     */
+    private final JsonObject json;
+
+    /**
+     * @param key      the values of the sources.
+     * @param docCount the number of documents.
+     * @param json     the json of the bucket.
+     */
+    public CompositeBucket(Map<String, Object> key, long docCount, JsonObject json) {
+        this.key = key;
+        this.docCount = docCount;
+        this.json = json;
+    }
+
+    /**
+     * @return the sub aggregations of the bucket.
+     */
+    public MetricAggregation getAggregations() {
+        return new RootAggregation("bucket", this.json);
+    }
+}
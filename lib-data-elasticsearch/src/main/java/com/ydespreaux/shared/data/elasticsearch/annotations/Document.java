@@ -50,6 +50,21 @@ public @interface Document {
      */
     boolean createIndex = true;
 
+    /**
+     * Durée de vie en secondes des résultats des recherches et des lectures par id dans le cache de requêtes du
+     * template, 0 pour ne pas mettre en cache les résultats de ce document.
+     * @return
+     */
+    long cacheTimeToLiveInSeconds() default 0;
+
+    /**
+     * Champ unique du document, indexé avec des doc values (keyword, long...), complétant le tri des pages
+     * search_after. Par défaut le tri est complété par _id : le tri sur _id charge le fielddata de _id dans la heap
+     * de chaque noeud, une mémoire proportionnelle au nombre de documents.
+     * @return
+     */
+    String tieBreaker() default "";
+
     /**
      * Path du fichier de configuration de l'index
      * @return
@@ -0,0 +1,20 @@
+package com.ydespreaux.shared.data.elasticsearch.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Cette annotation définit le champ contenant la date de l'événement d'un document time-based.
+ * Le nom de l'index est généré à partir de cette date au lieu de la date courante, un événement reçu en retard
+ * est ainsi indexé dans l'index correspondant à sa date.
+ * <p>
+ * Types supportés : {@link java.util.Date}, {@link java.time.Instant}, {@link java.time.LocalDate},
+ * {@link java.time.LocalDateTime}, {@link java.time.OffsetDateTime}, {@link java.time.ZonedDateTime}
+ * et {@link Long} (millisecondes depuis epoch). Si le champ est null, la date courante est utilisée.
+ *
+ * @since 1.1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+public @interface IndexTimeField {
+}
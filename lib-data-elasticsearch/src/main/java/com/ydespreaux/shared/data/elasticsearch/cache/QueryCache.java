@@ -0,0 +1,303 @@
+package com.ydespreaux.shared.data.elasticsearch.cache;
+
+import com.ydespreaux.shared.data.elasticsearch.annotations.Document;
+import io.searchbox.action.Action;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.DeleteByQuery;
+import io.searchbox.core.UpdateByQuery;
+import io.searchbox.indices.DeleteIndex;
+import io.searchbox.indices.Refresh;
+import io.searchbox.indices.aliases.ModifyAliases;
+import org.elasticsearch.common.Nullable;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local cache of the results of the reads of the template, for the entities whose data rarely changes.
+ * <p>
+ * The results are cached by entity class for the time to live of the class, given by the properties or by
+ * {@link Document#cacheTimeToLiveInSeconds()} : the results of a class without time to live are not cached.
+ * The cache is bounded by the total weight of the results, the json length of the responses : the least recently
+ * used results are removed first.
+ * <p>
+ * Every executed action goes through {@link #written(Action, Class)} : a write invalidates all the results of its
+ * entity class, or all the results when the class is unknown. Elasticsearch shows the writes after the refresh of
+ * the index : the results read during the refresh interval following a write are not cached, and a write made by
+ * another client is only seen when the results expire.
+ */
+public class QueryCache {
+
+    /**
+     * Default refresh interval of the elasticsearch indices.
+     */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofSeconds(1);
+
+    private final long maximumWeight;
+    private final Map<String, Duration> timeToLives;
+    private final Map<Class<?>, Duration> resolvedTimeToLives = new ConcurrentHashMap<>();
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final long refreshInterval;
+    private final Map<Class<?>, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile Long lastWriteOfAll;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weight;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param maximumWeight the maximum weight of the cached results, in bytes of json.
+     */
+    public QueryCache(long maximumWeight) {
+        this(maximumWeight, Collections.emptyMap());
+    }
+
+    /**
+     * @param maximumWeight the maximum weight of the cached results, in bytes of json.
+     * @param timeToLives   the time to live of the results by entity class, the name or the simple name of the
+     *                      class : takes precedence over the {@link Document} annotation.
+     */
+    public QueryCache(long maximumWeight, Map<String, Duration> timeToLives) {
+        this(maximumWeight, timeToLives, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * @param maximumWeight   the maximum weight of the cached results, in bytes of json.
+     * @param timeToLives     the time to live of the results by entity class, the name or the simple name of the
+     *                        class : takes precedence over the {@link Document} annotation.
+     * @param refreshInterval the refresh interval of the indices : the results read during this interval after a
+     *                        write are not cached.
+     */
+    public QueryCache(long maximumWeight, Map<String, Duration> timeToLives, Duration refreshInterval) {
+        Assert.isTrue(maximumWeight > 0, "maximumWeight must be greater than 0");
+        Assert.isTrue(refreshInterval != null && !refreshInterval.isNegative(), "refreshInterval must be positive or 0");
+        this.maximumWeight = maximumWeight;
+        this.timeToLives = timeToLives == null ? Collections.emptyMap() : new HashMap<>(timeToLives);
+        this.refreshInterval = refreshInterval.toNanos();
+    }
+
+    /**
+     * @param clazz the entity class.
+     * @return true if the results of the entity class are cached.
+     */
+    public boolean isCacheable(Class<?> clazz) {
+        return !timeToLive(clazz).isZero();
+    }
+
+    /**
+     * @param clazz the entity class.
+     * @return the generation of the entity class, to give to {@link #put(Class, String, Object, long, long)}.
+     */
+    public long generation(Class<?> clazz) {
+        return this.generations.computeIfAbsent(clazz, key -> new AtomicLong()).get();
+    }
+
+    /**
+     * @param clazz the entity class.
+     * @param key   the key of the request.
+     * @param <R>   the type of the result.
+     * @return the cached result, null if absent, expired or invalidated.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(Class<?> clazz, String key) {
+        final long generation = generation(clazz);
+        final long now = System.nanoTime();
+        synchronized (this.entries) {
+            Key entryKey = new Key(clazz, key);
+            Entry entry = this.entries.get(entryKey);
+            if (entry != null && (entry.generation != generation || now - entry.expiresAt >= 0)) {
+                remove(entryKey);
+                entry = null;
+            }
+            if (entry == null) {
+                this.missCount.increment();
+                return null;
+            }
+            this.hitCount.increment();
+            return (R) entry.value;
+        }
+    }
+
+    /**
+     * @param clazz      the entity class.
+     * @param key        the key of the request.
+     * @param value      the result.
+     * @param weight     the weight of the result.
+     * @param generation the generation of the entity class read before the request : the result is not cached if
+     *                   the class was written during the request, or during the refresh interval before it.
+     */
+    public void put(Class<?> clazz, String key, Object value, long weight, long generation) {
+        Duration timeToLive = timeToLive(clazz);
+        if (timeToLive.isZero() || weight > this.maximumWeight || generation != generation(clazz) || isRefreshing(clazz)) {
+            return;
+        }
+        Entry entry = new Entry(value, weight, generation, System.nanoTime() + timeToLive.toNanos());
+        synchronized (this.entries) {
+            Key entryKey = new Key(clazz, key);
+            remove(entryKey);
+            this.entries.put(entryKey, entry);
+            this.weight += weight;
+            Iterator<Entry> eldest = this.entries.values().iterator();
+            while (this.weight > this.maximumWeight && eldest.hasNext()) {
+                this.weight -= eldest.next().weight;
+                eldest.remove();
+                this.evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Write hook of the executed actions : invalidate the results changed by the given action, if it is a write.
+     *
+     * @param action the executed action, successful or not.
+     * @param clazz  the entity class of the action, null if unknown : all the results are invalidated.
+     */
+    public void written(Action<?> action, @Nullable Class<?> clazz) {
+        if (!isWrite(action)) {
+            return;
+        }
+        if (clazz == null) {
+            invalidateAll();
+        } else {
+            invalidate(clazz);
+        }
+    }
+
+    /**
+     * @param action an action.
+     * @return true if the action changes the documents read through an alias or an index.
+     */
+    public static boolean isWrite(Action<?> action) {
+        return action instanceof BulkableAction
+                || action instanceof Bulk
+                || action instanceof DeleteByQuery
+                || action instanceof UpdateByQuery
+                || action instanceof DeleteIndex
+                || action instanceof Refresh
+                || action instanceof ModifyAliases;
+    }
+
+    /**
+     * Invalidate the results of the given entity class.
+     *
+     * @param clazz the entity class.
+     */
+    public void invalidate(Class<?> clazz) {
+        this.lastWrites.put(clazz, System.nanoTime());
+        this.generations.computeIfAbsent(clazz, key -> new AtomicLong()).incrementAndGet();
+        synchronized (this.entries) {
+            Iterator<Map.Entry<Key, Entry>> iterator = this.entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                if (entry.getKey().clazz == clazz) {
+                    this.weight -= entry.getValue().weight;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidate all the results.
+     */
+    public void invalidateAll() {
+        this.lastWriteOfAll = System.nanoTime();
+        this.generations.values().forEach(AtomicLong::incrementAndGet);
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.weight = 0;
+        }
+    }
+
+    /**
+     * @return the statistics of the cache.
+     */
+    public QueryCacheStats getStats() {
+        synchronized (this.entries) {
+            return new QueryCacheStats(this.hitCount.sum(), this.missCount.sum(), this.evictionCount.sum(),
+                    this.entries.size(), this.weight);
+        }
+    }
+
+    private boolean isRefreshing(Class<?> clazz) {
+        final long now = System.nanoTime();
+        final Long lastWrite = this.lastWrites.get(clazz);
+        final Long lastWriteOfAll = this.lastWriteOfAll;
+        return (lastWrite != null && now - lastWrite < this.refreshInterval)
+                || (lastWriteOfAll != null && now - lastWriteOfAll < this.refreshInterval);
+    }
+
+    private Duration timeToLive(Class<?> clazz) {
+        return this.resolvedTimeToLives.computeIfAbsent(clazz, key -> {
+            Duration timeToLive = this.timeToLives.get(key.getName());
+            if (timeToLive == null) {
+                timeToLive = this.timeToLives.get(key.getSimpleName());
+            }
+            if (timeToLive == null) {
+                Document document = AnnotatedElementUtils.findMergedAnnotation(key, Document.class);
+                timeToLive = Duration.ofSeconds(document == null ? 0 : document.cacheTimeToLiveInSeconds());
+            }
+            return timeToLive.isNegative() ? Duration.ZERO : timeToLive;
+        });
+    }
+
+    private void remove(Key key) {
+        Entry entry = this.entries.remove(key);
+        if (entry != null) {
+            this.weight -= entry.weight;
+        }
+    }
+
+    private static final class Key {
+        private final Class<?> clazz;
+        private final String key;
+
+        private Key(Class<?> clazz, String key) {
+            this.clazz = clazz;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return this.clazz == other.clazz && this.key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.clazz, this.key);
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long weight;
+        private final long generation;
+        private final long expiresAt;
+
+        private Entry(Object value, long weight, long generation, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
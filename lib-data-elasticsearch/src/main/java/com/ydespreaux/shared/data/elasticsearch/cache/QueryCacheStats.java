@@ -0,0 +1,43 @@
+package com.ydespreaux.shared.data.elasticsearch.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Statistics of a {@link QueryCache}, since its creation.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class QueryCacheStats {
+
+    /**
+     * Number of results read from the cache.
+     */
+    private final long hitCount;
+    /**
+     * Number of results not found in the cache.
+     */
+    private final long missCount;
+    /**
+     * Number of results removed to respect the maximum weight.
+     */
+    private final long evictionCount;
+    /**
+     * Number of results in the cache.
+     */
+    private final long size;
+    /**
+     * Weight of the results in the cache, in bytes of json.
+     */
+    private final long weight;
+
+    /**
+     * @return the ratio of the reads found in the cache, 1 if there was no read.
+     */
+    public double hitRate() {
+        long requestCount = this.hitCount + this.missCount;
+        return requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount;
+    }
+}
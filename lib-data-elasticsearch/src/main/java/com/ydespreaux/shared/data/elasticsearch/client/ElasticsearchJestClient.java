@@ -0,0 +1,387 @@
+package com.ydespreaux.shared.data.elasticsearch.client;
+
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingAction;
+import io.searchbox.action.Action;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.client.config.ElasticsearchVersion;
+import io.searchbox.client.http.JestHttpClient;
+import io.searchbox.core.Bulk;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.util.EntityUtils;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link JestHttpClient} writing the body of the {@link StreamingAction} directly to the http connection,
+ * instead of building it as a string.
+ * <p>
+ * The request bodies are compressed with gzip for all the requests when the request compression is enabled, or
+ * only for the bulks when the bulk compression is enabled : the bodies smaller than the compression threshold are
+ * sent as is. The bodies are compressed in memory, or while they are written for the streamed bodies, so that both
+ * http clients can send them. The asynchronous requests can also ask for gzip responses, as the synchronous client
+ * does.
+ * <p>
+ * With the non blocking transport, the synchronous requests are also executed by the asynchronous client : the
+ * calling thread still waits for the response, at most the read timeout plus the connect and connection request
+ * timeouts, but the connections are multiplexed by the few I/O threads of the asynchronous client and share its
+ * per node limit with the reactive requests. Only the asynchronous requests don't hold a thread.
+ * <p>
+ * With a {@link NodeSelector}, the node of each request is chosen from the latency and the errors of the previous
+ * requests, instead of the round robin of jest.
+ */
+@Slf4j
+public class ElasticsearchJestClient extends JestHttpClient {
+
+    private ElasticsearchVersion elasticsearchVersion = ElasticsearchVersion.UNKNOWN;
+    private ConnPoolControl<HttpRoute> connectionPool;
+    private ConnPoolControl<HttpRoute> asyncConnectionPool;
+    private boolean bulkCompressionEnabled;
+    private int compressionThreshold;
+    private boolean responseCompressionEnabled;
+    private boolean nonBlockingTransport;
+    private RequestConfig defaultRequestConfig = RequestConfig.DEFAULT;
+    private Set<String> servers;
+    private NodeSelector nodeSelector;
+
+    @Override
+    public void setElasticsearchVersion(ElasticsearchVersion elasticsearchVersion) {
+        super.setElasticsearchVersion(elasticsearchVersion);
+        this.elasticsearchVersion = elasticsearchVersion;
+    }
+
+    @Override
+    public void setServers(Set<String> servers) {
+        super.setServers(servers);
+        this.servers = servers;
+        if (this.nodeSelector != null) {
+            this.nodeSelector.setNodes(servers);
+        }
+    }
+
+    /**
+     * @param nodeSelector the selector of the node of each request, null for the round robin of jest.
+     */
+    public void setNodeSelector(@Nullable NodeSelector nodeSelector) {
+        this.nodeSelector = nodeSelector;
+        if (nodeSelector != null && this.servers != null) {
+            nodeSelector.setNodes(this.servers);
+        }
+    }
+
+    /**
+     * @param bulkCompressionEnabled true to compress the bodies of the bulks, even if the request compression is
+     *                               disabled.
+     */
+    public void setBulkCompressionEnabled(boolean bulkCompressionEnabled) {
+        this.bulkCompressionEnabled = bulkCompressionEnabled;
+    }
+
+    /**
+     * @param compressionThreshold the size in bytes under which a request body is not compressed. The beginning of a
+     *                             streamed body is written in memory up to this size, to know if it is reached.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @param responseCompressionEnabled true to ask for gzip responses to the asynchronous requests.
+     */
+    public void setResponseCompressionEnabled(boolean responseCompressionEnabled) {
+        this.responseCompressionEnabled = responseCompressionEnabled;
+    }
+
+    /**
+     * @param nonBlockingTransport true to execute the synchronous requests with the asynchronous client.
+     */
+    public void setNonBlockingTransport(boolean nonBlockingTransport) {
+        this.nonBlockingTransport = nonBlockingTransport;
+    }
+
+    /**
+     * @param defaultRequestConfig the request configuration of the http clients, for the requests without their
+     *                             own configuration : its timeouts bound the wait of the synchronous requests
+     *                             executed by the asynchronous client.
+     */
+    public void setDefaultRequestConfig(RequestConfig defaultRequestConfig) {
+        this.defaultRequestConfig = defaultRequestConfig;
+    }
+
+    /**
+     * @return true if the synchronous requests are executed with the asynchronous client.
+     */
+    public boolean isNonBlockingTransport() {
+        return this.nonBlockingTransport;
+    }
+
+    /**
+     * @param connectionPool      the pool of the synchronous client, null if the connections are not pooled.
+     * @param asyncConnectionPool the pool of the asynchronous client, null if the connections are not pooled.
+     */
+    public void setConnectionPools(ConnPoolControl<HttpRoute> connectionPool, ConnPoolControl<HttpRoute> asyncConnectionPool) {
+        this.connectionPool = connectionPool;
+        this.asyncConnectionPool = asyncConnectionPool;
+    }
+
+    /**
+     * @return the pool of the synchronous client, null if the connections are not pooled.
+     */
+    public ConnPoolControl<HttpRoute> getConnectionPool() {
+        return this.connectionPool;
+    }
+
+    /**
+     * @return the pool of the asynchronous client, null if the connections are not pooled.
+     */
+    public ConnPoolControl<HttpRoute> getAsyncConnectionPool() {
+        return this.asyncConnectionPool;
+    }
+
+    /**
+     * Execute the given action asynchronously, as {@link #executeAsync(Action, JestResultHandler)}.
+     *
+     * @param action  the action to execute.
+     * @param handler the handler notified with the result.
+     * @param <T>     the type of the result.
+     * @return the future of the http response, cancel it to abort the request.
+     */
+    public <T extends JestResult> Future<HttpResponse> executeAsyncCancellable(Action<T> action, JestResultHandler<? super T> handler) {
+        return startAsyncRequest(action, null, handler);
+    }
+
+    @Override
+    public <T extends JestResult> T execute(Action<T> clientRequest, RequestConfig requestConfig) throws IOException {
+        if (!this.nonBlockingTransport) {
+            return super.execute(clientRequest, requestConfig);
+        }
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Future<HttpResponse> future = startAsyncRequest(clientRequest, requestConfig, new JestResultHandler<T>() {
+            @Override
+            public void completed(T response) {
+                result.complete(response);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        final long timeout = responseTimeout(requestConfig != null ? requestConfig : this.defaultRequestConfig);
+        try {
+            return timeout > 0 ? result.get(timeout, TimeUnit.MILLISECONDS) : result.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request interrupted");
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new SocketTimeoutException("No response after " + timeout + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the maximum wait of a response in milliseconds : waiting for a pooled connection, connecting then
+     * reading the response. 0 if the read timeout is not defined.
+     */
+    private static long responseTimeout(RequestConfig requestConfig) {
+        if (requestConfig.getSocketTimeout() <= 0) {
+            return 0;
+        }
+        return (long) requestConfig.getSocketTimeout()
+                + Math.max(0, requestConfig.getConnectTimeout())
+                + Math.max(0, requestConfig.getConnectionRequestTimeout());
+    }
+
+    private <T extends JestResult> Future<HttpResponse> startAsyncRequest(Action<T> action, RequestConfig requestConfig,
+                                                                          JestResultHandler<? super T> handler) {
+        final CloseableHttpAsyncClient asyncClient = getAsyncClient();
+        synchronized (this) {
+            if (!asyncClient.isRunning()) {
+                asyncClient.start();
+            }
+        }
+        return executeAsyncRequest(action, handler, prepareRequest(action, requestConfig));
+    }
+
+    @Override
+    protected <T extends JestResult> HttpUriRequest prepareRequest(Action<T> action, RequestConfig requestConfig) {
+        String server = this.nodeSelector != null ? this.nodeSelector.select(action) : null;
+        final String url = getRequestURL(server != null ? server : getNextServer(), action.getURI(this.elasticsearchVersion));
+        if (log.isDebugEnabled()) {
+            log.debug("Request method={} url={}", action.getRestMethodName(), url);
+        }
+        final boolean compression = isRequestCompressionEnabled() || (this.bulkCompressionEnabled && action instanceof Bulk);
+        final HttpUriRequest request;
+        if (action instanceof StreamingAction) {
+            HttpEntityEnclosingRequestBase streamingRequest = "PUT".equalsIgnoreCase(action.getRestMethodName())
+                    ? new HttpPut(url)
+                    : new HttpPost(url);
+            final StreamingAction<T> streamingAction = (StreamingAction<T>) action;
+            final byte[] smallBody = compression && this.compressionThreshold > 0
+                    ? StreamingHttpEntity.bodySmallerThan(streamingAction, getGson(), this.compressionThreshold)
+                    : null;
+            streamingRequest.setEntity(smallBody != null
+                    ? new ByteArrayEntity(smallBody, this.requestContentType)
+                    : new StreamingHttpEntity(streamingAction, getGson(), this.requestContentType, compression));
+            if (requestConfig != null) {
+                streamingRequest.setConfig(requestConfig);
+            }
+            request = streamingRequest;
+        } else {
+            // the body is set here, to compress it according to the action and its size
+            request = constructHttpMethod(action.getRestMethodName(), url, null, requestConfig);
+            String payload = action.getData(getGson());
+            if (payload != null && request instanceof HttpEntityEnclosingRequest) {
+                byte[] body = payload.getBytes(this.requestContentType.getCharset() != null
+                        ? this.requestContentType.getCharset()
+                        : StandardCharsets.UTF_8);
+                ((HttpEntityEnclosingRequest) request).setEntity(compression && body.length >= this.compressionThreshold
+                        ? gzipEntity(body)
+                        : new ByteArrayEntity(body, this.requestContentType));
+            }
+        }
+        action.getHeaders().forEach((name, value) -> request.addHeader(name, value.toString()));
+        return request;
+    }
+
+    /**
+     * Compress the body in memory : the asynchronous client can't read a
+     * {@link org.apache.http.client.entity.GzipCompressingEntity}, compressed while it is written.
+     */
+    private ByteArrayEntity gzipEntity(byte[] body) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(body);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteArrayEntity entity = new ByteArrayEntity(outputStream.toByteArray(), this.requestContentType);
+        entity.setContentEncoding("gzip");
+        return entity;
+    }
+
+    @Override
+    protected CloseableHttpResponse executeRequest(HttpUriRequest request) throws IOException {
+        if (this.nodeSelector == null) {
+            return super.executeRequest(request);
+        }
+        final NodeSelector.Sample sample = this.nodeSelector.start(request.getURI());
+        try {
+            CloseableHttpResponse response = super.executeRequest(request);
+            sample.end(NodeSelector.isFailure(response.getStatusLine().getStatusCode()));
+            return response;
+        } catch (IOException e) {
+            sample.end(true);
+            throw e;
+        } catch (RuntimeException e) {
+            sample.end(false);
+            throw e;
+        }
+    }
+
+    @Override
+    protected <T extends JestResult> Future<HttpResponse> executeAsyncRequest(Action<T> action, JestResultHandler<? super T> resultHandler,
+                                                                               HttpUriRequest request) {
+        final JestResultHandler<? super T> handler = this.nodeSelector != null
+                ? measured(resultHandler, this.nodeSelector.start(request.getURI()))
+                : resultHandler;
+        if (!this.responseCompressionEnabled) {
+            return super.executeAsyncRequest(action, handler, request);
+        }
+        // the async client doesn't decompress the responses : the jest callback is replaced by a callback reading
+        // the gzip entity
+        request.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                T result;
+                try {
+                    result = deserializeResponse(response, action);
+                } catch (IOException | RuntimeException e) {
+                    failed(e);
+                    return;
+                }
+                handler.completed(result);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                handler.failed(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                handler.failed(new Exception("Request cancelled"));
+            }
+        };
+        return getHttpClientContextTemplate() != null
+                ? getAsyncClient().execute(request, createContextInstance(), callback)
+                : getAsyncClient().execute(request, callback);
+    }
+
+    /**
+     * @return the handler ending the measure of the request : only the i/o errors are failures of the node, not
+     * the cancellations.
+     */
+    private static <T extends JestResult> JestResultHandler<T> measured(JestResultHandler<? super T> handler, NodeSelector.Sample sample) {
+        return new JestResultHandler<T>() {
+            @Override
+            public void completed(T result) {
+                sample.end(NodeSelector.isFailure(result.getResponseCode()));
+                handler.completed(result);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                sample.end(ex instanceof IOException);
+                handler.failed(ex);
+            }
+        };
+    }
+
+    private <T extends JestResult> T deserializeResponse(HttpResponse response, Action<T> action) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity != null && entity.getContentEncoding() != null
+                && "gzip".equalsIgnoreCase(entity.getContentEncoding().getValue())) {
+            entity = new GzipDecompressingEntity(entity);
+        }
+        StatusLine statusLine = response.getStatusLine();
+        return action.createNewElasticSearchResult(entity == null ? null : EntityUtils.toString(entity),
+                statusLine.getStatusCode(), statusLine.getReasonPhrase(), getGson());
+    }
+}
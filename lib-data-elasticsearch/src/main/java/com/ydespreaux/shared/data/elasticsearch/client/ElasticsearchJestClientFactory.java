@@ -0,0 +1,296 @@
+package com.ydespreaux.shared.data.elasticsearch.client;
+
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestClientFactory;
+import io.searchbox.client.config.HttpClientConfig;
+import io.searchbox.client.config.discovery.NodeChecker;
+import io.searchbox.client.config.idle.HttpReapableConnectionManager;
+import io.searchbox.client.config.idle.IdleConnectionReaper;
+import io.searchbox.client.http.JestHttpClient;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.SchemePortResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NHttpClientConnectionManager;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.ConnPoolControl;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JestClientFactory} creating {@link ElasticsearchJestClient}.
+ * <p>
+ * Same as {@link JestClientFactory#getObject()}, except for the type of the client created by
+ * {@link #createJestClient()}, the time to live of the pooled connections, the maximum keep alive and the limits
+ * of the asynchronous client : number of I/O threads and maximum number of requests in flight per node.
+ */
+@Slf4j
+public class ElasticsearchJestClientFactory extends JestClientFactory {
+
+    private HttpClientConfig httpClientConfig;
+    /**
+     * Maximum life time of the pooled connections, null for no limit.
+     */
+    private Duration connectionTimeToLive;
+    /**
+     * Maximum time a connection is kept alive when the response doesn't define it, null to keep it alive.
+     */
+    private Duration keepAlive;
+    /**
+     * Number of I/O threads of the asynchronous client, null for the number of processors.
+     */
+    private Integer ioThreadCount;
+    /**
+     * Maximum number of requests in flight per node with the asynchronous client, null for the pool limits.
+     */
+    private Integer maxInFlightRequestsPerNode;
+    /**
+     * Maximum wait of a connection from the pools, null for no limit.
+     */
+    private Duration connectionRequestTimeout;
+
+    /**
+     * Define the maximum life time of the pooled connections, whatever their activity : the connections are
+     * closed and opened again after this time, to follow the changes of the nodes behind a load balancer.
+     *
+     * @param connectionTimeToLive the time to live, null for no limit.
+     */
+    public void setConnectionTimeToLive(Duration connectionTimeToLive) {
+        this.connectionTimeToLive = connectionTimeToLive;
+    }
+
+    /**
+     * Define the maximum time an idle connection is kept alive, when the keep alive of the response is longer or
+     * not defined.
+     *
+     * @param keepAlive the maximum keep alive, null for the keep alive of the responses.
+     */
+    public void setKeepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * @param ioThreadCount the number of I/O threads of the asynchronous client, null for the number of processors.
+     */
+    public void setIoThreadCount(Integer ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+    }
+
+    /**
+     * Define the maximum number of requests in flight per node with the asynchronous client : the next requests
+     * wait for a connection in the pool, without holding a thread for the asynchronous requests.
+     *
+     * @param maxInFlightRequestsPerNode the maximum number of requests, null for the limits of the pool.
+     */
+    public void setMaxInFlightRequestsPerNode(Integer maxInFlightRequestsPerNode) {
+        this.maxInFlightRequestsPerNode = maxInFlightRequestsPerNode;
+    }
+
+    /**
+     * @param connectionRequestTimeout the maximum wait of a connection from the pools, null for no limit.
+     */
+    public void setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    @Override
+    public void setHttpClientConfig(HttpClientConfig httpClientConfig) {
+        super.setHttpClientConfig(httpClientConfig);
+        this.httpClientConfig = httpClientConfig;
+    }
+
+    /**
+     * @return the http client configuration.
+     */
+    protected HttpClientConfig getHttpClientConfig() {
+        return this.httpClientConfig;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JestClient getObject() {
+        if (this.httpClientConfig == null) {
+            log.debug("There is no configuration to create http client. Going to create simple client with default values");
+            setHttpClientConfig(new HttpClientConfig.Builder("http://localhost:9200").build());
+        }
+        final JestHttpClient client = createJestClient();
+        client.setRequestCompressionEnabled(this.httpClientConfig.isRequestCompressionEnabled());
+        client.setServers(this.httpClientConfig.getServerList());
+        final HttpClientConnectionManager connectionManager = getConnectionManager();
+        final NHttpClientConnectionManager asyncConnectionManager = getAsyncConnectionManager();
+        client.setHttpClient(createHttpClient(connectionManager));
+        client.setAsyncClient(createAsyncHttpClient(asyncConnectionManager));
+        if (client instanceof ElasticsearchJestClient) {
+            ((ElasticsearchJestClient) client).setDefaultRequestConfig(getRequestConfig());
+            ((ElasticsearchJestClient) client).setConnectionPools(
+                    connectionManager instanceof ConnPoolControl ? (ConnPoolControl<HttpRoute>) connectionManager : null,
+                    asyncConnectionManager instanceof ConnPoolControl ? (ConnPoolControl<HttpRoute>) asyncConnectionManager : null);
+        }
+        if (this.httpClientConfig.getGson() != null) {
+            client.setGson(this.httpClientConfig.getGson());
+        }
+        if (this.httpClientConfig.isDiscoveryEnabled()) {
+            log.info("Node Discovery enabled...");
+            NodeChecker nodeChecker = createNodeChecker(client, this.httpClientConfig);
+            client.setNodeChecker(nodeChecker);
+            nodeChecker.startAsync();
+            nodeChecker.awaitRunning();
+        }
+        if (this.httpClientConfig.getMaxConnectionIdleTime() > 0) {
+            log.info("Idle connection reaping enabled...");
+            IdleConnectionReaper reaper = new IdleConnectionReaper(this.httpClientConfig,
+                    new HttpReapableConnectionManager(connectionManager, asyncConnectionManager));
+            client.setIdleConnectionReaper(reaper);
+            reaper.startAsync();
+            reaper.awaitRunning();
+        }
+        if (!this.httpClientConfig.getPreemptiveAuthTargetHosts().isEmpty()) {
+            log.info("Authentication cache set for preemptive authentication");
+            client.setHttpClientContextTemplate(createPreemptiveAuthContext(this.httpClientConfig.getPreemptiveAuthTargetHosts()));
+        }
+        client.setElasticsearchVersion(this.httpClientConfig.getElasticsearchVersion());
+        return client;
+    }
+
+    /**
+     * @return a new client, not yet configured.
+     */
+    protected JestHttpClient createJestClient() {
+        return new ElasticsearchJestClient();
+    }
+
+    @Override
+    protected RequestConfig getRequestConfig() {
+        RequestConfig requestConfig = super.getRequestConfig();
+        return this.connectionRequestTimeout == null
+                ? requestConfig
+                : RequestConfig.copy(requestConfig).setConnectionRequestTimeout((int) this.connectionRequestTimeout.toMillis()).build();
+    }
+
+    @Override
+    protected HttpClientConnectionManager getConnectionManager() {
+        if (this.connectionTimeToLive == null || !this.httpClientConfig.isMultiThreaded()) {
+            return super.getConnectionManager();
+        }
+        final Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", this.httpClientConfig.getPlainSocketFactory())
+                .register("https", this.httpClientConfig.getSslSocketFactory())
+                .build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry, null,
+                null, null, this.connectionTimeToLive.toMillis(), TimeUnit.MILLISECONDS);
+        configureConnectionPool(connectionManager);
+        return connectionManager;
+    }
+
+    @Override
+    protected NHttpClientConnectionManager getAsyncConnectionManager() {
+        if (this.connectionTimeToLive == null && this.ioThreadCount == null && this.maxInFlightRequestsPerNode == null) {
+            return super.getAsyncConnectionManager();
+        }
+        final IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(this.httpClientConfig.getConnTimeout())
+                .setSoTimeout(this.httpClientConfig.getReadTimeout());
+        if (this.ioThreadCount != null) {
+            ioReactorConfig.setIoThreadCount(this.ioThreadCount);
+        }
+        final Registry<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", this.httpClientConfig.getHttpIOSessionStrategy())
+                .register("https", this.httpClientConfig.getHttpsIOSessionStrategy())
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig.build()),
+                    null, registry, (SchemePortResolver) null, (DnsResolver) null,
+                    this.connectionTimeToLive == null ? -1 : this.connectionTimeToLive.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (IOReactorException e) {
+            throw new IllegalStateException(e);
+        }
+        configureConnectionPool(connectionManager);
+        if (this.maxInFlightRequestsPerNode != null) {
+            // one request per connection : the connections of a route bound the requests in flight on the node
+            connectionManager.setDefaultMaxPerRoute(this.maxInFlightRequestsPerNode);
+            connectionManager.setMaxTotal(Math.max(connectionManager.getMaxTotal(),
+                    this.maxInFlightRequestsPerNode * this.httpClientConfig.getServerList().size()));
+        }
+        return connectionManager;
+    }
+
+    @Override
+    protected HttpClientBuilder configureHttpClient(HttpClientBuilder builder) {
+        if (this.keepAlive != null) {
+            builder.setKeepAliveStrategy(keepAliveStrategy());
+        }
+        return super.configureHttpClient(builder);
+    }
+
+    @Override
+    protected HttpAsyncClientBuilder configureHttpClient(HttpAsyncClientBuilder builder) {
+        if (this.keepAlive != null) {
+            builder.setKeepAliveStrategy(keepAliveStrategy());
+        }
+        return super.configureHttpClient(builder);
+    }
+
+    /**
+     * Apply the pool limits of the configuration, as the jest connection managers.
+     */
+    private void configureConnectionPool(ConnPoolControl<HttpRoute> pool) {
+        if (this.httpClientConfig.getMaxTotalConnection() != null) {
+            pool.setMaxTotal(this.httpClientConfig.getMaxTotalConnection());
+        }
+        if (this.httpClientConfig.getDefaultMaxTotalConnectionPerRoute() != null) {
+            pool.setDefaultMaxPerRoute(this.httpClientConfig.getDefaultMaxTotalConnectionPerRoute());
+        }
+        this.httpClientConfig.getMaxTotalConnectionPerRoute().forEach(pool::setMaxPerRoute);
+    }
+
+    /**
+     * @return the keep alive of the response, bounded by the maximum keep alive.
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        final long maxKeepAlive = this.keepAlive.toMillis();
+        return (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration < 0 ? maxKeepAlive : Math.min(duration, maxKeepAlive);
+        };
+    }
+
+    private CloseableHttpClient createHttpClient(HttpClientConnectionManager connectionManager) {
+        return configureHttpClient(HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(getRequestConfig())
+                .setProxyAuthenticationStrategy(this.httpClientConfig.getProxyAuthenticationStrategy())
+                .setRoutePlanner(getRoutePlanner())
+                .setDefaultCredentialsProvider(this.httpClientConfig.getCredentialsProvider())
+        ).build();
+    }
+
+    private CloseableHttpAsyncClient createAsyncHttpClient(NHttpClientConnectionManager connectionManager) {
+        return configureHttpClient(HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(getRequestConfig())
+                .setProxyAuthenticationStrategy(this.httpClientConfig.getProxyAuthenticationStrategy())
+                .setRoutePlanner(getRoutePlanner())
+                .setDefaultCredentialsProvider(this.httpClientConfig.getCredentialsProvider())
+        ).build();
+    }
+}
@@ -0,0 +1,272 @@
+package com.ydespreaux.shared.data.elasticsearch.client;
+
+import io.searchbox.action.Action;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.Count;
+import io.searchbox.core.MultiSearch;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchScroll;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selection of the node of each request, from the latency and the errors of the previous requests.
+ * <p>
+ * The latency and the error rate of each node are exponentially weighted moving averages : the node of a request
+ * is the best of two nodes drawn at random, the one with the lowest latency weighted by its requests in flight and
+ * its error rate. The latency of a node not used for a while decays, so that a node slow in the past is tried again.
+ * <p>
+ * After {@code failureThreshold} consecutive failures, the circuit of the node is open : the node receives no request
+ * during {@code openDuration}, then a single trial request closes the circuit if it succeeds. The searches prefer the
+ * search nodes (coordinating only nodes for instance) and the bulks the ingest nodes, when some of them are healthy.
+ * <p>
+ * The nodes discovered by jest are ip addresses : the host names of the preferred nodes are resolved when they are
+ * defined, so that they match the discovered nodes.
+ */
+@Slf4j
+public class NodeSelector {
+
+    private static final double ALPHA = 0.3;
+    private static final double MAX_ERROR_RATE = 0.99;
+    private static final long LATENCY_DECAY = Duration.ofSeconds(10).toNanos();
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    private final int failureThreshold;
+    private final long openDuration;
+    private volatile Map<String, Node> nodes = Collections.emptyMap();
+    private Set<String> searchNodes = Collections.emptySet();
+    private Set<String> ingestNodes = Collections.emptySet();
+
+    /**
+     * @param failureThreshold the number of consecutive failures opening the circuit of a node.
+     * @param openDuration     the time without request to a node after the opening of its circuit.
+     */
+    public NodeSelector(int failureThreshold, Duration openDuration) {
+        Assert.isTrue(failureThreshold > 0, "failureThreshold must be greater than 0");
+        Assert.notNull(openDuration, "openDuration must not be null!");
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration.toNanos();
+    }
+
+    /**
+     * @param searchNodes the uris of the nodes preferred for the searches, by host name or ip address.
+     */
+    public void setSearchNodes(Collection<String> searchNodes) {
+        this.searchNodes = keys(searchNodes);
+    }
+
+    /**
+     * @param ingestNodes the uris of the nodes preferred for the bulks, by host name or ip address.
+     */
+    public void setIngestNodes(Collection<String> ingestNodes) {
+        this.ingestNodes = keys(ingestNodes);
+    }
+
+    /**
+     * Define the available nodes : the statistics of the nodes already known are kept.
+     *
+     * @param servers the uris of the nodes.
+     */
+    public synchronized void setNodes(Collection<String> servers) {
+        Map<String, Node> current = this.nodes;
+        Map<String, Node> newNodes = new LinkedHashMap<>();
+        for (String server : servers) {
+            URI uri = URI.create(server);
+            String key = key(uri);
+            Node node = current.get(key);
+            // the credentials are not part of the request urls
+            newNodes.put(key, node != null ? node : new Node(uri.getRawUserInfo() == null ? server : server.replace(uri.getRawUserInfo() + "@", "")));
+        }
+        this.nodes = newNodes;
+    }
+
+    /**
+     * @param action the action to execute.
+     * @return the uri of the node executing the action, null if there is no node.
+     */
+    public String select(Action<?> action) {
+        final Map<String, Node> available = this.nodes;
+        if (available.isEmpty()) {
+            return null;
+        }
+        final long now = System.nanoTime();
+        Set<String> preferred = preferredNodes(action);
+        List<Node> candidates = new ArrayList<>(available.size());
+        if (!preferred.isEmpty()) {
+            preferred.forEach(key -> {
+                Node node = available.get(key);
+                if (node != null && node.isAvailable(now)) {
+                    candidates.add(node);
+                }
+            });
+        }
+        if (candidates.isEmpty()) {
+            available.values().stream().filter(node -> node.isAvailable(now)).forEach(candidates::add);
+        }
+        if (candidates.isEmpty()) {
+            // all the circuits are open : the node closest to its trial
+            Node node = available.values().stream()
+                    .min((first, second) -> Long.compare(first.openUntil, second.openUntil))
+                    .orElseThrow(IllegalStateException::new);
+            return node.url;
+        }
+        Node node = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        if (candidates.size() > 1) {
+            Node other = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+            if (other.score(now) < node.score(now)) {
+                node = other;
+            }
+        }
+        return node.url;
+    }
+
+    /**
+     * Start the measure of a request.
+     *
+     * @param uri the uri of the request.
+     * @return the measure, to end when the request is completed.
+     */
+    public Sample start(URI uri) {
+        Node node = this.nodes.get(key(uri));
+        if (node == null) {
+            return Sample.NONE;
+        }
+        final long start = System.nanoTime();
+        node.started(start);
+        return failed -> node.completed(System.nanoTime() - start, failed);
+    }
+
+    /**
+     * @param statusCode the http status of a response.
+     * @return true if the status is a failure of the node.
+     */
+    public static boolean isFailure(int statusCode) {
+        return statusCode >= SERVER_ERROR || statusCode == TOO_MANY_REQUESTS;
+    }
+
+    private Set<String> preferredNodes(Action<?> action) {
+        if (action instanceof Bulk) {
+            return this.ingestNodes;
+        }
+        if (action instanceof Search || action instanceof SearchScroll || action instanceof MultiSearch || action instanceof Count) {
+            return this.searchNodes;
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * @return the keys of the given uris, and of their ip addresses.
+     */
+    private static Set<String> keys(Collection<String> uris) {
+        Set<String> keys = new HashSet<>();
+        if (uris != null) {
+            uris.forEach(server -> {
+                URI uri = URI.create(server);
+                keys.add(key(uri));
+                try {
+                    for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+                        keys.add(uri.getScheme() + "://" + address.getHostAddress() + ":" + uri.getPort());
+                    }
+                } catch (UnknownHostException e) {
+                    if (log.isWarnEnabled()) {
+                        log.warn("Unknown host {} : only matches the nodes by host name", uri.getHost());
+                    }
+                }
+            });
+        }
+        return keys;
+    }
+
+    private static String key(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    /**
+     * Measure of a request.
+     */
+    @FunctionalInterface
+    public interface Sample {
+
+        /**
+         * Measure of a request to an unknown node.
+         */
+        Sample NONE = failed -> { };
+
+        /**
+         * @param failed true if the request failed because of the node.
+         */
+        void end(boolean failed);
+    }
+
+    private final class Node {
+        private final String url;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private double latency;
+        private double errorRate;
+        private boolean sampled;
+        private long lastSample;
+        private int failures;
+        private long openUntil;
+        private boolean trial;
+
+        private Node(String url) {
+            this.url = url;
+        }
+
+        private synchronized boolean isAvailable(long now) {
+            return this.failures < NodeSelector.this.failureThreshold || (now - this.openUntil >= 0 && !this.trial);
+        }
+
+        private synchronized double score(long now) {
+            double decay = !this.sampled ? 0 : Math.exp(-(double) (now - this.lastSample) / LATENCY_DECAY);
+            return (this.latency * decay + 1) * (this.inFlight.get() + 1) / (1 - Math.min(this.errorRate, MAX_ERROR_RATE));
+        }
+
+        /**
+         * The trial request starts with the request, not with the selection : a selected node whose request is not
+         * sent stays available.
+         */
+        private synchronized void started(long now) {
+            this.inFlight.incrementAndGet();
+            if (this.failures >= NodeSelector.this.failureThreshold && now - this.openUntil >= 0) {
+                this.trial = true;
+            }
+        }
+
+        private synchronized void completed(long duration, boolean failed) {
+            this.inFlight.decrementAndGet();
+            this.latency = !this.sampled ? duration : ALPHA * duration + (1 - ALPHA) * this.latency;
+            this.errorRate = ALPHA * (failed ? 1 : 0) + (1 - ALPHA) * this.errorRate;
+            this.sampled = true;
+            this.lastSample = System.nanoTime();
+            this.trial = false;
+            if (!failed) {
+                this.failures = 0;
+                return;
+            }
+            this.failures++;
+            if (this.failures >= NodeSelector.this.failureThreshold) {
+                this.openUntil = this.lastSample + NodeSelector.this.openDuration;
+                if (log.isWarnEnabled()) {
+                    log.warn("Node {} unavailable after {} consecutive failures", this.url, this.failures);
+                }
+            }
+        }
+    }
+}
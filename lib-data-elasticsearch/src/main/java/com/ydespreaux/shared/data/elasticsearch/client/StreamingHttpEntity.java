@@ -0,0 +1,151 @@
+package com.ydespreaux.shared.data.elasticsearch.client;
+
+import com.google.gson.Gson;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingAction;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Http entity writing the body of a {@link StreamingAction} directly to the connection output stream.
+ * The body is written each time the entity is sent, so the entity is repeatable and the request can be retried.
+ * <p>
+ * The asynchronous client sends the body with {@link HttpAsyncContentProducer} : the body is written part by part
+ * when the connection is ready, so only one part (one action of a bulk) is in memory. The body is compressed by the
+ * entity itself, as the asynchronous client can't read a {@link org.apache.http.client.entity.GzipCompressingEntity}.
+ */
+class StreamingHttpEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+    private static final String GZIP = "gzip";
+
+    private final StreamingAction<?> action;
+    private final Gson gson;
+    private final boolean gzip;
+    // state of the asynchronous production of the body
+    private int part;
+    private ByteArrayOutputStream partBuffer;
+    private GZIPOutputStream gzipStream;
+    private ByteBuffer pending;
+    private boolean lastPart;
+
+    StreamingHttpEntity(StreamingAction<?> action, Gson gson, ContentType contentType, boolean gzip) {
+        this.action = action;
+        this.gson = gson;
+        this.gzip = gzip;
+        setContentType(contentType.toString());
+        if (gzip) {
+            setContentEncoding(GZIP);
+        }
+        setChunked(true);
+    }
+
+    /**
+     * Write the beginning of the body of the given action in memory, part by part, up to the given size.
+     *
+     * @param action    the action.
+     * @param gson      the gson used to serialize the documents.
+     * @param threshold the size in bytes.
+     * @return the whole body if it is smaller than the given size, null otherwise.
+     */
+    static byte[] bodySmallerThan(StreamingAction<?> action, Gson gson, int threshold) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(threshold);
+        try {
+            int part = 0;
+            while (action.writePart(part++, outputStream, gson)) {
+                if (outputStream.size() >= threshold) {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return outputStream.size() < threshold ? outputStream.toByteArray() : null;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Not used by the http clients : the body is built in memory.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeTo(outputStream);
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (!this.gzip) {
+            this.action.writeTo(outputStream, this.gson);
+            return;
+        }
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        this.action.writeTo(gzipOutputStream, this.gson);
+        gzipOutputStream.finish();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        while (this.pending == null || !this.pending.hasRemaining()) {
+            if (this.lastPart) {
+                encoder.complete();
+                return;
+            }
+            nextPart();
+        }
+        encoder.write(this.pending);
+    }
+
+    /**
+     * Reset the production of the body, to send it again.
+     */
+    @Override
+    public void close() {
+        this.part = 0;
+        this.partBuffer = null;
+        this.gzipStream = null;
+        this.pending = null;
+        this.lastPart = false;
+    }
+
+    private void nextPart() throws IOException {
+        if (this.partBuffer == null) {
+            this.partBuffer = new ByteArrayOutputStream();
+            this.gzipStream = this.gzip ? new GZIPOutputStream(this.partBuffer) : null;
+        }
+        OutputStream target = this.gzip ? this.gzipStream : this.partBuffer;
+        if (!this.action.writePart(this.part++, target, this.gson)) {
+            this.lastPart = true;
+            if (this.gzip) {
+                this.gzipStream.finish();
+            }
+        }
+        // the compressed bytes of a part may stay in the deflater until the next parts
+        this.pending = ByteBuffer.wrap(this.partBuffer.toByteArray());
+        this.partBuffer.reset();
+    }
+}
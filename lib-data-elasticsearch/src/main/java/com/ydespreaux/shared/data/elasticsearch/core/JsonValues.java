@@ -0,0 +1,37 @@
+package com.ydespreaux.shared.data.elasticsearch.core;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Conversion of the json values returned by elasticsearch, to give them back in a request.
+ */
+public final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    /**
+     * @param element a json value of a sort or of the key of a composite aggregation bucket.
+     * @return the value, with its json type : long or double for a number.
+     * @throws IllegalArgumentException if the value is not a json primitive or null.
+     */
+    public static Object toValue(JsonElement element) {
+        if (element.isJsonNull()) {
+            return null;
+        }
+        if (!element.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Invalid json value " + element);
+        }
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        } else if (primitive.isNumber()) {
+            String number = primitive.getAsString();
+            return number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0
+                    ? (Object) primitive.getAsDouble()
+                    : (Object) primitive.getAsLong();
+        }
+        return primitive.getAsString();
+    }
+}
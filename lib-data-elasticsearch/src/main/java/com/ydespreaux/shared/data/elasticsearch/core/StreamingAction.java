@@ -0,0 +1,39 @@
+package com.ydespreaux.shared.data.elasticsearch.core;
+
+import com.google.gson.Gson;
+import io.searchbox.action.Action;
+import io.searchbox.client.JestResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Action whose request body can be written directly to the http request output stream,
+ * instead of being built in memory with {@link Action#getData(Gson)}.
+ *
+ * @param <T> the result type of the action.
+ */
+public interface StreamingAction<T extends JestResult> extends Action<T> {
+
+    /**
+     * Write the request body to the given output stream. The stream must not be closed.
+     *
+     * @param outputStream the output stream of the http request.
+     * @param gson         the gson used to serialize the documents.
+     * @throws IOException if an I/O error occurs.
+     */
+    void writeTo(OutputStream outputStream, Gson gson) throws IOException;
+
+    /**
+     * Write a part of the request body to the given output stream : the parts written in order, from 0, make the
+     * same body as {@link #writeTo(OutputStream, Gson)}. Used by the asynchronous client, which sends the body part
+     * by part when the connection is ready. The stream must not be closed.
+     *
+     * @param part         the index of the part.
+     * @param outputStream the output stream of the part.
+     * @param gson         the gson used to serialize the documents.
+     * @return false if there is no such part : the body is complete.
+     * @throws IOException if an I/O error occurs.
+     */
+    boolean writePart(int part, OutputStream outputStream, Gson gson) throws IOException;
+}
@@ -0,0 +1,136 @@
+package com.ydespreaux.shared.data.elasticsearch.core;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.params.Parameters;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link Bulk} action writing each action line directly to the http request output stream, through one reusable
+ * {@link JsonWriter}. The memory used to send the bulk is bounded by the largest document instead of the whole
+ * ndjson body.
+ * <p>
+ * The body written is the same as {@link Bulk#getData(Gson)}, which is still used when the client doesn't support
+ * {@link StreamingAction}.
+ */
+public class StreamingBulk extends Bulk implements StreamingAction<BulkResult> {
+
+    /**
+     * Actions of the bulk, by part index.
+     */
+    private final List<BulkableAction> actions;
+
+    protected StreamingBulk(Builder builder) {
+        super(builder);
+        this.actions = new ArrayList<>(this.bulkableActions);
+    }
+
+    /**
+     * @see StreamingAction#writeTo(OutputStream, Gson)
+     */
+    @Override
+    public void writeTo(OutputStream outputStream, Gson gson) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        final JsonWriter jsonWriter = newJsonWriter(writer, gson);
+        for (BulkableAction action : this.bulkableActions) {
+            writeAction(writer, jsonWriter, action, gson);
+        }
+        writer.flush();
+    }
+
+    /**
+     * One part per action : the metadata line and the source line of the action.
+     *
+     * @see StreamingAction#writePart(int, OutputStream, Gson)
+     */
+    @Override
+    public boolean writePart(int part, OutputStream outputStream, Gson gson) throws IOException {
+        if (part >= this.actions.size()) {
+            return false;
+        }
+        // the part is encoded at once : an OutputStreamWriter by part would allocate a buffer of 8192 bytes each time
+        final StringWriter writer = new StringWriter();
+        writeAction(writer, newJsonWriter(writer, gson), this.actions.get(part), gson);
+        outputStream.write(writer.toString().getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    private static JsonWriter newJsonWriter(Writer writer, Gson gson) throws IOException {
+        final JsonWriter jsonWriter = gson.newJsonWriter(writer);
+        // ndjson : one top level value per line
+        jsonWriter.setLenient(true);
+        return jsonWriter;
+    }
+
+    private void writeAction(Writer writer, JsonWriter jsonWriter, BulkableAction action, Gson gson) throws IOException {
+        writeMetadata(jsonWriter, action);
+        writer.write('\n');
+        if (action instanceof StreamingIndex) {
+            Object source = ((StreamingIndex) action).getSource();
+            if (source instanceof String) {
+                writer.write((String) source);
+            } else {
+                gson.toJson(source, source.getClass(), jsonWriter);
+            }
+            writer.write('\n');
+        } else {
+            String data = action.getData(gson);
+            if (data != null) {
+                writer.write(data);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Write the action metadata line, as {@link Bulk#getData(Gson)} does.
+     */
+    private void writeMetadata(JsonWriter jsonWriter, BulkableAction action) throws IOException {
+        jsonWriter.beginObject().name(action.getBulkMethodName()).beginObject();
+        if (StringUtils.hasText(action.getId())) {
+            jsonWriter.name("_id").value(action.getId());
+        }
+        if (StringUtils.hasText(action.getIndex())) {
+            jsonWriter.name("_index").value(action.getIndex());
+        }
+        if (StringUtils.hasText(action.getType())) {
+            jsonWriter.name("_type").value(action.getType());
+        }
+        for (String parameter : Parameters.ACCEPTED_IN_BULK) {
+            Collection<Object> values = action.getParameter(parameter);
+            if (values == null || values.isEmpty()) {
+                continue;
+            }
+            if (values.size() > 1) {
+                throw new IllegalArgumentException("Expecting a single value for '" + parameter + "' parameter, you provided: " + values.size());
+            }
+            jsonWriter.name(parameter).value(values.iterator().next().toString());
+        }
+        jsonWriter.endObject().endObject();
+    }
+
+    /**
+     * Builder of {@link StreamingBulk}.
+     */
+    public static class Builder extends Bulk.Builder {
+
+        @Override
+        public StreamingBulk build() {
+            return new StreamingBulk(this);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ydespreaux.shared.data.elasticsearch.core;
+
+import io.searchbox.core.Index;
+
+/**
+ * {@link Index} action giving access to its source, so that a {@link StreamingBulk} can serialize the source
+ * directly to the http request output stream.
+ */
+public class StreamingIndex extends Index {
+
+    protected StreamingIndex(Builder builder) {
+        super(builder);
+    }
+
+    /**
+     * @return the document to index.
+     */
+    public Object getSource() {
+        return this.payload;
+    }
+
+    /**
+     * Builder of {@link StreamingIndex}.
+     */
+    public static class Builder extends Index.Builder {
+
+        public Builder(Object source) {
+            super(source);
+        }
+
+        @Override
+        public StreamingIndex build() {
+            return new StreamingIndex(this);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ydespreaux.shared.data.elasticsearch.mapping;
 
+import java.util.Date;
 import java.util.Optional;
 
 /**
@@ -31,16 +32,32 @@ public interface ElasticsearchPersistentEntity<T> {
      */
     String getIndex(T source);
 
+    /**
+     * Retourne le nom de l'index de l'entité courante à indexer, pour la date d'événement donnée.
+     * Permet de lire l'horloge une seule fois pour un lot de documents.
+     *
+     * @param source
+     * @param timeEvent
+     * @return
+     */
+    String getIndex(T source, Date timeEvent);
+
+    /**
+     * @return true if the entity has a field annotated by {@link io.searchbox.annotations.JestId}.
+     */
+    boolean hasIdProperty();
+
     /**
      * @param entity
-     * @param id
+     * @param id     the document id, converted to the type of the id field (String, Long, Integer or UUID).
      */
     void setPersistentEntityId(T entity, String id);
     /**
      * @param entity
-     * @param version
+     * @param version the version, converted to the type of the field annotated by {@link io.searchbox.annotations.JestVersion}
+     *                (Integer or Long) : an Integer field fails if the version overflows.
      */
-    void setPersistentEntityVersion(T entity, Integer version);
+    void setPersistentEntityVersion(T entity, Number version);
 
     /**
      *
@@ -49,6 +66,14 @@ public interface ElasticsearchPersistentEntity<T> {
      */
     Optional<String> getPersistentEntityId(T entity);
 
+    /**
+     * Retourne la version du document, lue dans le champ annoté par {@link io.searchbox.annotations.JestVersion}.
+     *
+     * @param entity
+     * @return
+     */
+    Optional<Long> getPersistentEntityVersion(T entity);
+
     /**
      *
      * @return
@@ -66,4 +91,9 @@ public interface ElasticsearchPersistentEntity<T> {
      * @return
      */
     String getIndexPath();
+
+    /**
+     * @return the unique field completing the sort of the search_after pages, _id if not defined by the document.
+     */
+    String getTieBreaker();
 }
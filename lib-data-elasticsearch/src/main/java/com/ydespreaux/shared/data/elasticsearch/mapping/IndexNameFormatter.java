@@ -0,0 +1,139 @@
+package com.ydespreaux.shared.data.elasticsearch.mapping;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe formatter of time-based index names.
+ * <p>
+ * The index pattern is compiled once into a {@link DateTimeFormatter}, in the default time zone. The pattern syntax
+ * is the one of {@link DateTimeFormatter#ofPattern(String)} : it matches {@link java.text.SimpleDateFormat} for the
+ * quoted text and the usual letters (y, M, d, H, m, s), but not for {@code u} (year instead of day number),
+ * {@code Y} (week based year) and the reserved characters {@code [ ] # { }}.
+ * <p>
+ * The last formatted names are cached with the time bucket they cover (second, minute, hour or day depending on the
+ * smallest unit of the pattern) : all the events of a recent bucket get the cached name without formatting, even
+ * when late events alternate with current ones.
+ */
+public final class IndexNameFormatter {
+
+    private static final Map<String, IndexNameFormatter> FORMATTERS = new ConcurrentHashMap<>();
+    private static final int MAX_BUCKETS = 8;
+
+    private final String indexPattern;
+    private final DateTimeFormatter formatter;
+    private final ZoneId zone;
+    /**
+     * Time unit of the bucket, null if the name can't be cached.
+     */
+    private final ChronoUnit bucketUnit;
+    /**
+     * Most recently formatted buckets first, at most {@link #MAX_BUCKETS}.
+     */
+    private volatile Bucket[] buckets = new Bucket[0];
+
+    private IndexNameFormatter(String indexPattern) {
+        this.indexPattern = indexPattern;
+        this.zone = ZoneId.systemDefault();
+        this.formatter = DateTimeFormatter.ofPattern(indexPattern).withZone(this.zone);
+        this.bucketUnit = bucketUnit(indexPattern);
+    }
+
+    /**
+     * @param indexPattern the index pattern, with the syntax of {@link DateTimeFormatter#ofPattern(String)}.
+     * @return the shared formatter of the given pattern.
+     */
+    public static IndexNameFormatter of(String indexPattern) {
+        Objects.requireNonNull(indexPattern, "indexPattern paramater canno't be null !");
+        return FORMATTERS.computeIfAbsent(indexPattern, IndexNameFormatter::new);
+    }
+
+    /**
+     * @return the index pattern.
+     */
+    public String getIndexPattern() {
+        return this.indexPattern;
+    }
+
+    /**
+     * Format the index name of the given time.
+     *
+     * @param epochMillis the time event, in milliseconds since the epoch.
+     * @return the index name.
+     */
+    public String format(long epochMillis) {
+        final Bucket[] current = this.buckets;
+        for (Bucket bucket : current) {
+            if (epochMillis >= bucket.start && epochMillis < bucket.end) {
+                return bucket.name;
+            }
+        }
+        ZonedDateTime time = Instant.ofEpochMilli(epochMillis).atZone(this.zone);
+        String name = this.formatter.format(time);
+        if (this.bucketUnit != null) {
+            ZonedDateTime start = time.truncatedTo(this.bucketUnit);
+            Bucket[] newBuckets = new Bucket[Math.min(current.length + 1, MAX_BUCKETS)];
+            newBuckets[0] = new Bucket(start.toInstant().toEpochMilli(), start.plus(1, this.bucketUnit).toInstant().toEpochMilli(), name);
+            System.arraycopy(current, 0, newBuckets, 1, newBuckets.length - 1);
+            this.buckets = newBuckets;
+        }
+        return name;
+    }
+
+    /**
+     * Smallest time unit of the pattern, the quoted text being ignored. Units larger than a day are cached by day.
+     */
+    private static ChronoUnit bucketUnit(String pattern) {
+        ChronoUnit unit = ChronoUnit.DAYS;
+        boolean quoted = false;
+        for (char c : pattern.toCharArray()) {
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && Character.isLetter(c)) {
+                ChronoUnit letterUnit = letterUnit(c);
+                if (letterUnit == null) {
+                    return null;
+                }
+                if (letterUnit.compareTo(unit) < 0) {
+                    unit = letterUnit;
+                }
+            }
+        }
+        return unit;
+    }
+
+    private static ChronoUnit letterUnit(char letter) {
+        switch (letter) {
+            case 'G': case 'u': case 'y': case 'Y': case 'Q': case 'q': case 'M': case 'L': case 'w': case 'W':
+            case 'D': case 'd': case 'F': case 'E': case 'e': case 'c':
+                return ChronoUnit.DAYS;
+            // the zone offset may change at an hour boundary (daylight saving time)
+            case 'a': case 'h': case 'K': case 'k': case 'H': case 'V': case 'z': case 'O': case 'X': case 'x': case 'Z':
+                return ChronoUnit.HOURS;
+            case 'm':
+                return ChronoUnit.MINUTES;
+            case 's':
+                return ChronoUnit.SECONDS;
+            default:
+                return null;
+        }
+    }
+
+    private static final class Bucket {
+        private final long start;
+        private final long end;
+        private final String name;
+
+        private Bucket(long start, long end, String name) {
+            this.start = start;
+            this.end = end;
+            this.name = name;
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.ydespreaux.shared.data.elasticsearch.mapping;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Objects;
 
@@ -72,11 +71,22 @@ public class IndexTimeBasedParameter<T> {
     }
 
     /**
+     * Génère le nom de l'index à partir de la date de l'événement courant.
      *
      * @return
      */
     public String generateIndexWithTimeEvent(){
-        Objects.requireNonNull(this.timeEvent, "timeEvent attribut canno't be null !!");
-        return new SimpleDateFormat(this.indexPattern).format(this.timeEvent);
+        return generateIndexWithTimeEvent(this.timeEvent);
+    }
+
+    /**
+     * Génère le nom de l'index à partir de la date donnée, par exemple une date du document.
+     *
+     * @param timeEvent
+     * @return
+     */
+    public String generateIndexWithTimeEvent(Date timeEvent){
+        Objects.requireNonNull(timeEvent, "timeEvent attribut canno't be null !!");
+        return IndexNameFormatter.of(this.indexPattern).format(timeEvent.getTime());
     }
 }
@@ -1 +1 @@
-package com.ydespreaux.shared.data.elasticsearch.mapping;import java.util.Objects;/** * * @since 9.1.0 */public class IndexTimeBasedSupport<T> {    /**     * Génère le nom d'un index de type time-based en fonction d'une date et d'un document à indexer.     *     * @param indexParameter     * @return     */    public String buildIndex(final IndexTimeBasedParameter<T> indexParameter) {        Objects.requireNonNull(indexParameter, "indexParameter paramater canno't be null !");        return indexParameter.generateIndexWithTimeEvent();    }}
\ No newline at end of file
+package com.ydespreaux.shared.data.elasticsearch.mapping;import java.util.Date;import java.util.Objects;/** * * @since 9.1.0 */public class IndexTimeBasedSupport<T> {    /**     * Génère le nom d'un index de type time-based en fonction d'une date et d'un document à indexer.     *     * @param indexParameter     * @return     */    public String buildIndex(final IndexTimeBasedParameter<T> indexParameter) {        Objects.requireNonNull(indexParameter, "indexParameter paramater canno't be null !");        return indexParameter.generateIndexWithTimeEvent(getTimeEvent(indexParameter));    }    /**     * Retourne la date utilisée pour générer le nom de l'index : par défaut la date de l'événement courant.     * Peut être surchargée pour utiliser une date du document, par exemple son timestamp.     *     * @param indexParameter     * @return     */    protected Date getTimeEvent(final IndexTimeBasedParameter<T> indexParameter) {        return indexParameter.getTimeEvent();    }}
\ No newline at end of file
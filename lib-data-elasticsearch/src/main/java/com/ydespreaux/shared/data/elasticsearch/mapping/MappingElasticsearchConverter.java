@@ -1 +1 @@
-package com.ydespreaux.shared.data.elasticsearch.mapping;import com.ydespreaux.shared.data.elasticsearch.annotations.Document;import io.searchbox.annotations.JestId;import io.searchbox.annotations.JestVersion;import lombok.Getter;import lombok.extern.slf4j.Slf4j;import org.apache.commons.lang3.reflect.FieldUtils;import org.elasticsearch.ElasticsearchException;import org.springframework.core.env.Environment;import org.springframework.util.StringUtils;import java.lang.reflect.Field;import java.util.Date;import java.util.List;import java.util.Map;import java.util.Optional;import java.util.concurrent.ConcurrentHashMap;import java.util.regex.Matcher;import java.util.regex.Pattern;@Slf4jpublic class MappingElasticsearchConverter implements ElasticsearchConverter {    private final Map<Class<?>, ElasticsearchPersistentEntity<?>> context = new ConcurrentHashMap<>();    private final ElasticsearchPersistentEntityFactory factory;    private final Environment environment;    public MappingElasticsearchConverter(Environment environment) {        this.factory = new ElasticsearchPersistentEntityFactory();        this.environment = environment;    }    @Override    public <T> ElasticsearchPersistentEntity<T> getRequiredPersistentEntity(Class<T> clazz) {        if (context.containsKey(clazz)) {            return (ElasticsearchPersistentEntity<T>)context.get(clazz);        }        ElasticsearchPersistentEntity<T> entity = this.factory.createPersistentEntity(this.environment, clazz);        this.context.put(clazz, entity);        return entity;    }    public static class ElasticsearchPersistentEntityFactory {        private static final Pattern pattern = Pattern.compile("\\Q${\\E(.+?)\\Q}\\E");        public <T> ElasticsearchPersistentEntity<T> createPersistentEntity(final Environment environment, final Class<T> clazz) {            return new ElasticsearchPersistentEntityImpl(environment, clazz);        }        @Getter        private class ElasticsearchPersistentEntityImpl<T> implements ElasticsearchPersistentEntity<T> {            private Class<T> entityClass;            private String aliasOrIndexName;            private String indexPattern;            private String type;            private IndexTimeBasedSupport<T> indexSupport;            private Field idProperty;            private Field versionProperty;            private Boolean createIndex;            private Boolean indexTimeBased;            private String indexPath;            public ElasticsearchPersistentEntityImpl(Environment environment, Class<T> clazz) {                final Document document = clazz.getAnnotation(Document.class);                this.entityClass = clazz;                this.type = document.type();                this.createIndex = document.createIndex;                this.aliasOrIndexName = getEnvironmentValue(environment, document.aliasOrIndex());                this.indexPattern = getEnvironmentValue(environment, document.indexPattern());                this.indexTimeBased = StringUtils.hasText(this.indexPattern);                this.indexPath = document.indexPath();                try {                    this.indexSupport = document.indexTimeBasedSupport().newInstance();                } catch (Exception e) {                    throw new ElasticsearchException(e);                }                List<Field> fields = FieldUtils.getAllFieldsList(clazz);                for (Field field : fields) {                    if (field.isAnnotationPresent(JestId.class)) {                        field.setAccessible(true);                        this.idProperty = field;                    } else if (field.isAnnotationPresent(JestVersion.class)) {                        field.setAccessible(true);                        this.versionProperty = field;                    }                    if (this.idProperty != null && this.versionProperty != null) {                        break;                    }                }            }            /**             * @param source             * @return             */            @Override            public String getIndex(T source) {                if (isIndexTimeBased()) {                    return this.indexSupport.buildIndex(IndexTimeBasedParameter.of(indexPattern, new Date(), source));                }                return this.aliasOrIndexName;            }            @Override            public void setPersistentEntityId(T entity, String id) {                if (idProperty == null) {                    if (log.isWarnEnabled()) {                        log.warn("No propertyId defined for entity class {}", entityClass);                    }                    return;                }                setPersistentProperty(idProperty, entity, id);            }            /**             * @param entity             * @param version             */            @Override            public void setPersistentEntityVersion(T entity, Integer version) {                setPersistentProperty(versionProperty, entity, version);            }            /**             * @param entity             * @return             */            @Override            public Optional<String> getPersistentEntityId(T entity) {                if (this.idProperty == null){                    if (log.isWarnEnabled()) {                        log.warn("No propertyId defined for entity class {}", entityClass);                    }                    return Optional.empty();                }                try {                    Object id = this.idProperty.get(entity);                    return id == null ? Optional.empty() : Optional.of(id.toString());                } catch (IllegalAccessException e) {                    if (log.isWarnEnabled()) {                        log.warn("getPersistentEntityId {} failed", e);                    }                    return Optional.empty();                }            }            /**             * @return             */            @Override            public Boolean createIndex() {                return this.createIndex;            }            /**             * @return             */            @Override            public Boolean isIndexTimeBased() {                return this.indexTimeBased;            }            /**             * @return             */            @Override            public String getIndexPath() {                return this.indexPath;            }            private void setPersistentProperty(Field field, T entity, Object value) {                if (field == null) {                    return;                }                try {                    field.set(entity, value);                } catch (IllegalAccessException e) {                    if (log.isWarnEnabled()) {                        log.warn(String.format("setPersistentProperty %s failed",field.getName()), e);                    }                }            }            private String getEnvironmentValue(Environment environment, String expression) {                String value = null;                // Create the matcher                Matcher matcher = pattern.matcher(expression);                // If the matching is there, then add it to the map and return the value                if (matcher.find()) {                    value = environment.getProperty(matcher.group(1));                }                return value == null ? expression : value;            }        }    }}
\ No newline at end of file
+package com.ydespreaux.shared.data.elasticsearch.mapping;import com.ydespreaux.shared.data.elasticsearch.annotations.Document;import com.ydespreaux.shared.data.elasticsearch.annotations.IndexTimeField;import io.searchbox.annotations.JestId;import io.searchbox.annotations.JestVersion;import lombok.AccessLevel;import lombok.Getter;import lombok.extern.slf4j.Slf4j;import org.apache.commons.lang3.reflect.FieldUtils;import org.elasticsearch.ElasticsearchException;import org.springframework.core.env.Environment;import org.springframework.util.Assert;import org.springframework.util.StringUtils;import java.lang.invoke.MethodHandle;import java.lang.invoke.MethodHandles;import java.lang.invoke.MethodType;import java.lang.reflect.Field;import java.time.Instant;import java.time.LocalDate;import java.time.LocalDateTime;import java.time.OffsetDateTime;import java.time.ZoneId;import java.time.ZonedDateTime;import java.util.Date;import java.util.List;import java.util.Map;import java.util.Optional;import java.util.UUID;import java.util.concurrent.ConcurrentHashMap;import java.util.regex.Matcher;import java.util.regex.Pattern;@Slf4jpublic class MappingElasticsearchConverter implements ElasticsearchConverter {    private final Map<Class<?>, ElasticsearchPersistentEntity<?>> context = new ConcurrentHashMap<>();    private final ElasticsearchPersistentEntityFactory factory;    private final Environment environment;    public MappingElasticsearchConverter(Environment environment) {        this.factory = new ElasticsearchPersistentEntityFactory();        this.environment = environment;    }    /**     * The persistent entity is created and validated once per class.     *     * @param clazz the document class.     * @param <T>   the document type.     * @return the persistent entity of the class.     */    @Override    public <T> ElasticsearchPersistentEntity<T> getRequiredPersistentEntity(Class<T> clazz) {        // the capturing lambda of computeIfAbsent is only allocated for a new class        ElasticsearchPersistentEntity<?> persistentEntity = this.context.get(clazz);        if (persistentEntity == null) {            persistentEntity = this.context.computeIfAbsent(clazz,                    key -> this.factory.createPersistentEntity(this.environment, key));        }        return (ElasticsearchPersistentEntity<T>) persistentEntity;    }    public static class ElasticsearchPersistentEntityFactory {        private static final Pattern pattern = Pattern.compile("\\Q${\\E(.+?)\\Q}\\E");        public <T> ElasticsearchPersistentEntity<T> createPersistentEntity(final Environment environment, final Class<T> clazz) {            Assert.isTrue(clazz.isAnnotationPresent(Document.class), "Unable to identify template. " + clazz.getSimpleName()                    + " is not a TimeBasedDocument. Make sure the document class is annotated with @TimeBasedDocument");            return new ElasticsearchPersistentEntityImpl(environment, clazz);        }        @Getter        private class ElasticsearchPersistentEntityImpl<T> implements ElasticsearchPersistentEntity<T> {            private final Class<T> entityClass;            private final String aliasOrIndexName;            private final String indexPattern;            private final String type;            private final IndexTimeBasedSupport<T> indexSupport;            /**             * Accessors of the fields annotated with {@link JestId} and {@link JestVersion}, null if not defined.             * Signatures : (Object)Object for the getter, (Object,Object)void for the setters.             */            private final MethodHandle idGetter;            private final MethodHandle idSetter;            private final MethodHandle versionGetter;            private final MethodHandle versionSetter;            /**             * Accessor of the field annotated with {@link IndexTimeField}, null if not defined.             */            private final MethodHandle timeEventGetter;            /**             * Fields of the accessors, for the error messages.             */            @Getter(AccessLevel.NONE)            private final Field idProperty;            @Getter(AccessLevel.NONE)            private final Field versionProperty;            @Getter(AccessLevel.NONE)            private final Field timeEventProperty;            private final Boolean createIndex;            private final Boolean indexTimeBased;            private final String indexPath;            private final String tieBreaker;            public ElasticsearchPersistentEntityImpl(Environment environment, Class<T> clazz) {                final Document document = clazz.getAnnotation(Document.class);                this.entityClass = clazz;                this.type = document.type();                this.createIndex = document.createIndex;                this.aliasOrIndexName = getEnvironmentValue(environment, document.aliasOrIndex());                this.indexPattern = getEnvironmentValue(environment, document.indexPattern());                this.indexTimeBased = StringUtils.hasText(this.indexPattern);                this.indexPath = document.indexPath();                this.tieBreaker = StringUtils.hasText(document.tieBreaker()) ? document.tieBreaker() : "_id";                try {                    this.indexSupport = document.indexTimeBasedSupport().newInstance();                } catch (Exception e) {                    throw new ElasticsearchException(e);                }                Field idField = null;                Field versionField = null;                Field timeEventField = null;                List<Field> fields = FieldUtils.getAllFieldsList(clazz);                for (Field field : fields) {                    if (idField == null && field.isAnnotationPresent(JestId.class)) {                        idField = field;                    } else if (versionField == null && field.isAnnotationPresent(JestVersion.class)) {                        versionField = field;                    } else if (timeEventField == null && field.isAnnotationPresent(IndexTimeField.class)) {                        timeEventField = field;                    }                }                this.idProperty = idField;                this.versionProperty = versionField;                this.timeEventProperty = timeEventField;                this.idGetter = idField == null ? null : getter(idField);                this.idSetter = idField == null ? null : setter(idField);                this.versionGetter = versionField == null ? null : getter(versionField);                this.versionSetter = versionField == null ? null : setter(versionField);                this.timeEventGetter = timeEventField == null ? null : getter(timeEventField);            }            /**             * @param source             * @return             */            @Override            public String getIndex(T source) {                return getIndex(source, isIndexTimeBased() ? new Date() : null);            }            /**             * @param source             * @param timeEvent             * @return             */            @Override            public String getIndex(T source, Date timeEvent) {                if (isIndexTimeBased()) {                    Date documentTimeEvent = getDocumentTimeEvent(source);                    return this.indexSupport.buildIndex(IndexTimeBasedParameter.of(indexPattern,                            documentTimeEvent == null ? timeEvent : documentTimeEvent, source));                }                return this.aliasOrIndexName;            }            /**             * @param source             * @return the value of the field annotated with {@link IndexTimeField}, null if not defined.             */            private Date getDocumentTimeEvent(T source) {                if (source == null || this.timeEventGetter == null) {                    return null;                }                Object value = getPersistentProperty(this.timeEventProperty, this.timeEventGetter, source);                if (value == null) {                    return null;                } else if (value instanceof Date) {                    return (Date) value;                } else if (value instanceof Instant) {                    return Date.from((Instant) value);                } else if (value instanceof LocalDateTime) {                    return Date.from(((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant());                } else if (value instanceof LocalDate) {                    return Date.from(((LocalDate) value).atStartOfDay(ZoneId.systemDefault()).toInstant());                } else if (value instanceof OffsetDateTime) {                    return Date.from(((OffsetDateTime) value).toInstant());                } else if (value instanceof ZonedDateTime) {                    return Date.from(((ZonedDateTime) value).toInstant());                } else if (value instanceof Long) {                    return new Date((Long) value);                }                throw new ElasticsearchException("Unsupported @IndexTimeField type {} for entity class {}", value.getClass(), entityClass);            }            @Override            public boolean hasIdProperty() {                return this.idSetter != null;            }            @Override            public void setPersistentEntityId(T entity, String id) {                if (idSetter == null) {                    if (log.isWarnEnabled()) {                        log.warn("No propertyId defined for entity class {}", entityClass);                    }                    return;                }                setPersistentProperty(idProperty, idSetter, entity, toIdType(id));            }            /**             * @param id the document id.             * @return the id with the type of the id field.             * @throws IllegalArgumentException if the id can't be converted.             */            private Object toIdType(String id) {                Class<?> type = this.idProperty.getType();                if (id == null || type == String.class) {                    return id;                } else if (type == Long.class || type == long.class) {                    return Long.valueOf(id);                } else if (type == Integer.class || type == int.class) {                    return Integer.valueOf(id);                } else if (type == UUID.class) {                    return UUID.fromString(id);                }                return id;            }            /**             * @param entity             * @param version             */            @Override            public void setPersistentEntityVersion(T entity, Number version) {                if (versionSetter == null) {                    return;                }                setPersistentProperty(versionProperty, versionSetter, entity, toVersionType(version));            }            /**             * @param version the version of a document.             * @return the version with the type of the version field.             */            private Object toVersionType(Number version) {                if (version == null) {                    return null;                }                Class<?> type = this.versionProperty.getType();                if (type == Long.class || type == long.class) {                    return version.longValue();                }                if (type == Integer.class || type == int.class) {                    if (version.longValue() > Integer.MAX_VALUE) {                        throw new ElasticsearchException("Version {} overflows the Integer field {} of entity class {}",                                version, this.versionProperty.getName(), entityClass);                    }                    return version.intValue();                }                return version;            }            /**             * @param entity             * @return             */            @Override            public Optional<String> getPersistentEntityId(T entity) {                if (this.idGetter == null){                    if (log.isWarnEnabled()) {                        log.warn("No propertyId defined for entity class {}", entityClass);                    }                    return Optional.empty();                }                Object id = getPersistentProperty(this.idProperty, this.idGetter, entity);                return id == null ? Optional.empty() : Optional.of(id.toString());            }            /**             * @param entity             * @return             */            @Override            public Optional<Long> getPersistentEntityVersion(T entity) {                if (this.versionGetter == null) {                    return Optional.empty();                }                Object version = getPersistentProperty(this.versionProperty, this.versionGetter, entity);                return version == null ? Optional.empty() : Optional.of(((Number) version).longValue());            }            /**             * @return             */            @Override            public Boolean createIndex() {                return this.createIndex;            }            /**             * @return             */            @Override            public Boolean isIndexTimeBased() {                return this.indexTimeBased;            }            /**             * @return             */            @Override            public String getIndexPath() {                return this.indexPath;            }            /**             * @return             */            @Override            public String getTieBreaker() {                return this.tieBreaker;            }            private void setPersistentProperty(Field property, MethodHandle setter, T entity, Object value) {                if (setter == null) {                    return;                }                try {                    setter.invokeExact((Object) entity, value);                } catch (RuntimeException e) {                    // ClassCastException if the type of the value doesn't match the field, as Field#set                    if (log.isWarnEnabled()) {                        log.warn(String.format("setPersistentProperty %s failed", property.getName()), e);                    }                    throw new IllegalArgumentException(e);                } catch (Error e) {                    throw e;                } catch (Throwable e) {                    throw new ElasticsearchException(e);                }            }            private Object getPersistentProperty(Field property, MethodHandle getter, T entity) {                try {                    return (Object) getter.invokeExact((Object) entity);                } catch (RuntimeException e) {                    if (log.isWarnEnabled()) {                        log.warn(String.format("getPersistentProperty %s failed", property.getName()), e);                    }                    throw new IllegalArgumentException(e);                } catch (Error e) {                    throw e;                } catch (Throwable e) {                    throw new ElasticsearchException(e);                }            }            private MethodHandle getter(Field field) {                try {                    field.setAccessible(true);                    return MethodHandles.lookup().unreflectGetter(field)                            .asType(MethodType.methodType(Object.class, Object.class));                } catch (IllegalAccessException e) {                    throw new ElasticsearchException(e);                }            }            private MethodHandle setter(Field field) {                try {                    field.setAccessible(true);                    return MethodHandles.lookup().unreflectSetter(field)                            .asType(MethodType.methodType(void.class, Object.class, Object.class));                } catch (IllegalAccessException e) {                    throw new ElasticsearchException(e);                }            }            private String getEnvironmentValue(Environment environment, String expression) {                String value = null;                // Create the matcher                Matcher matcher = pattern.matcher(expression);                // If the matching is there, then add it to the map and return the value                if (matcher.find()) {                    value = environment.getProperty(matcher.group(1));                }                return value == null ? expression : value;            }        }    }}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.ydespreaux.shared.data.elasticsearch.metrics;
+
+import com.ydespreaux.shared.data.elasticsearch.client.ElasticsearchJestClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Statistics of the connection pools of an {@link ElasticsearchJestClient}, by pool (sync or async) :
+ * {@code elasticsearch.client.pool.connections} by state (leased, available, pending) and
+ * {@code elasticsearch.client.pool.max}.
+ */
+public class ConnectionPoolMetrics implements MeterBinder {
+
+    private static final String PREFIX = "elasticsearch.client.pool.";
+
+    private final ElasticsearchJestClient client;
+
+    /**
+     * @param client the jest client.
+     */
+    public ConnectionPoolMetrics(ElasticsearchJestClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindTo(registry, "sync", this.client.getConnectionPool());
+        bindTo(registry, "async", this.client.getAsyncConnectionPool());
+    }
+
+    private static void bindTo(MeterRegistry registry, String name, ConnPoolControl<HttpRoute> pool) {
+        if (pool == null) {
+            return;
+        }
+        gauge(registry, name, pool, "leased", PoolStats::getLeased);
+        gauge(registry, name, pool, "available", PoolStats::getAvailable);
+        gauge(registry, name, pool, "pending", PoolStats::getPending);
+        Gauge.builder(PREFIX + "max", pool, control -> control.getTotalStats().getMax())
+                .description("Maximum number of connections of the pool")
+                .tag("pool", name)
+                .register(registry);
+    }
+
+    private static void gauge(MeterRegistry registry, String name, ConnPoolControl<HttpRoute> pool, String state,
+                              ToDoubleFunction<PoolStats> value) {
+        Gauge.builder(PREFIX + "connections", pool, control -> value.applyAsDouble(control.getTotalStats()))
+                .description("Connections of the pool, by state")
+                .tags("pool", name, "state", state)
+                .register(registry);
+    }
+}
@@ -0,0 +1,52 @@
+package com.ydespreaux.shared.data.elasticsearch.metrics;
+
+import io.searchbox.action.Action;
+import io.searchbox.client.JestResult;
+import org.elasticsearch.common.Nullable;
+
+/**
+ * Metrics of the requests executed by the template.
+ */
+public interface ElasticsearchMetrics {
+
+    /**
+     * No metrics.
+     */
+    ElasticsearchMetrics NONE = new ElasticsearchMetrics() {
+
+        @Override
+        public void requestCompleted(Action<?> action, @Nullable Class<?> entityClass, @Nullable String index,
+                                     @Nullable JestResult result, long durationInNanos) {
+        }
+
+        @Override
+        public void scrollOpened() {
+        }
+
+        @Override
+        public void scrollCleared() {
+        }
+    };
+
+    /**
+     * Record an executed request.
+     *
+     * @param action          the executed action.
+     * @param entityClass     the entity class of the request, null for the raw actions.
+     * @param index           the alias or the index of the entity class, null for the raw actions.
+     * @param result          the result of the request, null if the request failed with an exception.
+     * @param durationInNanos the duration of the request : serialization, round trip and parsing of the response.
+     */
+    void requestCompleted(Action<?> action, @Nullable Class<?> entityClass, @Nullable String index,
+                          @Nullable JestResult result, long durationInNanos);
+
+    /**
+     * Record a scroll context opened.
+     */
+    void scrollOpened();
+
+    /**
+     * Record a scroll context cleared.
+     */
+    void scrollCleared();
+}
@@ -0,0 +1,176 @@
+package com.ydespreaux.shared.data.elasticsearch.metrics;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.ydespreaux.shared.data.elasticsearch.cache.QueryCache;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.searchbox.action.Action;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.ClearScroll;
+import io.searchbox.core.Count;
+import io.searchbox.core.Delete;
+import io.searchbox.core.DeleteByQuery;
+import io.searchbox.core.Get;
+import io.searchbox.core.Index;
+import io.searchbox.core.MultiGet;
+import io.searchbox.core.MultiSearch;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchScroll;
+import io.searchbox.core.Update;
+import org.elasticsearch.common.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ElasticsearchMetrics} recorded in a micrometer {@link MeterRegistry} :
+ * <ul>
+ * <li>{@code elasticsearch.client.requests} : timer of the requests, by operation, entity, index and outcome.</li>
+ * <li>{@code elasticsearch.client.took} : time spent in the cluster, as returned by elasticsearch.</li>
+ * <li>{@code elasticsearch.client.response.size} : size of the response bodies.</li>
+ * <li>{@code elasticsearch.client.bulk.items} : number of items by bulk.</li>
+ * <li>{@code elasticsearch.client.hits} : number of hits by page.</li>
+ * <li>{@code elasticsearch.client.scrolls.open} : number of scroll contexts opened and not cleared.</li>
+ * </ul>
+ * The difference between the request timer and the took timer is the time spent in the client and the network.
+ * The index tag is the alias or the index of the entity class, {@code none} for the raw actions : the concrete
+ * indices of the time-based entities would give a tag value by period.
+ */
+public class MicrometerElasticsearchMetrics implements ElasticsearchMetrics {
+
+    private static final String PREFIX = "elasticsearch.client.";
+    private static final String NONE = "none";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger openScrolls = new AtomicInteger();
+
+    /**
+     * @param registry the meter registry.
+     */
+    public MicrometerElasticsearchMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder(PREFIX + "scrolls.open", this.openScrolls, AtomicInteger::get)
+                .description("Scroll contexts opened and not cleared")
+                .register(registry);
+    }
+
+    @Override
+    public void requestCompleted(Action<?> action, @Nullable Class<?> entityClass, @Nullable String index,
+                                 @Nullable JestResult result, long durationInNanos) {
+        final String operation = operation(action);
+        final Tags tags = Tags.of("operation", operation,
+                "entity", entityClass == null ? NONE : entityClass.getSimpleName(),
+                "index", index == null ? NONE : index);
+        Timer.builder(PREFIX + "requests")
+                .description("Requests executed by the template")
+                .tags(tags)
+                .tag("outcome", outcome(result))
+                .register(this.registry)
+                .record(durationInNanos, TimeUnit.NANOSECONDS);
+        if (result == null || result.getJsonObject() == null) {
+            return;
+        }
+        if (result.getJsonString() != null) {
+            summary("response.size", "bytes", operation).record(result.getJsonString().length());
+        }
+        JsonObject json = result.getJsonObject();
+        JsonElement took = json.get("took");
+        if (took != null && took.isJsonPrimitive()) {
+            Timer.builder(PREFIX + "took")
+                    .description("Time spent in the cluster")
+                    .tags(tags)
+                    .register(this.registry)
+                    .record(took.getAsLong(), TimeUnit.MILLISECONDS);
+        }
+        JsonElement items = json.get("items");
+        if (items != null && items.isJsonArray()) {
+            summary("bulk.items", "items", operation).record(items.getAsJsonArray().size());
+        }
+        JsonElement hits = json.get("hits");
+        if (hits != null && hits.isJsonObject() && hits.getAsJsonObject().get("hits") instanceof JsonArray) {
+            summary("hits", "hits", operation).record(hits.getAsJsonObject().getAsJsonArray("hits").size());
+        }
+    }
+
+    @Override
+    public void scrollOpened() {
+        this.openScrolls.incrementAndGet();
+    }
+
+    @Override
+    public void scrollCleared() {
+        this.openScrolls.decrementAndGet();
+    }
+
+    /**
+     * Register the statistics of the given query cache.
+     *
+     * @param queryCache the query cache.
+     */
+    public void bindQueryCache(QueryCache queryCache) {
+        FunctionCounter.builder(PREFIX + "cache.requests", queryCache, cache -> cache.getStats().getHitCount())
+                .tag("result", "hit")
+                .register(this.registry);
+        FunctionCounter.builder(PREFIX + "cache.requests", queryCache, cache -> cache.getStats().getMissCount())
+                .tag("result", "miss")
+                .register(this.registry);
+        FunctionCounter.builder(PREFIX + "cache.evictions", queryCache, cache -> cache.getStats().getEvictionCount())
+                .register(this.registry);
+        Gauge.builder(PREFIX + "cache.size", queryCache, cache -> cache.getStats().getSize())
+                .register(this.registry);
+        Gauge.builder(PREFIX + "cache.weight", queryCache, cache -> cache.getStats().getWeight())
+                .baseUnit("bytes")
+                .register(this.registry);
+    }
+
+    private DistributionSummary summary(String name, String baseUnit, String operation) {
+        return DistributionSummary.builder(PREFIX + name)
+                .baseUnit(baseUnit)
+                .tag("operation", operation)
+                .register(this.registry);
+    }
+
+    private static String outcome(@Nullable JestResult result) {
+        if (result == null) {
+            return "error";
+        }
+        return result.isSucceeded() ? "success" : "failure";
+    }
+
+    private static String operation(Action<?> action) {
+        if (action instanceof Bulk) {
+            return "bulk";
+        } else if (action instanceof Index) {
+            return "index";
+        } else if (action instanceof Update) {
+            return "update";
+        } else if (action instanceof Delete) {
+            return "delete";
+        } else if (action instanceof Get) {
+            return "get";
+        } else if (action instanceof MultiGet) {
+            return "multiGet";
+        } else if (action instanceof Search) {
+            return "search";
+        } else if (action instanceof MultiSearch) {
+            return "multiSearch";
+        } else if (action instanceof SearchScroll) {
+            return "scroll";
+        } else if (action instanceof ClearScroll) {
+            return "clearScroll";
+        } else if (action instanceof Count) {
+            return "count";
+        } else if (action instanceof DeleteByQuery) {
+            return "deleteByQuery";
+        }
+        String name = action.getClass().getSimpleName();
+        return name.isEmpty() ? NONE : Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
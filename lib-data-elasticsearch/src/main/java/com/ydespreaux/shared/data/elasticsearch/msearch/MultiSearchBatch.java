@@ -0,0 +1,92 @@
+package com.ydespreaux.shared.data.elasticsearch.msearch;
+
+import com.ydespreaux.shared.data.elasticsearch.ElasticsearchOperations;
+import io.searchbox.core.Search;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.index.query.QueryBuilder;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Collect the searches of a unit of work, an http request for example, and execute them with one multi search :
+ * the searches are added first, the first access to a result executes all the pending searches.
+ * <p>
+ * Not thread safe : use one batch by request.
+ */
+public class MultiSearchBatch {
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final List<SearchRequest<?>> pending = new ArrayList<>();
+    private final Map<SearchRequest<?>, MultiSearchItem<?>> results = new IdentityHashMap<>();
+
+    /**
+     * @param elasticsearchOperations the elasticsearch operations.
+     */
+    public MultiSearchBatch(ElasticsearchOperations elasticsearchOperations) {
+        this.elasticsearchOperations = elasticsearchOperations;
+    }
+
+    /**
+     * @param query the query.
+     * @param clazz the class of the entities.
+     * @param <T>   the type of the entities.
+     * @return the entities found, read when the supplier is called.
+     */
+    public <T> Supplier<List<T>> add(QueryBuilder query, Class<T> clazz) {
+        return add(this.elasticsearchOperations.prepareSearch(query, clazz).build(), clazz);
+    }
+
+    /**
+     * @param search the search.
+     * @param clazz  the class of the entities.
+     * @param <T>    the type of the entities.
+     * @return the entities found, read when the supplier is called : throws an {@link ElasticsearchException} if
+     * the search failed.
+     */
+    public <T> Supplier<List<T>> add(Search search, Class<T> clazz) {
+        final SearchRequest<T> request = SearchRequest.of(search, clazz);
+        this.pending.add(request);
+        return () -> getItem(request).getContentOrThrow();
+    }
+
+    /**
+     * Execute the pending searches.
+     *
+     * @throws ElasticsearchException if the multi search failed.
+     */
+    public void flush() {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        List<SearchRequest<?>> requests = new ArrayList<>(this.pending);
+        this.pending.clear();
+        MultiSearchResponse response;
+        try {
+            response = this.elasticsearchOperations.multiSearch(requests);
+        } catch (ElasticsearchException e) {
+            // every search of the batch fails with the multi search
+            requests.forEach(request -> this.results.put(request, MultiSearchItem.failed(e.getMessage())));
+            throw e;
+        }
+        requests.forEach(request -> this.results.put(request, response.getItem(request)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> MultiSearchItem<T> getItem(SearchRequest<T> request) {
+        if (!this.results.containsKey(request)) {
+            flush();
+        }
+        return (MultiSearchItem<T>) this.results.get(request);
+    }
+
+    /**
+     * @return the number of searches not executed yet.
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+}
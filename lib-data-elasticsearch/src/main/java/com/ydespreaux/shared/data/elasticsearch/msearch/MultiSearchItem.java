@@ -0,0 +1,74 @@
+package com.ydespreaux.shared.data.elasticsearch.msearch;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.elasticsearch.ElasticsearchException;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of one search of a multi search : the entities found, or the failure of the search.
+ *
+ * @param <T> the type of the entities.
+ */
+@Getter
+@ToString
+public class MultiSearchItem<T> {
+
+    /**
+     * The entities found, empty if the search failed.
+     */
+    private final List<T> content;
+    /**
+     * The total number of documents matching the search, null if the search failed.
+     */
+    private final Long totalElements;
+    /**
+     * The reason of the failure, null if the search succeeded.
+     */
+    private final String failureMessage;
+
+    private MultiSearchItem(List<T> content, Long totalElements, String failureMessage) {
+        this.content = content;
+        this.totalElements = totalElements;
+        this.failureMessage = failureMessage;
+    }
+
+    /**
+     * @param content       the entities found.
+     * @param totalElements the total number of documents matching the search.
+     * @param <T>           the type of the entities.
+     * @return the result of a succeeded search.
+     */
+    public static <T> MultiSearchItem<T> of(List<T> content, Long totalElements) {
+        return new MultiSearchItem<>(content, totalElements, null);
+    }
+
+    /**
+     * @param failureMessage the reason of the failure.
+     * @param <T>            the type of the entities.
+     * @return the result of a failed search.
+     */
+    public static <T> MultiSearchItem<T> failed(String failureMessage) {
+        return new MultiSearchItem<>(Collections.emptyList(), null, failureMessage);
+    }
+
+    /**
+     * @return true if the search failed.
+     */
+    public boolean isFailed() {
+        return this.failureMessage != null;
+    }
+
+    /**
+     * @return the entities found.
+     * @throws ElasticsearchException if the search failed.
+     */
+    public List<T> getContentOrThrow() {
+        if (isFailed()) {
+            throw new ElasticsearchException(this.failureMessage);
+        }
+        return this.content;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ydespreaux.shared.data.elasticsearch.msearch;
+
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of a multi search, in the order of the requests.
+ */
+public class MultiSearchResponse {
+
+    private final List<MultiSearchItem<?>> items;
+    private final Map<SearchRequest<?>, MultiSearchItem<?>> itemsByRequest;
+
+    /**
+     * @param requests the requests.
+     * @param items    the results, in the order of the requests.
+     */
+    public MultiSearchResponse(List<SearchRequest<?>> requests, List<MultiSearchItem<?>> items) {
+        Assert.isTrue(requests.size() == items.size(), "one item by request is expected");
+        this.items = Collections.unmodifiableList(items);
+        this.itemsByRequest = new IdentityHashMap<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            this.itemsByRequest.put(requests.get(i), items.get(i));
+        }
+    }
+
+    /**
+     * @param request one of the requests of the multi search.
+     * @param <T>     the type of the entities.
+     * @return the result of the request.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> MultiSearchItem<T> getItem(SearchRequest<T> request) {
+        MultiSearchItem<?> item = this.itemsByRequest.get(request);
+        Assert.notNull(item, "request not found in the multi search");
+        return (MultiSearchItem<T>) item;
+    }
+
+    /**
+     * @return the results, in the order of the requests.
+     */
+    public List<MultiSearchItem<?>> getItems() {
+        return this.items;
+    }
+
+    /**
+     * @return true if at least one search failed.
+     */
+    public boolean hasFailures() {
+        return this.items.stream().anyMatch(MultiSearchItem::isFailed);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ydespreaux.shared.data.elasticsearch.msearch;
+
+import io.searchbox.core.Search;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.Assert;
+
+/**
+ * One search of a multi search, with the class of the entities it returns.
+ *
+ * @param <T> the type of the entities.
+ */
+@Getter
+@ToString
+public class SearchRequest<T> {
+
+    /**
+     * The search, with its index and type.
+     */
+    private final Search search;
+    /**
+     * The class of the entities.
+     */
+    private final Class<T> entityClass;
+
+    private SearchRequest(Search search, Class<T> entityClass) {
+        Assert.notNull(search, "search must not be null!");
+        Assert.notNull(entityClass, "entityClass must not be null!");
+        this.search = search;
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * @param search      the search.
+     * @param entityClass the class of the entities.
+     * @param <T>         the type of the entities.
+     * @return the request.
+     */
+    public static <T> SearchRequest<T> of(Search search, Class<T> entityClass) {
+        return new SearchRequest<>(search, entityClass);
+    }
+}
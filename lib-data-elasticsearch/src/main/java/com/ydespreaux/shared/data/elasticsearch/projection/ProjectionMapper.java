@@ -0,0 +1,117 @@
+package com.ydespreaux.shared.data.elasticsearch.projection;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.ydespreaux.shared.data.elasticsearch.SourceFilter;
+import org.springframework.data.projection.ProjectionInformation;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map the hits of a search onto projections : a class is read from the hit by gson, an interface is backed by the
+ * map of the fields of the hit. The doc value and stored fields of the hit are added to its source.
+ */
+public class ProjectionMapper {
+
+    private static final String SOURCE_KEY = "_source";
+    private static final String FIELDS_KEY = "fields";
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    private final Gson gson;
+    private final SpelAwareProxyProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+    private final Map<Class<?>, Optional<SourceFilter>> sourceFilters = new ConcurrentHashMap<>();
+
+    /**
+     * @param gson the gson used to read the hits.
+     */
+    public ProjectionMapper(Gson gson) {
+        this.gson = gson;
+    }
+
+    /**
+     * @param projection the projection.
+     * @return the filter including the properties read by the projection, empty if the projection may read any
+     * property of the source.
+     */
+    public Optional<SourceFilter> getSourceFilter(Class<?> projection) {
+        return this.sourceFilters.computeIfAbsent(projection, this::createSourceFilter);
+    }
+
+    /**
+     * @param hit        the hit.
+     * @param projection the projection.
+     * @param <R>        the type of the projection.
+     * @return the projection of the hit.
+     */
+    public <R> R map(JsonObject hit, Class<R> projection) {
+        JsonObject source = hit.getAsJsonObject(SOURCE_KEY);
+        JsonObject fields = hit.getAsJsonObject(FIELDS_KEY);
+        if (source == null) {
+            source = new JsonObject();
+        }
+        if (fields != null) {
+            source = merge(source, fields);
+        }
+        if (projection.isInterface()) {
+            Map<String, Object> values = this.gson.fromJson(source, MAP_TYPE);
+            return this.projectionFactory.createProjection(projection, values);
+        }
+        return this.gson.fromJson(source, projection);
+    }
+
+    /**
+     * The fields of the hit are lists : a single value is unwrapped. The source is not modified.
+     */
+    private static JsonObject merge(JsonObject source, JsonObject fields) {
+        JsonObject merged = new JsonObject();
+        source.entrySet().forEach(entry -> merged.add(entry.getKey(), entry.getValue()));
+        fields.entrySet().forEach(entry -> {
+            if (!merged.has(entry.getKey())) {
+                JsonElement value = entry.getValue();
+                if (value.isJsonArray() && ((JsonArray) value).size() == 1) {
+                    value = ((JsonArray) value).get(0);
+                }
+                merged.add(entry.getKey(), value);
+            }
+        });
+        return merged;
+    }
+
+    private Optional<SourceFilter> createSourceFilter(Class<?> projection) {
+        List<String> properties = new ArrayList<>();
+        if (projection.isInterface()) {
+            ProjectionInformation information = this.projectionFactory.getProjectionInformation(projection);
+            if (!information.isClosed()) {
+                return Optional.empty();
+            }
+            information.getInputProperties().stream().map(PropertyDescriptor::getName).forEach(properties::add);
+        } else {
+            for (Class<?> type = projection; type != null && type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                        continue;
+                    }
+                    SerializedName serializedName = field.getAnnotation(SerializedName.class);
+                    properties.add(serializedName == null ? field.getName() : serializedName.value());
+                }
+            }
+        }
+        return properties.isEmpty()
+                ? Optional.empty()
+                : Optional.of(SourceFilter.includes(properties.toArray(new String[0])));
+    }
+}
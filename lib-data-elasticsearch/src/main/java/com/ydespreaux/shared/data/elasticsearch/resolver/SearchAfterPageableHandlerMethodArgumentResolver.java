@@ -0,0 +1,135 @@
+package com.ydespreaux.shared.data.elasticsearch.resolver;
+
+
+import com.ydespreaux.shared.data.elasticsearch.SearchAfterPageable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.SortArgumentResolver;
+import org.springframework.data.web.SortHandlerMethodArgumentResolver;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolve a {@link SearchAfterPageable} from the parameters pageSize, cursor and sort of the request.
+ */
+public class SearchAfterPageableHandlerMethodArgumentResolver implements HandlerMethodArgumentResolver {
+
+    static final SearchAfterPageable DEFAULT_PAGE_REQUEST = SearchAfterPageable.of(20);
+    private static final SortHandlerMethodArgumentResolver DEFAULT_SORT_RESOLVER = new SortHandlerMethodArgumentResolver();
+    private static final String DEFAULT_SIZE_PARAMETER = "pageSize";
+    private static final String DEFAULT_CURSOR_PARAMETER = "cursor";
+    private static final String DEFAULT_PREFIX = "";
+    private static final String DEFAULT_QUALIFIER_DELIMITER = "_";
+    private static final int DEFAULT_MAX_PAGE_SIZE = 2000;
+    private SearchAfterPageable fallbackPageable;
+    private SortArgumentResolver sortResolver;
+    private String sizeParameterName;
+    private String cursorParameterName;
+    private String prefix;
+    private String qualifierDelimiter;
+    private int maxPageSize;
+
+    public SearchAfterPageableHandlerMethodArgumentResolver() {
+        this((SortArgumentResolver) null);
+    }
+
+    public SearchAfterPageableHandlerMethodArgumentResolver(SortHandlerMethodArgumentResolver sortResolver) {
+        this((SortArgumentResolver) sortResolver);
+    }
+
+    public SearchAfterPageableHandlerMethodArgumentResolver(@Nullable SortArgumentResolver sortResolver) {
+        this.fallbackPageable = DEFAULT_PAGE_REQUEST;
+        this.sizeParameterName = DEFAULT_SIZE_PARAMETER;
+        this.cursorParameterName = DEFAULT_CURSOR_PARAMETER;
+        this.prefix = DEFAULT_PREFIX;
+        this.qualifierDelimiter = DEFAULT_QUALIFIER_DELIMITER;
+        this.maxPageSize = DEFAULT_MAX_PAGE_SIZE;
+        this.sortResolver = sortResolver == null ? DEFAULT_SORT_RESOLVER : sortResolver;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter methodParameter) {
+        return SearchAfterPageable.class.equals(methodParameter.getParameterType());
+    }
+
+    public void setFallbackPageable(SearchAfterPageable fallbackPageable) {
+        Assert.notNull(fallbackPageable, "Fallback Pageable must not be null!");
+        this.fallbackPageable = fallbackPageable;
+    }
+
+    public boolean isFallbackPageable(Pageable pageable) {
+        return this.fallbackPageable != null && this.fallbackPageable.equals(pageable);
+    }
+
+    protected int getMaxPageSize() {
+        return this.maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    protected String getSizeParameterName() {
+        return this.sizeParameterName;
+    }
+
+    public void setSizeParameterName(String sizeParameterName) {
+        Assert.hasText(sizeParameterName, "Size parameter name must not be null or empty!");
+        this.sizeParameterName = sizeParameterName;
+    }
+
+    protected String getCursorParameterName() {
+        return this.cursorParameterName;
+    }
+
+    public void setCursorParameterName(String cursorParameterName) {
+        Assert.hasText(cursorParameterName, "Cursor parameter name must not be null or empty!");
+        this.cursorParameterName = cursorParameterName;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix == null ? DEFAULT_PREFIX : prefix;
+    }
+
+    public void setQualifierDelimiter(String qualifierDelimiter) {
+        this.qualifierDelimiter = qualifierDelimiter == null ? DEFAULT_QUALIFIER_DELIMITER : qualifierDelimiter;
+    }
+
+    @Override
+    public SearchAfterPageable resolveArgument(MethodParameter methodParameter, @Nullable ModelAndViewContainer mavContainer, NativeWebRequest webRequest, @Nullable WebDataBinderFactory binderFactory) {
+        String pageSizeString = webRequest.getParameter(this.getParameterNameToUse(this.sizeParameterName, methodParameter));
+        String cursor = webRequest.getParameter(this.getParameterNameToUse(this.cursorParameterName, methodParameter));
+
+        int size = this.fallbackPageable.getPageSize();
+        if (StringUtils.hasText(pageSizeString)) {
+            try {
+                int parsed = Integer.parseInt(pageSizeString);
+                size = parsed < 1 ? size : Math.min(parsed, this.maxPageSize);
+            } catch (NumberFormatException e) {
+                // fallback page size
+            }
+        }
+        Sort sort = this.sortResolver.resolveArgument(methodParameter, mavContainer, webRequest, binderFactory);
+        return SearchAfterPageable.of(size,
+                sort.isSorted() ? sort : this.fallbackPageable.getSort(),
+                StringUtils.hasText(cursor) ? cursor : null);
+    }
+
+    protected String getParameterNameToUse(String source, @Nullable MethodParameter parameter) {
+        StringBuilder builder = new StringBuilder(this.prefix);
+        Qualifier qualifier = parameter == null ? null : parameter.getParameterAnnotation(Qualifier.class);
+        if (qualifier != null) {
+            builder.append(qualifier.value());
+            builder.append(this.qualifierDelimiter);
+        }
+        return builder.append(source).toString();
+    }
+
+}
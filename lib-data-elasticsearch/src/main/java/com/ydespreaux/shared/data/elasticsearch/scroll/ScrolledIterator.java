@@ -0,0 +1,95 @@
+package com.ydespreaux.shared.data.elasticsearch.scroll;
+
+import com.ydespreaux.shared.data.elasticsearch.ElasticsearchOperations;
+import com.ydespreaux.shared.data.elasticsearch.ScrolledPage;
+import io.searchbox.core.Search;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link Iterator} reading all the results of a search with the scroll api, one page at a time.
+ * <p>
+ * The scroll is started by the first call to {@link #hasNext()}, the next page is read when the current one is
+ * consumed, and the scroll is cleared after the last page or by {@link #close()}.
+ *
+ * @param <T> the type of the entities.
+ */
+@Slf4j
+public class ScrolledIterator<T> implements Iterator<T>, Closeable {
+
+    private final ElasticsearchOperations operations;
+    private final Search.Builder builder;
+    private final int pageSize;
+    private final long scrollTimeInMinutes;
+    private final Class<T> clazz;
+
+    private String scrollId;
+    private Iterator<T> current;
+    private boolean started = false;
+    private boolean finished = false;
+
+    /**
+     * @param operations          the operations used to read the pages.
+     * @param builder             the search builder.
+     * @param pageSize            the size of the pages.
+     * @param scrollTimeInMinutes the keep alive of the scroll.
+     * @param clazz               the entity class.
+     */
+    public ScrolledIterator(ElasticsearchOperations operations, Search.Builder builder, int pageSize, long scrollTimeInMinutes, Class<T> clazz) {
+        this.operations = operations;
+        this.builder = builder;
+        this.pageSize = pageSize;
+        this.scrollTimeInMinutes = scrollTimeInMinutes;
+        this.clazz = clazz;
+        this.current = Collections.emptyIterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!this.current.hasNext() && !this.finished) {
+            ScrolledPage<T> page = this.started
+                    ? this.operations.continueScroll(this.scrollId, this.scrollTimeInMinutes, this.clazz)
+                    : this.operations.startScroll(this.scrollTimeInMinutes, this.pageSize, this.builder, this.clazz);
+            this.started = true;
+            this.scrollId = page.getScrollId();
+            if (page.getContent().isEmpty()) {
+                close();
+            } else {
+                this.current = page.getContent().iterator();
+            }
+        }
+        return this.current.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.current.next();
+    }
+
+    /**
+     * Clear the scroll if it is still open.
+     */
+    @Override
+    public void close() {
+        this.finished = true;
+        this.current = Collections.emptyIterator();
+        if (this.scrollId != null) {
+            String id = this.scrollId;
+            this.scrollId = null;
+            try {
+                this.operations.clearScroll(id);
+            } catch (RuntimeException e) {
+                if (log.isWarnEnabled()) {
+                    log.warn("Clear scroll {} failed", id, e);
+                }
+            }
+        }
+    }
+}
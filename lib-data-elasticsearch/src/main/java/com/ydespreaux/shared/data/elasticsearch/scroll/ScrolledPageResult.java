@@ -1 +1 @@
-package com.ydespreaux.shared.data.elasticsearch.scroll;import com.ydespreaux.shared.data.elasticsearch.ScrolledPage;import lombok.Getter;import lombok.Setter;import java.util.ArrayList;import java.util.List;@Getter@Setterpublic class ScrolledPageResult<T> implements ScrolledPage<T> {    /**     *     */    private String scrollId;    /**     *     */    private Integer totalElements;    /**     *     */    private List<T> content = new ArrayList<>();    /**     * @param response     * @param entityClass     * @param <E>     * @return     */    public static <E> ScrolledPageResult<E> of(SearchScrollResult response, Class<E> entityClass) {        ScrolledPageResult<E> page = new ScrolledPageResult<>();        page.setTotalElements(response.getTotal());        page.setScrollId(response.getJsonObject().get("_scroll_id").getAsString());        response.getHits(entityClass).forEach(hit -> page.addElement(hit.getSource()));        return page;    }    /**     * @param element     */    private void addElement(T element) {        if (content == null) {            content = new ArrayList<>();        }        this.content.add(element);    }}
\ No newline at end of file
+package com.ydespreaux.shared.data.elasticsearch.scroll;import com.ydespreaux.shared.data.elasticsearch.ScrolledPage;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;import lombok.Getter;import lombok.Setter;import java.util.ArrayList;import java.util.List;@Getter@Setterpublic class ScrolledPageResult<T> implements ScrolledPage<T> {    /**     *     */    private String scrollId;    /**     *     */    private Integer totalElements;    /**     *     */    private List<T> content = new ArrayList<>();    /**     * @param response     * @param entityClass     * @param <E>     * @return     */    public static <E> ScrolledPageResult<E> of(SearchScrollResult response, Class<E> entityClass) {        ScrolledPageResult<E> page = new ScrolledPageResult<>();        page.setTotalElements(response.getTotal());        page.setScrollId(response.getJsonObject().get("_scroll_id").getAsString());        response.getHits(entityClass).forEach(hit -> page.addElement(hit.getSource()));        return page;    }    /**     * @param response         the scroll response.     * @param persistentEntity the persistent entity, which sets the id and the version of the entities.     * @param entityClass      the entity class.     * @param <E>              the type of the entities.     * @return the page, whose entities are read without copy of their sources.     */    public static <E> ScrolledPageResult<E> of(SearchScrollResult response, ElasticsearchPersistentEntity<E> persistentEntity, Class<E> entityClass) {        ScrolledPageResult<E> page = new ScrolledPageResult<>();        page.setTotalElements(response.getTotal());        page.setScrollId(response.getJsonObject().get("_scroll_id").getAsString());        response.getHits(entityClass, persistentEntity).forEach(hit -> page.addElement(hit.getSource()));        return page;    }    /**     * @param element     */    private void addElement(T element) {        if (content == null) {            content = new ArrayList<>();        }        this.content.add(element);    }}
\ No newline at end of file
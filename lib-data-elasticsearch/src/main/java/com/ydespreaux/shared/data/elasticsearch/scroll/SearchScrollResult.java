@@ -2,13 +2,19 @@ package com.ydespreaux.shared.data.elasticsearch.scroll;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.bind.JsonTreeReader;
+import com.google.gson.stream.JsonToken;
+import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;
 import io.searchbox.client.JestResult;
 import io.searchbox.cloning.CloneUtils;
 import io.searchbox.core.search.aggregation.MetricAggregation;
 import io.searchbox.core.search.aggregation.RootAggregation;
 import lombok.*;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -25,6 +31,8 @@ public class SearchScrollResult extends JestResult {
     private static final String INDEX_KEY = "_index";
     private static final String TYPE_KEY = "_type";
     private static final String SCORE_KEY = "_score";
+    private static final String ID_KEY = "_id";
+    private static final String VERSION_KEY = "_version";
 
     private static final String[] PATH_TO_TOTAL = "hits/total".split("/");
     private static final String[] PATH_TO_MAX_SCORE = "hits/max_score".split("/");
@@ -101,6 +109,91 @@ public class SearchScrollResult extends JestResult {
         return sourceList;
     }
 
+    /**
+     * Give the hits of the response, without copy of their sources : each source is read from the response tree
+     * straight into the entity, whose id and version are then set by the persistent entity. The highlight, fields
+     * and sort of the hits are read when they are accessed.
+     *
+     * @param sourceType       the entity class.
+     * @param persistentEntity the persistent entity of the entity class.
+     * @param <T>              the type of the entities.
+     * @return the hits.
+     */
+    public <T> List<Hit<T, Void>> getHits(Class<T> sourceType, ElasticsearchPersistentEntity<T> persistentEntity) {
+        final String[] keys = getKeys();
+        if (jsonObject == null || keys == null) {
+            return new ArrayList<>();
+        }
+        String sourceKey = keys[keys.length - 1];
+        JsonElement obj = jsonObject.get(keys[0]);
+        for (int i = 1; i < keys.length - 1; i++) {
+            obj = ((JsonObject) obj).get(keys[i]);
+        }
+        final boolean hasIdProperty = persistentEntity.hasIdProperty();
+        final TypeAdapter<T> adapter = gson.getAdapter(sourceType);
+        if (obj.isJsonObject()) {
+            JsonElement source = obj.getAsJsonObject().get(sourceKey);
+            T entity = adapter.fromJsonTree(source == null || source.isJsonNull() ? new JsonObject() : source);
+            return Collections.singletonList(extractHit(entity, persistentEntity, hasIdProperty, obj.getAsJsonObject()));
+        }
+        final JsonArray hits = obj.getAsJsonArray();
+        final List<Hit<T, Void>> sourceList = new ArrayList<>(hits.size());
+        // a single reader for the sources of all the hits, as each json reader allocates a buffer of 1024 chars
+        try (JsonTreeReader reader = new JsonTreeReader(hits)) {
+            reader.beginArray();
+            for (JsonElement hitElement : hits) {
+                if (hitElement.isJsonObject()) {
+                    T entity = readSource(reader, adapter, sourceKey);
+                    sourceList.add(extractHit(entity, persistentEntity, hasIdProperty, hitElement.getAsJsonObject()));
+                } else {
+                    reader.skipValue();
+                }
+            }
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return sourceList;
+    }
+
+    /**
+     * Read the source of the current hit of the reader, and skip its other fields.
+     *
+     * @return the entity of the source, an empty entity if the hit has no source.
+     */
+    private static <T> T readSource(JsonTreeReader reader, TypeAdapter<T> adapter, String sourceKey) throws IOException {
+        T entity = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (sourceKey.equals(reader.nextName()) && reader.peek() != JsonToken.NULL) {
+                entity = adapter.read(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return entity != null ? entity : adapter.fromJsonTree(new JsonObject());
+    }
+
+    protected <T> Hit<T, Void> extractHit(T entity, ElasticsearchPersistentEntity<T> persistentEntity, boolean hasIdProperty,
+                                          JsonObject hitObject) {
+        JsonElement id = hasIdProperty ? hitObject.get(ID_KEY) : null;
+        if (id != null && !id.isJsonNull()) {
+            persistentEntity.setPersistentEntityId(entity, id.getAsString());
+        }
+        JsonElement version = hitObject.get(VERSION_KEY);
+        if (version != null && !version.isJsonNull()) {
+            persistentEntity.setPersistentEntityVersion(entity, version.getAsLong());
+        }
+        JsonElement score = hitObject.get(SCORE_KEY);
+        return Hit.<T, Void>builder()
+                .source(entity)
+                .hitObject(hitObject)
+                .index(hitObject.get(INDEX_KEY).getAsString())
+                .type(hitObject.get(TYPE_KEY).getAsString())
+                .score(score == null || score.isJsonNull() ? null : score.getAsDouble())
+                .build();
+    }
+
     protected <T, K> Hit<T, K> extractHit(Class<T> sourceType, Class<K> explanationType, JsonElement hitElement, String sourceKey, boolean addEsMetadataFields) {
         Hit<T, K> hit = null;
 
@@ -129,9 +222,7 @@ public class SearchScrollResult extends JestResult {
             hit = Hit.<T, K>builder()
                     .source(createSourceObject(source, sourceType))
                     .explanation(explanation == null ? null : createSourceObject(explanation, explanationType))
-                    .highlight(extractJsonObject(hitObject.getAsJsonObject(HIGHLIGHT_KEY)))
-                    .fields(extractJsonObject(hitObject.getAsJsonObject(FIELDS_KEY)))
-                    .sort(extractSort(hitObject.getAsJsonArray(SORT_KEY)))
+                    .hitObject(hitObject)
                     .index(hitObject.get(INDEX_KEY).getAsString())
                     .type(hitObject.get(TYPE_KEY).getAsString())
                     .score(score)
@@ -142,6 +233,14 @@ public class SearchScrollResult extends JestResult {
     }
 
     protected List<String> extractSort(JsonArray sort) {
+        return toSort(sort);
+    }
+
+    protected Map<String, List<String>> extractJsonObject(JsonObject highlight) {
+        return toFragments(highlight);
+    }
+
+    private static List<String> toSort(JsonArray sort) {
         if (sort == null) {
             return null;
         }
@@ -153,7 +252,7 @@ public class SearchScrollResult extends JestResult {
         return retval;
     }
 
-    protected Map<String, List<String>> extractJsonObject(JsonObject highlight) {
+    private static Map<String, List<String>> toFragments(JsonObject highlight) {
         Map<String, List<String>> retval = null;
 
         if (highlight != null) {
@@ -218,7 +317,8 @@ public class SearchScrollResult extends JestResult {
     }
 
     /**
-     * Immutable class representing a search hit.
+     * Class representing a search hit : the highlight, fields and sort are read from the hit when they are first
+     * accessed.
      *
      * @param <T> type of source
      * @param <K> type of explanation
@@ -239,15 +339,38 @@ public class SearchScrollResult extends JestResult {
         private String index;
         private String type;
         private Double score;
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private transient JsonObject hitObject;
 
+        public Map<String, List<String>> getHighlight() {
+            if (highlight == null && hitObject != null) {
+                highlight = toFragments(hitObject.getAsJsonObject(HIGHLIGHT_KEY));
+            }
+            return highlight;
+        }
+
+        public Map<String, List<String>> getFields() {
+            if (fields == null && hitObject != null) {
+                fields = toFragments(hitObject.getAsJsonObject(FIELDS_KEY));
+            }
+            return fields;
+        }
+
+        public List<String> getSort() {
+            if (sort == null && hitObject != null) {
+                sort = toSort(hitObject.getAsJsonArray(SORT_KEY));
+            }
+            return sort;
+        }
 
         @Override
         public int hashCode() {
             return Objects.hash(
                     source,
                     explanation,
-                    highlight,
-                    sort,
+                    getHighlight(),
+                    getSort(),
                     index,
                     type);
         }
@@ -267,8 +390,8 @@ public class SearchScrollResult extends JestResult {
             Hit rhs = (Hit) obj;
             return Objects.equals(source, rhs.source)
                     && Objects.equals(explanation, rhs.explanation)
-                    && Objects.equals(highlight, rhs.highlight)
-                    && Objects.equals(sort, rhs.sort)
+                    && Objects.equals(getHighlight(), rhs.getHighlight())
+                    && Objects.equals(getSort(), rhs.getSort())
                     && Objects.equals(index, rhs.index)
                     && Objects.equals(type, rhs.type);
         }
@@ -0,0 +1,47 @@
+package com.ydespreaux.shared.data.elasticsearch.searchafter;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.ydespreaux.shared.data.elasticsearch.core.JsonValues;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque encoding of the sort values of the last hit of a page, given back by the client to read the next page.
+ * The values are kept with their json type, as returned by elasticsearch.
+ */
+public final class SearchAfterCursor {
+
+    private SearchAfterCursor() {
+    }
+
+    /**
+     * @param sortValues the sort values of the last hit.
+     * @return the cursor, url safe.
+     */
+    public static String encode(JsonArray sortValues) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sortValues.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor the cursor given by {@link #encode(JsonArray)}.
+     * @return the sort values, to give to the search_after parameter.
+     * @throws IllegalArgumentException if the cursor is invalid.
+     */
+    public static Object[] decode(String cursor) {
+        JsonArray sortValues;
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            sortValues = new JsonParser().parse(json).getAsJsonArray();
+        } catch (IllegalArgumentException | IllegalStateException | JsonParseException e) {
+            throw new IllegalArgumentException("Invalid search after cursor " + cursor, e);
+        }
+        Object[] values = new Object[sortValues.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = JsonValues.toValue(sortValues.get(i));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ydespreaux.shared.data.elasticsearch.searchafter;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.ydespreaux.shared.data.elasticsearch.SearchAfterPage;
+import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;
+import com.ydespreaux.shared.data.elasticsearch.scroll.SearchScrollResult;
+import io.searchbox.core.SearchResult;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class SearchAfterPageResult<T> implements SearchAfterPage<T> {
+
+    /**
+     *
+     */
+    private String nextCursor;
+    /**
+     *
+     */
+    private Long totalElements;
+    /**
+     *
+     */
+    private List<T> content = new ArrayList<>();
+
+    /**
+     * @param response         the search response.
+     * @param pageSize         the requested page size : a smaller page is the last one.
+     * @param persistentEntity the persistent entity, which sets the id and the version of the entities.
+     * @param entityClass      the entity class.
+     * @param <E>              the type of the entities.
+     * @return the page, whose cursor is built from the sort values of the last hit.
+     */
+    public static <E> SearchAfterPageResult<E> of(SearchResult response, int pageSize, ElasticsearchPersistentEntity<E> persistentEntity, Class<E> entityClass) {
+        SearchAfterPageResult<E> page = new SearchAfterPageResult<>();
+        page.setTotalElements(response.getTotal());
+        new SearchScrollResult(response).getHits(entityClass, persistentEntity).forEach(hit -> page.getContent().add(hit.getSource()));
+        JsonArray hits = response.getJsonObject().getAsJsonObject("hits").getAsJsonArray("hits");
+        if (hits.size() > 0 && hits.size() >= pageSize) {
+            JsonElement sort = hits.get(hits.size() - 1).getAsJsonObject().get("sort");
+            if (sort != null && sort.isJsonArray()) {
+                page.setNextCursor(SearchAfterCursor.encode(sort.getAsJsonArray()));
+            }
+        }
+        return page;
+    }
+}
@@ -1 +1 @@
-package com.ydespreaux.shared.data.elasticsearch.support;import com.ydespreaux.shared.data.elasticsearch.ScrolledPage;import com.ydespreaux.shared.data.elasticsearch.ScrolledPageable;import com.ydespreaux.shared.data.elasticsearch.ElasticsearchOperations;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;import io.searchbox.core.Search;import lombok.Getter;import org.elasticsearch.index.query.QueryBuilder;import org.springframework.data.domain.Sort;import org.springframework.util.Assert;import org.springframework.util.StringUtils;import java.util.List;import java.util.Optional;public abstract class AbstractElasticsearchRepository<T, K> implements ElasticsearchRepository<T,K> {    @Getter    private final Class<T> entityClass;    protected final ElasticsearchOperations elasticsearchOperations;    public AbstractElasticsearchRepository(Class<T> entityClass, ElasticsearchOperations elasticsearchOperations) {        this.entityClass = entityClass;        this.elasticsearchOperations = elasticsearchOperations;        //        ElasticsearchPersistentEntity<T> persistentEntity  = elasticsearchOperations.getPersistentEntityFor(entityClass);        String indexName = persistentEntity.getIndex(null);        if (persistentEntity.createIndex() && !this.elasticsearchOperations.indexExists(indexName)) {            createIndex(indexName, persistentEntity);        }    }    /**     *     * @param indexName     * @param persistentEntity     */    protected void createIndex(String indexName, ElasticsearchPersistentEntity<T> persistentEntity){        if (!this.elasticsearchOperations.indexExists(indexName)) {            if (persistentEntity.isIndexTimeBased()) {                this.elasticsearchOperations.createIndex(indexName);            }else if (StringUtils.hasText(persistentEntity.getIndexPath())){                this.elasticsearchOperations.createIndexWithSettingsAndMapping(indexName, persistentEntity.getIndexPath());            }        }    }    @Override    public Optional<T> findById(K id) {        Assert.notNull(id, "id must not be null!");        return Optional.ofNullable(elasticsearchOperations.findById(getEntityClass(), stringIdRepresentation(id)));    }    /**     * Saves a given entity. Use the returned instance for further operations as the save operation might have changed the     * entity instance completely.     *     * @param entity must not be {@literal null}.     * @return the saved entity will never be {@literal null}.     */    @Override    public T save(T entity) {        Assert.notNull(entity, "Cannot save 'null' entity.");        return this.elasticsearchOperations.index(entity, getEntityClass());    }    /**     * Saves all given entities.     *     * @param entities must not be {@literal null}.     * @return the saved entities will never be {@literal null}.     * @throws IllegalArgumentException in case the given entity is {@literal null}.     */    @Override    public List<T> save(List<T> entities) {        Assert.notNull(entities, "Cannot insert 'null' as a List.");        Assert.notEmpty(entities, "Cannot insert empty List.");        return this.elasticsearchOperations.bulkIndex(entities, getEntityClass());    }    /**     * Deletes the entity with the given id.     *     * @param id must not be {@literal null}.     * @throws IllegalArgumentException in case the given {@code id} is {@literal null}     */    @Override    public void deleteById(K id) {        Assert.notNull(id, "id must not be null!");        this.elasticsearchOperations.deleteById(stringIdRepresentation(id), getEntityClass());    }    /**     * Deletes a given entity.     *     * @param entity     * @throws IllegalArgumentException in case the given entity is {@literal null}.     */    @Override    public void delete(T entity) {        Assert.notNull(entity, "Cannot delete 'null' entity.");        this.elasticsearchOperations.delete(entity, getEntityClass());    }    /**     * Deletes the given entities.     *     * @param entities     * @throws IllegalArgumentException in case the given {@link Iterable} is {@literal null}.     */    @Override    public void deleteAll(List<T> entities) {        Assert.notNull(entities, "Cannot delete 'null' as a List.");        Assert.notEmpty(entities, "Cannot delete empty List.");        this.elasticsearchOperations.deleteAll(entities, getEntityClass());    }    /**     * Deletes all entities managed by the repository.     */    @Override    public void deleteAll() {        this.elasticsearchOperations.deleteAll(getEntityClass());    }    /**     *     */    @Override    public void refresh() {        this.elasticsearchOperations.refresh(getEntityClass());    }    /**     * @param query     * @return     */    @Override    public List<T> search(QueryBuilder query, Sort sort) {        Search.Builder builder = this.elasticsearchOperations.prepareSearch(query, getEntityClass());        if (sort != null) {            sort.forEach(order -> builder.addSort(new io.searchbox.core.search.sort.Sort(order.getProperty(),                    order.isAscending() ? io.searchbox.core.search.sort.Sort.Sorting.ASC : io.searchbox.core.search.sort.Sort.Sorting.DESC))            );        }        return this.elasticsearchOperations.search(builder.build(), getEntityClass());    }    /**     * @param query     * @param pageable     * @return     */    @Override    public ScrolledPage<T> search(QueryBuilder query, ScrolledPageable pageable) {        Assert.notNull(pageable, "pageable must not be null!");        final Search.Builder builder = this.elasticsearchOperations.prepareSearch(query, getEntityClass());        final Sort sort = pageable.getSort();        if (sort != null) {            sort.forEach(order -> builder.addSort(new io.searchbox.core.search.sort.Sort(order.getProperty(),                        order.isAscending() ? io.searchbox.core.search.sort.Sort.Sorting.ASC : io.searchbox.core.search.sort.Sort.Sorting.DESC))            );        }        return this.elasticsearchOperations.startScroll(pageable.getScrollTimeInMinutes(),                pageable.getPageSize(),                builder,                getEntityClass());    }    @Override    public ScrolledPage<T> search(ScrolledPageable pageable) {        Assert.notNull(pageable, "pageable must not be null!");        Assert.notNull(pageable.getScrollId(), "scrollId must not be null!");        return this.elasticsearchOperations.continueScroll(pageable.getScrollId(), pageable.getScrollTimeInMinutes(), getEntityClass());    }    /**     * @param scrollId     */    @Override    public void clearSearch(String scrollId) {        Assert.notNull(scrollId, "scrollId must not be null!");        this.elasticsearchOperations.clearScroll(scrollId);    }    /**     *     * @param id     * @return     */    protected abstract String stringIdRepresentation(K id);}
\ No newline at end of file
+package com.ydespreaux.shared.data.elasticsearch.support;import com.ydespreaux.shared.data.elasticsearch.BulkProcessor;import com.ydespreaux.shared.data.elasticsearch.ScrolledPage;import com.ydespreaux.shared.data.elasticsearch.ScrolledPageable;import com.ydespreaux.shared.data.elasticsearch.SearchAfterPage;import com.ydespreaux.shared.data.elasticsearch.SearchAfterPageable;import com.ydespreaux.shared.data.elasticsearch.SourceFilter;import com.ydespreaux.shared.data.elasticsearch.ElasticsearchOperations;import com.ydespreaux.shared.data.elasticsearch.aggregation.CompositeBucket;import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;import io.searchbox.core.Search;import io.searchbox.core.search.aggregation.MetricAggregation;import lombok.Getter;import org.elasticsearch.index.query.QueryBuilder;import org.elasticsearch.search.aggregations.AggregationBuilder;import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;import org.springframework.data.domain.Sort;import org.springframework.util.Assert;import java.util.ArrayList;import java.util.Collection;import java.util.List;import java.util.Optional;import java.util.stream.Stream;public abstract class AbstractElasticsearchRepository<T, K> implements ElasticsearchRepository<T,K> {    @Getter    private final Class<T> entityClass;    protected final ElasticsearchOperations elasticsearchOperations;    /**     * Bulk processor used by the buffered save mode, null if the mode is disabled.     */    @Getter    private final BulkProcessor bulkProcessor;    public AbstractElasticsearchRepository(Class<T> entityClass, ElasticsearchOperations elasticsearchOperations) {        this(entityClass, elasticsearchOperations, null);    }    /**     * Construct a repository with the buffered save mode enabled when the given bulkProcessor is not null.     *     * @param entityClass             the entity class.     * @param elasticsearchOperations the elasticsearch operations.     * @param bulkProcessor           the bulk processor used by {@link #save(Object)}.     */    public AbstractElasticsearchRepository(Class<T> entityClass, ElasticsearchOperations elasticsearchOperations, BulkProcessor bulkProcessor) {        this.entityClass = entityClass;        this.elasticsearchOperations = elasticsearchOperations;        this.bulkProcessor = bulkProcessor;        // Les index time-based suivants sont créés à la première indexation        ElasticsearchPersistentEntity<T> persistentEntity  = elasticsearchOperations.getPersistentEntityFor(entityClass);        if (persistentEntity.createIndex()) {            createIndex(persistentEntity.getIndex(null), persistentEntity);        }    }    /**     *     * @param indexName     * @param persistentEntity     */    protected void createIndex(String indexName, ElasticsearchPersistentEntity<T> persistentEntity){        this.elasticsearchOperations.createIndexIfNotExists(indexName, getEntityClass());    }    @Override    public Optional<T> findById(K id) {        Assert.notNull(id, "id must not be null!");        return Optional.ofNullable(elasticsearchOperations.findById(getEntityClass(), stringIdRepresentation(id)));    }    @Override    public List<T> findAllById(Collection<K> ids) {        return findAllById(ids, null);    }    @Override    public List<T> findAllById(Collection<K> ids, SourceFilter sourceFilter) {        Assert.notNull(ids, "ids must not be null!");        List<String> documentIds = new ArrayList<>(ids.size());        ids.forEach(id -> documentIds.add(stringIdRepresentation(id)));        return elasticsearchOperations.findAllById(documentIds, getEntityClass(), sourceFilter);    }    /**     * Saves a given entity. Use the returned instance for further operations as the save operation might have changed the     * entity instance completely.     * In buffered save mode, the entity is added to the {@link BulkProcessor} and returned as is : the document id and     * version are not set on the entity.     *     * @param entity must not be {@literal null}.     * @return the saved entity will never be {@literal null}.     */    @Override    public T save(T entity) {        Assert.notNull(entity, "Cannot save 'null' entity.");        if (isBufferedSave()) {            this.bulkProcessor.add(this.elasticsearchOperations.prepareIndex(entity, getEntityClass()));            return entity;        }        return this.elasticsearchOperations.index(entity, getEntityClass());    }    /**     * Saves all given entities.     *     * @param entities must not be {@literal null}.     * @return the saved entities will never be {@literal null}.     * @throws IllegalArgumentException in case the given entity is {@literal null}.     */    @Override    public List<T> save(List<T> entities) {        Assert.notNull(entities, "Cannot insert 'null' as a List.");        Assert.notEmpty(entities, "Cannot insert empty List.");        return this.elasticsearchOperations.bulkIndex(entities, getEntityClass());    }    /**     * @return true if the save operations are buffered by a {@link BulkProcessor}.     */    @Override    public boolean isBufferedSave() {        return this.bulkProcessor != null;    }    /**     * Deletes the entity with the given id.     *     * @param id must not be {@literal null}.     * @throws IllegalArgumentException in case the given {@code id} is {@literal null}     */    @Override    public void deleteById(K id) {        Assert.notNull(id, "id must not be null!");        this.elasticsearchOperations.deleteById(stringIdRepresentation(id), getEntityClass());    }    /**     * Deletes a given entity.     *     * @param entity     * @throws IllegalArgumentException in case the given entity is {@literal null}.     */    @Override    public void delete(T entity) {        Assert.notNull(entity, "Cannot delete 'null' entity.");        this.elasticsearchOperations.delete(entity, getEntityClass());    }    /**     * Deletes the given entities.     *     * @param entities     * @throws IllegalArgumentException in case the given {@link Iterable} is {@literal null}.     */    @Override    public void deleteAll(List<T> entities) {        Assert.notNull(entities, "Cannot delete 'null' as a List.");        Assert.notEmpty(entities, "Cannot delete empty List.");        this.elasticsearchOperations.deleteAll(entities, getEntityClass());    }    /**     * Deletes all entities managed by the repository.     */    @Override    public void deleteAll() {        this.elasticsearchOperations.deleteAll(getEntityClass());    }    /**     *     */    @Override    public void refresh() {        this.elasticsearchOperations.refresh(getEntityClass());    }    /**     * @param query     * @return     */    @Override    public List<T> search(QueryBuilder query, Sort sort) {        return this.elasticsearchOperations.search(prepareSearch(query, sort).build(), getEntityClass());    }    /**     * @param query     * @param sort     * @param sourceFilter     * @return     */    @Override    public List<T> search(QueryBuilder query, Sort sort, SourceFilter sourceFilter) {        return this.elasticsearchOperations.search(prepareSearch(query, sort, sourceFilter).build(), getEntityClass());    }    /**     * @param query     * @param sort     * @param projection     * @return     */    @Override    public <R> List<R> search(QueryBuilder query, Sort sort, Class<R> projection) {        Assert.notNull(projection, "projection must not be null!");        SourceFilter sourceFilter = this.elasticsearchOperations.getProjectionSourceFilter(projection).orElse(null);        return this.elasticsearchOperations.searchForProjection(prepareSearch(query, sort, sourceFilter).build(), projection, this.entityClass);    }    /**     * @param query     * @return     */    @Override    public long count(QueryBuilder query) {        return this.elasticsearchOperations.count(query, getEntityClass());    }    /**     * @param query     * @return     */    @Override    public boolean exists(QueryBuilder query) {        return this.elasticsearchOperations.exists(query, getEntityClass());    }    /**     * @param query     * @param aggregations     * @return     */    @Override    public MetricAggregation aggregate(QueryBuilder query, AggregationBuilder... aggregations) {        return this.elasticsearchOperations.aggregate(query, getEntityClass(), aggregations);    }    /**     * @param query     * @param aggregation     * @return     */    @Override    public Stream<CompositeBucket> compositeAggregation(QueryBuilder query, CompositeAggregationBuilder aggregation) {        return this.elasticsearchOperations.compositeAggregation(query, aggregation, getEntityClass());    }    /**     * @param query     * @param pageable     * @return     */    @Override    public ScrolledPage<T> search(QueryBuilder query, ScrolledPageable pageable) {        Assert.notNull(pageable, "pageable must not be null!");        return this.elasticsearchOperations.startScroll(pageable.getScrollTimeInMinutes(),                pageable.getPageSize(),                prepareSearch(query, pageable.getSort()),                getEntityClass());    }    @Override    public ScrolledPage<T> search(ScrolledPageable pageable) {        Assert.notNull(pageable, "pageable must not be null!");        Assert.notNull(pageable.getScrollId(), "scrollId must not be null!");        return this.elasticsearchOperations.continueScroll(pageable.getScrollId(), pageable.getScrollTimeInMinutes(), getEntityClass());    }    /**     * @param query     * @param pageable     * @return     */    @Override    public SearchAfterPage<T> search(QueryBuilder query, SearchAfterPageable pageable) {        return this.elasticsearchOperations.searchAfter(query, pageable, getEntityClass());    }    /**     * @param scrollId     */    @Override    public void clearSearch(String scrollId) {        Assert.notNull(scrollId, "scrollId must not be null!");        this.elasticsearchOperations.clearScroll(scrollId);    }    /**     * @param query     * @param sort     * @return     */    @Override    public Stream<T> stream(QueryBuilder query, Sort sort) {        return this.elasticsearchOperations.stream(prepareSearch(query, sort), DEFAULT_STREAM_PAGE_SIZE, DEFAULT_STREAM_SCROLL_TIME, getEntityClass());    }    /**     * @param query     * @param pageable     * @return     */    @Override    public Stream<T> stream(QueryBuilder query, ScrolledPageable pageable) {        Assert.notNull(pageable, "pageable must not be null!");        return this.elasticsearchOperations.stream(prepareSearch(query, pageable.getSort()),                pageable.getPageSize(),                pageable.getScrollTimeInMinutes(),                getEntityClass());    }    /**     * @param query the query.     * @param sort  the sort, may be null.     * @return the search builder of the query, sorted.     */    protected Search.Builder prepareSearch(QueryBuilder query, Sort sort) {        return prepareSearch(query, sort, null);    }    /**     * @param query        the query.     * @param sort         the sort, may be null.     * @param sourceFilter the fields to return, null for the whole _source.     * @return the search builder of the query, sorted.     */    protected Search.Builder prepareSearch(QueryBuilder query, Sort sort, SourceFilter sourceFilter) {        Search.Builder builder = this.elasticsearchOperations.prepareSearch(query, sourceFilter, getEntityClass());        if (sort != null) {            sort.forEach(order -> builder.addSort(new io.searchbox.core.search.sort.Sort(order.getProperty(),                    order.isAscending() ? io.searchbox.core.search.sort.Sort.Sorting.ASC : io.searchbox.core.search.sort.Sort.Sorting.DESC))            );        }        return builder;    }    /**     *     * @param id     * @return     */    protected abstract String stringIdRepresentation(K id);}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.ydespreaux.shared.data.elasticsearch.support;
+
+import com.ydespreaux.shared.data.elasticsearch.ReactiveElasticsearchOperations;
+import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;
+import io.searchbox.core.Search;
+import lombok.Getter;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public abstract class AbstractReactiveElasticsearchRepository<T, K> implements ReactiveElasticsearchRepository<T, K> {
+
+    @Getter
+    private final Class<T> entityClass;
+    protected final ReactiveElasticsearchOperations elasticsearchOperations;
+
+    /**
+     * The index of the entity is created when the repository is built, as by {@link AbstractElasticsearchRepository}.
+     *
+     * @param entityClass             the entity class.
+     * @param elasticsearchOperations the reactive elasticsearch operations.
+     */
+    public AbstractReactiveElasticsearchRepository(Class<T> entityClass, ReactiveElasticsearchOperations elasticsearchOperations) {
+        this.entityClass = entityClass;
+        this.elasticsearchOperations = elasticsearchOperations;
+
+        ElasticsearchPersistentEntity<T> persistentEntity = elasticsearchOperations.getPersistentEntityFor(entityClass);
+        if (persistentEntity.createIndex()) {
+            elasticsearchOperations.createIndexIfNotExists(persistentEntity.getIndex(null), entityClass).block();
+        }
+    }
+
+    @Override
+    public Mono<T> findById(K id) {
+        Assert.notNull(id, "id must not be null!");
+        return this.elasticsearchOperations.findById(getEntityClass(), stringIdRepresentation(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(K id) {
+        return findById(id).hasElement();
+    }
+
+    @Override
+    public Mono<T> save(T entity) {
+        Assert.notNull(entity, "Cannot save 'null' entity.");
+        return this.elasticsearchOperations.index(entity, getEntityClass());
+    }
+
+    @Override
+    public Flux<T> save(List<T> entities) {
+        Assert.notNull(entities, "Cannot insert 'null' as a List.");
+        Assert.notEmpty(entities, "Cannot insert empty List.");
+        return this.elasticsearchOperations.bulkIndex(entities, getEntityClass());
+    }
+
+    @Override
+    public Mono<Void> deleteById(K id) {
+        Assert.notNull(id, "id must not be null!");
+        return this.elasticsearchOperations.deleteById(stringIdRepresentation(id), getEntityClass());
+    }
+
+    @Override
+    public Mono<Void> delete(T entity) {
+        Assert.notNull(entity, "Cannot delete 'null' entity.");
+        return this.elasticsearchOperations.getPersistentEntityFor(getEntityClass())
+                .getPersistentEntityId(entity)
+                .map(documentId -> this.elasticsearchOperations.deleteById(documentId, getEntityClass()))
+                .orElse(Mono.empty());
+    }
+
+    @Override
+    public Mono<Void> refresh() {
+        return this.elasticsearchOperations.refresh(getEntityClass());
+    }
+
+    @Override
+    public Flux<T> search(QueryBuilder query, Sort sort) {
+        return this.elasticsearchOperations.search(prepareSearch(query, sort).build(), getEntityClass());
+    }
+
+    @Override
+    public Flux<T> scroll(QueryBuilder query, Sort sort, int pageSize, long scrollTimeInMinutes) {
+        return this.elasticsearchOperations.scroll(prepareSearch(query, sort), pageSize, scrollTimeInMinutes, getEntityClass());
+    }
+
+    @Override
+    public Flux<T> stream(QueryBuilder query, Sort sort) {
+        return scroll(query, sort, ElasticsearchRepository.DEFAULT_STREAM_PAGE_SIZE, ElasticsearchRepository.DEFAULT_STREAM_SCROLL_TIME);
+    }
+
+    private Search.Builder prepareSearch(QueryBuilder query, Sort sort) {
+        Search.Builder builder = this.elasticsearchOperations.prepareSearch(query, getEntityClass());
+        if (sort != null) {
+            sort.forEach(order -> builder.addSort(new io.searchbox.core.search.sort.Sort(order.getProperty(),
+                    order.isAscending() ? io.searchbox.core.search.sort.Sort.Sorting.ASC : io.searchbox.core.search.sort.Sort.Sorting.DESC))
+            );
+        }
+        return builder;
+    }
+
+    /**
+     *
+     * @param id
+     * @return
+     */
+    protected abstract String stringIdRepresentation(K id);
+}
@@ -1 +1 @@
-package com.ydespreaux.shared.data.elasticsearch.support;import com.ydespreaux.shared.data.elasticsearch.ScrolledPage;import com.ydespreaux.shared.data.elasticsearch.ScrolledPageable;import org.elasticsearch.index.query.QueryBuilder;import org.springframework.data.domain.Sort;import java.util.List;import java.util.Optional;/** * * @param <T> * @param <K> */public interface ElasticsearchRepository<T,K> {    /**     * Retrieves an entity by its id.     *     * @param id must not be {@literal null}.     * @return the entity with the given id or {@literal Optional#empty()} if none found     * @throws IllegalArgumentException if {@code id} is {@literal null}.     */    Optional<T> findById(K id);    /**     * Saves a given entity. Use the returned instance for further operations as the save operation might have changed the     * entity instance completely.     *     * @param entity must not be {@literal null}.     * @return the saved entity will never be {@literal null}.     */    T save(T entity);    /**     * Saves all given entities.     *     * @param entities must not be {@literal null}.     * @return the saved entities will never be {@literal null}.     * @throws IllegalArgumentException in case the given entity is {@literal null}.     */    List<T> save(List<T> entities);    /**     * Deletes the entity with the given id.     *     * @param id must not be {@literal null}.     * @throws IllegalArgumentException in case the given {@code id} is {@literal null}     */    void deleteById(K id);    /**     * Deletes a given entity.     *     * @param entity     * @throws IllegalArgumentException in case the given entity is {@literal null}.     */    void delete(T entity);    /**     * Deletes the given entities.     *     * @param entities     * @throws IllegalArgumentException in case the given {@link Iterable} is {@literal null}.     */    void deleteAll(List<T> entities);    /**     * Deletes all entities managed by the repository.     */    void deleteAll();    /**     *     */    void refresh();    /**     *     * @param query     * @return     */    List<T> search(QueryBuilder query, Sort sort);    /**     * Start new search with scroll api     * @param query     * @param pageable     * @return     */    ScrolledPage<T> search(QueryBuilder query, ScrolledPageable pageable);    /**     * Continue search with scroll api     * @param pageable     * @return     */    ScrolledPage<T> search(ScrolledPageable pageable);    /**     *     * @param scrollId     */    void clearSearch(String scrollId);}
\ No newline at end of file
+package com.ydespreaux.shared.data.elasticsearch.support;import com.ydespreaux.shared.data.elasticsearch.ScrolledPage;import com.ydespreaux.shared.data.elasticsearch.ScrolledPageable;import com.ydespreaux.shared.data.elasticsearch.SearchAfterPage;import com.ydespreaux.shared.data.elasticsearch.SearchAfterPageable;import com.ydespreaux.shared.data.elasticsearch.SourceFilter;import com.ydespreaux.shared.data.elasticsearch.aggregation.CompositeBucket;import io.searchbox.core.search.aggregation.MetricAggregation;import org.elasticsearch.index.query.QueryBuilder;import org.elasticsearch.search.aggregations.AggregationBuilder;import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;import org.springframework.data.domain.Sort;import java.util.Collection;import java.util.List;import java.util.Optional;import java.util.stream.Stream;/** * * @param <T> * @param <K> */public interface ElasticsearchRepository<T,K> {    /**     * Size of the scroll pages used by {@link #stream(QueryBuilder, Sort)}.     */    int DEFAULT_STREAM_PAGE_SIZE = 1000;    /**     * Keep alive in minutes of the scroll used by {@link #stream(QueryBuilder, Sort)}.     */    long DEFAULT_STREAM_SCROLL_TIME = 1;    /**     * Retrieves an entity by its id.     *     * @param id must not be {@literal null}.     * @return the entity with the given id or {@literal Optional#empty()} if none found     * @throws IllegalArgumentException if {@code id} is {@literal null}.     */    Optional<T> findById(K id);    /**     * Retrieves the entities with the given ids, with one request.     *     * @param ids must not be {@literal null}.     * @return the found entities, in the order of the given ids.     * @throws IllegalArgumentException if {@code ids} is {@literal null}.     */    List<T> findAllById(Collection<K> ids);    /**     * Retrieves the entities with the given ids, with one request, filtering the fields of the _source.     *     * @param ids          must not be {@literal null}.     * @param sourceFilter the fields of the _source to return.     * @return the found entities, in the order of the given ids.     * @throws IllegalArgumentException if {@code ids} is {@literal null}.     */    List<T> findAllById(Collection<K> ids, SourceFilter sourceFilter);    /**     * Saves a given entity. Use the returned instance for further operations as the save operation might have changed the     * entity instance completely.     *     * @param entity must not be {@literal null}.     * @return the saved entity will never be {@literal null}.     */    T save(T entity);    /**     * Saves all given entities.     *     * @param entities must not be {@literal null}.     * @return the saved entities will never be {@literal null}.     * @throws IllegalArgumentException in case the given entity is {@literal null}.     */    List<T> save(List<T> entities);    /**     * Buffered save mode : when enabled, {@link #save(Object)} buffers the entity in a     * {@link com.ydespreaux.shared.data.elasticsearch.BulkProcessor} instead of indexing it immediately.     *     * @return true if the buffered save mode is enabled.     */    boolean isBufferedSave();    /**     * Deletes the entity with the given id.     *     * @param id must not be {@literal null}.     * @throws IllegalArgumentException in case the given {@code id} is {@literal null}     */    void deleteById(K id);    /**     * Deletes a given entity.     *     * @param entity     * @throws IllegalArgumentException in case the given entity is {@literal null}.     */    void delete(T entity);    /**     * Deletes the given entities.     *     * @param entities     * @throws IllegalArgumentException in case the given {@link Iterable} is {@literal null}.     */    void deleteAll(List<T> entities);    /**     * Deletes all entities managed by the repository.     */    void deleteAll();    /**     *     */    void refresh();    /**     *     * @param query     * @return     */    List<T> search(QueryBuilder query, Sort sort);    /**     * Count the entities matching the given query, without reading them.     * @param query the query, null to count all the entities.     * @return     */    long count(QueryBuilder query);    /**     * Check if an entity matches the given query, without reading it.     * @param query     * @return     */    boolean exists(QueryBuilder query);    /**     * Search the entities, with only the fields of the given filter.     * @param query     * @param sort     * @param sourceFilter the fields of the _source to return and the doc value or stored fields to read.     * @return     */    List<T> search(QueryBuilder query, Sort sort, SourceFilter sourceFilter);    /**     * Search the entities and map them onto the given projection : only the properties of a class or of a closed     * interface are returned by elasticsearch.     * @param query     * @param sort     * @param projection the projection, a class or an interface.     * @param <R>     * @return     */    <R> List<R> search(QueryBuilder query, Sort sort, Class<R> projection);    /**     * Execute the given aggregations, without returning any hit.     * @param query     * @param aggregations     * @return the aggregations, by name.     */    MetricAggregation aggregate(QueryBuilder query, AggregationBuilder... aggregations);    /**     * Read all the buckets of the given composite aggregation, page by page.     * @param query     * @param aggregation the composite aggregation, with the size of the pages.     * @return the buckets, as a lazy {@link Stream}.     */    Stream<CompositeBucket> compositeAggregation(QueryBuilder query, CompositeAggregationBuilder aggregation);    /**     * Start new search with scroll api     * @param query     * @param pageable     * @return     */    ScrolledPage<T> search(QueryBuilder query, ScrolledPageable pageable);    /**     * Continue search with scroll api     * @param pageable     * @return     */    ScrolledPage<T> search(ScrolledPageable pageable);    /**     * Search a page with the search_after api : no search context is kept between two pages, the next page is     * requested with the cursor of the previous one.     * @param query     * @param pageable     * @return     */    SearchAfterPage<T> search(QueryBuilder query, SearchAfterPageable pageable);    /**     *     * @param scrollId     */    void clearSearch(String scrollId);    /**     * Read all the entities matching the given query as a lazy {@link Stream}, with scroll pages of     * {@link #DEFAULT_STREAM_PAGE_SIZE} entities. The scroll is cleared after the last page or when the stream is     * closed.     *     * @param query the query.     * @param sort  the sort, may be null.     * @return the entities found.     */    Stream<T> stream(QueryBuilder query, Sort sort);    /**     * Read all the entities matching the given query as a lazy {@link Stream}, with the page size and scroll time of     * the given pageable. The scroll is cleared after the last page or when the stream is closed.     *     * @param query    the query.     * @param pageable the page size, sort and scroll time.     * @return the entities found.     */    Stream<T> stream(QueryBuilder query, ScrolledPageable pageable);}
\ No newline at end of file
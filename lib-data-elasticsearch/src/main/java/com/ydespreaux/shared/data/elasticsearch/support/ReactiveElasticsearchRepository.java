@@ -0,0 +1,98 @@
+package com.ydespreaux.shared.data.elasticsearch.support;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non blocking version of the {@link ElasticsearchRepository}.
+ *
+ * @param <T> the type of the entity.
+ * @param <K> the type of the id.
+ */
+public interface ReactiveElasticsearchRepository<T, K> {
+
+    /**
+     * Retrieves an entity by its id.
+     *
+     * @param id must not be {@literal null}.
+     * @return the entity with the given id or an empty {@link Mono} if none found.
+     */
+    Mono<T> findById(K id);
+
+    /**
+     * @param id must not be {@literal null}.
+     * @return true if an entity with the given id exists.
+     */
+    Mono<Boolean> existsById(K id);
+
+    /**
+     * Saves a given entity.
+     *
+     * @param entity must not be {@literal null}.
+     * @return the saved entity.
+     */
+    Mono<T> save(T entity);
+
+    /**
+     * Saves all given entities in one bulk request.
+     *
+     * @param entities must not be {@literal null}.
+     * @return the saved entities.
+     */
+    Flux<T> save(List<T> entities);
+
+    /**
+     * Deletes the entity with the given id.
+     *
+     * @param id must not be {@literal null}.
+     * @return completes when the entity is deleted.
+     */
+    Mono<Void> deleteById(K id);
+
+    /**
+     * Deletes a given entity.
+     *
+     * @param entity must not be {@literal null}.
+     * @return completes when the entity is deleted.
+     */
+    Mono<Void> delete(T entity);
+
+    /**
+     * @return completes when the indices are refreshed.
+     */
+    Mono<Void> refresh();
+
+    /**
+     * @param query the query.
+     * @param sort  the sort, may be null.
+     * @return the entities found.
+     */
+    Flux<T> search(QueryBuilder query, Sort sort);
+
+    /**
+     * Read all the entities matching the given query with a scroll, see
+     * {@link com.ydespreaux.shared.data.elasticsearch.ReactiveElasticsearchOperations#scroll}.
+     *
+     * @param query               the query.
+     * @param sort                the sort, may be null.
+     * @param pageSize            the size of the scroll pages.
+     * @param scrollTimeInMinutes the keep alive of the scroll.
+     * @return the entities found.
+     */
+    Flux<T> scroll(QueryBuilder query, Sort sort, int pageSize, long scrollTimeInMinutes);
+
+    /**
+     * Read all the entities matching the given query with a scroll, with pages of
+     * {@link ElasticsearchRepository#DEFAULT_STREAM_PAGE_SIZE} entities. The next page is read while the subscriber
+     * consumes the current one.
+     *
+     * @param query the query.
+     * @param sort  the sort, may be null.
+     * @return the entities found.
+     */
+    Flux<T> stream(QueryBuilder query, Sort sort);
+}
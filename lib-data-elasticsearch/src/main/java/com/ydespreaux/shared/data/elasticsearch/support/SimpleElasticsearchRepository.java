@@ -1 +1 @@
-package com.ydespreaux.shared.data.elasticsearch.support;import com.ydespreaux.shared.data.elasticsearch.ElasticsearchOperations;/** * * @param <T> */public class SimpleElasticsearchRepository<T> extends AbstractElasticsearchRepository<T, String> {    /**     *     * @param entityClass     * @param elasticsearchOperations     */    public SimpleElasticsearchRepository(Class<T> entityClass, ElasticsearchOperations elasticsearchOperations) {        super(entityClass, elasticsearchOperations);    }    /**     * @param id     * @return     */    @Override    protected String stringIdRepresentation(String id) {        return id;    }}
\ No newline at end of file
+package com.ydespreaux.shared.data.elasticsearch.support;import com.ydespreaux.shared.data.elasticsearch.BulkProcessor;import com.ydespreaux.shared.data.elasticsearch.ElasticsearchOperations;/** * * @param <T> */public class SimpleElasticsearchRepository<T> extends AbstractElasticsearchRepository<T, String> {    /**     *     * @param entityClass     * @param elasticsearchOperations     */    public SimpleElasticsearchRepository(Class<T> entityClass, ElasticsearchOperations elasticsearchOperations) {        super(entityClass, elasticsearchOperations);    }    /**     *     * @param entityClass     * @param elasticsearchOperations     * @param bulkProcessor     */    public SimpleElasticsearchRepository(Class<T> entityClass, ElasticsearchOperations elasticsearchOperations, BulkProcessor bulkProcessor) {        super(entityClass, elasticsearchOperations, bulkProcessor);    }    /**     * @param id     * @return     */    @Override    protected String stringIdRepresentation(String id) {        return id;    }}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.ydespreaux.shared.data.elasticsearch.support;
+
+import com.ydespreaux.shared.data.elasticsearch.ReactiveElasticsearchOperations;
+
+/**
+ *
+ * @param <T>
+ */
+public class SimpleReactiveElasticsearchRepository<T> extends AbstractReactiveElasticsearchRepository<T, String> {
+
+    /**
+     *
+     * @param entityClass
+     * @param elasticsearchOperations
+     */
+    public SimpleReactiveElasticsearchRepository(Class<T> entityClass, ReactiveElasticsearchOperations elasticsearchOperations) {
+        super(entityClass, elasticsearchOperations);
+    }
+
+    /**
+     * @param id
+     * @return
+     */
+    @Override
+    protected String stringIdRepresentation(String id) {
+        return id;
+    }
+}
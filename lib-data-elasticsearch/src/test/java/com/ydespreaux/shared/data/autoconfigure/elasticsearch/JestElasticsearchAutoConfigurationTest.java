@@ -0,0 +1,148 @@
+package com.ydespreaux.shared.data.autoconfigure.elasticsearch;
+
+import com.ydespreaux.shared.data.elasticsearch.client.ElasticsearchJestClientFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.config.HttpClientConfig;
+import org.apache.http.client.config.RequestConfig;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link JestElasticsearchAutoConfiguration}.
+ */
+@RunWith(SpringRunner.class)
+public class JestElasticsearchAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(JestElasticsearchAutoConfiguration.class,
+                    JestElasticsearchDataAutoConfiguration.class));
+
+    @Test
+    public void client_httpClientPropertiesBound() {
+        this.contextRunner
+                .withUserConfiguration(RecordingFactoryConfiguration.class)
+                .withPropertyValues(
+                        "spring.elasticsearch.jest.http-client.max-total-connection=200",
+                        "spring.elasticsearch.jest.http-client.default-max-total-connection-per-route=50",
+                        "spring.elasticsearch.jest.http-client.max-connection-idle-time=20s",
+                        "spring.elasticsearch.jest.http-client.keep-alive=30s",
+                        "spring.elasticsearch.jest.http-client.connection-time-to-live=5m",
+                        "spring.elasticsearch.jest.http-client.connection-request-timeout=2s",
+                        "spring.elasticsearch.jest.http-client.compression.requests=true",
+                        "spring.elasticsearch.jest.http-client.non-blocking.io-thread-count=2",
+                        "spring.elasticsearch.jest.http-client.non-blocking.max-in-flight-requests-per-node=8")
+                .run(context -> {
+                    RecordingFactory factory = context.getBean(RecordingFactory.class);
+                    assertThat(factory.keepAlive, is(Duration.ofSeconds(30)));
+                    assertThat(factory.connectionTimeToLive, is(Duration.ofMinutes(5)));
+                    assertThat(factory.getRequestConfig().getConnectionRequestTimeout(), is(2000));
+                    assertThat(factory.ioThreadCount, is(2));
+                    assertThat(factory.maxInFlightRequestsPerNode, is(8));
+                    HttpClientConfig config = factory.getHttpClientConfig();
+                    assertThat(config.getMaxTotalConnection(), is(200));
+                    assertThat(config.getDefaultMaxTotalConnectionPerRoute(), is(50));
+                    assertThat(config.getMaxConnectionIdleTimeDurationTimeUnit().toMillis(config.getMaxConnectionIdleTime()), is(20000L));
+                    assertThat(config.isRequestCompressionEnabled(), is(true));
+                    context.getBean(JestClient.class).close();
+                });
+    }
+
+    @Test
+    public void connectionPoolMetrics_elasticsearchJestClient() {
+        this.contextRunner
+                .withUserConfiguration(MeterRegistryConfiguration.class)
+                .run(context -> {
+                    assertThat(context.getBeansOfType(MeterBinder.class).containsKey("elasticsearchConnectionPoolMetrics"), is(true));
+                    context.getBean(JestClient.class).close();
+                });
+    }
+
+    @Test
+    public void connectionPoolMetrics_otherJestClient() {
+        this.contextRunner
+                .withUserConfiguration(MeterRegistryConfiguration.class, JestClientConfiguration.class)
+                .run(context -> assertThat(context.getBeansOfType(MeterBinder.class).containsKey("elasticsearchConnectionPoolMetrics"), is(false)));
+    }
+
+    @Configuration
+    static class RecordingFactoryConfiguration {
+
+        @Bean
+        public RecordingFactory jestClientFactory() {
+            return new RecordingFactory();
+        }
+    }
+
+    @Configuration
+    static class MeterRegistryConfiguration {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Configuration
+    static class JestClientConfiguration {
+
+        @Bean
+        public JestClient jestClient() {
+            return mock(JestClient.class);
+        }
+    }
+
+    static class RecordingFactory extends ElasticsearchJestClientFactory {
+        private Duration connectionTimeToLive;
+        private Duration keepAlive;
+        private Integer ioThreadCount;
+        private Integer maxInFlightRequestsPerNode;
+
+        @Override
+        public void setConnectionTimeToLive(Duration connectionTimeToLive) {
+            super.setConnectionTimeToLive(connectionTimeToLive);
+            this.connectionTimeToLive = connectionTimeToLive;
+        }
+
+        @Override
+        public void setKeepAlive(Duration keepAlive) {
+            super.setKeepAlive(keepAlive);
+            this.keepAlive = keepAlive;
+        }
+
+        @Override
+        public void setIoThreadCount(Integer ioThreadCount) {
+            super.setIoThreadCount(ioThreadCount);
+            this.ioThreadCount = ioThreadCount;
+        }
+
+        @Override
+        public void setMaxInFlightRequestsPerNode(Integer maxInFlightRequestsPerNode) {
+            super.setMaxInFlightRequestsPerNode(maxInFlightRequestsPerNode);
+            this.maxInFlightRequestsPerNode = maxInFlightRequestsPerNode;
+        }
+
+        @Override
+        protected RequestConfig getRequestConfig() {
+            return super.getRequestConfig();
+        }
+
+        @Override
+        protected HttpClientConfig getHttpClientConfig() {
+            return super.getHttpClientConfig();
+        }
+    }
+}
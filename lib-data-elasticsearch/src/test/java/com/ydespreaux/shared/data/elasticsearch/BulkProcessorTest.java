@@ -0,0 +1,189 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import com.google.gson.Gson;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingIndex;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link BulkProcessor}.
+ */
+@RunWith(SpringRunner.class)
+public class BulkProcessorTest {
+
+    private ElasticsearchAdminOperations operations;
+
+    private RecordingListener listener;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        this.operations = mock(ElasticsearchAdminOperations.class);
+        this.listener = new RecordingListener();
+        doAnswer(invocation -> {
+            JestResultHandler<BulkResult> handler = invocation.getArgument(1);
+            handler.completed(succeededResult());
+            return null;
+        }).when(this.operations).executeAsync(any(Bulk.class), any(JestResultHandler.class));
+        when(this.operations.execute(any(Bulk.class))).thenReturn(succeededResult());
+    }
+
+    @Test
+    public void flushOnNumberOfActions() {
+        BulkProcessor processor = BulkProcessor.builder(this.operations, this.listener)
+                .bulkActions(2)
+                .build();
+        processor.add(indexAction("1"));
+        assertThat(this.listener.sizes.size(), is(0));
+        processor.add(indexAction("2"));
+        processor.add(indexAction("3"));
+        assertThat(this.listener.sizes.size(), is(1));
+        assertThat(this.listener.sizes.get(0), is(2));
+        assertThat(processor.getNumberOfActions(), is(1));
+        processor.close();
+        assertThat(this.listener.sizes.size(), is(2));
+        assertThat(this.listener.sizes.get(1), is(1));
+    }
+
+    @Test
+    public void flushOnSize() {
+        BulkProcessor processor = BulkProcessor.builder(this.operations, this.listener)
+                .bulkActions(-1)
+                .bulkSize(200)
+                .build();
+        processor.add(indexAction("1"));
+        assertThat(this.listener.sizes.size(), is(0));
+        processor.add(new Index.Builder(repeat('x', 200)).index("index").type("doc").id("2").build());
+        assertThat(this.listener.sizes.size(), is(1));
+        assertThat(this.listener.sizes.get(0), is(2));
+        assertThat(processor.getNumberOfActions(), is(0));
+    }
+
+    @Test
+    public void flushOnSizeOfStreamingSource() {
+        BulkProcessor processor = BulkProcessor.builder(this.operations, this.listener)
+                .bulkActions(-1)
+                .bulkSize(200)
+                .build();
+        StreamingIndex action = spy((StreamingIndex) new StreamingIndex.Builder(Collections.singletonMap("name", repeat('x', 100)))
+                .index("index").type("doc").id("1").build());
+        processor.add(action);
+        assertThat(this.listener.sizes.size(), is(0));
+        processor.add(spy(new StreamingIndex.Builder(Collections.singletonMap("name", repeat('x', 100)))
+                .index("index").type("doc").id("2").build()));
+        assertThat(this.listener.sizes.size(), is(1));
+        assertThat(this.listener.sizes.get(0), is(2));
+        // the source is not serialized to a string to estimate its size
+        verify(action, never()).getData(any());
+    }
+
+    @Test
+    public void flushOnInterval() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        this.listener.latch = latch;
+        BulkProcessor processor = BulkProcessor.builder(this.operations, this.listener)
+                .bulkActions(-1)
+                .bulkSize(-1)
+                .flushInterval(Duration.ofMillis(50))
+                .build();
+        processor.add(new Delete.Builder("1").index("index").type("doc").build());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThat(this.listener.sizes.get(0), is(1));
+        processor.close();
+    }
+
+    @Test
+    public void synchronousExecution() throws InterruptedException {
+        BulkProcessor processor = BulkProcessor.builder(this.operations, this.listener)
+                .bulkActions(1)
+                .concurrentRequests(0)
+                .build();
+        processor.add(indexAction("1"));
+        verify(this.operations).execute(any(Bulk.class));
+        verify(this.operations, never()).executeAsync(any(Bulk.class), any());
+        assertTrue(processor.awaitClose(1, TimeUnit.SECONDS));
+        assertThat(this.listener.sizes.size(), is(1));
+    }
+
+    @Test
+    public void failureGivenToListener() {
+        RuntimeException failure = new RuntimeException("connection refused");
+        when(this.operations.execute(any(Bulk.class))).thenThrow(failure);
+        BulkProcessor processor = BulkProcessor.builder(this.operations, this.listener)
+                .bulkActions(1)
+                .concurrentRequests(0)
+                .build();
+        processor.add(indexAction("1"));
+        assertThat(this.listener.failures.size(), is(1));
+        assertSame(failure, this.listener.failures.get(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addAfterClose() {
+        BulkProcessor processor = BulkProcessor.builder(this.operations, this.listener).build();
+        processor.close();
+        processor.add(indexAction("1"));
+    }
+
+    private static Index indexAction(String id) {
+        return new Index.Builder("{\"name\":\"" + id + "\"}").index("index").type("doc").id(id).build();
+    }
+
+    private static BulkResult succeededResult() {
+        BulkResult result = new BulkResult(new Gson());
+        result.setSucceeded(true);
+        return result;
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.append('"').toString();
+    }
+
+    private static class RecordingListener implements BulkProcessor.Listener {
+
+        private final List<Integer> sizes = new CopyOnWriteArrayList<>();
+        private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+        private CountDownLatch latch;
+
+        @Override
+        public void beforeBulk(long executionId, List<BulkableAction> actions) {
+        }
+
+        @Override
+        public void afterBulk(long executionId, List<BulkableAction> actions, BulkResult response) {
+            this.sizes.add(actions.size());
+            if (this.latch != null) {
+                this.latch.countDown();
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, List<BulkableAction> actions, Throwable failure) {
+            this.failures.add(failure);
+        }
+    }
+}
@@ -0,0 +1,991 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.ydespreaux.shared.data.elasticsearch.aggregation.CompositeBucket;
+import com.ydespreaux.shared.data.elasticsearch.annotations.Document;
+import com.ydespreaux.shared.data.elasticsearch.cache.QueryCache;
+import com.ydespreaux.shared.data.elasticsearch.entities.Article;
+import com.ydespreaux.shared.data.elasticsearch.entities.Book;
+import com.ydespreaux.shared.data.elasticsearch.mapping.MappingElasticsearchConverter;
+import com.ydespreaux.shared.data.elasticsearch.metrics.MicrometerElasticsearchMetrics;
+import com.ydespreaux.shared.data.elasticsearch.msearch.MultiSearchBatch;
+import com.ydespreaux.shared.data.elasticsearch.msearch.SearchRequest;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.ClearScroll;
+import io.searchbox.core.Count;
+import io.searchbox.core.CountResult;
+import io.searchbox.core.BulkResult;
+import io.searchbox.client.config.ElasticsearchVersion;
+import io.searchbox.cluster.TasksInformation;
+import io.searchbox.core.Delete;
+import io.searchbox.core.DeleteByQuery;
+import io.searchbox.core.DocumentResult;
+import io.searchbox.core.Index;
+import io.searchbox.core.MultiGet;
+import io.searchbox.core.MultiSearch;
+import io.searchbox.core.MultiSearchResult;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchResult;
+import io.searchbox.core.SearchScroll;
+import io.searchbox.core.Update;
+import io.searchbox.indices.CreateIndex;
+import io.searchbox.indices.DeleteIndex;
+import io.searchbox.indices.IndicesExists;
+import io.searchbox.indices.Refresh;
+import io.searchbox.params.Parameters;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link JestElasticsearchTemplate} with a mocked {@link JestClient}.
+ */
+@RunWith(SpringRunner.class)
+public class JestElasticsearchTemplateTest {
+
+    private JestClient client;
+
+    private JestElasticsearchTemplate template;
+
+    @Before
+    public void setUp() {
+        this.client = mock(JestClient.class);
+        this.template = new JestElasticsearchTemplate(this.client, new MappingElasticsearchConverter(new StandardEnvironment()));
+        this.template.setBulkBackoffPolicy(BackoffPolicy.exponentialBackoff(Duration.ofMillis(1), 3));
+    }
+
+    @Test
+    public void bulkIndex_retryRejectedItems() throws Exception {
+        when(this.client.execute(any(Bulk.class)))
+                .thenReturn(bulkResult(200, "{\"errors\":true,\"items\":["
+                        + indexItem("1", 201, 1) + ","
+                        + rejectedItem("2") + "]}"))
+                .thenReturn(bulkResult(200, "{\"errors\":false,\"items\":[" + indexItem("2", 201, 1) + "]}"));
+
+        List<Book> books = Arrays.asList(createBook("1"), createBook("2"));
+        this.template.bulkIndex(books, Book.class);
+
+        ArgumentCaptor<Bulk> captor = ArgumentCaptor.forClass(Bulk.class);
+        verify(this.client, times(2)).execute(captor.capture());
+        String retriedData = captor.getAllValues().get(1).getData(new Gson());
+        assertTrue(retriedData.contains("\"_id\":\"2\""));
+        assertFalse(retriedData.contains("\"_id\":\"1\""));
+        assertThat(books.get(0).getVersion(), is(1));
+        assertThat(books.get(1).getVersion(), is(1));
+    }
+
+    @Test
+    public void bulk_partialFailure() throws Exception {
+        when(this.client.execute(any(Bulk.class)))
+                .thenReturn(bulkResult(200, "{\"errors\":true,\"items\":["
+                        + indexItem("1", 201, 3) + ","
+                        + "{\"index\":{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"2\",\"status\":400,"
+                        + "\"error\":{\"type\":\"mapper_parsing_exception\",\"reason\":\"failed to parse\"}}}]}"));
+
+        List<Book> books = Arrays.asList(createBook("1"), createBook("2"));
+        try {
+            this.template.bulkIndex(books, Book.class);
+            fail("BulkFailureException expected");
+        } catch (BulkFailureException e) {
+            BulkResponse response = e.getResponse();
+            assertThat(response.getItems().size(), is(2));
+            assertFalse(response.getItems().get(0).isFailed());
+            assertTrue(response.getItems().get(1).isFailed());
+            assertThat(response.getItems().get(1).getStatus(), is(400));
+            assertThat(response.getItems().get(1).getErrorType(), is("mapper_parsing_exception"));
+        }
+        verify(this.client, times(1)).execute(any(Bulk.class));
+        assertThat(books.get(0).getVersion(), is(3));
+        assertNull(books.get(1).getVersion());
+    }
+
+    @Test
+    public void bulk_rejectedAfterMaxRetries() throws Exception {
+        when(this.client.execute(any(Bulk.class)))
+                .thenReturn(bulkResult(200, "{\"errors\":true,\"items\":[" + rejectedItem("1") + "]}"));
+
+        BulkResponse response = this.template.bulk(Arrays.asList(this.template.prepareIndex(createBook("1"), Book.class)));
+
+        verify(this.client, times(4)).execute(any(Bulk.class));
+        assertTrue(response.hasFailures());
+        assertTrue(response.getItems().get(0).isRejected());
+    }
+
+    @Test
+    public void bulkIndex_requestRejectedAfterPartialWrite() throws Exception {
+        when(this.client.execute(any(Bulk.class)))
+                .thenReturn(bulkResult(200, "{\"errors\":true,\"items\":["
+                        + indexItem("1", 201, 1) + ","
+                        + rejectedItem("2") + "]}"))
+                .thenReturn(bulkResult(429, "{\"error\":{\"type\":\"es_rejected_execution_exception\",\"reason\":\"rejected execution\"},\"status\":429}"));
+
+        List<Book> books = Arrays.asList(createBook("1"), createBook("2"));
+        try {
+            this.template.bulkIndex(books, Book.class);
+            fail("BulkFailureException expected");
+        } catch (BulkFailureException e) {
+            BulkResponse response = e.getResponse();
+            assertThat(response.getItems().size(), is(2));
+            assertFalse(response.getItems().get(0).isFailed());
+            assertThat(response.getItems().get(0).getVersion(), is(1));
+            assertTrue(response.getItems().get(1).isRejected());
+            assertThat(response.getItems().get(1).getId(), is("2"));
+        }
+        verify(this.client, times(4)).execute(any(Bulk.class));
+        assertThat(books.get(0).getVersion(), is(1));
+    }
+
+    @Test
+    public void bulkIndexParallel() throws Exception {
+        when(this.client.execute(any(Bulk.class))).thenAnswer(invocation -> {
+            Bulk bulk = invocation.getArgument(0);
+            String data = bulk.getData(new Gson());
+            StringBuilder items = new StringBuilder();
+            for (String line : data.split("\n")) {
+                if (line.startsWith("{\"index\"")) {
+                    String id = line.replaceAll(".*\"_id\":\"([^\"]+)\".*", "$1");
+                    items.append(items.length() == 0 ? "" : ",").append("4".equals(id)
+                            ? "{\"index\":{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"4\",\"status\":400,\"error\":{\"type\":\"mapper_parsing_exception\",\"reason\":\"failed to parse\"}}}"
+                            : indexItem(id, 201, 1));
+                }
+            }
+            return bulkResult(200, "{\"errors\":" + data.contains("\"_id\":\"4\"") + ",\"items\":[" + items + "]}");
+        });
+
+        List<Book> books = Arrays.asList(createBook("1"), createBook("2"), createBook("3"), createBook("4"), createBook("5"));
+        BulkOptions options = BulkOptions.builder().batchSize(2).parallelism(2).queueCapacity(1).build();
+        try {
+            this.template.bulkIndexParallel(books.stream(), Book.class, options);
+            fail("BulkFailureException expected");
+        } catch (BulkFailureException e) {
+            assertThat(e.getResponse().getItems().size(), is(1));
+            assertThat(e.getResponse().getItems().get(0).getPosition(), is(3));
+            assertThat(e.getResponse().getItems().get(0).getId(), is("4"));
+        }
+        verify(this.client, times(3)).execute(any(Bulk.class));
+        assertThat(books.get(0).getVersion(), is(1));
+        assertThat(books.get(4).getVersion(), is(1));
+        assertNull(books.get(3).getVersion());
+
+        assertThat(this.template.bulkIndexParallel(Arrays.asList(createBook("6"), createBook("7")).iterator(), Book.class, options), is(2L));
+    }
+
+    @Test
+    public void bulk_groupedByIndex() throws Exception {
+        when(this.client.execute(any(Bulk.class)))
+                .thenReturn(bulkResult(200, "{\"errors\":false,\"items\":["
+                        + indexItem("2", 201, 1) + "," + indexItem("1", 201, 1) + "," + indexItem("3", 201, 1) + "]}"));
+
+        BulkResponse response = this.template.bulk(Arrays.asList(
+                new Index.Builder("{}").index("b").type("doc").id("1").build(),
+                new Index.Builder("{}").index("a").type("doc").id("2").build(),
+                new Index.Builder("{}").index("b").type("doc").id("3").build()));
+
+        ArgumentCaptor<Bulk> captor = ArgumentCaptor.forClass(Bulk.class);
+        verify(this.client).execute(captor.capture());
+        String data = captor.getValue().getData(new Gson());
+        assertTrue(data.indexOf("\"_id\":\"2\"") < data.indexOf("\"_id\":\"1\""));
+        assertThat(response.getItems().get(0).getId(), is("1"));
+        assertThat(response.getItems().get(1).getId(), is("2"));
+        assertThat(response.getItems().get(2).getId(), is("3"));
+    }
+
+    @Test
+    public void createIndexIfNotExists_onceByName() throws Exception {
+        JestResult notFound = new JestResult(new Gson());
+        notFound.setSucceeded(false);
+        JestResult succeeded = new JestResult(new Gson());
+        succeeded.setSucceeded(true);
+        when(this.client.execute(any(IndicesExists.class))).thenReturn(notFound);
+        when(this.client.execute(any(CreateIndex.class))).thenReturn(succeeded);
+
+        this.template.createIndexIfNotExists("article-e1-2018", Article.class);
+        this.template.createIndexIfNotExists("article-e1-2018", Article.class);
+        this.template.createIndexIfNotExists("article-e2-2018", Article.class);
+
+        verify(this.client, times(2)).execute(any(IndicesExists.class));
+        verify(this.client, times(2)).execute(any(CreateIndex.class));
+
+        when(this.client.execute(any(DeleteIndex.class))).thenReturn(succeeded);
+        this.template.deleteIndexByName("article-e1-2018");
+        this.template.createIndexIfNotExists("article-e1-2018", Article.class);
+        verify(this.client, times(3)).execute(any(CreateIndex.class));
+    }
+
+    @Test
+    public void createIndexIfNotExists_failedCreationRetried() throws Exception {
+        JestResult notFound = new JestResult(new Gson());
+        notFound.setSucceeded(false);
+        JestResult failed = jestResult("{\"error\":{\"type\":\"illegal_argument_exception\",\"reason\":\"bad mapping\"},\"status\":400}");
+        failed.setSucceeded(false);
+        JestResult alreadyExists = jestResult("{\"error\":{\"type\":\"resource_already_exists_exception\",\"reason\":\"exists\"},\"status\":400}");
+        alreadyExists.setSucceeded(false);
+        when(this.client.execute(any(IndicesExists.class))).thenReturn(notFound);
+        when(this.client.execute(any(CreateIndex.class))).thenReturn(failed).thenReturn(alreadyExists);
+
+        try {
+            this.template.createIndexIfNotExists("article-e1-2018", Article.class);
+            fail("ElasticsearchException expected");
+        } catch (ElasticsearchException e) {
+            // not remembered : tried again by the next call
+        }
+        // created by another client in the meantime
+        this.template.createIndexIfNotExists("article-e1-2018", Article.class);
+        this.template.createIndexIfNotExists("article-e1-2018", Article.class);
+
+        verify(this.client, times(2)).execute(any(CreateIndex.class));
+    }
+
+    @Test
+    public void deleteById_directDelete() throws Exception {
+        DocumentResult notFound = new DocumentResult(new Gson());
+        notFound.setSucceeded(false);
+        notFound.setResponseCode(404);
+        when(this.client.execute(any(Delete.class))).thenReturn(notFound);
+
+        this.template.deleteById("1", Book.class);
+
+        ArgumentCaptor<Delete> captor = ArgumentCaptor.forClass(Delete.class);
+        verify(this.client).execute(captor.capture());
+        assertThat(captor.getValue().getIndex(), is("books"));
+        assertThat(captor.getValue().getId(), is("1"));
+        verify(this.client, never()).execute(any(DeleteByQuery.class));
+    }
+
+    @Test
+    public void deleteAll_timeBasedResolvedFromHits() throws Exception {
+        SearchResult searchResult = new SearchResult(new Gson());
+        searchResult.setSucceeded(true);
+        searchResult.setJsonObject(new JsonParser().parse("{\"_scroll_id\":\"scroll-1\",\"hits\":{\"total\":3,\"hits\":["
+                + "{\"_index\":\"article-e1-2017\",\"_type\":\"article\",\"_id\":\"1\"},"
+                + "{\"_index\":\"article-e1-2018\",\"_type\":\"article\",\"_id\":\"1\"}]}}").getAsJsonObject());
+        when(this.client.execute(any(Search.class))).thenReturn(searchResult);
+        when(this.client.execute(any(SearchScroll.class))).thenReturn(jestResult("{\"_scroll_id\":\"scroll-1\",\"hits\":{\"total\":3,\"hits\":["
+                + "{\"_index\":\"article-e2-2018\",\"_type\":\"article\",\"_id\":\"2\"}]}}"));
+        when(this.client.execute(any(ClearScroll.class))).thenReturn(jestResult("{}"));
+        when(this.client.execute(any(Bulk.class))).thenReturn(bulkResult(200, "{\"errors\":false,\"items\":["
+                + "{\"delete\":{\"_index\":\"article-e1-2017\",\"_type\":\"article\",\"_id\":\"1\",\"status\":200}},"
+                + "{\"delete\":{\"_index\":\"article-e1-2018\",\"_type\":\"article\",\"_id\":\"1\",\"status\":200}},"
+                + "{\"delete\":{\"_index\":\"article-e2-2018\",\"_type\":\"article\",\"_id\":\"2\",\"status\":404}}]}"));
+
+        this.template.deleteAll(Arrays.asList(Article.builder().documentId("1").build(), Article.builder().documentId("2").build()), Article.class);
+
+        // scroll of the concrete indices, then bulk of deletes
+        List<Action> actions = executed(Action.class, 4);
+        assertTrue(actions.get(0) instanceof Search);
+        assertTrue(actions.get(0).getURI(ElasticsearchVersion.UNKNOWN).contains("scroll=1m"));
+        assertThat(executed(ClearScroll.class, 4).size(), is(1));
+        String data = executed(Bulk.class, 4).get(0).getData(new Gson());
+        assertTrue(data.contains("{\"delete\":{\"_id\":\"1\",\"_index\":\"article-e1-2017\""));
+        assertTrue(data.contains("{\"delete\":{\"_id\":\"1\",\"_index\":\"article-e1-2018\""));
+        assertTrue(data.contains("{\"delete\":{\"_id\":\"2\",\"_index\":\"article-e2-2018\""));
+        verify(this.client, never()).execute(any(DeleteByQuery.class));
+    }
+
+    @Test
+    public void findAllById_timeBasedIdsByBatches() throws Exception {
+        SearchResult searchResult = new SearchResult(new Gson());
+        searchResult.setSucceeded(true);
+        searchResult.setJsonObject(new JsonParser().parse("{\"hits\":{\"total\":1,\"hits\":["
+                + "{\"_index\":\"article-e1-2017\",\"_type\":\"article\",\"_id\":\"1\",\"_version\":2,\"_source\":{}}]}}").getAsJsonObject());
+        when(this.client.execute(any(Search.class))).thenReturn(searchResult);
+        List<String> ids = Stream.iterate(1, i -> i + 1).limit(2500).map(String::valueOf).collect(Collectors.toList());
+
+        List<Article> articles = this.template.findAllById(ids, Article.class);
+
+        assertThat(articles.size(), is(1));
+        assertThat(articles.get(0).getDocumentVersion(), is(2));
+        List<Search> searches = executed(Search.class, 3);
+        assertThat(searches.size(), is(3));
+        JsonObject last = new JsonParser().parse(searches.get(2).getData(new Gson())).getAsJsonObject();
+        assertThat(last.getAsJsonObject("query").getAsJsonObject("ids").getAsJsonArray("values").size(), is(500));
+    }
+
+    @Test
+    public void deleteAll_synchronousDeleteByQuery() throws Exception {
+        when(this.client.execute(any(DeleteByQuery.class))).thenReturn(jestResult("{\"took\":10,\"total\":2,\"deleted\":2,"
+                + "\"version_conflicts\":0,\"failures\":[]}"));
+
+        this.template.deleteAll(Book.class);
+
+        DeleteByQuery deleteByQuery = executed(DeleteByQuery.class, 1).get(0);
+        assertTrue(deleteByQuery.getURI(ElasticsearchVersion.UNKNOWN).contains("wait_for_completion=true"));
+        verify(this.client, never()).execute(any(TasksInformation.class));
+    }
+
+    @Test
+    public void deleteByQuery_pollTask() throws Exception {
+        when(this.client.execute(any(DeleteByQuery.class))).thenReturn(jestResult("{\"task\":\"node:42\"}"));
+        when(this.client.execute(any(TasksInformation.class)))
+                .thenReturn(jestResult("{\"completed\":false}"))
+                .thenReturn(jestResult("{\"completed\":true,\"response\":{\"took\":10,\"total\":3,\"deleted\":2,"
+                        + "\"version_conflicts\":1,\"failures\":[]}}"));
+
+        DeleteByQueryResponse response = this.template.deleteByQuery(QueryBuilders.matchAllQuery(), Book.class,
+                DeleteByQueryOptions.builder().slices(DeleteByQueryOptions.AUTO_SLICES).pollInterval(Duration.ofMillis(1)).build());
+
+        // delete by query, then 2 polls of the task
+        String uri = executed(DeleteByQuery.class, 3).get(0).getURI(ElasticsearchVersion.UNKNOWN);
+        assertTrue(uri.contains("conflicts=proceed"));
+        assertTrue(uri.contains("slices=auto"));
+        assertTrue(uri.contains("wait_for_completion=false"));
+        verify(this.client, times(2)).execute(any(TasksInformation.class));
+        assertThat(response.getDeleted(), is(2L));
+        assertThat(response.getVersionConflicts(), is(1L));
+        assertFalse(response.hasFailures());
+    }
+
+    @Test
+    public void findAllById_multiGet() throws Exception {
+        when(this.client.execute(any(MultiGet.class))).thenReturn(jestResult("{\"docs\":["
+                + "{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"3\",\"_version\":2,\"found\":true,\"_source\":{\"title\":\"t3\"}},"
+                + "{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"2\",\"found\":false},"
+                + "{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"1\",\"_version\":5,\"found\":true,\"_source\":{\"title\":\"t1\"}}]}"));
+
+        List<Book> books = this.template.findAllById(Arrays.asList("3", "2", "1"), Book.class, SourceFilter.includes("title"));
+
+        assertThat(books.size(), is(2));
+        assertThat(books.get(0).getDocumentId(), is("3"));
+        assertThat(books.get(0).getVersion(), is(2));
+        assertThat(books.get(0).getTitle(), is("t3"));
+        assertThat(books.get(1).getDocumentId(), is("1"));
+        assertThat(books.get(1).getVersion(), is(5));
+        ArgumentCaptor<MultiGet> captor = ArgumentCaptor.forClass(MultiGet.class);
+        verify(this.client).execute(captor.capture());
+        assertTrue(captor.getValue().getURI(ElasticsearchVersion.UNKNOWN).contains("_source_include=title"));
+        assertThat(captor.getValue().getData(new Gson()), is("{\"ids\":[\"3\",\"2\",\"1\"]}"));
+    }
+
+    @Test
+    public void findAllById_timeBasedIdsQuery() throws Exception {
+        SearchResult searchResult = new SearchResult(new Gson());
+        searchResult.setSucceeded(true);
+        searchResult.setJsonObject(new JsonParser().parse("{\"hits\":{\"total\":2,\"hits\":["
+                + "{\"_index\":\"article-e1-2018\",\"_type\":\"article\",\"_id\":\"2\",\"_version\":1,\"_source\":{\"name\":\"a2\"}},"
+                + "{\"_index\":\"article-e1-2017\",\"_type\":\"article\",\"_id\":\"1\",\"_version\":3,\"_source\":{\"name\":\"a1\"}}]}}").getAsJsonObject());
+        when(this.client.execute(any(Search.class))).thenReturn(searchResult);
+
+        List<Article> articles = this.template.findAllById(Arrays.asList("1", "2"), Article.class);
+
+        assertThat(articles.size(), is(2));
+        assertThat(articles.get(0).getName(), is("a1"));
+        assertThat(articles.get(0).getDocumentVersion(), is(3));
+        assertThat(articles.get(1).getDocumentId(), is("2"));
+        verify(this.client, never()).execute(any(MultiGet.class));
+    }
+
+    @Test
+    public void update_partialDocument() throws Exception {
+        when(this.client.execute(any(Update.class))).thenReturn(documentResult(200, "{\"_id\":\"1\",\"_version\":2,\"result\":\"updated\"}"));
+
+        long version = this.template.update("1", Collections.singletonMap("title", "new title"), Book.class);
+
+        assertThat(version, is(2L));
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(this.client).execute(captor.capture());
+        Update update = captor.getValue();
+        assertThat(update.getIndex(), is("books"));
+        assertThat(update.getId(), is("1"));
+        assertThat(update.getData(new Gson()), is("{\"doc\":{\"title\":\"new title\"}}"));
+        assertTrue(update.getParameter(Parameters.VERSION).isEmpty());
+    }
+
+    @Test
+    public void update_scriptWithRetryOnConflict() throws Exception {
+        when(this.client.execute(any(Update.class))).thenReturn(documentResult(200, "{\"_id\":\"1\",\"_version\":5,\"result\":\"updated\"}"));
+
+        this.template.update("1", new Script("ctx._source.count += 1"), 3, Book.class);
+
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(this.client).execute(captor.capture());
+        JsonObject data = new JsonParser().parse(captor.getValue().getData(new Gson())).getAsJsonObject();
+        assertThat(data.getAsJsonObject("script").get("source").getAsString(), is("ctx._source.count += 1"));
+        assertFalse(data.has("doc"));
+        assertTrue(captor.getValue().getParameter(Parameters.RETRY_ON_CONFLICT).contains(3));
+    }
+
+    @Test
+    public void update_missingTimeBasedDocumentNotFound() throws Exception {
+        SearchResult none = new SearchResult(new Gson());
+        none.setSucceeded(true);
+        none.setJsonObject(new JsonParser().parse("{\"hits\":{\"total\":0,\"hits\":[]}}").getAsJsonObject());
+        when(this.client.execute(any(Search.class))).thenReturn(none);
+        when(this.client.execute(any(Update.class))).thenReturn(documentResult(404, "{\"error\":{\"type\":\"index_not_found_exception\"},\"status\":404}"));
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("article", Collections.singletonMap(
+                "spring.elasticsearch.index-pattern.article", "'article-%s-'yyyy")));
+        this.template = new JestElasticsearchTemplate(this.client, new MappingElasticsearchConverter(environment));
+
+        try {
+            this.template.update("1", Collections.singletonMap("title", "new title"), Article.class);
+            fail("ElasticsearchException expected");
+        } catch (ElasticsearchException e) {
+            // not found
+        }
+        // the current index is not created for a document which doesn't exist
+        verify(this.client, never()).execute(any(IndicesExists.class));
+        verify(this.client, never()).execute(any(CreateIndex.class));
+        assertThat(executed(Update.class, 2).get(0).getIndex(), is("article-unknown-" + LocalDate.now().getYear()));
+    }
+
+    @Test
+    public void updateWithVersion_conflict() throws Exception {
+        when(this.client.execute(any(Update.class))).thenReturn(documentResult(409, "{\"error\":{\"type\":\"version_conflict_engine_exception\"},\"status\":409}"));
+        Book book = createBook("1");
+        book.setVersion(3);
+
+        try {
+            this.template.updateWithVersion(book, Collections.singletonMap("title", "new title"), Book.class);
+            fail("VersionConflictException expected");
+        } catch (VersionConflictException e) {
+            assertThat(e.getDocumentId(), is("1"));
+            assertThat(e.getExpectedVersion(), is(3L));
+        }
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(this.client).execute(captor.capture());
+        assertTrue(captor.getValue().getParameter(Parameters.VERSION).contains(3L));
+        assertThat(book.getVersion(), is(3));
+    }
+
+    @Test
+    public void bulkUpdate() throws Exception {
+        when(this.client.execute(any(Bulk.class)))
+                .thenReturn(bulkResult(200, "{\"errors\":false,\"items\":["
+                        + "{\"update\":{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"1\",\"_version\":2,\"status\":200}},"
+                        + "{\"update\":{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"2\",\"_version\":1,\"status\":201}}]}"));
+
+        BulkResponse response = this.template.bulkUpdate(Arrays.asList(
+                UpdateQuery.builder().documentId("1").partialDocument(Collections.singletonMap("title", "t1")).retryOnConflict(2).build(),
+                UpdateQuery.builder().documentId("2").partialDocument(Collections.singletonMap("title", "t2")).docAsUpsert(true).build()),
+                Book.class);
+
+        assertThat(response.getItems().size(), is(2));
+        assertThat(response.getItems().get(1).getVersion(), is(1));
+        ArgumentCaptor<Bulk> captor = ArgumentCaptor.forClass(Bulk.class);
+        verify(this.client).execute(captor.capture());
+        String data = captor.getValue().getData(new Gson());
+        assertTrue(data.contains("{\"update\":{\"_id\":\"1\",\"_index\":\"books\",\"_type\":\"book\",\"retry_on_conflict\":\"2\"}}"));
+        assertTrue(data.contains("{\"doc\":{\"title\":\"t2\"},\"doc_as_upsert\":true}"));
+    }
+
+    @Test
+    public void startScroll_metadataSetOnEntities() throws Exception {
+        SearchResult result = new SearchResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"_scroll_id\":\"scroll-1\",\"hits\":{\"total\":1,\"hits\":["
+                + "{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"1\",\"_version\":3,\"_source\":{\"title\":\"title 1\"},\"sort\":[1]}"
+                + "]}}").getAsJsonObject());
+        result.setPathToResult("hits/hits/_source");
+        when(this.client.execute(any(Search.class))).thenReturn(result);
+
+        ScrolledPage<Book> page = this.template.startScroll(1, 10, this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class), Book.class);
+
+        assertThat(page.getContent().size(), is(1));
+        Book book = page.getContent().get(0);
+        assertThat(book.getDocumentId(), is("1"));
+        assertThat(book.getVersion(), is(3));
+        assertThat(book.getTitle(), is("title 1"));
+        assertThat(page.getScrollId(), is("scroll-1"));
+    }
+
+    @Test
+    public void stream_lazyAndClearedOnClose() throws Exception {
+        when(this.client.execute(any(Search.class))).thenReturn(scrollPage(new SearchResult(new Gson()), "1", "2"));
+        when(this.client.execute(any(ClearScroll.class))).thenReturn(jestResult("{\"succeeded\":true}"));
+        Search.Builder builder = this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class);
+
+        try (Stream<Book> stream = this.template.stream(builder, 2, 1, Book.class)) {
+            verify(this.client, never()).execute(any());
+            assertThat(stream.findFirst().get().getTitle(), is("title 1"));
+        }
+
+        verify(this.client, never()).execute(any(SearchScroll.class));
+        verify(this.client, times(1)).execute(any(ClearScroll.class));
+    }
+
+    @Test
+    public void stream_allPages() throws Exception {
+        when(this.client.execute(any(Search.class))).thenReturn(scrollPage(new SearchResult(new Gson()), "1", "2"));
+        when(this.client.execute(any(SearchScroll.class)))
+                .thenReturn(scrollPage(new JestResult(new Gson()), "3"))
+                .thenReturn(scrollPage(new JestResult(new Gson())));
+        when(this.client.execute(any(ClearScroll.class))).thenReturn(jestResult("{\"succeeded\":true}"));
+        Search.Builder builder = this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class);
+
+        List<String> titles;
+        try (Stream<Book> stream = this.template.stream(builder, 2, 1, Book.class)) {
+            titles = stream.map(Book::getTitle).collect(Collectors.toList());
+        }
+
+        assertThat(titles, is(Arrays.asList("title 1", "title 2", "title 3")));
+        verify(this.client, times(2)).execute(any(SearchScroll.class));
+        verify(this.client, times(1)).execute(any(ClearScroll.class));
+    }
+
+    @Test
+    public void parallelScroll_oneScrollBySlice() throws Exception {
+        when(this.client.execute(any(Search.class))).thenAnswer(invocation -> {
+            String data = ((Search) invocation.getArgument(0)).getData(new Gson());
+            int slice = new JsonParser().parse(data).getAsJsonObject().getAsJsonObject("slice").get("id").getAsInt();
+            return scrollPage(new SearchResult(new Gson()), slice + "-1", slice + "-2");
+        });
+        when(this.client.execute(any(SearchScroll.class))).thenAnswer(invocation -> scrollPage(new JestResult(new Gson())));
+        when(this.client.execute(any(ClearScroll.class))).thenReturn(jestResult("{\"succeeded\":true}"));
+        List<String> titles = new CopyOnWriteArrayList<>();
+
+        long count = this.template.parallelScroll(QueryBuilders.matchAllQuery(), Book.class, 3,
+                books -> books.forEach(book -> titles.add(book.getTitle())));
+
+        assertThat(count, is(6L));
+        assertThat(titles.size(), is(6));
+        assertTrue(titles.containsAll(Arrays.asList("title 0-1", "title 1-2", "title 2-1")));
+        // by slice : a search, a scroll and a clear scroll
+        List<Search> searches = executed(Search.class, 9);
+        assertThat(searches.size(), is(3));
+        assertThat(searches.stream()
+                .map(search -> new JsonParser().parse(search.getData(new Gson())).getAsJsonObject().getAsJsonObject("slice"))
+                .peek(slice -> assertThat(slice.get("max").getAsInt(), is(3)))
+                .map(slice -> slice.get("id").getAsInt())
+                .collect(Collectors.toSet()), is(new HashSet<>(Arrays.asList(0, 1, 2))));
+        assertThat(executed(SearchScroll.class, 9).size(), is(3));
+        assertThat(executed(ClearScroll.class, 9).size(), is(3));
+    }
+
+    @Test
+    public void searchAfter_nextPageStartsAfterTheCursor() throws Exception {
+        when(this.client.execute(any(Search.class)))
+                .thenReturn(searchAfterPage("{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"1\",\"_source\":{\"title\":\"title 1\"},\"sort\":[10.5,\"1\"]}",
+                        "{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"2\",\"_source\":{\"title\":\"title 2\"},\"sort\":[1546300800000,\"2\"]}"))
+                .thenReturn(searchAfterPage("{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"3\",\"_source\":{\"title\":\"title 3\"},\"sort\":[1546300800001,\"3\"]}"));
+        SearchAfterPageable pageable = SearchAfterPageable.of(2, Sort.by("price"));
+
+        SearchAfterPage<Book> first = this.template.searchAfter(QueryBuilders.matchAllQuery(), pageable, Book.class);
+        SearchAfterPage<Book> last = this.template.searchAfter(QueryBuilders.matchAllQuery(), pageable.next(first.getNextCursor()), Book.class);
+
+        assertThat(first.getContent().size(), is(2));
+        assertTrue(first.hasNext());
+        assertThat(last.getContent().get(0).getTitle(), is("title 3"));
+        assertFalse(last.hasNext());
+        ArgumentCaptor<Search> captor = ArgumentCaptor.forClass(Search.class);
+        verify(this.client, times(2)).execute(captor.capture());
+        JsonObject firstRequest = new JsonParser().parse(captor.getAllValues().get(0).getData(new Gson())).getAsJsonObject();
+        assertThat(firstRequest.getAsJsonArray("sort").size(), is(2));
+        assertNull(firstRequest.get("search_after"));
+        JsonObject nextRequest = new JsonParser().parse(captor.getAllValues().get(1).getData(new Gson())).getAsJsonObject();
+        assertThat(nextRequest.getAsJsonArray("search_after").get(0).getAsLong(), is(1546300800000L));
+        assertThat(nextRequest.getAsJsonArray("search_after").get(1).getAsString(), is("2"));
+    }
+
+    @Test
+    public void searchAfter_documentTieBreaker() throws Exception {
+        when(this.client.execute(any(Search.class)))
+                .thenReturn(searchAfterPage("{\"_index\":\"orders\",\"_type\":\"order\",\"_id\":\"1\",\"_source\":{\"uuid\":\"a\"},\"sort\":[10.5,\"a\"]}"));
+
+        this.template.searchAfter(QueryBuilders.matchAllQuery(), SearchAfterPageable.of(2, Sort.by("price")), Order.class);
+        this.template.searchAfter(QueryBuilders.matchAllQuery(), SearchAfterPageable.of(2, Sort.by("price", "uuid")), Order.class);
+
+        List<Search> searches = executed(Search.class, 2);
+        JsonObject request = new JsonParser().parse(searches.get(0).getData(new Gson())).getAsJsonObject();
+        assertThat(request.getAsJsonArray("sort").size(), is(2));
+        assertTrue(request.getAsJsonArray("sort").get(1).getAsJsonObject().has("uuid"));
+        // already unique
+        request = new JsonParser().parse(searches.get(1).getData(new Gson())).getAsJsonObject();
+        assertThat(request.getAsJsonArray("sort").size(), is(2));
+        assertFalse(request.toString().contains("_id"));
+    }
+
+    @Test
+    public void searchForProjection_onlyProjectedFields() throws Exception {
+        SearchResult result = new SearchResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"hits\":{\"total\":1,\"hits\":["
+                + "{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"1\",\"_source\":{\"title\":\"title 1\"},\"fields\":{\"price\":[12.5]}}"
+                + "]}}").getAsJsonObject());
+        when(this.client.execute(any(Search.class))).thenReturn(result);
+        SourceFilter sourceFilter = this.template.getProjectionSourceFilter(BookTitle.class).get().withDocValueFields("price");
+
+        List<BookTitle> titles = this.template.searchForProjection(
+                this.template.prepareSearch(QueryBuilders.matchAllQuery(), sourceFilter, Book.class).build(), BookTitle.class);
+        List<BookSummary> summaries = this.template.searchForProjection(
+                this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class).build(), BookSummary.class);
+
+        assertThat(titles.get(0).getTitle(), is("title 1"));
+        assertThat(titles.get(0).getPrice(), is(12.5));
+        assertThat(summaries.get(0).title, is("title 1"));
+        assertThat(summaries.get(0).price, is(12.5));
+        ArgumentCaptor<Search> captor = ArgumentCaptor.forClass(Search.class);
+        verify(this.client, times(2)).execute(captor.capture());
+        JsonObject request = new JsonParser().parse(captor.getAllValues().get(0).getData(new Gson())).getAsJsonObject();
+        assertThat(request.getAsJsonObject("_source").getAsJsonArray("includes").size(), is(2));
+        assertThat(request.getAsJsonArray("docvalue_fields").get(0).getAsString(), is("price"));
+    }
+
+    @Test
+    public void multiSearchBatch_oneRequestForAllTheSearches() throws Exception {
+        MultiSearchResult result = new MultiSearchResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"responses\":["
+                + "{\"hits\":{\"total\":1,\"hits\":[{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"1\",\"_source\":{\"title\":\"title 1\"}}]}},"
+                + "{\"error\":{\"type\":\"query_shard_exception\",\"reason\":\"failed to create query\"},\"status\":400}"
+                + "]}").getAsJsonObject());
+        when(this.client.execute(any(MultiSearch.class))).thenReturn(result);
+        MultiSearchBatch batch = new MultiSearchBatch(this.template);
+
+        Supplier<List<Book>> books = batch.add(QueryBuilders.matchAllQuery(), Book.class);
+        Supplier<List<Book>> failed = batch.add(QueryBuilders.termQuery("price", "abc"), Book.class);
+
+        verify(this.client, never()).execute(any());
+        assertThat(books.get().get(0).getDocumentId(), is("1"));
+        try {
+            failed.get();
+            fail("ElasticsearchException expected");
+        } catch (ElasticsearchException e) {
+            assertThat(e.getMessage(), is("failed to create query"));
+        }
+        verify(this.client, times(1)).execute(any(MultiSearch.class));
+        assertThat(batch.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void compositeAggregation_pagesAfterTheLastKey() throws Exception {
+        when(this.client.execute(any(Search.class)))
+                .thenReturn(aggregationPage("{\"key\":{\"title\":\"a\"},\"doc_count\":2}", "{\"key\":{\"title\":\"b\"},\"doc_count\":1}"))
+                .thenReturn(aggregationPage("{\"key\":{\"title\":\"c\"},\"doc_count\":3}"))
+                .thenReturn(aggregationPage());
+        CompositeAggregationBuilder aggregation = new CompositeAggregationBuilder("titles",
+                Collections.singletonList(new TermsValuesSourceBuilder("title").field("title"))).size(2)
+                .subAggregation(AggregationBuilders.max("price").field("price"));
+        String definition = Strings.toString(aggregation);
+
+        List<CompositeBucket> buckets;
+        try (Stream<CompositeBucket> stream = this.template.compositeAggregation(QueryBuilders.matchAllQuery(), aggregation, Book.class)) {
+            buckets = stream.collect(Collectors.toList());
+        }
+
+        assertThat(buckets.size(), is(3));
+        assertThat(buckets.get(2).getKey().get("title"), is("c"));
+        assertThat(buckets.get(2).getDocCount(), is(3L));
+        ArgumentCaptor<Search> captor = ArgumentCaptor.forClass(Search.class);
+        verify(this.client, times(3)).execute(captor.capture());
+        assertTrue(captor.getAllValues().get(0).getURI(ElasticsearchVersion.UNKNOWN).contains("request_cache=true"));
+        JsonObject first = new JsonParser().parse(captor.getAllValues().get(0).getData(new Gson())).getAsJsonObject();
+        assertThat(first.get("size").getAsInt(), is(0));
+        assertNull(first.getAsJsonObject("aggregations").getAsJsonObject("titles").getAsJsonObject("composite").get("after"));
+        JsonObject last = new JsonParser().parse(captor.getAllValues().get(2).getData(new Gson())).getAsJsonObject();
+        assertThat(last.getAsJsonObject("aggregations").getAsJsonObject("titles").getAsJsonObject("composite")
+                .getAsJsonObject("after").get("title").getAsString(), is("c"));
+        assertThat(last.getAsJsonObject("aggregations").getAsJsonObject("titles").getAsJsonObject("composite").get("size").getAsInt(), is(2));
+        assertTrue(last.getAsJsonObject("aggregations").getAsJsonObject("titles").getAsJsonObject("aggregations").has("price"));
+        // the aggregation of the caller is not modified
+        assertThat(Strings.toString(aggregation), is(definition));
+    }
+
+    @Test
+    public void count_withCountApi() throws Exception {
+        CountResult result = new CountResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"count\":42,\"_shards\":{\"total\":5}}").getAsJsonObject());
+        result.setPathToResult("count");
+        when(this.client.execute(any(Count.class))).thenReturn(result);
+
+        assertThat(this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class), is(42L));
+
+        ArgumentCaptor<Count> captor = ArgumentCaptor.forClass(Count.class);
+        verify(this.client).execute(captor.capture());
+        assertTrue(captor.getValue().getURI(ElasticsearchVersion.UNKNOWN).startsWith("books/book/_count"));
+        assertTrue(captor.getValue().getData(new Gson()).contains("\"term\""));
+    }
+
+    @Test
+    public void exists_withoutHits() throws Exception {
+        SearchResult result = new SearchResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"terminated_early\":true,\"hits\":{\"total\":1,\"hits\":[]}}").getAsJsonObject());
+        when(this.client.execute(any(Search.class))).thenReturn(result);
+
+        assertTrue(this.template.exists(QueryBuilders.termQuery("title", "t1"), Book.class));
+
+        ArgumentCaptor<Search> captor = ArgumentCaptor.forClass(Search.class);
+        verify(this.client).execute(captor.capture());
+        JsonObject request = new JsonParser().parse(captor.getValue().getData(new Gson())).getAsJsonObject();
+        assertThat(request.get("size").getAsInt(), is(0));
+        assertThat(request.get("terminate_after").getAsInt(), is(1));
+    }
+
+    @Test
+    public void count_withQueryCache() throws Exception {
+        this.template.setQueryCache(new QueryCache(1024, Collections.singletonMap("Book", Duration.ofMinutes(1))));
+        CountResult result = new CountResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"count\":42}").getAsJsonObject());
+        result.setPathToResult("count");
+        when(this.client.execute(any(Count.class))).thenReturn(result);
+        when(this.client.execute(any(Refresh.class))).thenReturn(jestResult("{}"));
+
+        assertThat(this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class), is(42L));
+        assertThat(this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class), is(42L));
+        verify(this.client, times(1)).execute(any(Count.class));
+
+        this.template.count(QueryBuilders.termQuery("title", "t2"), Book.class);
+        this.template.count(QueryBuilders.termQuery("title", "t1"), Article.class);
+        verify(this.client, times(3)).execute(any(Count.class));
+
+        this.template.refresh(Book.class);
+        this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class);
+        verify(this.client, times(4)).execute(any(Count.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void executeAsync_futureCompletedByTheClient() throws Exception {
+        doAnswer(invocation -> {
+            ((JestResultHandler<JestResult>) invocation.getArgument(1)).completed(jestResult("{\"acknowledged\":true}"));
+            return null;
+        }).doAnswer(invocation -> {
+            ((JestResultHandler<JestResult>) invocation.getArgument(1)).failed(new IOException("Connection refused"));
+            return null;
+        }).when(this.client).executeAsync(any(Action.class), any(JestResultHandler.class));
+
+        assertThat(this.template.executeAsync(new Refresh.Builder().build()).get().isSucceeded(), is(true));
+        try {
+            this.template.executeAsync(new Refresh.Builder().build()).get();
+            fail("The request must fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(ElasticsearchException.class)));
+        }
+    }
+
+    @Test
+    public void count_withQueryCacheInvalidatedByRawWrite() throws Exception {
+        this.template.setQueryCache(new QueryCache(1024, Collections.singletonMap("Book", Duration.ofMinutes(1)), Duration.ZERO));
+        CountResult result = new CountResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"count\":42}").getAsJsonObject());
+        result.setPathToResult("count");
+        when(this.client.execute(any(Count.class))).thenReturn(result);
+        when(this.client.execute(any(Bulk.class))).thenReturn(new BulkResult(new Gson()));
+
+        this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class);
+        this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class);
+        verify(this.client, times(1)).execute(any(Count.class));
+
+        this.template.execute(new Bulk.Builder().addAction(new Delete.Builder("1").index("books").type("book").build()).build());
+        this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class);
+        this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class);
+        verify(this.client, times(2)).execute(any(Count.class));
+    }
+
+    @Test
+    public void count_withQueryCacheNotCachedDuringRefreshInterval() throws Exception {
+        this.template.setQueryCache(new QueryCache(1024, Collections.singletonMap("Book", Duration.ofMinutes(1)), Duration.ofMinutes(1)));
+        CountResult result = new CountResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"count\":42}").getAsJsonObject());
+        result.setPathToResult("count");
+        when(this.client.execute(any(Count.class))).thenReturn(result);
+        when(this.client.execute(any(Refresh.class))).thenReturn(jestResult("{}"));
+
+        this.template.refresh(Book.class);
+        this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class);
+        this.template.count(QueryBuilders.termQuery("title", "t1"), Book.class);
+        verify(this.client, times(2)).execute(any(Count.class));
+    }
+
+    @Test
+    public void startScroll_withMetrics() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        this.template.setMetrics(new MicrometerElasticsearchMetrics(registry));
+        SearchResult result = scrollPage(new SearchResult(new Gson()), "1", "2");
+        result.getJsonObject().addProperty("took", 12);
+        when(this.client.execute(any(Search.class))).thenReturn(result);
+        when(this.client.execute(any(ClearScroll.class))).thenReturn(jestResult("{\"succeeded\":true}"));
+
+        this.template.startScroll(1, 2, this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class), Book.class);
+
+        Timer requests = registry.get("elasticsearch.client.requests")
+                .tags("operation", "search", "entity", "Book", "index", "books", "outcome", "success").timer();
+        assertThat(requests.count(), is(1L));
+        assertThat(registry.get("elasticsearch.client.took").tag("operation", "search").timer().totalTime(TimeUnit.MILLISECONDS), is(12.0));
+        assertThat(registry.get("elasticsearch.client.hits").summary().totalAmount(), is(2.0));
+        assertThat(registry.get("elasticsearch.client.scrolls.open").gauge().value(), is(1.0));
+
+        this.template.clearScroll("scroll-1");
+        assertThat(registry.get("elasticsearch.client.scrolls.open").gauge().value(), is(0.0));
+        assertThat(registry.get("elasticsearch.client.requests").tags("operation", "clearScroll", "entity", "none").timer().count(), is(1L));
+    }
+
+    @Test
+    public void execute_withMetricsRawActionNotTaggedByIndex() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        this.template.setMetrics(new MicrometerElasticsearchMetrics(registry));
+        when(this.client.execute(any(DeleteIndex.class))).thenReturn(jestResult("{\"acknowledged\":true}"));
+
+        this.template.execute(new DeleteIndex.Builder("article-2018").build());
+
+        assertThat(registry.get("elasticsearch.client.requests")
+                .tags("operation", "deleteIndex", "entity", "none", "index", "none").timer().count(), is(1L));
+        assertThat(registry.find("elasticsearch.client.request.size").summary(), is(nullValue()));
+    }
+
+    @Test
+    public void execute_withMetricsProjectionAndMultiSearchTaggedByEntity() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        this.template.setMetrics(new MicrometerElasticsearchMetrics(registry));
+        SearchResult searchResult = new SearchResult(new Gson());
+        searchResult.setSucceeded(true);
+        searchResult.setJsonObject(new JsonParser().parse("{\"hits\":{\"total\":0,\"hits\":[]}}").getAsJsonObject());
+        when(this.client.execute(any(Search.class))).thenReturn(searchResult);
+        MultiSearchResult multiSearchResult = new MultiSearchResult(new Gson());
+        multiSearchResult.setSucceeded(true);
+        multiSearchResult.setJsonObject(new JsonParser().parse("{\"responses\":["
+                + "{\"hits\":{\"total\":0,\"hits\":[]}},{\"hits\":{\"total\":0,\"hits\":[]}},{\"hits\":{\"total\":0,\"hits\":[]}}"
+                + "]}").getAsJsonObject());
+        when(this.client.execute(any(MultiSearch.class))).thenReturn(multiSearchResult);
+
+        this.template.searchForProjection(this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class).build(),
+                BookTitle.class, Book.class);
+        this.template.multiSearch(Arrays.asList(
+                SearchRequest.of(this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class).build(), Book.class),
+                SearchRequest.of(this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class).build(), Book.class),
+                SearchRequest.of(this.template.prepareSearch(QueryBuilders.matchAllQuery(), Order.class).build(), Order.class)));
+
+        assertThat(registry.get("elasticsearch.client.requests")
+                .tags("operation", "search", "entity", "Book", "index", "books").timer().count(), is(1L));
+        // one sample by entity class of the multi search
+        assertThat(registry.get("elasticsearch.client.requests")
+                .tags("entity", "Book", "index", "books").timers().size(), is(2));
+        assertThat(registry.get("elasticsearch.client.requests")
+                .tags("entity", "Order", "index", "orders").timer().count(), is(1L));
+        assertThat(registry.find("elasticsearch.client.requests").tags("entity", "none").timer(), is(nullValue()));
+    }
+
+    interface BookTitle {
+        String getTitle();
+
+        Double getPrice();
+    }
+
+    @Document(aliasOrIndex = "orders", type = "order", tieBreaker = "uuid")
+    static class Order {
+        private String uuid;
+    }
+
+    static class BookSummary {
+        private String title;
+        private Double price;
+    }
+
+    /**
+     * @return the executed actions of the given type, among all the executed actions.
+     */
+    private <A extends Action> List<A> executed(Class<A> type, int executions) throws IOException {
+        ArgumentCaptor<Action> captor = ArgumentCaptor.forClass(Action.class);
+        verify(this.client, times(executions)).execute(captor.capture());
+        return captor.getAllValues().stream().filter(type::isInstance).map(type::cast).collect(Collectors.toList());
+    }
+
+    private static JestResult jestResult(String json) {
+        JestResult result = new JestResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse(json).getAsJsonObject());
+        return result;
+    }
+
+    private static DocumentResult documentResult(int responseCode, String json) {
+        DocumentResult result = new DocumentResult(new Gson());
+        result.setResponseCode(responseCode);
+        result.setSucceeded(responseCode < 300);
+        result.setJsonObject(new JsonParser().parse(json).getAsJsonObject());
+        return result;
+    }
+
+    private static <R extends JestResult> R scrollPage(R result, String... ids) {
+        String hits = Arrays.stream(ids)
+                .map(id -> "{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"" + id + "\",\"_source\":{\"title\":\"title " + id + "\"}}")
+                .collect(Collectors.joining(","));
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"_scroll_id\":\"scroll-1\",\"hits\":{\"total\":3,\"hits\":[" + hits + "]}}").getAsJsonObject());
+        result.setPathToResult("hits/hits/_source");
+        return result;
+    }
+
+    private static SearchResult searchAfterPage(String... hits) {
+        SearchResult result = new SearchResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"hits\":{\"total\":3,\"hits\":[" + String.join(",", hits) + "]}}").getAsJsonObject());
+        result.setPathToResult("hits/hits/_source");
+        return result;
+    }
+
+    private static SearchResult aggregationPage(String... buckets) {
+        SearchResult result = new SearchResult(new Gson());
+        result.setSucceeded(true);
+        result.setJsonObject(new JsonParser().parse("{\"hits\":{\"total\":6,\"hits\":[]},\"aggregations\":{\"titles\":{\"buckets\":["
+                + String.join(",", buckets) + "]}}}").getAsJsonObject());
+        return result;
+    }
+
+    private static Book createBook(String id) {
+        return Book.builder().documentId(id).title("title " + id).build();
+    }
+
+    private static String indexItem(String id, int status, int version) {
+        return "{\"index\":{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"" + id + "\",\"_version\":" + version
+                + ",\"status\":" + status + "}}";
+    }
+
+    private static String rejectedItem(String id) {
+        return "{\"index\":{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"" + id + "\",\"status\":429,"
+                + "\"error\":{\"type\":\"es_rejected_execution_exception\",\"reason\":\"rejected execution\"}}}";
+    }
+
+    private static BulkResult bulkResult(int responseCode, String json) {
+        BulkResult result = new BulkResult(new Gson());
+        result.setResponseCode(responseCode);
+        result.setJsonString(json);
+        result.setJsonObject(new JsonParser().parse(json).getAsJsonObject());
+        result.setSucceeded(!json.contains("\"errors\":true"));
+        return result;
+    }
+}
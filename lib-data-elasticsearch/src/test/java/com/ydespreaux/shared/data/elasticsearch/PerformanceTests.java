@@ -0,0 +1,55 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * JUnit category of the performance tests, excluded from the build : run them with {@code mvn test -Pperf}.
+ * <p>
+ * The tests compare the allocated bytes of the optimized code and of the code it replaces, measured on the current
+ * thread : unlike the durations, they don't depend on the load of the machine.
+ */
+public interface PerformanceTests {
+
+    /**
+     * Number of runs before the measure, for the JIT compilation.
+     */
+    int WARM_UP = 20;
+
+    /**
+     * @param runs   the number of measured runs.
+     * @param action the measured action.
+     * @return the mean bytes allocated by the current thread during a run of the action.
+     */
+    static long allocatedBytes(int runs, ThrowingRunnable action) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARM_UP; i++) {
+            action.run();
+        }
+        long start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < runs; i++) {
+            action.run();
+        }
+        return (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - start) / runs;
+    }
+
+    /**
+     * @param runs   the number of measured runs.
+     * @param action the measured action.
+     * @return the mean duration of a run of the action, in nanoseconds.
+     */
+    static long duration(int runs, ThrowingRunnable action) throws Exception {
+        for (int i = 0; i < WARM_UP; i++) {
+            action.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            action.run();
+        }
+        return (System.nanoTime() - start) / runs;
+    }
+
+    @FunctionalInterface
+    interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,262 @@
+package com.ydespreaux.shared.data.elasticsearch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.ydespreaux.shared.data.elasticsearch.cache.QueryCache;
+import com.ydespreaux.shared.data.elasticsearch.entities.Article;
+import com.ydespreaux.shared.data.elasticsearch.entities.Book;
+import com.ydespreaux.shared.data.elasticsearch.mapping.MappingElasticsearchConverter;
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.client.config.ElasticsearchVersion;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.ClearScroll;
+import io.searchbox.core.DocumentResult;
+import io.searchbox.core.Get;
+import io.searchbox.core.Index;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchResult;
+import io.searchbox.core.SearchScroll;
+import io.searchbox.indices.CreateIndex;
+import io.searchbox.indices.IndicesExists;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.junit4.SpringRunner;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ReactiveJestElasticsearchTemplate} with a mocked {@link JestClient}.
+ */
+@RunWith(SpringRunner.class)
+public class ReactiveJestElasticsearchTemplateTest {
+
+    private final List<Action> actions = new CopyOnWriteArrayList<>();
+
+    private JestClient client;
+
+    private Function<Action, JestResult> results = this::resultFor;
+
+    private ReactiveJestElasticsearchTemplate template;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        this.client = mock(JestClient.class);
+        doAnswer(invocation -> {
+            Action action = invocation.getArgument(0);
+            JestResultHandler<JestResult> handler = invocation.getArgument(1);
+            this.actions.add(action);
+            handler.completed(this.results.apply(action));
+            return null;
+        }).when(this.client).executeAsync(any(), any());
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.elasticsearch.aliases.article", "articles")
+                .withProperty("spring.elasticsearch.index-pattern.article", "'article-%s-'yyyy");
+        JestElasticsearchTemplate operations = new JestElasticsearchTemplate(this.client, new MappingElasticsearchConverter(environment));
+        operations.setBulkBackoffPolicy(BackoffPolicy.exponentialBackoff(Duration.ofMillis(1), 3));
+        this.template = new ReactiveJestElasticsearchTemplate(this.client, operations);
+    }
+
+    @Test
+    public void index() {
+        Book book = Book.builder().title("title").build();
+
+        StepVerifier.create(this.template.index(book, Book.class))
+                .expectNext(book)
+                .verifyComplete();
+
+        assertThat(book.getDocumentId(), is("1"));
+        assertThat(book.getVersion(), is(1));
+        assertThat(this.actions.get(0), instanceOf(Index.class));
+    }
+
+    @Test
+    public void index_timeBasedIndexCreatedWithoutBlocking() throws Exception {
+        Article article = Article.builder().name("name").entrepot(Article.EnumEntrepot.E1).build();
+
+        StepVerifier.create(this.template.index(article, Article.class).then(this.template.index(article, Article.class)))
+                .expectNext(article)
+                .verifyComplete();
+
+        assertThat(this.actions.size(), is(4));
+        assertThat(this.actions.get(0), instanceOf(IndicesExists.class));
+        assertThat(this.actions.get(1), instanceOf(CreateIndex.class));
+        assertThat(this.actions.get(2), instanceOf(Index.class));
+        // the created index is known : the second document is indexed directly
+        assertThat(this.actions.get(3), instanceOf(Index.class));
+        assertThat(((CreateIndex) this.actions.get(1)).getURI(ElasticsearchVersion.UNKNOWN), is(((Index) this.actions.get(2)).getIndex()));
+        verify(this.client, never()).execute(any());
+    }
+
+    @Test
+    public void bulkIndex_retryRejectedItems() {
+        this.results = action -> {
+            if (!(action instanceof Bulk)) {
+                return resultFor(action);
+            }
+            long bulks = this.actions.stream().filter(Bulk.class::isInstance).count();
+            return succeeded(new BulkResult(new Gson()), bulks == 1
+                    ? "{\"errors\":true,\"items\":[" + indexItem("1") + "," + rejectedItem("2") + "]}"
+                    : "{\"errors\":false,\"items\":[" + indexItem("2") + "]}");
+        };
+        List<Book> books = Arrays.asList(Book.builder().documentId("1").build(), Book.builder().documentId("2").build());
+
+        StepVerifier.create(this.template.bulkIndex(books, Book.class))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertThat(this.actions.size(), is(2));
+        String retriedData = ((Bulk) this.actions.get(1)).getData(new Gson());
+        assertTrue(retriedData.contains("\"_id\":\"2\""));
+        assertFalse(retriedData.contains("\"_id\":\"1\""));
+        assertThat(books.get(0).getVersion(), is(1));
+        assertThat(books.get(1).getVersion(), is(1));
+    }
+
+    @Test
+    public void deleteById_timeBasedDeletedFromAllIndices() {
+        this.results = action -> action instanceof Search
+                ? succeeded(new SearchResult(new Gson()), "{\"_scroll_id\":\"scroll-1\",\"hits\":{\"total\":2,\"hits\":["
+                + "{\"_index\":\"article-e1-2018\",\"_type\":\"article\",\"_id\":\"1\"},"
+                + "{\"_index\":\"article-e1-2019\",\"_type\":\"article\",\"_id\":\"1\"}]}}")
+                : action instanceof Bulk
+                ? succeeded(new BulkResult(new Gson()), "{\"errors\":false,\"items\":["
+                + "{\"delete\":{\"_index\":\"article-e1-2018\",\"_type\":\"article\",\"_id\":\"1\",\"status\":200}},"
+                + "{\"delete\":{\"_index\":\"article-e1-2019\",\"_type\":\"article\",\"_id\":\"1\",\"status\":200}}]}")
+                : resultFor(action);
+
+        StepVerifier.create(this.template.deleteById("1", Article.class))
+                .verifyComplete();
+
+        Bulk bulk = (Bulk) this.actions.stream().filter(Bulk.class::isInstance).findFirst().orElseThrow(AssertionError::new);
+        String data = bulk.getData(new Gson());
+        assertTrue(data.contains("\"_index\":\"article-e1-2018\""));
+        assertTrue(data.contains("\"_index\":\"article-e1-2019\""));
+        assertTrue(this.actions.stream().anyMatch(ClearScroll.class::isInstance));
+    }
+
+    @Test
+    public void index_queryCacheInvalidatedForTheEntityClass() {
+        QueryCache queryCache = mock(QueryCache.class);
+        this.template.setQueryCache(queryCache);
+
+        StepVerifier.create(this.template.index(Book.builder().title("title").build(), Book.class))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(queryCache).written(any(Index.class), eq(Book.class));
+    }
+
+    @Test
+    public void findById_notFound() {
+        StepVerifier.create(this.template.findById(Book.class, "unknown"))
+                .verifyComplete();
+    }
+
+    @Test
+    public void scroll_onePageAtATime() {
+        Search.Builder builder = this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class);
+
+        StepVerifier.create(this.template.scroll(builder, 2, 1, Book.class), 1)
+                .expectNextCount(1)
+                // at most the next page is prefetched
+                .then(() -> assertThat(this.actions.size(), lessThanOrEqualTo(2)))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertThat(this.actions.size(), is(4));
+        assertThat(this.actions.get(1), instanceOf(SearchScroll.class));
+        assertThat(this.actions.get(3), instanceOf(ClearScroll.class));
+    }
+
+    @Test
+    public void scroll_clearedOnCancel() {
+        Search.Builder builder = this.template.prepareSearch(QueryBuilders.matchAllQuery(), Book.class);
+
+        StepVerifier.create(this.template.scroll(builder, 2, 1, Book.class), 1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+
+        assertThat(this.actions.size(), is(2));
+        assertThat(this.actions.get(1), instanceOf(ClearScroll.class));
+    }
+
+    private JestResult resultFor(Action action) {
+        if (action instanceof Index) {
+            DocumentResult result = new DocumentResult(new Gson());
+            return succeeded(result, "{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"1\",\"_version\":1,\"result\":\"created\"}");
+        } else if (action instanceof Get) {
+            DocumentResult result = new DocumentResult(new Gson());
+            result.setResponseCode(404);
+            result.setJsonObject(new JsonParser().parse("{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"unknown\",\"found\":false}").getAsJsonObject());
+            return result;
+        } else if (action instanceof Search) {
+            return succeeded(new SearchResult(new Gson()), page("1", "2"));
+        } else if (action instanceof SearchScroll) {
+            long scrolls = this.actions.stream().filter(SearchScroll.class::isInstance).count();
+            return succeeded(new JestResult(new Gson()), scrolls == 1 ? page("3") : page());
+        } else if (action instanceof IndicesExists) {
+            JestResult result = new JestResult(new Gson());
+            result.setResponseCode(404);
+            return result;
+        }
+        return succeeded(new JestResult(new Gson()), "{\"succeeded\":true}");
+    }
+
+    private static String indexItem(String id) {
+        return "{\"index\":{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"" + id + "\",\"_version\":1,\"status\":201}}";
+    }
+
+    private static String rejectedItem(String id) {
+        return "{\"index\":{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"" + id + "\",\"status\":429,"
+                + "\"error\":{\"type\":\"es_rejected_execution_exception\",\"reason\":\"rejected execution\"}}}";
+    }
+
+    private static String page(String... ids) {
+        StringBuilder hits = new StringBuilder();
+        for (String id : ids) {
+            if (hits.length() > 0) {
+                hits.append(',');
+            }
+            hits.append("{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"").append(id)
+                    .append("\",\"_source\":{\"title\":\"title ").append(id).append("\"}}");
+        }
+        return "{\"_scroll_id\":\"scroll-1\",\"hits\":{\"total\":3,\"hits\":[" + hits + "]}}";
+    }
+
+    private static <R extends JestResult> R succeeded(R result, String json) {
+        result.setSucceeded(true);
+        result.setResponseCode(200);
+        result.setJsonString(json);
+        result.setJsonObject(new JsonParser().parse(json).getAsJsonObject());
+        result.setPathToResult("hits/hits/_source");
+        return result;
+    }
+}
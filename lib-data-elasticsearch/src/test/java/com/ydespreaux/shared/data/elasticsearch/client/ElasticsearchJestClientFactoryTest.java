@@ -0,0 +1,101 @@
+package com.ydespreaux.shared.data.elasticsearch.client;
+
+import com.sun.net.httpserver.HttpServer;
+import com.ydespreaux.shared.data.elasticsearch.metrics.ConnectionPoolMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.searchbox.client.config.HttpClientConfig;
+import io.searchbox.core.Count;
+import io.searchbox.core.CountResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ElasticsearchJestClientFactory}.
+ */
+@RunWith(SpringRunner.class)
+public class ElasticsearchJestClientFactoryTest {
+
+    private ElasticsearchJestClient client;
+
+    @Before
+    public void setUp() {
+        ElasticsearchJestClientFactory factory = new ElasticsearchJestClientFactory();
+        factory.setHttpClientConfig(new HttpClientConfig.Builder("http://localhost:9200")
+                .multiThreaded(true)
+                .maxTotalConnection(200)
+                .defaultMaxTotalConnectionPerRoute(50)
+                .build());
+        factory.setConnectionTimeToLive(Duration.ofMinutes(5));
+        factory.setKeepAlive(Duration.ofSeconds(30));
+        this.client = (ElasticsearchJestClient) factory.getObject();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.client.close();
+    }
+
+    @Test
+    public void getObject_connectionPoolsWithTimeToLive() {
+        assertThat(this.client.getConnectionPool(), is(notNullValue()));
+        assertThat(this.client.getConnectionPool().getMaxTotal(), is(200));
+        assertThat(this.client.getConnectionPool().getDefaultMaxPerRoute(), is(50));
+        assertThat(this.client.getAsyncConnectionPool().getMaxTotal(), is(200));
+        assertThat(this.client.getAsyncConnectionPool().getDefaultMaxPerRoute(), is(50));
+    }
+
+    @Test
+    public void connectionPoolMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ConnectionPoolMetrics(this.client).bindTo(registry);
+
+        assertThat(registry.get("elasticsearch.client.pool.max").tag("pool", "sync").gauge().value(), is(200.0));
+        assertThat(registry.get("elasticsearch.client.pool.connections").tags("pool", "async", "state", "leased").gauge().value(), is(0.0));
+    }
+
+    @Test
+    public void nonBlockingTransport() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "{\"count\":3}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        ElasticsearchJestClientFactory factory = new ElasticsearchJestClientFactory();
+        factory.setHttpClientConfig(new HttpClientConfig.Builder("http://localhost:" + server.getAddress().getPort())
+                .multiThreaded(true)
+                .build());
+        factory.setIoThreadCount(1);
+        factory.setMaxInFlightRequestsPerNode(8);
+        ElasticsearchJestClient nonBlockingClient = (ElasticsearchJestClient) factory.getObject();
+        nonBlockingClient.setNonBlockingTransport(true);
+        try {
+            CountResult result = nonBlockingClient.execute(new Count.Builder().addIndex("books").build());
+
+            assertThat(result.getCount(), is(3.0));
+            assertThat(nonBlockingClient.getAsyncConnectionPool().getDefaultMaxPerRoute(), is(8));
+            assertThat(nonBlockingClient.getAsyncConnectionPool().getTotalStats().getAvailable(), is(1));
+            assertThat(nonBlockingClient.getConnectionPool().getTotalStats().getAvailable(), is(0));
+        } finally {
+            nonBlockingClient.close();
+            server.stop(0);
+        }
+    }
+}
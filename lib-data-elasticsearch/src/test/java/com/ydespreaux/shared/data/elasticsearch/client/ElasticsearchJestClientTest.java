@@ -0,0 +1,206 @@
+package com.ydespreaux.shared.data.elasticsearch.client;
+
+import com.google.gson.Gson;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingBulk;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingIndex;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.Index;
+import io.searchbox.core.Search;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.util.EntityUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ElasticsearchJestClient}.
+ */
+@RunWith(SpringRunner.class)
+public class ElasticsearchJestClientTest {
+
+    private ElasticsearchJestClient client;
+
+    @Before
+    public void setUp() {
+        this.client = new ElasticsearchJestClient();
+        this.client.setServers(Collections.singleton("http://localhost:9200"));
+    }
+
+    @Test
+    public void prepareRequest_streamingBulk() throws Exception {
+        Bulk bulk = new StreamingBulk.Builder()
+                .addAction(new StreamingIndex.Builder(Collections.singletonMap("title", "streaming")).index("books").type("book").id("1").build())
+                .build();
+
+        HttpUriRequest request = this.client.prepareRequest(bulk, null);
+
+        assertThat(request.getMethod(), is("POST"));
+        assertThat(request.getURI().toString(), is("http://localhost:9200/_bulk"));
+        HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+        assertThat(entityRequest.getEntity(), is(instanceOf(StreamingHttpEntity.class)));
+        assertThat(entityRequest.getEntity().getContentType().getValue(), startsWith("application/json"));
+        assertThat(EntityUtils.toString(entityRequest.getEntity()), is(bulk.getData(new Gson())));
+    }
+
+    @Test
+    public void prepareRequest_gzipStreamingBulk() {
+        this.client.setRequestCompressionEnabled(true);
+        HttpUriRequest request = this.client.prepareRequest(new StreamingBulk.Builder().build(), null);
+        assertThat(((HttpEntityEnclosingRequest) request).getEntity().getContentEncoding().getValue(), is("gzip"));
+    }
+
+    @Test
+    public void prepareRequest_notStreamingAction() {
+        HttpUriRequest request = this.client.prepareRequest(new Search.Builder("{}").build(), null);
+        assertThat(((HttpEntityEnclosingRequest) request).getEntity(), is(not(instanceOf(StreamingHttpEntity.class))));
+    }
+
+    @Test
+    public void prepareRequest_bulkCompressionThreshold() {
+        this.client.setBulkCompressionEnabled(true);
+        this.client.setCompressionThreshold(1024);
+        Bulk smallBulk = new Bulk.Builder()
+                .addAction(new Index.Builder(Collections.singletonMap("title", "small")).index("books").type("book").build())
+                .build();
+        Bulk largeBulk = new Bulk.Builder()
+                .addAction(new Index.Builder(Collections.singletonMap("title", String.join("", Collections.nCopies(1024, "a")))).index("books").type("book").build())
+                .build();
+
+        assertThat(((HttpEntityEnclosingRequest) this.client.prepareRequest(smallBulk, null)).getEntity().getContentEncoding(), is(nullValue()));
+        assertThat(((HttpEntityEnclosingRequest) this.client.prepareRequest(largeBulk, null)).getEntity().getContentEncoding().getValue(), is("gzip"));
+        assertThat(((HttpEntityEnclosingRequest) this.client.prepareRequest(new Search.Builder(String.join("", Collections.nCopies(1024, " "))).build(), null))
+                .getEntity().getContentEncoding(), is(nullValue()));
+    }
+
+    @Test
+    public void prepareRequest_streamingBulkCompressionThreshold() throws Exception {
+        this.client.setBulkCompressionEnabled(true);
+        this.client.setCompressionThreshold(1024);
+        Bulk smallBulk = new StreamingBulk.Builder()
+                .addAction(new StreamingIndex.Builder(Collections.singletonMap("title", "small")).index("books").type("book").build())
+                .build();
+        Bulk largeBulk = new StreamingBulk.Builder()
+                .addAction(new StreamingIndex.Builder(Collections.singletonMap("title", "small")).index("books").type("book").build())
+                .addAction(new StreamingIndex.Builder(Collections.singletonMap("title", String.join("", Collections.nCopies(1024, "a")))).index("books").type("book").build())
+                .build();
+
+        HttpEntity smallEntity = ((HttpEntityEnclosingRequest) this.client.prepareRequest(smallBulk, null)).getEntity();
+        assertThat(smallEntity.getContentEncoding(), is(nullValue()));
+        assertThat(EntityUtils.toString(smallEntity), is(smallBulk.getData(new Gson())));
+        HttpEntity largeEntity = ((HttpEntityEnclosingRequest) this.client.prepareRequest(largeBulk, null)).getEntity();
+        assertThat(largeEntity, is(instanceOf(StreamingHttpEntity.class)));
+        assertThat(largeEntity.getContentEncoding().getValue(), is("gzip"));
+    }
+
+    @Test
+    public void prepareRequest_gzipBodyReadable() throws Exception {
+        this.client.setRequestCompressionEnabled(true);
+        Search search = new Search.Builder("{\"query\":{\"match_all\":{}}}").build();
+
+        HttpEntity entity = ((HttpEntityEnclosingRequest) this.client.prepareRequest(search, null)).getEntity();
+
+        // read by the asynchronous client
+        assertThat(entity.getContentEncoding().getValue(), is("gzip"));
+        assertThat(StreamUtils.copyToString(new GZIPInputStream(entity.getContent()), StandardCharsets.UTF_8),
+                is(search.getData(new Gson())));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void execute_nonBlockingTransportTimeout() throws Exception {
+        CloseableHttpAsyncClient asyncClient = mock(CloseableHttpAsyncClient.class);
+        Future<HttpResponse> future = mock(Future.class);
+        // no response
+        when(asyncClient.execute(any(HttpUriRequest.class), any(FutureCallback.class))).thenReturn(future);
+        this.client.setAsyncClient(asyncClient);
+        this.client.setNonBlockingTransport(true);
+
+        long start = System.nanoTime();
+        try {
+            this.client.execute(new Search.Builder("{}").build(),
+                    RequestConfig.custom().setSocketTimeout(100).setConnectionRequestTimeout(50).build());
+            fail("The request must time out");
+        } catch (SocketTimeoutException e) {
+            assertThat(e.getMessage(), is("No response after 150 ms"));
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), is(greaterThanOrEqualTo(150L)));
+        verify(future).cancel(true);
+    }
+
+    @Test
+    public void produceContent_asyncBodyPartByPart() throws Exception {
+        Bulk bulk = new StreamingBulk.Builder()
+                .addAction(new StreamingIndex.Builder(Collections.singletonMap("title", "first")).index("books").type("book").id("1").build())
+                .addAction(new StreamingIndex.Builder(Collections.singletonMap("title", "second")).index("books").type("book").id("2").build())
+                .build();
+
+        assertThat(new String(produceContent(new StreamingHttpEntity((StreamingBulk) bulk, new Gson(), ContentType.APPLICATION_JSON, false)),
+                StandardCharsets.UTF_8), is(bulk.getData(new Gson())));
+        byte[] gzipBody = produceContent(new StreamingHttpEntity((StreamingBulk) bulk, new Gson(), ContentType.APPLICATION_JSON, true));
+        assertThat(StreamUtils.copyToString(new GZIPInputStream(new ByteArrayInputStream(gzipBody)), StandardCharsets.UTF_8),
+                is(bulk.getData(new Gson())));
+    }
+
+    /**
+     * Body sent by the asynchronous client, through an encoder accepting a few bytes at a time.
+     */
+    private static byte[] produceContent(StreamingHttpEntity entity) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        AtomicBoolean completed = new AtomicBoolean();
+        ContentEncoder encoder = new ContentEncoder() {
+            @Override
+            public int write(ByteBuffer src) {
+                int length = Math.min(src.remaining(), 16);
+                byte[] bytes = new byte[length];
+                src.get(bytes);
+                body.write(bytes, 0, length);
+                return length;
+            }
+
+            @Override
+            public void complete() {
+                completed.set(true);
+            }
+
+            @Override
+            public boolean isCompleted() {
+                return completed.get();
+            }
+        };
+        while (!encoder.isCompleted()) {
+            entity.produceContent(encoder, null);
+        }
+        entity.close();
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package com.ydespreaux.shared.data.elasticsearch.client;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.ydespreaux.shared.data.elasticsearch.PerformanceTests;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingBulk;
+import com.ydespreaux.shared.data.elasticsearch.core.StreamingIndex;
+import com.ydespreaux.shared.data.elasticsearch.entities.Book;
+import io.searchbox.core.Bulk;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ContentType;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static com.ydespreaux.shared.data.elasticsearch.PerformanceTests.allocatedBytes;
+import static com.ydespreaux.shared.data.elasticsearch.PerformanceTests.duration;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Performance of the compression of a bulk by {@link StreamingHttpEntity} : the body compressed while it is written
+ * versus the string body compressed in memory.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@Category(PerformanceTests.class)
+public class StreamingHttpEntityPerformanceTest {
+
+    private static final int DOCUMENTS = 5000;
+    private static final int COMPRESSION_THRESHOLD = 8192;
+
+    private final Gson gson = new GsonBuilder().create();
+
+    @Test
+    public void writeTo_compressedWhileWritten() throws Exception {
+        Bulk.Builder builder = new StreamingBulk.Builder().defaultIndex("books").defaultType("book");
+        for (int i = 0; i < DOCUMENTS; i++) {
+            builder.addAction(new StreamingIndex.Builder(Book.builder()
+                    .documentId(String.valueOf(i))
+                    .title("title " + i)
+                    .description("description of the book " + i)
+                    .build()).id(String.valueOf(i)).build());
+        }
+        StreamingBulk bulk = (StreamingBulk) builder.build();
+        StreamingHttpEntity plainEntity = new StreamingHttpEntity(bulk, this.gson, ContentType.APPLICATION_JSON, false);
+        StreamingHttpEntity gzipEntity = new StreamingHttpEntity(bulk, this.gson, ContentType.APPLICATION_JSON, true);
+        CountingOutputStream plain = new CountingOutputStream();
+        plainEntity.writeTo(plain);
+        CountingOutputStream compressed = new CountingOutputStream();
+        gzipEntity.writeTo(compressed);
+
+        long eagerAllocated = allocatedBytes(10, () -> {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+                gzipOutputStream.write(bulk.getData(this.gson).getBytes(StandardCharsets.UTF_8));
+            }
+            outputStream.toByteArray();
+        });
+        long streamedAllocated = allocatedBytes(10, () -> gzipEntity.writeTo(new CountingOutputStream()));
+        long thresholdAllocated = allocatedBytes(10, () -> StreamingHttpEntity.bodySmallerThan(bulk, this.gson, COMPRESSION_THRESHOLD));
+        long plainDuration = duration(10, () -> plainEntity.writeTo(new CountingOutputStream()));
+        long gzipDuration = duration(10, () -> gzipEntity.writeTo(new CountingOutputStream()));
+
+        log.info("Bulk of {} documents : {} bytes, {} bytes compressed, written in {} ns, compressed in {} ns",
+                DOCUMENTS, plain.count, compressed.count, plainDuration, gzipDuration);
+        log.info("{} bytes allocated by the compression in memory, {} bytes by the compression while written, "
+                + "{} bytes by the threshold check", eagerAllocated, streamedAllocated, thresholdAllocated);
+        assertThat(compressed.count, lessThan(plain.count / 4));
+        assertThat(streamedAllocated, lessThan(eagerAllocated / 2));
+        // the threshold check stops writing the body once the threshold is reached
+        assertThat(StreamingHttpEntity.bodySmallerThan(bulk, this.gson, COMPRESSION_THRESHOLD), nullValue());
+        assertThat(thresholdAllocated, lessThan(streamedAllocated / 10));
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.count += len;
+        }
+    }
+}
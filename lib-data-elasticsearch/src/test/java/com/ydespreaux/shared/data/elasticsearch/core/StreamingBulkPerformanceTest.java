@@ -0,0 +1,61 @@
+package com.ydespreaux.shared.data.elasticsearch.core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.ydespreaux.shared.data.elasticsearch.PerformanceTests;
+import com.ydespreaux.shared.data.elasticsearch.entities.Book;
+import io.searchbox.core.Bulk;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.ydespreaux.shared.data.elasticsearch.PerformanceTests.allocatedBytes;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Performance of {@link StreamingBulk} : the body written to the connection versus the body built as a string.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@Category(PerformanceTests.class)
+public class StreamingBulkPerformanceTest {
+
+    private static final int DOCUMENTS = 5000;
+
+    private final Gson gson = new GsonBuilder().create();
+
+    @Test
+    public void writeTo_allocatesLessThanTheStringBody() throws Exception {
+        Bulk.Builder builder = new StreamingBulk.Builder().defaultIndex("books").defaultType("book");
+        for (int i = 0; i < DOCUMENTS; i++) {
+            builder.addAction(new StreamingIndex.Builder(Book.builder()
+                    .documentId(String.valueOf(i))
+                    .title("title " + i)
+                    .description("description of the book " + i)
+                    .build()).id(String.valueOf(i)).build());
+        }
+        Bulk bulk = builder.build();
+        OutputStream connection = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        long stringBody = allocatedBytes(10, () -> bulk.getData(this.gson).getBytes(StandardCharsets.UTF_8));
+        long streamedBody = allocatedBytes(10, () -> ((StreamingBulk) bulk).writeTo(connection, this.gson));
+
+        log.info("Bulk of {} documents : {} bytes allocated by the string body, {} bytes by the streamed body",
+                DOCUMENTS, stringBody, streamedBody);
+        assertThat(streamedBody, lessThan(stringBody / 2));
+    }
+}
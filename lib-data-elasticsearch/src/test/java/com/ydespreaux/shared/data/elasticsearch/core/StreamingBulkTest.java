@@ -0,0 +1,52 @@
+package com.ydespreaux.shared.data.elasticsearch.core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.ydespreaux.shared.data.elasticsearch.entities.Book;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+import io.searchbox.params.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link StreamingBulk}.
+ */
+@RunWith(SpringRunner.class)
+public class StreamingBulkTest {
+
+    private final Gson gson = new GsonBuilder().create();
+
+    @Test
+    public void writeTo_sameAsBulkData() throws Exception {
+        Bulk bulk = new StreamingBulk.Builder()
+                .defaultIndex("books")
+                .defaultType("book")
+                .addAction(new StreamingIndex.Builder(Book.builder().documentId("1").title("l'été <à> \"Paris\"").build()).id("1").build())
+                .addAction(new StreamingIndex.Builder("{\"title\":\"raw\"}").index("others").type("doc").build())
+                .addAction(new Index.Builder(Book.builder().title("jest").build()).id("3").setParameter(Parameters.VERSION, 2).build())
+                .addAction(new Delete.Builder("4").index("books").type("book").build())
+                .build();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ((StreamingBulk) bulk).writeTo(outputStream, this.gson);
+
+        assertThat(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), is(bulk.getData(this.gson)));
+    }
+
+    @Test
+    public void writeTo_emptyBulk() throws Exception {
+        StreamingBulk bulk = (StreamingBulk) new StreamingBulk.Builder().build();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bulk.writeTo(outputStream, this.gson);
+        assertThat(outputStream.size(), is(0));
+    }
+}
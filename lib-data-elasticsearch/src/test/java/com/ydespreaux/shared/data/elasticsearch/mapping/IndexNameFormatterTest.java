@@ -0,0 +1,80 @@
+package com.ydespreaux.shared.data.elasticsearch.mapping;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link IndexNameFormatter}.
+ */
+@RunWith(SpringRunner.class)
+public class IndexNameFormatterTest {
+
+    @Test
+    public void format_existingPatternsSameAsSimpleDateFormat() {
+        List<String> patterns = Arrays.asList("'article-%s-'yyyy", "'article-%s-'yyyy.MM.dd", "'events-'yyyy.MM.dd",
+                "'logs-'yyyy.MM.dd.HH", "'events-'yyyy");
+        // year boundaries, where the week based year differs
+        List<LocalDateTime> times = Arrays.asList(LocalDateTime.of(2018, 11, 5, 23, 59, 59),
+                LocalDateTime.of(2018, 12, 31, 12, 0), LocalDateTime.of(2021, 1, 1, 0, 0), LocalDateTime.of(2020, 2, 29, 8, 30));
+        for (String pattern : patterns) {
+            for (LocalDateTime time : times) {
+                assertThat(pattern + " " + time, IndexNameFormatter.of(pattern).format(millis(time)),
+                        is(new SimpleDateFormat(pattern).format(new Date(millis(time)))));
+            }
+        }
+    }
+
+    @Test
+    public void format_lateEventsAlternatingWithCurrentOnes() {
+        IndexNameFormatter formatter = IndexNameFormatter.of("'alternate-'yyyy.MM.dd");
+        String today = formatter.format(millis(LocalDateTime.of(2018, 11, 6, 10, 0)));
+        String yesterday = formatter.format(millis(LocalDateTime.of(2018, 11, 5, 10, 0)));
+        assertThat(formatter.format(millis(LocalDateTime.of(2018, 11, 6, 11, 0))), sameInstance(today));
+        assertThat(formatter.format(millis(LocalDateTime.of(2018, 11, 5, 11, 0))), sameInstance(yesterday));
+    }
+
+    @Test
+    public void format_cachedByDay() {
+        IndexNameFormatter formatter = IndexNameFormatter.of("'books-'yyyy.MM.dd");
+        String first = formatter.format(millis(LocalDateTime.of(2018, 11, 5, 0, 0)));
+        assertThat(first, is("books-2018.11.05"));
+        assertThat(formatter.format(millis(LocalDateTime.of(2018, 11, 5, 23, 59, 59))), sameInstance(first));
+        assertThat(formatter.format(millis(LocalDateTime.of(2018, 11, 6, 0, 0))), is("books-2018.11.06"));
+        assertThat(formatter.format(millis(LocalDateTime.of(2018, 11, 4, 23, 59, 59))), is("books-2018.11.04"));
+    }
+
+    @Test
+    public void format_cachedByHour() {
+        IndexNameFormatter formatter = IndexNameFormatter.of("'logs-'yyyy.MM.dd.HH");
+        assertThat(formatter.format(millis(LocalDateTime.of(2018, 11, 5, 10, 59))), is("logs-2018.11.05.10"));
+        assertThat(formatter.format(millis(LocalDateTime.of(2018, 11, 5, 11, 0))), is("logs-2018.11.05.11"));
+    }
+
+    @Test
+    public void buildIndex_withDocumentTimeEvent() {
+        Date eventTime = new Date(millis(LocalDateTime.of(2017, 1, 1, 12, 0)));
+        IndexTimeBasedSupport<Date> support = new IndexTimeBasedSupport<Date>() {
+            @Override
+            protected Date getTimeEvent(IndexTimeBasedParameter<Date> indexParameter) {
+                return indexParameter.getDocument();
+            }
+        };
+        assertThat(support.buildIndex(IndexTimeBasedParameter.of("'events-'yyyy", new Date(), eventTime)), is("events-2017"));
+    }
+
+    private static long millis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
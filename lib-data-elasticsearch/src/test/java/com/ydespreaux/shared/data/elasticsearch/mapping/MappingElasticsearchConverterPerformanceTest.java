@@ -0,0 +1,66 @@
+package com.ydespreaux.shared.data.elasticsearch.mapping;
+
+import com.ydespreaux.shared.data.elasticsearch.PerformanceTests;
+import com.ydespreaux.shared.data.elasticsearch.entities.Book;
+import io.searchbox.annotations.JestId;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.lang.reflect.Field;
+
+import static com.ydespreaux.shared.data.elasticsearch.PerformanceTests.allocatedBytes;
+import static com.ydespreaux.shared.data.elasticsearch.PerformanceTests.duration;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Performance of the write path of {@link MappingElasticsearchConverter} : the persistent entity of a class and the
+ * accessors of its id and version, read for each indexed document.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@Category(PerformanceTests.class)
+public class MappingElasticsearchConverterPerformanceTest {
+
+    private static final int DOCUMENTS = 100_000;
+
+    private final MappingElasticsearchConverter converter = new MappingElasticsearchConverter(new StandardEnvironment());
+
+    @Test
+    public void writePath_noAllocationByDocument() throws Exception {
+        Book book = Book.builder().title("title").build();
+        Field idField = FieldUtils.getFieldsListWithAnnotation(Book.class, JestId.class).get(0);
+        idField.setAccessible(true);
+
+        long allocated = allocatedBytes(10, () -> {
+            for (int i = 0; i < DOCUMENTS; i++) {
+                ElasticsearchPersistentEntity<Book> persistentEntity = this.converter.getRequiredPersistentEntity(Book.class);
+                persistentEntity.setPersistentEntityId(book, "1");
+                persistentEntity.setPersistentEntityVersion(book, 1L);
+            }
+        });
+        long methodHandles = duration(10, () -> {
+            ElasticsearchPersistentEntity<Book> persistentEntity = this.converter.getRequiredPersistentEntity(Book.class);
+            for (int i = 0; i < DOCUMENTS; i++) {
+                persistentEntity.setPersistentEntityId(book, "1");
+            }
+        });
+        long reflection = duration(10, () -> {
+            for (int i = 0; i < DOCUMENTS; i++) {
+                idField.set(book, "1");
+            }
+        });
+
+        log.info("{} documents : {} bytes allocated, id set in {} ns with the accessors, {} ns with Field.set",
+                DOCUMENTS, allocated, methodHandles, reflection);
+        // the persistent entity and its accessors are resolved once by class
+        assertThat(allocated, lessThan((long) DOCUMENTS));
+        assertThat(book.getDocumentId(), is("1"));
+    }
+}
@@ -0,0 +1,155 @@
+package com.ydespreaux.shared.data.elasticsearch.mapping;
+
+import com.ydespreaux.shared.data.elasticsearch.annotations.Document;
+import com.ydespreaux.shared.data.elasticsearch.annotations.IndexTimeField;
+import com.ydespreaux.shared.data.elasticsearch.entities.Book;
+import io.searchbox.annotations.JestId;
+import io.searchbox.annotations.JestVersion;
+import org.elasticsearch.ElasticsearchException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MappingElasticsearchConverter}.
+ */
+@RunWith(SpringRunner.class)
+public class MappingElasticsearchConverterTest {
+
+    private MappingElasticsearchConverter converter;
+
+    @Before
+    public void setUp() {
+        this.converter = new MappingElasticsearchConverter(new StandardEnvironment());
+    }
+
+    @Test
+    public void getRequiredPersistentEntity_createdOnce() throws InterruptedException {
+        CountingIndexTimeBasedSupport.INSTANCES.set(0);
+        Set<ElasticsearchPersistentEntity<Counted>> entities = ConcurrentHashMap.newKeySet();
+        CountDownLatch ready = new CountDownLatch(8);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                try {
+                    ready.countDown();
+                    start.await();
+                    entities.add(this.converter.getRequiredPersistentEntity(Counted.class));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        // all the callers are waiting, then race on the creation of the entity
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertThat(entities.size(), is(1));
+        assertThat(CountingIndexTimeBasedSupport.INSTANCES.get(), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPersistentEntityId_wrongIdType() {
+        this.converter.getRequiredPersistentEntity(Counted.class).setPersistentEntityId(new Counted(), "1");
+    }
+
+    @Test
+    public void setPersistentEntityId_convertedToIdType() {
+        ElasticsearchPersistentEntity<Event> persistentEntity = this.converter.getRequiredPersistentEntity(Event.class);
+        Event event = new Event();
+        persistentEntity.setPersistentEntityId(event, "42");
+        assertTrue(persistentEntity.hasIdProperty());
+        assertThat(event.id, is(42L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getRequiredPersistentEntity_notDocument() {
+        this.converter.getRequiredPersistentEntity(String.class);
+    }
+
+    @Test
+    public void getIndex_documentTimeEvent() {
+        ElasticsearchPersistentEntity<Event> persistentEntity = this.converter.getRequiredPersistentEntity(Event.class);
+        Date now = new Date();
+        Event event = new Event();
+        assertThat(persistentEntity.getIndex(event, now), is(new SimpleDateFormat("'events-'yyyy.MM.dd").format(now)));
+        event.time = LocalDateTime.of(2017, 3, 1, 10, 30);
+        assertThat(persistentEntity.getIndex(event, now), is("events-2017.03.01"));
+    }
+
+    @Test
+    public void persistentEntityIdAndVersion() {
+        ElasticsearchPersistentEntity<Book> persistentEntity = this.converter.getRequiredPersistentEntity(Book.class);
+        Book book = Book.builder().title("title").build();
+        assertThat(persistentEntity.getPersistentEntityId(book), is(Optional.empty()));
+
+        persistentEntity.setPersistentEntityId(book, "1");
+        persistentEntity.setPersistentEntityVersion(book, 2);
+
+        assertThat(book.getDocumentId(), is("1"));
+        assertThat(book.getVersion(), is(2));
+        assertThat(persistentEntity.getPersistentEntityId(book), is(Optional.of("1")));
+        assertThat(persistentEntity.getAliasOrIndexName(), is("books"));
+        assertThat(persistentEntity.getType(), is("book"));
+    }
+
+    @Test
+    public void setPersistentEntityVersion_longVersion() {
+        Event event = new Event();
+        this.converter.getRequiredPersistentEntity(Event.class).setPersistentEntityVersion(event, Integer.MAX_VALUE + 1L);
+        assertThat(event.version, is(Integer.MAX_VALUE + 1L));
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void setPersistentEntityVersion_integerOverflow() {
+        this.converter.getRequiredPersistentEntity(Book.class).setPersistentEntityVersion(new Book(), Integer.MAX_VALUE + 1L);
+    }
+
+    @Document(aliasOrIndex = "counted", type = "counted", indexTimeBasedSupport = CountingIndexTimeBasedSupport.class)
+    static class Counted {
+        // no conversion of a String to a Date
+        @JestId
+        private Date id;
+    }
+
+    /**
+     * Slow support counting its instances, one per persistent entity created.
+     */
+    public static class CountingIndexTimeBasedSupport<T> extends IndexTimeBasedSupport<T> {
+        static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        public CountingIndexTimeBasedSupport() throws InterruptedException {
+            INSTANCES.incrementAndGet();
+            Thread.sleep(50);
+        }
+    }
+
+    @Document(aliasOrIndex = "events", type = "event", indexPattern = "'events-'yyyy.MM.dd")
+    static class Event {
+        @JestId
+        private Long id;
+        @IndexTimeField
+        private LocalDateTime time;
+        @JestVersion
+        private Long version;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ydespreaux.shared.data.elasticsearch.scroll;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.ydespreaux.shared.data.elasticsearch.PerformanceTests;
+import com.ydespreaux.shared.data.elasticsearch.entities.Book;
+import com.ydespreaux.shared.data.elasticsearch.mapping.ElasticsearchPersistentEntity;
+import com.ydespreaux.shared.data.elasticsearch.mapping.MappingElasticsearchConverter;
+import io.searchbox.client.JestResult;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static com.ydespreaux.shared.data.elasticsearch.PerformanceTests.allocatedBytes;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Performance of the decoding of the hits of a {@link SearchScrollResult} : the sources read from the response tree
+ * versus the sources copied with their metadata fields.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@Category(PerformanceTests.class)
+public class SearchScrollResultPerformanceTest {
+
+    private static final int HITS = 1000;
+
+    private final ElasticsearchPersistentEntity<Book> persistentEntity =
+            new MappingElasticsearchConverter(new StandardEnvironment()).getRequiredPersistentEntity(Book.class);
+
+    @Test
+    public void getHits_allocatesLessThanTheCopiedSources() throws Exception {
+        JsonArray hits = new JsonArray();
+        for (int i = 0; i < HITS; i++) {
+            hits.add(new JsonParser().parse("{\"_index\":\"books\",\"_type\":\"book\",\"_id\":\"" + i + "\",\"_version\":1,"
+                    + "\"_score\":1.0,\"_source\":{\"title\":\"title " + i + "\",\"description\":\"description of the book " + i + "\"},"
+                    + "\"highlight\":{\"title\":[\"<em>title</em> " + i + "\"]},\"sort\":[" + i + "]}"));
+        }
+        JsonObject hitsObject = new JsonObject();
+        hitsObject.addProperty("total", HITS);
+        hitsObject.add("hits", hits);
+        JsonObject response = new JsonObject();
+        response.addProperty("_scroll_id", "scroll-1");
+        response.add("hits", hitsObject);
+        JestResult jestResult = new JestResult(new Gson());
+        jestResult.setSucceeded(true);
+        jestResult.setJsonObject(response);
+        jestResult.setPathToResult("hits/hits/_source");
+        SearchScrollResult result = new SearchScrollResult(jestResult);
+
+        long copied = allocatedBytes(10, () -> result.getHits(Book.class).forEach(hit -> {
+            hit.getHighlight();
+            hit.getSort();
+        }));
+        long read = allocatedBytes(10, () -> result.getHits(Book.class, this.persistentEntity));
+
+        log.info("{} hits : {} bytes allocated by the copied sources, {} bytes by the sources read from the response",
+                HITS, copied, read);
+        assertThat(result.getHits(Book.class, this.persistentEntity).get(1).getSource().getDocumentId(), is("1"));
+        assertThat(read, lessThan(copied / 10));
+    }
+}